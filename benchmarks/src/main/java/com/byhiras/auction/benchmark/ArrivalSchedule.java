@@ -0,0 +1,89 @@
+package com.byhiras.auction.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * When each simulated bid arrives, who places it, which item it is
+ * for and how much it is worth, generated up front so that none of
+ * that work is done while the auction is under load.
+ *
+ * Bids arrive as a Poisson process, so the gaps between them are
+ * exponentially distributed, at a steady rate for the whole auction
+ * and then at a much higher rate in the snipe window just before it
+ * closes. Items are picked according to their popularity and the
+ * value of a bid rises with the time it arrives, with a little noise,
+ * so that most bids compete with the current winner.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class ArrivalSchedule {
+
+    static final int INITIAL = 100;
+
+    // how far bids rise over the auction, and how much they vary
+    private static final int PRICE_RISE = 100_000;
+    private static final int JITTER = 50;
+
+    // nanoseconds from the start of the auction, in increasing order
+    final long[] times;
+    final int[] users;
+    final int[] items;
+    final int[] values;
+
+    final long closingTime;
+
+    ArrivalSchedule(final SimulationConfig config) {
+        final Random random = new Random(config.seed);
+
+        closingTime = config.seconds * 1_000_000_000L;
+        final long snipeStart = closingTime - config.snipeMillis * 1_000_000L;
+
+        final long[] steady = poisson(config.rate, 0, closingTime, random);
+        final long[] snipes = config.snipeBids == 0 || config.snipeMillis == 0
+                ? new long[0]
+                : poisson(config.snipeBids * 1000.0 / config.snipeMillis, snipeStart, closingTime, random);
+
+        times = merge(steady, snipes);
+        users = new int[times.length];
+        items = config.popularity.picks(config.items, times.length, random);
+        values = new int[times.length];
+
+        for(int i = 0; i < times.length; i++) {
+            users[i] = random.nextInt(config.users);
+            values[i] = INITIAL + 1 + (int) (PRICE_RISE * (double) times[i] / closingTime) + random.nextInt(JITTER);
+        }
+    }
+
+    int size() {
+        return times.length;
+    }
+
+    private static long[] poisson(final double perSecond, final long from, final long to, final Random random) {
+        final double meanGap = 1_000_000_000.0 / perSecond;
+
+        long[] times = new long[Math.max(16, (int) Math.min(Integer.MAX_VALUE - 8, (to - from) / meanGap * 1.1))];
+        int size = 0;
+
+        double time = from;
+        while(true) {
+            // 1 - nextDouble() is in (0, 1] so the log is finite
+            time += -Math.log(1 - random.nextDouble()) * meanGap;
+            if(time >= to) break;
+
+            if(size == times.length) times = Arrays.copyOf(times, size * 2);
+            times[size++] = (long) time;
+        }
+        return Arrays.copyOf(times, size);
+    }
+
+    private static long[] merge(final long[] a, final long[] b) {
+        final long[] merged = new long[a.length + b.length];
+
+        int i = 0, j = 0, k = 0;
+        while(i < a.length && j < b.length) merged[k++] = a[i] <= b[j] ? a[i++] : b[j++];
+        while(i < a.length) merged[k++] = a[i++];
+        while(j < b.length) merged[k++] = b[j++];
+        return merged;
+    }
+}
@@ -0,0 +1,92 @@
+package com.byhiras.auction.benchmark;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.AuctionService;
+import com.byhiras.auction.BidTracker;
+import com.byhiras.auction.BidTrackerImpl;
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * The catalogue and tracker shared by every benchmark thread.
+ *
+ * The catalogue is built once per trial. The tracker is rebuilt for
+ * every iteration, with a few bids already placed on each item, so
+ * that the bid history does not grow across the whole run.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@State(Scope.Benchmark)
+public abstract class AuctionState {
+
+    static final int INITIAL = 100;
+    static final int SEED_BIDS = 4;
+
+    // length of the pre-computed item sequence, a power of two
+    static final int PICKS = 1 << 20;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int itemCount;
+
+    @Param({"UNIFORM", "ZIPF"})
+    public Popularity popularity;
+
+    Item[] items;
+    String[] names;
+    int[] picks;
+
+    Auction auction;
+    BidTracker tracker;
+    AuctionService service;
+
+    /**
+     * @return the simple class name of the tracker under test
+     */
+    protected abstract String trackerName();
+
+    @Setup(Level.Trial)
+    public void createCatalogue() {
+        auction = new Auction();
+        items = new Item[itemCount];
+        names = new String[itemCount];
+
+        for(int i = 0; i < itemCount; i++) {
+            names[i] = "Item " + i;
+            items[i] = new AuctionItem(names[i], INITIAL, INITIAL * 2);
+            auction.add(items[i]);
+        }
+
+        picks = popularity.picks(itemCount, PICKS, new Random(42));
+    }
+
+    @Setup(Level.Iteration)
+    public void createTracker() {
+        tracker = newTracker(trackerName());
+        service = new AuctionService(auction, tracker);
+
+        final User seller = new SilentUser("Seller");
+        for(Item item : items) {
+            for(int b = 1; b <= SEED_BIDS; b++) {
+                tracker.registerBid(new AuctionBid(INITIAL + b, seller), item);
+            }
+        }
+    }
+
+    private static BidTracker newTracker(final String name) {
+        switch(name) {
+            case "BidTrackerImpl":       return new BidTrackerImpl();
+            case "ConcurrentBidTracker": return new ConcurrentBidTracker();
+            default: throw new RuntimeException("Unable to benchmark the unknown tracker " + name);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.byhiras.auction.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached so that the
+ * allocation rate per operation is reported alongside the timings.
+ * Any of the usual JMH command line options may be given, for example
+ *
+ *   java -jar target/benchmarks.jar BidHotPath -p itemCount=1000 -p popularity=ZIPF
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
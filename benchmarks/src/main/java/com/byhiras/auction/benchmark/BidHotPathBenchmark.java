@@ -0,0 +1,52 @@
+package com.byhiras.auction.benchmark;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded latency of the operations on the bid hot path.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BidHotPathBenchmark {
+
+    @Benchmark
+    public void bid(SingleThreadedAuction auction, Bidder bidder) {
+        auction.service.bid(bidder.nextBid(), auction.names[bidder.nextItem(auction)]);
+    }
+
+    @Benchmark
+    public void registerBid(SingleThreadedAuction auction, Bidder bidder) {
+        auction.tracker.registerBid(bidder.nextBid(), auction.items[bidder.nextItem(auction)]);
+    }
+
+    @Benchmark
+    public Bid getCurrentWinningBid(SingleThreadedAuction auction, Bidder bidder) {
+        return auction.tracker.getCurrentWinningBid(auction.items[bidder.nextItem(auction)]);
+    }
+
+    @Benchmark
+    public List<Bid> getAllBids(SingleThreadedAuction auction, Bidder bidder) {
+        return auction.tracker.getAllBids(auction.items[bidder.nextItem(auction)]);
+    }
+
+    @Benchmark
+    public Item find(SingleThreadedAuction auction, Bidder bidder) {
+        return auction.auction.find(auction.names[bidder.nextItem(auction)]);
+    }
+}
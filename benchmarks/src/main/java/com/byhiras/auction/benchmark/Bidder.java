@@ -0,0 +1,40 @@
+package com.byhiras.auction.benchmark;
+
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.User;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A benchmark thread's bidder. Each bidder raises its own amount on
+ * every bid, so bids from one thread are mostly accepted while bids
+ * from several threads on the same item race against each other.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@State(Scope.Thread)
+public class Bidder {
+
+    private final User user = new SilentUser(Thread.currentThread().getName());
+
+    private int amount;
+    private int cursor;
+
+    @Setup
+    public void start() {
+        amount = AuctionState.INITIAL + AuctionState.SEED_BIDS + 1;
+        cursor = ThreadLocalRandom.current().nextInt(AuctionState.PICKS);
+    }
+
+    Bid nextBid() {
+        return new AuctionBid(amount++, user);
+    }
+
+    int nextItem(final AuctionState auction) {
+        return auction.picks[cursor++ & (AuctionState.PICKS - 1)];
+    }
+}
@@ -0,0 +1,56 @@
+package com.byhiras.auction.benchmark;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the operations on the bid hot path with one bidder
+ * per available processor. Use -t to run with a different number
+ * of threads.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(Threads.MAX)
+public class ContendedBidHotPathBenchmark {
+
+    @Benchmark
+    public void bid(SharedAuction auction, Bidder bidder) {
+        auction.service.bid(bidder.nextBid(), auction.names[bidder.nextItem(auction)]);
+    }
+
+    @Benchmark
+    public void registerBid(SharedAuction auction, Bidder bidder) {
+        auction.tracker.registerBid(bidder.nextBid(), auction.items[bidder.nextItem(auction)]);
+    }
+
+    @Benchmark
+    public Bid getCurrentWinningBid(SharedAuction auction, Bidder bidder) {
+        return auction.tracker.getCurrentWinningBid(auction.items[bidder.nextItem(auction)]);
+    }
+
+    @Benchmark
+    public List<Bid> getAllBids(SharedAuction auction, Bidder bidder) {
+        return auction.tracker.getAllBids(auction.items[bidder.nextItem(auction)]);
+    }
+
+    @Benchmark
+    public Item find(SharedAuction auction, Bidder bidder) {
+        return auction.auction.find(auction.names[bidder.nextItem(auction)]);
+    }
+}
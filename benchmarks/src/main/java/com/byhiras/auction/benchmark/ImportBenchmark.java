@@ -0,0 +1,85 @@
+package com.byhiras.auction.benchmark;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.store.CatalogueImporter;
+import com.byhiras.auction.store.ImportResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load a whole catalogue from a CSV or binary file into an
+ * empty auction sized for it. Run with -p itemCount=10000000 and a
+ * larger heap for the full size catalogue.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+
+    @Param({"2000000"})
+    public int itemCount;
+
+    private File csv;
+    private File binary;
+    private final CatalogueImporter importer = new CatalogueImporter();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = File.createTempFile("catalogue", ".csv");
+        binary = File.createTempFile("catalogue", ".bin");
+
+        final List<Item> items = new ArrayList<>(itemCount);
+        try (BufferedWriter out = Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8)) {
+            out.write("name,initial,reserve,closing time\n");
+            for(int i = 0; i < itemCount; i++) {
+                final Item item = new AuctionItem("Item " + i, 100 + i % 1000, 200 + i % 1000, 1500000000000L + i);
+                out.write(item.getName() + "," + item.getInitial() + "," + item.getReserve() + "," + item.getClosingTime() + "\n");
+                items.add(item);
+            }
+        }
+        CatalogueImporter.writeBinary(items, binary);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        csv.delete();
+        binary.delete();
+    }
+
+    @Benchmark
+    public ImportResult importCsv() {
+        return importer.importCsv(csv, new Auction(false, itemCount));
+    }
+
+    @Benchmark
+    public ImportResult importBinary() {
+        return importer.importBinary(binary, new Auction(false, itemCount));
+    }
+}
@@ -0,0 +1,231 @@
+package com.byhiras.auction.benchmark;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.AuctionService;
+import com.byhiras.auction.BidTracker;
+import com.byhiras.auction.BidTrackerImpl;
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.ShardedBidTracker;
+import com.byhiras.auction.metrics.HistogramSnapshot;
+import com.byhiras.auction.metrics.LatencyHistogram;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An end to end simulation of a busy auction. A population of users
+ * bids on a catalogue of items through the AuctionService, following
+ * an ArrivalSchedule of steady Poisson traffic, a snipe burst just
+ * before the close and skewed item popularity. For example
+ *
+ *   java -cp target/benchmarks.jar com.byhiras.auction.benchmark.LoadSimulator --tracker=ShardedBidTracker --snipeBids=200000
+ *
+ * Every bid runs on its own virtual thread where the JVM has them,
+ * otherwise on a fixed pool of platform threads. It waits until its
+ * arrival time and then bids, so a slow tracker cannot slow down the
+ * arrivals. Latency is reported two ways: the service time of the
+ * bid call itself, and the response time measured from when the bid
+ * was due, which also counts any time spent waiting for a thread.
+ *
+ * Once every bid is in, the winner of each item is checked against
+ * the highest bid made on it. Each bid is above the initial value so
+ * every one is valid, and the highest should always win.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+public final class LoadSimulator {
+
+    // bids are handed to their threads this far ahead of their arrival
+    private static final long LOOKAHEAD = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private static final long WARM_UP = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final int MISMATCHES_SHOWN = 10;
+
+    private final SimulationConfig config;
+    private final ArrivalSchedule schedule;
+
+    private final User[] users;
+    private final String[] names;
+    private final AuctionService service;
+
+    private final LatencyHistogram serviceTimes = new LatencyHistogram();
+    private final LatencyHistogram responseTimes = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    // the highest bid made on each item, to check the winner against
+    private final AtomicIntegerArray highest;
+
+    private LoadSimulator(final SimulationConfig config) {
+        this.config = config;
+        this.schedule = new ArrivalSchedule(config);
+
+        users = new User[config.users];
+        for(int u = 0; u < users.length; u++) {
+            users[u] = new AuctionUser("User " + u);
+        }
+
+        final long closingTime = System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(WARM_UP + schedule.closingTime);
+        final Auction auction = new Auction();
+        names = new String[config.items];
+        for(int i = 0; i < names.length; i++) {
+            names[i] = "Item " + i;
+            auction.add(new AuctionItem(names[i], ArrivalSchedule.INITIAL, ArrivalSchedule.INITIAL * 2, closingTime));
+        }
+
+        service = new AuctionService(auction, newTracker(config.tracker));
+        highest = new AtomicIntegerArray(config.items);
+    }
+
+    public static void main(String[] args) throws Exception {
+        // every change of winner is logged by the user otherwise
+        Logger.getLogger(AuctionUser.class.getName()).setLevel(Level.WARNING);
+
+        final SimulationConfig config = SimulationConfig.parse(args);
+        final LoadSimulator simulator = new LoadSimulator(config);
+
+        final boolean correct;
+        try {
+            correct = simulator.run();
+        } finally {
+            final BidTracker tracker = simulator.service.getBidHistory();
+            if(tracker instanceof Closeable) ((Closeable) tracker).close();
+        }
+
+        if(!correct) System.exit(1);
+    }
+
+    private boolean run() throws InterruptedException {
+        for(Map.Entry<String, Object> setting : config.describe().entrySet()) {
+            System.out.printf("%-12s %s%n", setting.getKey(), setting.getValue());
+        }
+        System.out.printf("%-12s %d%n%n", "bids", schedule.size());
+
+        final ExecutorService executor = newBidExecutor(config.threads);
+        System.out.println("Bidding on " + describe(executor) + "...");
+
+        final long start = System.nanoTime() + WARM_UP;
+        for(int i = 0; i < schedule.size(); i++) {
+            final long due = start + schedule.times[i];
+            final long wait = due - LOOKAHEAD - System.nanoTime();
+            if(wait > 0) LockSupport.parkNanos(wait);
+
+            final int arrival = i;
+            executor.execute(() -> bid(arrival, due));
+        }
+
+        executor.shutdown();
+        if(!executor.awaitTermination(1, TimeUnit.HOURS))
+            throw new RuntimeException("Unable to finish the simulation within an hour.");
+
+        final long elapsed = System.nanoTime() - start;
+        return report(elapsed);
+    }
+
+    private void bid(final int arrival, final long due) {
+        final long wait = due - System.nanoTime();
+        if(wait > 0) LockSupport.parkNanos(wait);
+
+        final int item = schedule.items[arrival];
+        final int value = schedule.values[arrival];
+
+        final long started = System.nanoTime();
+        try {
+            service.bid(new AuctionBid(value, users[schedule.users[arrival]]), names[item]);
+        } catch(RuntimeException e) {
+            errors.increment();
+            return;
+        }
+        final long finished = System.nanoTime();
+
+        serviceTimes.record(finished - started);
+        responseTimes.record(finished - due);
+        raiseHighest(item, value);
+    }
+
+    private void raiseHighest(final int item, final int value) {
+        int current;
+        while((current = highest.get(item)) < value) {
+            if(highest.compareAndSet(item, current, value)) return;
+        }
+    }
+
+    private boolean report(final long elapsed) {
+        final HistogramSnapshot service = serviceTimes.snapshot();
+        final HistogramSnapshot response = responseTimes.snapshot();
+
+        System.out.println();
+        System.out.printf("elapsed      %.2f s%n", elapsed / 1e9);
+        System.out.printf("throughput   %.0f bids/s%n", service.getCount() * 1e9 / elapsed);
+        System.out.printf("errors       %d%n", errors.sum());
+        System.out.println("service ns   " + service);
+        System.out.println("response ns  " + response);
+
+        final int mismatches = checkWinners();
+        System.out.println();
+        System.out.println(mismatches == 0
+                ? "All " + names.length + " items are won by their highest bid."
+                : mismatches + " of " + names.length + " items are not won by their highest bid.");
+
+        return mismatches == 0 && errors.sum() == 0;
+    }
+
+    private int checkWinners() {
+        final BidTracker tracker = service.getBidHistory();
+
+        int mismatches = 0;
+        for(int i = 0; i < names.length; i++) {
+            final Item item = service.find(names[i]);
+            final Bid winner = tracker.getCurrentWinningBid(item);
+            final int won = winner == null ? 0 : winner.value();
+
+            if(won == highest.get(i)) continue;
+
+            if(++mismatches <= MISMATCHES_SHOWN)
+                System.out.println(names[i] + " is won at " + won + " but the highest bid was " + highest.get(i));
+        }
+        return mismatches;
+    }
+
+    private static BidTracker newTracker(final String name) {
+        switch(name) {
+            case "BidTrackerImpl":       return new BidTrackerImpl();
+            case "ConcurrentBidTracker": return new ConcurrentBidTracker();
+            case "ShardedBidTracker":    return new ShardedBidTracker();
+            default: throw new RuntimeException("Unable to simulate the unknown tracker " + name);
+        }
+    }
+
+    /**
+     * Virtual threads arrived in Java 21 and this module still builds
+     * for older JVMs, so they are looked up reflectively.
+     */
+    private static ExecutorService newBidExecutor(final int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch(ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    private static String describe(final ExecutorService executor) {
+        return executor instanceof ThreadPoolExecutor
+                ? "a pool of platform threads"
+                : "a virtual thread per bid";
+    }
+}
@@ -0,0 +1,52 @@
+package com.byhiras.auction.benchmark;
+
+import java.util.Random;
+
+/**
+ * How bidders spread their bids across the catalogue.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+public enum Popularity {
+
+    /**
+     * Every item is equally likely to be bid on.
+     */
+    UNIFORM {
+        @Override
+        int[] picks(final int itemCount, final int size, final Random random) {
+            final int[] picks = new int[size];
+            for(int i = 0; i < size; i++) {
+                picks[i] = random.nextInt(itemCount);
+            }
+            return picks;
+        }
+    },
+
+    /**
+     * Item popularity follows a Zipf distribution so a handful of
+     * hot items take most of the bids.
+     */
+    ZIPF {
+        @Override
+        int[] picks(final int itemCount, final int size, final Random random) {
+            final ZipfDistribution zipf = new ZipfDistribution(itemCount, 1.0);
+            final int[] picks = new int[size];
+            for(int i = 0; i < size; i++) {
+                picks[i] = zipf.sample(random.nextDouble());
+            }
+            return picks;
+        }
+    };
+
+    /**
+     * Pre-compute a sequence of item indexes so that sampling the
+     * distribution is not part of the measured work.
+     *
+     * @param itemCount the number of items in the catalogue
+     * @param size the length of the sequence
+     * @param random the source of randomness
+     * @return item indexes in the range [0, itemCount)
+     */
+    abstract int[] picks(int itemCount, int size, Random random);
+}
@@ -0,0 +1,102 @@
+package com.byhiras.auction.benchmark;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.Page;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.search.ItemSearch;
+import com.byhiras.auction.search.SortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of searching a large catalogue, a page of 20 at a time.
+ * Names are three words from a vocabulary of 2000 and a serial number,
+ * so a word and a two letter prefix each match about 1 in 700 items.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SearchBenchmark {
+
+    private static final int PAGE = 20;
+
+    @State(Scope.Benchmark)
+    public static class Catalogue {
+
+        @Param({"1000000"})
+        public int itemCount;
+
+        String[] vocabulary;
+        ItemSearch search;
+        Random random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new Random(42);
+
+            vocabulary = new String[2000];
+            for(int i = 0; i < vocabulary.length; i++) {
+                final StringBuilder word = new StringBuilder();
+                for(int letters = 4 + random.nextInt(5); letters > 0; letters--) word.append((char) ('a' + random.nextInt(26)));
+                vocabulary[i] = word.toString();
+            }
+
+            final Auction auction = new Auction();
+            final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+            search = new ItemSearch(auction, tracker);
+
+            final SilentUser user = new SilentUser("User 1");
+            for(int i = 0; i < itemCount; i++) {
+                final Item item = new AuctionItem(word() + " " + word() + " " + word() + " " + i, 100, 200);
+                auction.add(item);
+                for(int bids = random.nextInt(4); bids > 0; bids--) {
+                    tracker.placeBid(new AuctionBid(101 + random.nextInt(10000), user), item);
+                }
+            }
+        }
+
+        String word() {
+            return vocabulary[random.nextInt(vocabulary.length)];
+        }
+    }
+
+    @Benchmark
+    public Page<Item> prefixByName(Catalogue catalogue) {
+        return catalogue.search.findByPrefix(catalogue.word().substring(0, 2), SortOrder.NAME, 0, PAGE);
+    }
+
+    @Benchmark
+    public Page<Item> prefixByPrice(Catalogue catalogue) {
+        return catalogue.search.findByPrefix(catalogue.word().substring(0, 2), SortOrder.PRICE, 0, PAGE);
+    }
+
+    @Benchmark
+    public Page<Item> keywordByPrice(Catalogue catalogue) {
+        return catalogue.search.findByKeywords(catalogue.word(), SortOrder.PRICE, 0, PAGE);
+    }
+
+    @Benchmark
+    public Page<Item> twoKeywordsByBidCount(Catalogue catalogue) {
+        return catalogue.search.findByKeywords(catalogue.word() + " " + catalogue.word(), SortOrder.BID_COUNT, 0, PAGE);
+    }
+}
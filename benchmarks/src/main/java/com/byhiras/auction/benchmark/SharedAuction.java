@@ -0,0 +1,23 @@
+package com.byhiras.auction.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Auction state for benchmarks run from many threads at once, so only
+ * thread safe trackers are listed.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@State(Scope.Benchmark)
+public class SharedAuction extends AuctionState {
+
+    @Param({"ConcurrentBidTracker"})
+    public String trackerType;
+
+    @Override
+    protected String trackerName() {
+        return trackerType;
+    }
+}
@@ -0,0 +1,29 @@
+package com.byhiras.auction.benchmark;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+
+/**
+ * A user that ignores bid notifications so that logging is not
+ * part of the measured work.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+public class SilentUser implements User {
+
+    private final String name;
+
+    public SilentUser(final String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void bidExecuted(Bid bid, Item item) {
+    }
+}
@@ -0,0 +1,84 @@
+package com.byhiras.auction.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The settings for one run of the LoadSimulator, read from command
+ * line arguments of the form --name=value. Anything not given keeps
+ * its default.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class SimulationConfig {
+
+    int users = 100_000;
+    int items = 10_000;
+
+    // the steady Poisson traffic, in bids per second, over the whole run
+    double rate = 50_000;
+    int seconds = 10;
+
+    // a burst of bids in the last moments before the auction closes
+    int snipeBids = 100_000;
+    int snipeMillis = 500;
+
+    Popularity popularity = Popularity.ZIPF;
+    String tracker = "ConcurrentBidTracker";
+
+    // only used when virtual threads are not available
+    int threads = 256;
+
+    long seed = 42;
+
+    static SimulationConfig parse(final String[] args) {
+        final SimulationConfig config = new SimulationConfig();
+
+        for(String arg : args) {
+            final int equals = arg.indexOf('=');
+            if(!arg.startsWith("--") || equals < 0)
+                throw new RuntimeException("Unable to read the argument " + arg + ", expected --name=value.");
+
+            config.set(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+
+        if(config.users <= 0 || config.items <= 0 || config.seconds <= 0 || config.threads <= 0)
+            throw new RuntimeException("Unable to simulate without users, items, time and threads.");
+        if(config.snipeMillis > config.seconds * 1000)
+            throw new RuntimeException("Unable to snipe for longer than the auction runs.");
+
+        return config;
+    }
+
+    private void set(final String name, final String value) {
+        switch(name) {
+            case "users":       users = Integer.parseInt(value); break;
+            case "items":       items = Integer.parseInt(value); break;
+            case "rate":        rate = Double.parseDouble(value); break;
+            case "seconds":     seconds = Integer.parseInt(value); break;
+            case "snipeBids":   snipeBids = Integer.parseInt(value); break;
+            case "snipeMillis": snipeMillis = Integer.parseInt(value); break;
+            case "popularity":  popularity = Popularity.valueOf(value.toUpperCase(Locale.ROOT)); break;
+            case "tracker":     tracker = value; break;
+            case "threads":     threads = Integer.parseInt(value); break;
+            case "seed":        seed = Long.parseLong(value); break;
+            default: throw new RuntimeException("Unable to simulate with the unknown setting " + name);
+        }
+    }
+
+    Map<String, Object> describe() {
+        final Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("users", users);
+        settings.put("items", items);
+        settings.put("rate", rate);
+        settings.put("seconds", seconds);
+        settings.put("snipeBids", snipeBids);
+        settings.put("snipeMillis", snipeMillis);
+        settings.put("popularity", popularity);
+        settings.put("tracker", tracker);
+        settings.put("threads", threads);
+        settings.put("seed", seed);
+        return settings;
+    }
+}
@@ -0,0 +1,23 @@
+package com.byhiras.auction.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Auction state for benchmarks run from a single thread, where the
+ * trackers that are not thread safe can be compared as well.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@State(Scope.Benchmark)
+public class SingleThreadedAuction extends AuctionState {
+
+    @Param({"BidTrackerImpl", "ConcurrentBidTracker"})
+    public String trackerType;
+
+    @Override
+    protected String trackerName() {
+        return trackerType;
+    }
+}
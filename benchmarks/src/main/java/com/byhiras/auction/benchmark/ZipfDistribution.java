@@ -0,0 +1,43 @@
+package com.byhiras.auction.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * A Zipf distribution over the ranks [0, n) sampled by a binary
+ * search of its cumulative distribution.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+public class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    /**
+     * @param n the number of ranks
+     * @param exponent the skew, 1.0 being the classic Zipf distribution
+     */
+    public ZipfDistribution(final int n, final double exponent) {
+        if(n <= 0) throw new RuntimeException("Unable to create a Zipf distribution over " + n + " ranks.");
+
+        cumulative = new double[n];
+
+        double total = 0;
+        for(int rank = 0; rank < n; rank++) {
+            total += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        for(int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= total;
+        }
+    }
+
+    /**
+     * @param uniform a value in the range [0, 1)
+     * @return the rank, 0 being the most popular
+     */
+    public int sample(final double uniform) {
+        final int index = Arrays.binarySearch(cumulative, uniform);
+        final int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
@@ -1,62 +1,212 @@
 package com.byhiras.auction;
 
 import com.byhiras.auction.models.Item;
+import com.byhiras.auction.util.ThreadSafe;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * The Auction class is used to store the items being auctioned
  * and provide accessor methods to those items.
  *
+ * Items are held in a ConcurrentHashMap keyed by name so that
+ * add, remove and find are all O(1) and none of them take a lock.
+ * An optional secondary index keyed by the lower case name allows
+ * case-insensitive lookups. It holds every case variant of a name, so
+ * removing one leaves the others findable, and it is written inside
+ * the primary map's compute for the name so that an add and a remove
+ * of the same name cannot interleave.
+ *
+ * CatalogueListeners, such as an ItemSearch, are told about each item
+ * added or removed so that they can keep indexes of their own.
+ *
  * @author: Jeremy Davies [jerdavies@gmail.com]
  */
+@ThreadSafe
 public class Auction {
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ConcurrentMap<String, Item> items;
+
+    // only populated when case-insensitive lookup has been requested;
+    // each entry holds the case variants of a name in the order added
+    private final ConcurrentMap<String, Item[]> itemsIgnoringCase;
+
+    private volatile CatalogueListener[] listeners = new CatalogueListener[0];
 
-    private final List<Item> items = new ArrayList<>();
+    public Auction() {
+        this(false);
+    }
+
+    /**
+     * @param caseInsensitiveIndex true to maintain a secondary index for
+     *                             {@link #findIgnoreCase(String)}
+     */
+    public Auction(final boolean caseInsensitiveIndex) {
+        this(caseInsensitiveIndex, 100);
+    }
+
+    /**
+     * @param caseInsensitiveIndex true to maintain a secondary index for
+     *                             {@link #findIgnoreCase(String)}
+     * @param expectedItems how many items to size the catalogue for, so
+     *                      that a bulk load does not keep resizing it
+     */
+    public Auction(final boolean caseInsensitiveIndex, final int expectedItems) {
+        this.items = new ConcurrentHashMap<>(expectedItems, 0.75f);
+        this.itemsIgnoringCase = caseInsensitiveIndex ? new ConcurrentHashMap<String, Item[]>(expectedItems, 0.75f) : null;
+    }
+
+    /**
+     * @param listener told about every item added or removed from now on
+     */
+    public synchronized void addListener(final CatalogueListener listener) {
+        final CatalogueListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+        added[listeners.length] = listener;
+        listeners = added;
+    }
 
     /**
-     * Add an item - thread safe by virtue of the
-     * write lock.
+     * Add an item. If an item with the same name is already in the
+     * auction then the existing item is kept.
+     *
      * @param item the item we wish to add
+     * @return true iff the item was added
      */
-    public void add(Item item) {
+    public boolean add(Item item) {
+        if(item == null || item.getName() == null)
+            throw new RuntimeException("Unable to add an item without a name.");
+
+        if(itemsIgnoringCase == null) {
+            if(items.putIfAbsent(item.getName(), item) != null) return false;
+        } else if(items.compute(item.getName(), (name, existing) -> existing != null ? existing : indexed(item)) != item) {
+            return false;
+        }
+
+        for(CatalogueListener listener : listeners) listener.itemAdded(item);
 
-        lock.writeLock().lock();
+        return true;
+    }
 
-        try {
-            items.add(item);
-        } finally {
-            lock.writeLock().unlock();
+    /**
+     * Add many items, for example a whole catalogue loaded at once.
+     * Items may be added from several threads at a time; the map only
+     * locks the bin each item lands in.
+     *
+     * @param added the items we wish to add
+     * @return the number of items added, leaving out those whose names
+     *         were already taken
+     */
+    public int addAll(final Collection<? extends Item> added) {
+        int count = 0;
+        for(Item item : added) {
+            if(add(item)) count++;
         }
+        return count;
     }
 
     /**
-     * A simple O(N) scan of the items will be ok as the
-     * list size will be relatively small. If the size does get too
-     * large then a simple cache could be employed here.
-     * A lock (read in this case) is used here to guard against a
-     * possible ConcurrentModificationException.
+     * Remove an item, typically once it has closed.
+     *
+     * @param name the name of the item we wish to remove
+     * @return the removed item or null if there was no such item
+     */
+    public Item remove(String name) {
+        if(name == null) return null;
+
+        final Item removed;
+        if(itemsIgnoringCase == null) {
+            removed = items.remove(name);
+        } else {
+            final Item[] found = new Item[1];
+            items.computeIfPresent(name, (key, item) -> {
+                found[0] = item;
+                itemsIgnoringCase.computeIfPresent(lowerCase(key), (lowerCase, variants) -> without(variants, item));
+                return null;
+            });
+            removed = found[0];
+        }
+
+        if(removed != null) {
+            for(CatalogueListener listener : listeners) listener.itemRemoved(removed);
+        }
+
+        return removed;
+    }
+
+    /**
+     * Find an item by its exact name.
      *
      * @param name the item we wish to find
-     * @return the item
+     * @return the item or null if there is no such item
      */
     public Item find(String name) {
+        return name == null ? null : items.get(name);
+    }
 
-        lock.readLock().lock();
+    /**
+     * Find an item by name ignoring case. Where two items differ only
+     * by case the first one added is returned.
+     *
+     * @param name the item we wish to find
+     * @return the item or null if there is no such item
+     */
+    public Item findIgnoreCase(String name) {
+        if(itemsIgnoringCase == null)
+            throw new RuntimeException("Unable to find ignoring case as the auction has no case-insensitive index.");
+
+        final Item[] variants = name == null ? null : itemsIgnoringCase.get(lowerCase(name));
+        return variants == null ? null : variants[0];
+    }
 
-        try {
-            for(Item i: items) {
-                if(i.getName().equals(name)) return i;
-            }
-        } finally {
-            lock.readLock().unlock();
+    /**
+     * Add an item to the case-insensitive index; called while its name
+     * is locked in the primary map.
+     */
+    private Item indexed(final Item item) {
+        itemsIgnoringCase.merge(lowerCase(item.getName()), new Item[] {item}, (variants, added) -> {
+            final Item[] merged = Arrays.copyOf(variants, variants.length + 1);
+            merged[variants.length] = item;
+            return merged;
+        });
+        return item;
+    }
+
+    /**
+     * @return the variants without the item, or null if none are left
+     */
+    private static Item[] without(final Item[] variants, final Item item) {
+        for(int i = 0; i < variants.length; i++) {
+            if(variants[i] != item) continue;
+            if(variants.length == 1) return null;
+
+            final Item[] remaining = new Item[variants.length - 1];
+            System.arraycopy(variants, 0, remaining, 0, i);
+            System.arraycopy(variants, i + 1, remaining, i, remaining.length - i);
+            return remaining;
         }
-        return null;
+        return variants;
+    }
+
+    /**
+     * @return a live, read-only view of the items in the auction
+     */
+    public Collection<Item> getItems() {
+        return Collections.unmodifiableCollection(items.values());
+    }
+
+    /**
+     * @return the number of items in the auction
+     */
+    public int size() {
+        return items.size();
+    }
+
+    private static String lowerCase(final String name) {
+        return name.toLowerCase(Locale.ROOT);
     }
 }
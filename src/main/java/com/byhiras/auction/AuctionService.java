@@ -1,33 +1,276 @@
 package com.byhiras.auction;
 
+import com.byhiras.auction.admission.AdmissionControl;
+import com.byhiras.auction.metrics.AuctionMetrics;
+import com.byhiras.auction.metrics.Operation;
 import com.byhiras.auction.models.Bid;
 import com.byhiras.auction.models.Item;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The AuctionService acts as the entry point for all
  * auction related requests.
  *
+ * Given AuctionMetrics it records how long each bid and item lookup
+ * takes; wrap the tracker in a MeteredBidTracker to also record the
+ * outcome of each bid.
+ *
+ * Given AdmissionControl each bid, proxy bid, asynchronous bid and
+ * bid in a batch is first admitted, so that users over their rate limit and bids shed
+ * under overload never look up their item, then screened against the
+ * item's cached price before it reaches the tracker. The results of
+ * bids turned away are recorded in the metrics too.
+ *
  * @author: Jeremy Davies [jerdavies@gmail.com]
  */
 public class AuctionService {
 
     private final Auction auction;
     private final BidTracker bidHistory;
+    private final AuctionMetrics metrics;
+    private final AdmissionControl admission;
 
     public AuctionService(Auction auction, BidTracker bidHistory) {
+        this(auction, bidHistory, null);
+    }
+
+    /**
+     * @param metrics where the latencies are recorded, or null for none
+     */
+    public AuctionService(Auction auction, BidTracker bidHistory, AuctionMetrics metrics) {
+        this(auction, bidHistory, metrics, null);
+    }
+
+    /**
+     * @param metrics where the latencies are recorded, or null for none
+     * @param admission what bids must get past first, or null for none
+     */
+    public AuctionService(Auction auction, BidTracker bidHistory, AuctionMetrics metrics, AdmissionControl admission) {
         this.auction = auction;
         this.bidHistory = bidHistory;
+        this.metrics = metrics;
+        this.admission = admission;
     }
 
     public void bid(Bid bid, String itemName) {
+        checkBid(bid, itemName);
+
+        if(admission != null) {
+            placeAdmitted(bid, itemName, false);
+            return;
+        }
+
+        final long start = metrics == null ? 0 : System.nanoTime();
+        bidHistory.registerBid(bid, find(itemName));
+        if(metrics != null) metrics.record(Operation.BID, System.nanoTime() - start);
+    }
+
+    /**
+     * Place a proxy bid: the tracker bids on the user's behalf up to
+     * the value of the bid.
+     *
+     * @param maximum the most the user will bid
+     * @param itemName the name of the item being bid on
+     * @return whether the user leads, or why not
+     */
+    public BidResult proxyBid(Bid maximum, String itemName) {
+        checkBid(maximum, itemName);
+
+        if(admission != null) return placeAdmitted(maximum, itemName, true);
+
+        final long start = metrics == null ? 0 : System.nanoTime();
+        final BidResult result = bidHistory.placeProxyBid(maximum, find(itemName));
+        if(metrics != null) metrics.record(Operation.BID, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Place a bid without waiting for it to be registered. With a
+     * ShardedBidTracker the bid is placed on the shard that owns the
+     * item, otherwise it is placed on the calling thread.
+     *
+     * @param bid the bid
+     * @param itemName the name of the item being bid on
+     * @return whether the bid was accepted, or why it was rejected
+     */
+    public CompletableFuture<BidResult> bidAsync(Bid bid, String itemName) {
+        checkBid(bid, itemName);
+
+        if(admission != null) return submitAdmitted(bid, itemName);
+
+        final long start = metrics == null ? 0 : System.nanoTime();
+        final CompletableFuture<BidResult> result = bidHistory.submitBid(bid, find(itemName));
+        if(metrics != null) metrics.record(Operation.BID, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Place a batch of bids. The bids are grouped by item so each item
+     * name is resolved once. Within a group only the bids that could
+     * still change the winner, those above the item's initial value and
+     * above every earlier bid in the group, are passed to the tracker,
+     * which places them in one step. The others are rejected here.
+     * Given AdmissionControl each request is admitted before the
+     * grouping and each candidate screened before it is passed on.
+     *
+     * @param requests the bids and the names of the items they are for
+     * @return the outcome of each bid, in the order of the requests
+     */
+    public List<BidResult> bidAll(Collection<BidRequest> requests) {
+        if(requests == null)
+            throw new RuntimeException("Unable to bid as the requests are null.");
+
+        final List<BidRequest> ordered = new ArrayList<>(requests);
+        for(BidRequest request : ordered) {
+            if(request == null)
+                throw new RuntimeException("Unable to bid as a request is null.");
+            checkBid(request.getBid(), request.getItemName());
+        }
+
+        final BidResult[] results = new BidResult[ordered.size()];
+
+        // the positions of the admitted requests for each item, in arrival order
+        final Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for(int i = 0; i < ordered.size(); i++) {
+            if(admission != null) {
+                final BidResult refused = admission.admit(ordered.get(i).getBid().getUser());
+                if(refused != null) {
+                    results[i] = turnedAway(refused);
+                    continue;
+                }
+            }
+
+            List<Integer> group = groups.get(ordered.get(i).getItemName());
+            if(group == null) {
+                group = new ArrayList<>();
+                groups.put(ordered.get(i).getItemName(), group);
+            }
+            group.add(i);
+        }
+
+        final List<CompletableFuture<Void>> pending = new ArrayList<>(groups.size());
+
+        for(Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            final Item item = find(group.getKey());
+
+            final List<Bid> candidates = new ArrayList<>();
+            final List<Integer> positions = new ArrayList<>();
+
+            int highest = Integer.MIN_VALUE;
+            for(int position : group.getValue()) {
+                final Bid bid = ordered.get(position).getBid();
+
+                BidResult rejected = null;
+                if(item == null) {
+                    rejected = BidResult.UNKNOWN_ITEM;
+                } else if(!bid.isAValidBid(item)) {
+                    rejected = BidResult.BELOW_INITIAL;
+                } else if(bid.value() <= highest) {
+                    rejected = BidResult.NOT_ABOVE_WINNING_BID;
+                } else if(admission != null) {
+                    final BidResult screened = admission.screen(bid, item);
+                    if(screened != null) rejected = turnedAway(screened);
+                }
+
+                if(rejected == null) {
+                    highest = bid.value();
+                    candidates.add(bid);
+                    positions.add(position);
+                } else {
+                    results[position] = rejected;
+                    // beaten within the batch says nothing about the price
+                    if(admission != null) admission.release(bid, item, null);
+                }
+            }
+
+            if(candidates.isEmpty()) continue;
+
+            CompletableFuture<List<BidResult>> submitted = bidHistory.submitBids(candidates, item);
+            if(admission != null) {
+                submitted = submitted.whenComplete((placed, failure) -> {
+                    for(int i = 0; i < candidates.size(); i++) {
+                        admission.release(candidates.get(i), item, placed == null ? null : placed.get(i));
+                    }
+                });
+            }
+            pending.add(submitted.thenAccept(placed -> {
+                for(int i = 0; i < placed.size(); i++) results[positions.get(i)] = placed.get(i);
+            }));
+        }
+
+        for(CompletableFuture<Void> group : pending) group.join();
+
+        return Arrays.asList(results);
+    }
+
+    private BidResult placeAdmitted(Bid bid, String itemName, boolean proxy) {
+        final BidResult refused = admission.admit(bid.getUser());
+        if(refused != null) return turnedAway(refused);
+
+        Item item = null;
+        BidResult result = null;
+        try {
+            item = find(itemName);
+
+            final BidResult screened = admission.screen(bid, item);
+            if(screened != null) return turnedAway(screened);
+
+            final long start = metrics == null ? 0 : System.nanoTime();
+            result = proxy ? bidHistory.placeProxyBid(bid, item) : bidHistory.placeBid(bid, item);
+            if(metrics != null) metrics.record(Operation.BID, System.nanoTime() - start);
+            return result;
+        } finally {
+            // an accepted proxy bid may lead at less than its maximum
+            admission.release(bid, item, proxy && result == BidResult.ACCEPTED ? null : result);
+        }
+    }
+
+    private CompletableFuture<BidResult> submitAdmitted(Bid bid, String itemName) {
+        final BidResult refused = admission.admit(bid.getUser());
+        if(refused != null) return CompletableFuture.completedFuture(turnedAway(refused));
+
+        final Item item;
+        final CompletableFuture<BidResult> result;
+        try {
+            item = find(itemName);
+
+            final BidResult screened = admission.screen(bid, item);
+            if(screened != null) {
+                admission.release(bid, item, null);
+                return CompletableFuture.completedFuture(turnedAway(screened));
+            }
+
+            final long start = metrics == null ? 0 : System.nanoTime();
+            result = bidHistory.submitBid(bid, item);
+            if(metrics != null) metrics.record(Operation.BID, System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            admission.release(bid, null, null);
+            throw e;
+        }
+
+        result.whenComplete((outcome, failure) -> admission.release(bid, item, outcome));
+        return result;
+    }
+
+    private BidResult turnedAway(BidResult result) {
+        if(metrics != null) metrics.record(result);
+        return result;
+    }
+
+    private void checkBid(Bid bid, String itemName) {
         if(bid == null)
             throw new RuntimeException("Unable to bid as the bid is null.");
         if(itemName == null)
             throw new RuntimeException("Unable to bid as the item name is null.");
         if(bid.getUser() == null)
             throw new RuntimeException("Unable to bid as the user is null.");
-
-        bidHistory.registerBid(bid, auction.find(itemName));
     }
 
     public BidTracker getBidHistory() {
@@ -35,6 +278,11 @@ public class AuctionService {
     }
 
     public Item find(String itemName) {
-        return auction.find(itemName);
+        if(metrics == null) return auction.find(itemName);
+
+        final long start = System.nanoTime();
+        final Item item = auction.find(itemName);
+        metrics.record(Operation.FIND, System.nanoTime() - start);
+        return item;
     }
 }
@@ -0,0 +1,41 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+
+/**
+ * A BidListener is told about every bid a tracker accepts. It is
+ * called on the bidding thread before the bid is executed, so it
+ * should be quick.
+ */
+public interface BidListener {
+
+    /**
+     * @param item the item the bid was made on
+     * @param bid the accepted bid
+     * @param sequence the bid's position in the item's history, starting at 0
+     * @param timestamp when the bid was accepted
+     */
+    void bidAccepted(Item item, Bid bid, int sequence, long timestamp);
+
+    /**
+     * Called when the most a winning proxy bidder will go to is above
+     * their bid: after the bid that gave them the lead, or when they
+     * raise their maximum without a new bid. By default nothing is done.
+     *
+     * @param item the item
+     * @param sequence the position of the winning bid the maximum belongs to
+     * @param maximum the most the winning bidder will go to
+     */
+    default void maximumRaised(Item item, int sequence, int maximum) {
+    }
+
+    /**
+     * Called once when bidding on an item closes, on the closing
+     * thread. By default nothing is done.
+     *
+     * @param item the item that was closed
+     */
+    default void biddingClosed(Item item) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.util.Immutable;
+
+/**
+ * A BidRequest pairs a bid with the name of the item it is for so
+ * that bids can be submitted in batches.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public class BidRequest {
+
+    private final Bid bid;
+    private final String itemName;
+
+    public BidRequest(final Bid bid, final String itemName) {
+        this.bid = bid;
+        this.itemName = itemName;
+    }
+
+    public Bid getBid() {
+        return bid;
+    }
+
+    public String getItemName() {
+        return itemName;
+    }
+
+    @Override
+    public String toString() {
+        return bid + " on " + itemName;
+    }
+}
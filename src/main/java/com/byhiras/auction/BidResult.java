@@ -0,0 +1,50 @@
+package com.byhiras.auction;
+
+/**
+ * The outcome of placing a bid: either it was accepted or the
+ * reason it was rejected.
+ */
+public enum BidResult {
+
+    ACCEPTED,
+
+    /**
+     * There is no such item in the auction.
+     */
+    UNKNOWN_ITEM,
+
+    /**
+     * The bid is not above the item's initial value.
+     */
+    BELOW_INITIAL,
+
+    /**
+     * The bid is not above the current winning bid.
+     */
+    NOT_ABOVE_WINNING_BID,
+
+    /**
+     * The bid is above the winning bid but not above the maximum of
+     * the proxy bidder holding it, who has been raised to beat it.
+     */
+    OUTBID_BY_PROXY,
+
+    /**
+     * Bidding on the item has closed.
+     */
+    CLOSED,
+
+    /**
+     * The user has bid faster than their rate limit allows.
+     */
+    RATE_LIMITED,
+
+    /**
+     * The bid was shed because too many bids were already in progress.
+     */
+    OVERLOADED;
+
+    public boolean isAccepted() {
+        return this == ACCEPTED;
+    }
+}
@@ -4,15 +4,155 @@ import com.byhiras.auction.models.Item;
 import com.byhiras.auction.models.User;
 import com.byhiras.auction.models.Bid;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface BidTracker {
     void registerBid(Bid bid, Item item);
 
+    /**
+     * Register a bid and say whether it was accepted.
+     *
+     * @param bid the bid we are registering
+     * @param item the item we are bidding on, null if it could not be found
+     * @return the outcome of the bid
+     */
+    BidResult placeBid(Bid bid, Item item);
+
+    /**
+     * Register a proxy bid, where the value of the bid is the most the
+     * user is willing to pay and the tracker bids on their behalf.
+     *
+     * @param maximum the most the user will bid
+     * @param item the item we are bidding on, null if it could not be found
+     * @return the outcome of the bid
+     */
+    BidResult placeProxyBid(Bid maximum, Item item);
+
+    /**
+     * Register a bid, possibly on another thread. By default the bid is
+     * placed on the calling thread.
+     *
+     * @param bid the bid we are registering
+     * @param item the item we are bidding on, null if it could not be found
+     * @return the outcome of the bid once it has been placed
+     */
+    default CompletableFuture<BidResult> submitBid(Bid bid, Item item) {
+        return CompletableFuture.completedFuture(placeBid(bid, item));
+    }
+
+    /**
+     * Register several bids on the same item, in order. By default each
+     * bid is placed in turn.
+     *
+     * @param bids the bids we are registering
+     * @param item the item we are bidding on, null if it could not be found
+     * @return the outcome of each bid, in the same order as the bids
+     */
+    default List<BidResult> placeBids(List<Bid> bids, Item item) {
+        final List<BidResult> results = new ArrayList<>(bids.size());
+        for(Bid bid : bids) results.add(placeBid(bid, item));
+        return results;
+    }
+
+    /**
+     * Register several bids on the same item, possibly on another
+     * thread. By default the bids are placed on the calling thread.
+     *
+     * @param bids the bids we are registering
+     * @param item the item we are bidding on, null if it could not be found
+     * @return the outcome of each bid once they have been placed
+     */
+    default CompletableFuture<List<BidResult>> submitBids(List<Bid> bids, Item item) {
+        return CompletableFuture.completedFuture(placeBids(bids, item));
+    }
+
+    /**
+     * Stop accepting bids on an item; every later bid is rejected as
+     * CLOSED. Closing an item more than once has no further effect.
+     *
+     * @param item the item to close
+     * @return the winning bid at the moment the item closed, or null if
+     *         there were no bids
+     */
+    Bid closeBidding(Item item);
+
     Bid getCurrentWinningBid(Item item);
 
     List<Bid> getAllBids(Item item);
 
     List<Item> getAllItems(User user);
 
+    /**
+     * Get the highest bids for an item.
+     *
+     * @param item
+     * @param n the most bids to return
+     * @return up to n bids, highest first
+     */
+    default List<Bid> getTopBids(Item item, int n) {
+        final List<Bid> bids = new ArrayList<>(getAllBids(item));
+        Collections.sort(bids);
+        return bids.subList(0, Math.min(n, bids.size()));
+    }
+
+    /**
+     * Get a page of an item's bids in the order they were accepted,
+     * which is also lowest first.
+     *
+     * @param item
+     * @param cursor 0 for the first page, then the next cursor of the previous page
+     * @param limit the most bids to return
+     * @return the page of bids
+     */
+    default Page<Bid> getBids(Item item, int cursor, int limit) {
+        final List<Bid> bids = new ArrayList<>(getAllBids(item));
+        Collections.sort(bids, Collections.reverseOrder());
+        final int end = Math.min(bids.size(), cursor + limit);
+        return new Page<>(new ArrayList<>(bids.subList(Math.min(cursor, end), end)), end, end < bids.size());
+    }
+
+    /**
+     * Get a page of the items on which a user has bid, each item once
+     * in the order the user first bid on it.
+     *
+     * @param user
+     * @param cursor 0 for the first page, then the next cursor of the previous page
+     * @param limit the most items to return
+     * @return the page of items
+     */
+    default Page<Item> getItems(User user, int cursor, int limit) {
+        final List<Item> items = getAllItems(user);
+        final int end = Math.min(items.size(), cursor + limit);
+        return new Page<>(new ArrayList<>(items.subList(Math.min(cursor, end), end)), end, end < items.size());
+    }
+
+    /**
+     * Stream the bids for an item, highest first, as they stood when
+     * this was called.
+     *
+     * @param item
+     * @return the bids
+     */
+    default Stream<Bid> streamBids(Item item) {
+        return getTopBids(item, Integer.MAX_VALUE).stream();
+    }
+
+    /**
+     * Get the items on which a user currently holds the winning bid.
+     *
+     * @param user
+     * @return a list of items
+     */
+    default List<Item> getWinningItems(User user) {
+        final List<Item> winning = new ArrayList<>();
+        for(Item item : getAllItems(user)) {
+            final Bid bid = getCurrentWinningBid(item);
+            if(bid != null && bid.getUser().equals(user)) winning.add(item);
+        }
+        return winning;
+    }
 }
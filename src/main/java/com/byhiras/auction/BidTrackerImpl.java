@@ -1,32 +1,106 @@
 package com.byhiras.auction;
 
+import com.byhiras.auction.models.AuctionBid;
 import com.byhiras.auction.models.Item;
 import com.byhiras.auction.models.User;
 import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.store.AppendOnlyList;
+import com.byhiras.auction.store.IdTable;
+import com.byhiras.auction.store.RetentionPolicy;
+import com.byhiras.auction.store.SpillingBidHistory;
 import com.byhiras.auction.util.ThreadSafe;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * The BidTrackerImpl holds onto all the bid information
  * for users and items.
  *
+ * Items and users are interned by a Registry as dense int ids the
+ * first time they are seen. Everything else is held in tables indexed
+ * by those ids, so a bid costs one lookup for its item and one for its
+ * user and no further hashing.
+ *
  * It is possible there could be multiple bids on the same item
- * so to prevent a possible race condition a ReadWriteLock is used
- * to ensure consistent access to the shared mutable state Maps.
+ * so each item's history checks and adds a bid in one step under
+ * its own lock.
+ *
+ * A proxy bid is resolved under the same lock, against the leader's
+ * maximum held alongside the history, by the rules of the
+ * ConcurrentBidTracker: whoever has the higher maximum wins at one
+ * increment above the other's, and at least the reserve once their
+ * maximum meets it. Only the resulting bid is added to the history.
  *
+ * By default every bid is kept in memory. Given a RetentionPolicy
+ * only the highest and the most recent bids on each item are kept;
+ * older bids are spilled to a file per item and read back when the
+ * whole history is asked for. Each tracker spills into a directory of
+ * its own, created under the policy's, so trackers sharing a policy
+ * or a directory left behind by an earlier process never write to
+ * each other's files. Spilled bids are written in batches after the
+ * item's lock is let go, so a bid never waits on the disk while
+ * holding it. Close the tracker to delete the files and the directory.
+ *
+ * Closing bidding on an item packs its whole history into a compact
+ * BidArchive and lets go of the Bid objects and any spill file; the
+ * history is still read through the same methods.
  *
  * @author: Jeremy Davies [jerdavies@gmail.com]
  */
 @ThreadSafe
-public class BidTrackerImpl implements BidTracker {
+public class BidTrackerImpl implements BidTracker, Closeable {
+
+    // Tables to track bid histories, indexed by item and user id.
+    private final IdTable<ItemState>            items = new IdTable<>();
+    private final IdTable<UserState>            users = new IdTable<>();
 
-    // Maps to track bid histories.
-    private final Map<Item, Queue<Bid>> itemHistory   = new ConcurrentHashMap<>(100, 0.75f);
-    private final Map<User, Queue<Item>>  userHistory = new ConcurrentHashMap<>(100, 0.75f);
+    private final Registry registry;
+    private final RetentionPolicy retention;
+    private final File spillDirectory;
+    private final int increment;
+
+    public BidTrackerImpl() {
+        this(RetentionPolicy.UNBOUNDED);
+    }
+
+    /**
+     * @param retention how much of each item's history to keep in memory
+     */
+    public BidTrackerImpl(final RetentionPolicy retention) {
+        this(retention, new Registry());
+    }
+
+    /**
+     * @param retention how much of each item's history to keep in memory
+     * @param registry interns the items and users, and may be shared
+     */
+    public BidTrackerImpl(final RetentionPolicy retention, final Registry registry) {
+        this(retention, registry, ConcurrentBidTracker.DEFAULT_INCREMENT);
+    }
+
+    /**
+     * @param retention how much of each item's history to keep in memory
+     * @param registry interns the items and users, and may be shared
+     * @param increment how far a proxy bidder outbids a rival
+     */
+    public BidTrackerImpl(final RetentionPolicy retention, final Registry registry, final int increment) {
+        if(increment < 1) throw new RuntimeException("Unable to create a tracker with an increment of " + increment);
+
+        this.retention = retention;
+        this.registry = registry;
+        this.increment = increment;
+
+        final File directory = retention.getSpillDirectory();
+        try {
+            this.spillDirectory = directory == null ? null : Files.createTempDirectory(directory.toPath(), "tracker-").toFile();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create a spill directory in " + directory, e);
+        }
+    }
 
     /**
      * Attempt to register a bid on an item. If the bid
@@ -39,29 +113,161 @@ public class BidTrackerImpl implements BidTracker {
     @Override
     public void registerBid(final Bid bid, final Item item) {
 
-        // check the maps have the correct keys
-        checkMaps(bid, item);
+        placeBid(bid, item);
+    }
+
+    /**
+     * Attempt to register a bid on an item and say why it
+     * was rejected if it was not added to the storage maps. If the
+     * winner is a proxy bidder whose maximum is at least the bid, the
+     * winner is raised to beat it instead.
+     *
+     * @param bid the bid we are registering
+     * @param item the item we are bidding on
+     * @return the outcome of the bid
+     */
+    @Override
+    public BidResult placeBid(final Bid bid, final Item item) {
+
+        if(item == null) return BidResult.UNKNOWN_ITEM;
+
+        // check the tables have the correct entries
+        final ItemState state = stateOf(item);
+        if(state.closed) return BidResult.CLOSED;
 
         // check to see if the bid value is sufficient
-        if(!bid.isAValidBid(item)) return;
+        if(!bid.isAValidBid(item)) return BidResult.BELOW_INITIAL;
+
+        registry.register(bid.getUser());
+
+        final Bid placed;
+        // check item history is empty or that the last bid value is lower than the current
+        synchronized(state.history) {
+            // closing archives the history under this lock, so look again
+            if(state.closed) return BidResult.CLOSED;
+
+            final Bid winning = state.history.highest();
+            if(winning != null && winning.value() >= bid.value()) return BidResult.NOT_ABOVE_WINNING_BID;
+
+            if(winning != null && state.maximum >= bid.value() && !winning.getUser().equals(bid.getUser())) {
+                // the leader's proxy outbids it, or holds on at its maximum on a tie
+                placed = proxyBid(Math.min(state.maximum, bid.value() + increment), state.maximum, winning.getUser(), item);
+            } else {
+                placed = bid;
+                state.maximum = Math.max(bid.value(), state.maximum);
+            }
+            state.history.addIfHighest(placed);
+        }
+
+        accepted(item, state, placed);
+        return placed == bid ? BidResult.ACCEPTED : BidResult.OUTBID_BY_PROXY;
+    }
+
+    /**
+     * Attempt to register a proxy bid on an item, the value of the bid
+     * being the most the user will pay. The bid on the user's behalf,
+     * or the leader's answer to it, is added to the history under the
+     * item's lock.
+     *
+     * @param maximum the most the user will bid
+     * @param item the item we are bidding on
+     * @return ACCEPTED if the user leads, OUTBID_BY_PROXY if a rival
+     *         was raised above the maximum, or why it was rejected
+     */
+    @Override
+    public BidResult placeProxyBid(final Bid maximum, final Item item) {
+
+        if(item == null) return BidResult.UNKNOWN_ITEM;
+
+        final ItemState state = stateOf(item);
+        if(state.closed) return BidResult.CLOSED;
+
+        if(!maximum.isAValidBid(item)) return BidResult.BELOW_INITIAL;
 
-        // check item history is not empty and that the last bid value is lower than the current
-        if(itemHistory.get(item).size() == 0 || itemHistory.get(item).peek().value() < bid.value()) {
-            itemHistory.get(item).add(bid);
-            userHistory.get(bid.getUser()).add(item);
+        final User user = maximum.getUser();
+        final int most = maximum.value();
+        registry.register(user);
 
-            bid.execute(item); // notify the user to register a bid on this item
+        final Bid placed;
+        synchronized(state.history) {
+            if(state.closed) return BidResult.CLOSED;
+
+            final Bid winning = state.history.highest();
+            if(winning == null) {
+                placed = proxyBid(Math.min(most, item.getInitial() + increment), most, user, item);
+                state.maximum = most;
+            } else if(winning.getUser().equals(user)) {
+                if(most <= state.maximum) return BidResult.NOT_ABOVE_WINNING_BID;
+                state.maximum = most;
+                // only the leader's maximum is raised, unless it now meets the reserve
+                final int raised = ConcurrentBidTracker.atReserve(winning.value(), most, item);
+                if(raised == winning.value()) return BidResult.ACCEPTED;
+                placed = new AuctionBid(raised, user);
+            } else if(most <= winning.value()) {
+                return BidResult.NOT_ABOVE_WINNING_BID;
+            } else if(most <= state.maximum) {
+                placed = proxyBid(Math.min(state.maximum, most + increment), state.maximum, winning.getUser(), item);
+            } else {
+                placed = proxyBid(Math.min(most, state.maximum + increment), most, user, item);
+                state.maximum = most;
+            }
+            state.history.addIfHighest(placed);
         }
+
+        accepted(item, state, placed);
+        return placed.getUser().equals(user) ? BidResult.ACCEPTED : BidResult.OUTBID_BY_PROXY;
+    }
+
+    private static Bid proxyBid(final int amount, final int maximum, final User user, final Item item) {
+        return new AuctionBid(ConcurrentBidTracker.atReserve(amount, maximum, item), user);
+    }
+
+    /**
+     * List the item among the bidder's items and tell them, once the
+     * bid is in the history and the item's lock has been let go.
+     */
+    private void accepted(final Item item, final ItemState state, final Bid bid) {
+
+        state.history.flush(); // write any spilled bids now the lock is let go
+
+        final UserState bidder = users.computeIfAbsent(registry.idOf(bid.getUser()), id -> new UserState());
+        bidder.add(state.itemId, item);
+
+        bid.execute(item); // notify the user to register a bid on this item
+    }
+
+    private ItemState stateOf(final Item item) {
+        final int itemId = registry.register(item);
+        final ItemState state = items.get(itemId);
+        return state != null ? state : items.computeIfAbsent(itemId, this::newState);
+    }
+
+    private ItemState newState(final int itemId) {
+        final File file = spillDirectory == null ? null : new File(spillDirectory, "item-" + itemId + ".bids");
+        return new ItemState(itemId, new SpillingBidHistory(retention, file, registry.getUserIds()));
     }
 
     /**
-     * Ensure the maps have the keys in-place.
-     * @param bid the current bid
-     * @param item the item the bid is against
+     * @return the item's state or null if it has never been bid on or closed
      */
-    private void checkMaps(final Bid bid, final Item item) {
-        if (itemHistory.get(item) == null) itemHistory.put(item, new PriorityQueue<Bid>());
-        if (userHistory.get(bid.getUser()) == null) userHistory.put(bid.getUser(), new LinkedList<Item>());
+    private ItemState find(final Item item) {
+        final int itemId = registry.idOf(item);
+        return itemId < 0 ? null : items.get(itemId);
+    }
+
+    /**
+     * Stop accepting bids on an item and archive its history.
+     *
+     * @param item the item to close
+     * @return the winning bid or null if there were no bids
+     */
+    @Override
+    public Bid closeBidding(final Item item) {
+
+        final ItemState state = stateOf(item);
+        state.closed = true;
+
+        return state.history.archive().highest();
     }
 
     /**
@@ -73,11 +279,13 @@ public class BidTrackerImpl implements BidTracker {
     @Override
     public Bid getCurrentWinningBid(final Item item) {
 
-        return itemHistory.get(item).peek();
+        final ItemState state = find(item);
+        return state == null ? null : state.history.highest();
     }
 
     /**
-     * Get all the bids for an item.
+     * Get all the bids for an item, highest first, including any
+     * that have been spilled.
      *
      * @param item
      * @return all the bids
@@ -85,11 +293,47 @@ public class BidTrackerImpl implements BidTracker {
     @Override
     public List<Bid> getAllBids(final Item item) {
 
-        return new LinkedList(itemHistory.get(item));
+        return getTopBids(item, Integer.MAX_VALUE);
     }
 
     /**
-     * Get all the items on which a user has bid.
+     * Get the highest bids on an item, from memory alone when the
+     * retention policy keeps that many.
+     *
+     * @param item
+     * @param n the most bids to return
+     * @return the bids, highest first
+     */
+    @Override
+    public List<Bid> getTopBids(final Item item, final int n) {
+
+        final ItemState state = find(item);
+        return state == null ? new ArrayList<Bid>() : new ArrayList<>(state.history.top(n));
+    }
+
+    /**
+     * Get a page of an item's bids in the order they were accepted,
+     * reading only that page from the spill file.
+     *
+     * @param item
+     * @param cursor 0 for the first page, then the next cursor of the previous page
+     * @param limit the most bids to return
+     * @return the page of bids
+     */
+    @Override
+    public Page<Bid> getBids(final Item item, final int cursor, final int limit) {
+
+        final ItemState state = find(item);
+        if(state == null) return new Page<>(new ArrayList<Bid>(), cursor, false);
+
+        final SpillingBidHistory bids = state.history;
+        final List<Bid> page = bids.range(cursor, (int) Math.min((long) cursor + limit, Integer.MAX_VALUE));
+        final int next = cursor + page.size();
+        return new Page<>(page, next, next < bids.size());
+    }
+
+    /**
+     * Get all the items on which a user has bid, each item once.
      *
      * @param user
      * @return a list of items
@@ -97,6 +341,91 @@ public class BidTrackerImpl implements BidTracker {
     @Override
     public List<Item> getAllItems(final User user) {
 
-        return new LinkedList(userHistory.get(user));
+        final int userId = registry.idOf(user);
+        final UserState bidder = userId < 0 ? null : users.get(userId);
+        if(bidder == null) return new ArrayList<>();
+
+        final AppendOnlyList<Item> bidOn = bidder.items;
+        final List<Item> items = new ArrayList<>(bidOn.size());
+        for(int i = 0; i < bidOn.size(); i++) {
+            items.add(bidOn.get(i));
+        }
+        return items;
+    }
+
+    /**
+     * Delete the spill files and their directory.
+     */
+    @Override
+    public void close() {
+
+        for(int itemId = 0; itemId < registry.itemCount(); itemId++) {
+            final ItemState state = items.get(itemId);
+            if(state != null) state.history.close();
+        }
+        if(spillDirectory != null && !spillDirectory.delete()) spillDirectory.deleteOnExit();
+    }
+
+    private static final class ItemState {
+        private final int itemId;
+        private final SpillingBidHistory history;
+
+        // the most the winning bidder will go to, guarded by the history's lock
+        private int maximum;
+
+        private volatile boolean closed;
+
+        private ItemState(final int itemId, final SpillingBidHistory history) {
+            this.itemId = itemId;
+            this.history = history;
+        }
+    }
+
+    /**
+     * The items a single user has bid on: their ids, to tell a first
+     * bid on an item from the rest, and the items in the order first
+     * bid on. Each grows with that user's own bids alone.
+     *
+     * The ids are an open-addressing table of ints, each held as id + 1
+     * so that 0 marks an empty slot, kept at most half full. It is only
+     * touched under the user's lock, which no other user's bids take,
+     * so a bid neither boxes its item id nor hashes it more than once.
+     * The items themselves are read without the lock.
+     */
+    private static final class UserState {
+        private int[] itemIds = new int[8];
+        private int count;
+        private final AppendOnlyList<Item> items = new AppendOnlyList<>();
+
+        /**
+         * List the item if this is the user's first bid on it.
+         */
+        private synchronized void add(final int itemId, final Item item) {
+            final int mask = itemIds.length - 1;
+            int slot = spread(itemId) & mask;
+            for(int held; (held = itemIds[slot]) != 0; slot = (slot + 1) & mask) {
+                if(held == itemId + 1) return;
+            }
+
+            itemIds[slot] = itemId + 1;
+            items.add(item);
+            if(++count * 2 > itemIds.length) grow();
+        }
+
+        private void grow() {
+            final int[] old = itemIds;
+            itemIds = new int[old.length * 2];
+            final int mask = itemIds.length - 1;
+            for(int held : old) {
+                if(held == 0) continue;
+                int slot = spread(held - 1) & mask;
+                while(itemIds[slot] != 0) slot = (slot + 1) & mask;
+                itemIds[slot] = held;
+            }
+        }
+
+        private static int spread(final int id) {
+            return id * 0x9E3779B9; // ids are dense, so scatter them across the table
+        }
     }
 }
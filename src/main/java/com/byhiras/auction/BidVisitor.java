@@ -0,0 +1,48 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+
+/**
+ * A BidVisitor is walked over the accepted bids held by a tracker,
+ * one item at a time.
+ */
+public interface BidVisitor {
+
+    /**
+     * Called before the bids of an item are visited.
+     *
+     * @param item the item
+     * @param bidCount the number of bids that follow
+     */
+    void visitItem(Item item, int bidCount);
+
+    /**
+     * Called for each of the item's bids, oldest first.
+     *
+     * @param sequence the bid's position in the item's history
+     * @param amount the value of the bid
+     * @param user the user that made the bid
+     * @param timestamp when the bid was accepted
+     */
+    void visitBid(int sequence, int amount, User user, long timestamp);
+
+    /**
+     * Called after the item's bids with the most its winning bidder
+     * will go to, which is the winning bid's own value unless they bid
+     * by proxy. By default nothing is done.
+     *
+     * @param maximum the winning bidder's maximum, or 0 if there are no bids
+     */
+    default void visitMaximum(int maximum) {
+    }
+
+    /**
+     * Called after the item's maximum with whether bidding on it has
+     * closed. By default nothing is done.
+     *
+     * @param closed true if the item no longer takes bids
+     */
+    default void visitClosed(boolean closed) {
+    }
+}
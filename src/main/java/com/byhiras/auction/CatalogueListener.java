@@ -0,0 +1,21 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.models.Item;
+
+/**
+ * A CatalogueListener is told about every item added to or removed
+ * from an Auction, on the thread that changed it, so it should be
+ * quick.
+ */
+public interface CatalogueListener {
+
+    /**
+     * @param item the item added
+     */
+    void itemAdded(Item item);
+
+    /**
+     * @param item the item removed
+     */
+    void itemRemoved(Item item);
+}
@@ -0,0 +1,790 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.RecordedBid;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.notify.BidNotifier;
+import com.byhiras.auction.notify.DirectBidNotifier;
+import com.byhiras.auction.store.AppendOnlyList;
+import com.byhiras.auction.store.BidHistory;
+import com.byhiras.auction.store.UserIds;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The ConcurrentBidTracker is a lock-free alternative to the
+ * BidTrackerImpl.
+ *
+ * Each item owns a single atomic slot holding its winning bid and
+ * that bid's sequence number. A bid is accepted by a single
+ * compare-and-set of the slot, which also claims the next sequence
+ * number, so no lock is needed. The accepted bid is then written at
+ * that position of the item's columnar BidHistory; only the winning
+ * Bid object is kept, the rest are rebuilt when the history is read.
+ * As every accepted bid is strictly greater than the one before it
+ * the history is always ordered by value.
+ *
+ * Each user has a portfolio holding every item they have bid on once,
+ * and the items on which they hold the winning bid. The winning set is
+ * keyed by the sequence of the user's winning bid, so that an outbid
+ * user is only removed if they have not since won the item back.
+ *
+ * Closing an item marks its slot closed, so from then on every bid
+ * is rejected by the same read that would have compared it with the
+ * winning bid.
+ *
+ * Reads take the winning slot once and only look at the history up
+ * to its sequence, which never changes once written, so every query
+ * sees an immutable snapshot without copying or locking anything. A
+ * position below the winner may have been claimed but not yet
+ * recorded, or, on a tracker being restored, not yet restored; reads
+ * stop at such a gap rather than wait for it, so they never block.
+ *
+ * A proxy bid gives the most a user is willing to pay. The winning
+ * slot also holds the leader's maximum, so a new bid, proxy or not,
+ * is resolved against it in the same compare-and-set: the winner is
+ * whoever has the higher maximum and the price is one increment above
+ * the other maximum. Once the winner's maximum meets the item's
+ * reserve the price is at least the reserve, so an item is never left
+ * unsold below a maximum that would have bought it. Only that final
+ * bid is recorded and notified. Listeners are told the maximum whenever it is above the winning
+ * bid, so a journal or a follower can put it back.
+ *
+ * Accepted bids are handed to a BidNotifier to be executed; by default
+ * this happens straight away on the bidding thread, but a
+ * BidNotificationPipeline can be given to move it elsewhere.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class ConcurrentBidTracker implements RecoverableBidTracker {
+
+    private final ConcurrentMap<Item, ItemBids>    itemHistory = new ConcurrentHashMap<>(100, 0.75f);
+    private final ConcurrentMap<User, Portfolio> userHistory = new ConcurrentHashMap<>(100, 0.75f);
+
+    private final UserIds userIds = new UserIds();
+
+    public static final int DEFAULT_INCREMENT = 1;
+
+    private final BidNotifier notifier;
+    private final int increment;
+
+    // compare-and-sets of a winning slot that lost a race and were retried
+    private final LongAdder retries = new LongAdder();
+
+    private volatile BidListener[] listeners = new BidListener[0];
+
+    public ConcurrentBidTracker() {
+        this(new DirectBidNotifier());
+    }
+
+    /**
+     * @param notifier told about every accepted bid
+     */
+    public ConcurrentBidTracker(final BidNotifier notifier) {
+        this(notifier, DEFAULT_INCREMENT);
+    }
+
+    /**
+     * @param notifier told about every accepted bid
+     * @param increment how far a proxy bidder outbids a rival
+     */
+    public ConcurrentBidTracker(final BidNotifier notifier, final int increment) {
+        if(increment < 1) throw new RuntimeException("Unable to create a tracker with an increment of " + increment);
+
+        this.notifier = notifier;
+        this.increment = increment;
+    }
+
+    @Override
+    public synchronized void addListener(final BidListener listener) {
+        final BidListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+        added[listeners.length] = listener;
+        listeners = added;
+    }
+
+    /**
+     * Attempt to register a bid on an item.
+     *
+     * @param bid the bid we are registering
+     * @param item the item we are bidding on
+     */
+    @Override
+    public void registerBid(final Bid bid, final Item item) {
+
+        placeBid(bid, item);
+    }
+
+    /**
+     * Attempt to register a bid on an item. The bid is accepted iff
+     * it is valid for the item and greater than the current winning
+     * bid at the moment the compare-and-set succeeds; a losing race
+     * simply re-reads the slot and tries again. If the winner is a
+     * proxy bidder whose maximum is at least the bid, the winner is
+     * raised to beat it instead.
+     *
+     * @param bid the bid we are registering
+     * @param item the item we are bidding on
+     * @return the outcome of the bid
+     */
+    @Override
+    public BidResult placeBid(final Bid bid, final Item item) {
+
+        if(item == null) return BidResult.UNKNOWN_ITEM;
+
+        // check to see if the bid value is sufficient
+        if(!bid.isAValidBid(item)) return BidResult.BELOW_INITIAL;
+
+        final ItemBids bids = bidsFor(item);
+
+        Winner current;
+        Winner next;
+        int attempts = 0;
+        do {
+            if(attempts++ > 0) retries.increment();
+            current = bids.winner.get();
+            if(current != null && current.closed) return BidResult.CLOSED;
+            if(current != null && current.bid.value() >= bid.value()) return BidResult.NOT_ABOVE_WINNING_BID;
+
+            if(current == null) {
+                next = new Winner(bid, 0, bid.value());
+            } else if(current.maximum >= bid.value() && !current.bid.getUser().equals(bid.getUser())) {
+                // the leader's proxy outbids it, or holds on at its maximum on a tie
+                next = new Winner(new AuctionBid(atReserve(Math.min(current.maximum, bid.value() + increment), current.maximum, item),
+                                                 current.bid.getUser()),
+                                  current.sequence + 1, current.maximum);
+            } else {
+                next = new Winner(bid, current.sequence + 1, Math.max(bid.value(), current.maximum));
+            }
+        } while(!bids.winner.compareAndSet(current, next));
+
+        accepted(item, bids, current, next);
+        return next.bid == bid ? BidResult.ACCEPTED : BidResult.OUTBID_BY_PROXY;
+    }
+
+    /**
+     * Attempt to register a proxy bid on an item, the value of the bid
+     * being the most the user will pay. A rival with a higher maximum,
+     * proxy or not, wins at one increment above this maximum; otherwise
+     * the user takes the lead at one increment above the rival's
+     * maximum, or this maximum if that is lower. A leader whose maximum
+     * meets the reserve bids at least the reserve. Either way a single
+     * bid is recorded. A leader raising their own maximum changes no
+     * bids, unless the raise meets the reserve their bid is below, when
+     * their bid is raised to the reserve.
+     *
+     * @param maximum the most the user will bid
+     * @param item the item we are bidding on
+     * @return ACCEPTED if the user leads, OUTBID_BY_PROXY if a rival
+     *         was raised above the maximum, or why it was rejected
+     */
+    @Override
+    public BidResult placeProxyBid(final Bid maximum, final Item item) {
+
+        if(item == null) return BidResult.UNKNOWN_ITEM;
+
+        if(!maximum.isAValidBid(item)) return BidResult.BELOW_INITIAL;
+
+        final ItemBids bids = bidsFor(item);
+        final User user = maximum.getUser();
+        final int most = maximum.value();
+
+        Winner current;
+        Winner next;
+        int attempts = 0;
+        do {
+            if(attempts++ > 0) retries.increment();
+            current = bids.winner.get();
+            if(current != null && current.closed) return BidResult.CLOSED;
+
+            if(current == null) {
+                next = new Winner(new AuctionBid(atReserve(Math.min(most, item.getInitial() + increment), most, item), user), 0, most);
+            } else if(current.bid.getUser().equals(user)) {
+                if(most <= current.maximum) return BidResult.NOT_ABOVE_WINNING_BID;
+                final int raised = atReserve(current.bid.value(), most, item);
+                next = raised == current.bid.value() ? new Winner(current.bid, current.sequence, most)
+                                                     : new Winner(new AuctionBid(raised, user), current.sequence + 1, most);
+            } else if(most <= current.bid.value()) {
+                return BidResult.NOT_ABOVE_WINNING_BID;
+            } else if(most <= current.maximum) {
+                next = new Winner(new AuctionBid(atReserve(Math.min(current.maximum, most + increment), current.maximum, item),
+                                                 current.bid.getUser()),
+                                  current.sequence + 1, current.maximum);
+            } else {
+                next = new Winner(new AuctionBid(atReserve(Math.min(most, current.maximum + increment), most, item), user),
+                                  current.sequence + 1, most);
+            }
+        } while(!bids.winner.compareAndSet(current, next));
+
+        // only the leader's maximum was raised
+        if(current != null && next.sequence == current.sequence) {
+            for(BidListener listener : listeners) listener.maximumRaised(item, next.sequence, next.maximum);
+            return BidResult.ACCEPTED;
+        }
+
+        accepted(item, bids, current, next);
+        return next.bid.getUser().equals(user) ? BidResult.ACCEPTED : BidResult.OUTBID_BY_PROXY;
+    }
+
+    /**
+     * @return the bid a proxy bidder makes, raised to the item's
+     *         reserve if their maximum meets it
+     */
+    static int atReserve(final int bid, final int maximum, final Item item) {
+        return maximum >= item.getReserve() ? Math.max(bid, item.getReserve()) : bid;
+    }
+
+    /**
+     * Record the bid that has just claimed the winning slot and tell
+     * everyone about it.
+     */
+    private void accepted(final Item item, final ItemBids bids, final Winner current, final Winner next) {
+
+        final Bid bid = next.bid;
+        final long now = System.currentTimeMillis();
+        bids.history.record(next.sequence, bid.value(), userIds.idOf(bid.getUser()), now);
+
+        portfolioFor(bid.getUser()).add(item);
+        updateWinner(item, bids, current, next);
+
+        for(BidListener listener : listeners) listener.bidAccepted(item, bid, next.sequence, now);
+        if(next.maximum > bid.value()) {
+            for(BidListener listener : listeners) listener.maximumRaised(item, next.sequence, next.maximum);
+        }
+
+        notifier.bidAccepted(bid, item); // notify the user to register a bid on this item
+    }
+
+    /**
+     * Attempt to register several bids on an item in one step. Each bid
+     * is accepted iff it is valid and greater than both the winning bid
+     * and every earlier bid accepted from the list, exactly as if the
+     * bids had been placed one after another. All the accepted bids are
+     * claimed with a single compare-and-set of the slot.
+     *
+     * @param bids the bids we are registering, in order
+     * @param item the item we are bidding on
+     * @return the outcome of each bid
+     */
+    @Override
+    public List<BidResult> placeBids(final List<Bid> bids, final Item item) {
+
+        final BidResult[] results = new BidResult[bids.size()];
+
+        if(item == null) {
+            Arrays.fill(results, BidResult.UNKNOWN_ITEM);
+            return Arrays.asList(results);
+        }
+
+        final ItemBids itemBids = bidsFor(item);
+
+        Winner current;
+        Winner next;
+        int accepted;
+        int attempts = 0;
+        do {
+            if(attempts++ > 0) retries.increment();
+            current = itemBids.winner.get();
+            if(current != null && current.closed) {
+                Arrays.fill(results, BidResult.CLOSED);
+                return Arrays.asList(results);
+            }
+            if(current != null && current.maximum > current.bid.value()) {
+                // a proxy bidder may answer each bid, so they are placed one by one
+                return RecoverableBidTracker.super.placeBids(bids, item);
+            }
+
+            int highest = current == null ? Integer.MIN_VALUE : current.bid.value();
+            Bid top = null;
+            accepted = 0;
+
+            for(int i = 0; i < results.length; i++) {
+                final Bid bid = bids.get(i);
+                if(!bid.isAValidBid(item)) {
+                    results[i] = BidResult.BELOW_INITIAL;
+                } else if(bid.value() <= highest) {
+                    results[i] = BidResult.NOT_ABOVE_WINNING_BID;
+                } else {
+                    results[i] = BidResult.ACCEPTED;
+                    highest = bid.value();
+                    top = bid;
+                    accepted++;
+                }
+            }
+
+            if(top == null) return Arrays.asList(results);
+
+            next = new Winner(top, (current == null ? -1 : current.sequence) + accepted, top.value());
+        } while(!itemBids.winner.compareAndSet(current, next));
+
+        final long now = System.currentTimeMillis();
+
+        int sequence = next.sequence - accepted + 1;
+        for(int i = 0; i < results.length; i++) {
+            if(results[i] != BidResult.ACCEPTED) continue;
+
+            final Bid bid = bids.get(i);
+            itemBids.history.record(sequence, bid.value(), userIds.idOf(bid.getUser()), now);
+            portfolioFor(bid.getUser()).add(item);
+            for(BidListener listener : listeners) listener.bidAccepted(item, bid, sequence, now);
+            notifier.bidAccepted(bid, item);
+            sequence++;
+        }
+        updateWinner(item, itemBids, current, next);
+
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public void restoreBid(final Item item, final Bid bid, final int sequence, final long timestamp) {
+
+        final ItemBids bids = bidsFor(item);
+        if(bids.history.isRecorded(sequence)) return; // already restored, e.g. by a snapshot
+
+        bids.history.record(sequence, bid.value(), userIds.idOf(bid.getUser()), timestamp);
+
+        portfolioFor(bid.getUser()).add(item);
+
+        Winner current;
+        Winner next;
+        do {
+            current = bids.winner.get();
+            if(current != null && current.sequence >= sequence) return;
+
+            // a maximum restored before its bid
+            final Winner early = bids.early.get();
+            final int maximum = early != null && early.sequence == sequence ? Math.max(bid.value(), early.maximum) : bid.value();
+            next = new Winner(bid, sequence, maximum, current != null && current.closed);
+        } while(!bids.winner.compareAndSet(current, next));
+
+        updateWinner(item, bids, current, next);
+    }
+
+    @Override
+    public void restoreMaximum(final Item item, final int sequence, final int maximum) {
+
+        final ItemBids bids = bidsFor(item);
+
+        Winner current;
+        do {
+            current = bids.winner.get();
+            if(current == null || current.sequence < sequence) {
+                holdEarly(bids, sequence, maximum);
+                // the bid may have been restored while the maximum was put aside
+                current = bids.winner.get();
+                if(current == null || current.sequence != sequence) return;
+            }
+            if(current.sequence > sequence || current.maximum >= maximum) return;
+        } while(!bids.winner.compareAndSet(current, new Winner(current.bid, sequence, maximum, current.closed)));
+    }
+
+    @Override
+    public void restoreClosed(final Item item) {
+        close(bidsFor(item));
+    }
+
+    private void holdEarly(final ItemBids bids, final int sequence, final int maximum) {
+        Winner early;
+        do {
+            early = bids.early.get();
+            if(early != null && (early.sequence > sequence || (early.sequence == sequence && early.maximum >= maximum))) return;
+        } while(!bids.early.compareAndSet(early, new Winner(null, sequence, maximum)));
+    }
+
+    /**
+     * Move an item from the outbid user's winning set to the new
+     * winner's once the slot has been swapped. The new winner is
+     * checked again afterwards as it may have been outbid before its
+     * item was added, in which case the outbidding thread found
+     * nothing to remove.
+     */
+    private void updateWinner(final Item item, final ItemBids bids, final Winner outbid, final Winner winner) {
+
+        if(outbid != null && outbid.bid != null) portfolioFor(outbid.bid.getUser()).winning.remove(item, outbid.sequence);
+
+        final Portfolio portfolio = portfolioFor(winner.bid.getUser());
+        portfolio.winning.merge(item, winner.sequence, Math::max);
+
+        if(bids.winner.get().sequence != winner.sequence) portfolio.winning.remove(item, winner.sequence);
+    }
+
+    /**
+     * Close an item by marking its winning slot closed. As every bid is
+     * placed by a compare-and-set of the same slot, the bid returned is
+     * exactly the one that won and any bid racing with the close either
+     * lands before it or is rejected.
+     *
+     * @param item the item to close
+     * @return the winning bid or null if there were no bids
+     */
+    @Override
+    public Bid closeBidding(final Item item) {
+
+        final ItemBids bids = bidsFor(item);
+        if(close(bids)) {
+            for(BidListener listener : listeners) listener.biddingClosed(item);
+        }
+        return bids.winner.get().bid;
+    }
+
+    /**
+     * @return true if this call closed the slot, false if it already was
+     */
+    private static boolean close(final ItemBids bids) {
+
+        Winner current;
+        do {
+            current = bids.winner.get();
+            if(current != null && current.closed) return false;
+        } while(!bids.winner.compareAndSet(current, current == null ? new Winner(null, -1, 0, true)
+                                                                    : new Winner(current.bid, current.sequence, current.maximum, true)));
+
+        return true;
+    }
+
+    @Override
+    public void exportBids(final BidVisitor visitor) {
+
+        for(Map.Entry<Item, ItemBids> entry : itemHistory.entrySet()) {
+            final Winner winner = entry.getValue().winner.get();
+            final BidHistory history = entry.getValue().history;
+
+            // the prefix recorded so far; the rest is left for the journal
+            final int count = winner == null ? 0 : history.firstUnrecorded(0, winner.sequence + 1);
+            visitor.visitItem(entry.getKey(), count);
+
+            for(int sequence = 0; sequence < count; sequence++) {
+                visitor.visitBid(sequence,
+                                 history.amountAt(sequence),
+                                 userIds.userOf(history.userAt(sequence)),
+                                 history.timestampAt(sequence));
+            }
+            if(count == 0) visitor.visitMaximum(0);
+            else visitor.visitMaximum(count == winner.sequence + 1 ? winner.maximum : history.amountAt(count - 1));
+            visitor.visitClosed(winner != null && winner.closed);
+        }
+    }
+
+    /**
+     * @return how many times a bid lost the race for an item's winning
+     *         slot and had to try again, a measure of contention
+     */
+    public long retries() {
+        return retries.sum();
+    }
+
+    private ItemBids bidsFor(final Item item) {
+        ItemBids bids = itemHistory.get(item);
+        if(bids == null) {
+            final ItemBids created = new ItemBids();
+            bids = itemHistory.putIfAbsent(item, created);
+            if(bids == null) bids = created;
+        }
+        return bids;
+    }
+
+    private Portfolio portfolioFor(final User user) {
+        Portfolio portfolio = userHistory.get(user);
+        if(portfolio == null) {
+            final Portfolio created = new Portfolio();
+            portfolio = userHistory.putIfAbsent(user, created);
+            if(portfolio == null) portfolio = created;
+        }
+        return portfolio;
+    }
+
+    /**
+     * Get the current winning bid for an item.
+     *
+     * @param item
+     * @return the winning bid or null if there have been no bids
+     */
+    @Override
+    public Bid getCurrentWinningBid(final Item item) {
+
+        final ItemBids bids = itemHistory.get(item);
+        if(bids == null) return null;
+
+        final Winner winner = bids.winner.get();
+        return winner == null ? null : winner.bid;
+    }
+
+    /**
+     * Get all the bids for an item, highest first, down to any bid not
+     * yet recorded. The winning bid is returned as registered, the
+     * others are rebuilt from the history.
+     *
+     * @param item
+     * @return all the bids
+     */
+    @Override
+    public List<Bid> getAllBids(final Item item) {
+
+        return getTopBids(item, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the highest bids for an item, reading only those bids from
+     * the history, down to any bid not yet recorded.
+     *
+     * @param item
+     * @param n the most bids to return
+     * @return up to n bids, highest first
+     */
+    @Override
+    public List<Bid> getTopBids(final Item item, final int n) {
+
+        final ItemBids bids = itemHistory.get(item);
+        final Winner winner = bids == null ? null : bids.winner.get();
+        if(winner == null || winner.bid == null) return Collections.emptyList();
+
+        final int low = lowestReadable(bids, winner, n);
+
+        final List<Bid> top = new ArrayList<>(winner.sequence + 1 - low);
+        for(int sequence = winner.sequence; sequence >= low; sequence--) {
+            top.add(bidAt(bids, winner, sequence));
+        }
+        return top;
+    }
+
+    /**
+     * @return the lowest position of the top n bids that can be read
+     *         without passing a bid not yet recorded
+     */
+    private static int lowestReadable(final ItemBids bids, final Winner winner, final int n) {
+        final int low = (int) Math.max(0, winner.sequence + 1L - n);
+        return bids.history.recordedDownTo(winner.sequence - 1, low);
+    }
+
+    /**
+     * Get a page of an item's bids in the order they were accepted. The
+     * cursor is the sequence number of the first bid on the page. A
+     * page ends early at a bid not yet recorded, which the next page
+     * starts from.
+     *
+     * @param item
+     * @param cursor 0 for the first page, then the next cursor of the previous page
+     * @param limit the most bids to return
+     * @return the page of bids
+     */
+    @Override
+    public Page<Bid> getBids(final Item item, final int cursor, final int limit) {
+
+        final ItemBids bids = itemHistory.get(item);
+        final Winner winner = bids == null ? null : bids.winner.get();
+        final int count = winner == null ? 0 : winner.sequence + 1;
+
+        final int start = Math.max(0, Math.min(cursor, count));
+        int end = (int) Math.min(count, (long) start + limit);
+        if(end > start) {
+            final int recorded = bids.history.firstUnrecorded(start, Math.min(end, winner.sequence));
+            if(recorded < winner.sequence) end = Math.min(end, recorded);
+        }
+
+        final List<Bid> page = new ArrayList<>(end - start);
+        for(int sequence = start; sequence < end; sequence++) {
+            page.add(bidAt(bids, winner, sequence));
+        }
+        return new Page<>(page, end, end < count);
+    }
+
+    /**
+     * Get all the items on which a user has bid, each item once.
+     *
+     * @param user
+     * @return a list of items
+     */
+    @Override
+    public List<Item> getAllItems(final User user) {
+
+        return getItems(user, 0, Integer.MAX_VALUE).getItems();
+    }
+
+    /**
+     * Get a page of the items on which a user has bid, read by position
+     * so that no earlier pages are walked.
+     *
+     * @param user
+     * @param cursor 0 for the first page, then the next cursor of the previous page
+     * @param limit the most items to return
+     * @return the page of items
+     */
+    @Override
+    public Page<Item> getItems(final User user, final int cursor, final int limit) {
+
+        final Portfolio portfolio = userHistory.get(user);
+        final AppendOnlyList<Item> items = portfolio == null ? null : portfolio.items;
+        final int count = items == null ? 0 : items.size();
+
+        final int start = Math.max(0, Math.min(cursor, count));
+        final int end = (int) Math.min(count, (long) start + limit);
+
+        final List<Item> page = new ArrayList<>(end - start);
+        for(int index = start; index < end; index++) page.add(items.get(index));
+        return new Page<>(page, end, end < count);
+    }
+
+    /**
+     * @param user
+     * @return the number of items on which the user has bid
+     */
+    public int itemCount(final User user) {
+
+        final Portfolio portfolio = userHistory.get(user);
+        return portfolio == null ? 0 : portfolio.items.size();
+    }
+
+    /**
+     * Get the items on which a user currently holds the winning bid,
+     * read from the user's winning set rather than from every item the
+     * user has bid on.
+     *
+     * @param user
+     * @return a list of items
+     */
+    @Override
+    public List<Item> getWinningItems(final User user) {
+
+        final Portfolio portfolio = userHistory.get(user);
+        if(portfolio == null) return new ArrayList<>();
+
+        return new ArrayList<>(portfolio.winning.keySet());
+    }
+
+    /**
+     * Stream the bids for an item, highest first, down to any bid not
+     * yet recorded. The stream is sized, splits for parallel use and
+     * rebuilds each bid only as it is read.
+     *
+     * @param item
+     * @return the bids
+     */
+    @Override
+    public Stream<Bid> streamBids(final Item item) {
+
+        final ItemBids bids = itemHistory.get(item);
+        final Winner winner = bids == null ? null : bids.winner.get();
+        if(winner == null || winner.bid == null) return Stream.empty();
+
+        final int fence = lowestReadable(bids, winner, Integer.MAX_VALUE) - 1;
+        return StreamSupport.stream(new BidSpliterator(bids, winner, winner.sequence, fence), false);
+    }
+
+    private Bid bidAt(final ItemBids bids, final Winner winner, final int sequence) {
+        if(sequence == winner.sequence) return winner.bid;
+
+        return new RecordedBid(bids.history.amountAt(sequence),
+                               userIds.userOf(bids.history.userAt(sequence)),
+                               bids.history.timestampAt(sequence));
+    }
+
+    /**
+     * Walks an item's history from one sequence down to, but not
+     * including, another.
+     */
+    private final class BidSpliterator implements Spliterator<Bid> {
+        private final ItemBids bids;
+        private final Winner winner;
+        private final int fence;
+        private int next;
+
+        private BidSpliterator(final ItemBids bids, final Winner winner, final int next, final int fence) {
+            this.bids = bids;
+            this.winner = winner;
+            this.next = next;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super Bid> action) {
+            if(next <= fence) return false;
+            action.accept(bidAt(bids, winner, next--));
+            return true;
+        }
+
+        @Override
+        public Spliterator<Bid> trySplit() {
+            final int middle = fence + (next - fence) / 2;
+            if(middle == fence) return null;
+
+            // the higher half is handed out so that encounter order is kept
+            final Spliterator<Bid> higher = new BidSpliterator(bids, winner, next, middle);
+            next = middle;
+            return higher;
+        }
+
+        @Override
+        public long estimateSize() {
+            return next - fence;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * The items a single user has bid on and those they are winning.
+     */
+    private static final class Portfolio {
+        private final Set<Item> seen = ConcurrentHashMap.newKeySet();
+        private final AppendOnlyList<Item> items = new AppendOnlyList<>();
+        private final ConcurrentMap<Item, Integer> winning = new ConcurrentHashMap<>();
+
+        private void add(final Item item) {
+            if(seen.add(item)) items.add(item);
+        }
+    }
+
+    /**
+     * The bid state of a single item.
+     */
+    private static final class ItemBids {
+        private final AtomicReference<Winner> winner = new AtomicReference<>();
+        private final BidHistory history = new BidHistory();
+
+        // the latest maximum restored ahead of its bid, without a bid
+        private final AtomicReference<Winner> early = new AtomicReference<>();
+    }
+
+    /**
+     * An item's winning bid, its position in the item's history, the
+     * most its bidder will go to and whether bidding has closed. The
+     * maximum is the bid's own value unless it came from a proxy bid.
+     * A closed item with no bids has no bid and a position of -1.
+     */
+    private static final class Winner {
+        private final Bid bid;
+        private final int sequence;
+        private final int maximum;
+        private final boolean closed;
+
+        private Winner(final Bid bid, final int sequence, final int maximum) {
+            this(bid, sequence, maximum, false);
+        }
+
+        private Winner(final Bid bid, final int sequence, final int maximum, final boolean closed) {
+            this.bid = bid;
+            this.sequence = sequence;
+            this.maximum = maximum;
+            this.closed = closed;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.util.Immutable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A Page is one slice of a longer result together with the cursor
+ * that fetches the next slice.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public class Page<T> {
+
+    private final List<T> items;
+    private final int nextCursor;
+    private final boolean more;
+
+    public Page(final List<T> items, final int nextCursor, final boolean more) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+        this.more = more;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the cursor to pass to get the following page
+     */
+    public int getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return true iff there was more to read when the page was taken
+     */
+    public boolean hasMore() {
+        return more;
+    }
+
+    @Override
+    public String toString() {
+        return items + (more ? " more from " + nextCursor : "");
+    }
+}
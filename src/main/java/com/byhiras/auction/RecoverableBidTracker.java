@@ -0,0 +1,62 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+
+/**
+ * A tracker whose accepted bids can be recorded by a listener or
+ * exported, and later restored, for example from a journal or a
+ * snapshot.
+ */
+public interface RecoverableBidTracker extends BidTracker {
+
+    /**
+     * @param listener told about every bid accepted from now on
+     */
+    void addListener(BidListener listener);
+
+    /**
+     * Put back a bid that was accepted before a restart. Bids may be
+     * restored in any order; the one with the highest sequence becomes
+     * the winner. A bid already held at that position is left alone.
+     * Listeners are not told and the bid is not executed.
+     *
+     * @param item the item the bid was made on
+     * @param bid the accepted bid
+     * @param sequence the bid's position in the item's history
+     * @param timestamp when the bid was accepted
+     */
+    void restoreBid(Item item, Bid bid, int sequence, long timestamp);
+
+    /**
+     * Put back the maximum of a winning proxy bidder. It only applies
+     * while the bid at that sequence is the winner; one restored before
+     * its bid is held until the bid is. The highest maximum restored
+     * for a sequence is kept. Listeners are not told.
+     *
+     * @param item the item
+     * @param sequence the position of the winning bid the maximum belongs to
+     * @param maximum the most the winning bidder will go to
+     */
+    void restoreMaximum(Item item, int sequence, int maximum);
+
+    /**
+     * Put back the close of an item, so that bids on it are rejected
+     * as they were before the restart. Bids may still be restored
+     * into it. Listeners are not told.
+     *
+     * @param item the item that was closed
+     */
+    void restoreClosed(Item item);
+
+    /**
+     * Visit every item's accepted bids while bidding carries on. Each
+     * item's bids are a complete prefix of its history as it stood
+     * when the item was reached, followed by the maximum of the last of
+     * them and whether the item was closed; bids accepted after that
+     * are left for the journal.
+     *
+     * @param visitor told about each item and its bids
+     */
+    void exportBids(BidVisitor visitor);
+}
@@ -0,0 +1,79 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.store.DenseIds;
+import com.byhiras.auction.store.UserIds;
+import com.byhiras.auction.util.ThreadSafe;
+
+/**
+ * The Registry interns the items and users of an auction as dense int
+ * ids, so that a tracker resolves each one once per bid and keeps the
+ * rest of its state in arrays indexed by id.
+ *
+ * Items and users are told apart by equals, so two AuctionUsers with
+ * the same name are the same user.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class Registry {
+
+    private final DenseIds<Item> items = new DenseIds<>();
+    private final UserIds users = new UserIds();
+
+    /**
+     * @param item the item
+     * @return the id of the item, assigning one if necessary
+     */
+    public int register(final Item item) {
+        return items.idOf(item);
+    }
+
+    /**
+     * @param user the user
+     * @return the id of the user, assigning one if necessary
+     */
+    public int register(final User user) {
+        return users.idOf(user);
+    }
+
+    /**
+     * @param item the item
+     * @return the id of the item or -1 if it is not registered
+     */
+    public int idOf(final Item item) {
+        return items.find(item);
+    }
+
+    /**
+     * @param user the user
+     * @return the id of the user or -1 if it is not registered
+     */
+    public int idOf(final User user) {
+        return users.find(user);
+    }
+
+    public Item itemOf(final int id) {
+        return items.valueOf(id);
+    }
+
+    public User userOf(final int id) {
+        return users.userOf(id);
+    }
+
+    public int itemCount() {
+        return items.size();
+    }
+
+    public int userCount() {
+        return users.size();
+    }
+
+    /**
+     * @return the user ids, for stores that write users as ids
+     */
+    public UserIds getUserIds() {
+        return users;
+    }
+}
@@ -0,0 +1,346 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.RecordedBid;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.notify.BidNotifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The bid state of the items owned by one shard of a
+ * ShardedBidTracker.
+ *
+ * Only the shard's thread ever touches it, so it is held in plain
+ * maps, arrays and fields: a bid is checked and recorded with ordinary
+ * reads and writes, without compare-and-set, locks or volatile fields.
+ * The rules for bids, proxy bids and closing are the same as those of
+ * the ConcurrentBidTracker.
+ *
+ * Not thread safe; the shard's queue hands it from one task to the
+ * next.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class ShardState {
+
+    private final Map<Item, ItemState> items = new HashMap<>();
+    private final Map<User, Portfolio> users = new HashMap<>();
+
+    private final BidNotifier notifier;
+    private final int increment;
+
+    private BidListener[] listeners = new BidListener[0];
+
+    ShardState(final BidNotifier notifier, final int increment) {
+        this.notifier = notifier;
+        this.increment = increment;
+    }
+
+    void addListener(final BidListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    BidResult placeBid(final Bid bid, final Item item) {
+
+        if(item == null) return BidResult.UNKNOWN_ITEM;
+        if(!bid.isAValidBid(item)) return BidResult.BELOW_INITIAL;
+
+        final ItemState state = stateOf(item);
+        final Bid current = state.winner;
+        if(state.closed) return BidResult.CLOSED;
+        if(current != null && current.value() >= bid.value()) return BidResult.NOT_ABOVE_WINNING_BID;
+
+        if(current != null && state.maximum >= bid.value() && !current.getUser().equals(bid.getUser())) {
+            // the leader's proxy outbids it, or holds on at its maximum on a tie
+            accept(item, state, proxyBid(Math.min(state.maximum, bid.value() + increment), state.maximum, current.getUser(), item),
+                   state.maximum);
+            return BidResult.OUTBID_BY_PROXY;
+        }
+
+        accept(item, state, bid, current == null ? bid.value() : Math.max(bid.value(), state.maximum));
+        return BidResult.ACCEPTED;
+    }
+
+    BidResult placeProxyBid(final Bid maximum, final Item item) {
+
+        if(item == null) return BidResult.UNKNOWN_ITEM;
+        if(!maximum.isAValidBid(item)) return BidResult.BELOW_INITIAL;
+
+        final ItemState state = stateOf(item);
+        final Bid current = state.winner;
+        final User user = maximum.getUser();
+        final int most = maximum.value();
+        if(state.closed) return BidResult.CLOSED;
+
+        if(current == null) {
+            accept(item, state, proxyBid(Math.min(most, item.getInitial() + increment), most, user, item), most);
+        } else if(current.getUser().equals(user)) {
+            if(most <= state.maximum) return BidResult.NOT_ABOVE_WINNING_BID;
+            final int raised = ConcurrentBidTracker.atReserve(current.value(), most, item);
+            if(raised > current.value()) {
+                accept(item, state, new AuctionBid(raised, user), most);
+                return BidResult.ACCEPTED;
+            }
+            state.maximum = most;
+            for(BidListener listener : listeners) listener.maximumRaised(item, state.sequence, most);
+            return BidResult.ACCEPTED;
+        } else if(most <= current.value()) {
+            return BidResult.NOT_ABOVE_WINNING_BID;
+        } else if(most <= state.maximum) {
+            accept(item, state, proxyBid(Math.min(state.maximum, most + increment), state.maximum, current.getUser(), item),
+                   state.maximum);
+        } else {
+            accept(item, state, proxyBid(Math.min(most, state.maximum + increment), most, user, item), most);
+        }
+
+        return state.winner.getUser().equals(user) ? BidResult.ACCEPTED : BidResult.OUTBID_BY_PROXY;
+    }
+
+    private static Bid proxyBid(final int amount, final int maximum, final User user, final Item item) {
+        return new AuctionBid(ConcurrentBidTracker.atReserve(amount, maximum, item), user);
+    }
+
+    /**
+     * Place several bids in order. Nothing else runs on the shard in
+     * between, so they land exactly as if placed one after another.
+     */
+    List<BidResult> placeBids(final List<Bid> bids, final Item item) {
+
+        final List<BidResult> results = new ArrayList<>(bids.size());
+        for(Bid bid : bids) results.add(placeBid(bid, item));
+        return results;
+    }
+
+    private void accept(final Item item, final ItemState state, final Bid bid, final int maximum) {
+
+        final Bid outbid = state.winner;
+        final long now = System.currentTimeMillis();
+        final int sequence = state.sequence + 1;
+
+        state.record(sequence, bid.value(), bid.getUser(), now);
+        state.sequence = sequence;
+        state.winner = bid;
+        state.maximum = maximum;
+
+        portfolioFor(bid.getUser()).add(item);
+        updateWinner(item, outbid, bid);
+
+        for(BidListener listener : listeners) listener.bidAccepted(item, bid, sequence, now);
+        if(maximum > bid.value()) {
+            for(BidListener listener : listeners) listener.maximumRaised(item, sequence, maximum);
+        }
+
+        notifier.bidAccepted(bid, item); // notify the user to register a bid on this item
+    }
+
+    private void updateWinner(final Item item, final Bid outbid, final Bid winner) {
+        if(outbid != null && !outbid.getUser().equals(winner.getUser())) portfolioFor(outbid.getUser()).winning.remove(item);
+        portfolioFor(winner.getUser()).winning.add(item);
+    }
+
+    void restoreBid(final Item item, final Bid bid, final int sequence, final long timestamp) {
+
+        final ItemState state = stateOf(item);
+        if(state.isRecorded(sequence)) return; // already restored, e.g. by a snapshot
+
+        state.record(sequence, bid.value(), bid.getUser(), timestamp);
+        portfolioFor(bid.getUser()).add(item);
+
+        if(sequence <= state.sequence) return;
+
+        final Bid outbid = state.winner;
+        state.sequence = sequence;
+        state.winner = bid;
+        // a maximum restored before its bid
+        state.maximum = state.earlySequence == sequence ? Math.max(bid.value(), state.earlyMaximum) : bid.value();
+        updateWinner(item, outbid, bid);
+    }
+
+    void restoreMaximum(final Item item, final int sequence, final int maximum) {
+
+        final ItemState state = stateOf(item);
+        if(sequence > state.sequence) {
+            if(sequence > state.earlySequence) {
+                state.earlySequence = sequence;
+                state.earlyMaximum = maximum;
+            } else if(sequence == state.earlySequence) {
+                state.earlyMaximum = Math.max(state.earlyMaximum, maximum);
+            }
+            return;
+        }
+        if(sequence == state.sequence && maximum > state.maximum) state.maximum = maximum;
+    }
+
+    void restoreClosed(final Item item) {
+        stateOf(item).closed = true;
+    }
+
+    void exportBids(final BidVisitor visitor) {
+
+        for(Map.Entry<Item, ItemState> entry : items.entrySet()) {
+            final ItemState state = entry.getValue();
+            final int count = state.sequence + 1;
+
+            visitor.visitItem(entry.getKey(), count);
+            for(int sequence = 0; sequence < count; sequence++) {
+                visitor.visitBid(sequence, state.amounts[sequence], state.users[sequence], state.timestamps[sequence]);
+            }
+            visitor.visitMaximum(count == 0 ? 0 : state.maximum);
+            visitor.visitClosed(state.closed);
+        }
+    }
+
+    Bid closeBidding(final Item item) {
+
+        final ItemState state = stateOf(item);
+        if(!state.closed) {
+            state.closed = true;
+            for(BidListener listener : listeners) listener.biddingClosed(item);
+        }
+        return state.winner;
+    }
+
+    Bid getCurrentWinningBid(final Item item) {
+
+        final ItemState state = items.get(item);
+        return state == null ? null : state.winner;
+    }
+
+    /**
+     * @return up to n bids, highest first
+     */
+    List<Bid> getTopBids(final Item item, final int n) {
+
+        final ItemState state = items.get(item);
+        if(state == null) return new ArrayList<>();
+
+        final int low = (int) Math.max(0, state.sequence + 1 - (long) n);
+        final List<Bid> top = new ArrayList<>(state.sequence + 1 - low);
+        for(int sequence = state.sequence; sequence >= low; sequence--) top.add(state.bidAt(sequence));
+        return top;
+    }
+
+    /**
+     * @return a page of the bids in the order they were accepted
+     */
+    Page<Bid> getBids(final Item item, final int cursor, final int limit) {
+
+        final ItemState state = items.get(item);
+        final int count = state == null ? 0 : state.sequence + 1;
+
+        final int start = Math.max(0, Math.min(cursor, count));
+        final int end = (int) Math.min(count, (long) start + limit);
+
+        final List<Bid> page = new ArrayList<>(end - start);
+        for(int sequence = start; sequence < end; sequence++) page.add(state.bidAt(sequence));
+        return new Page<>(page, end, end < count);
+    }
+
+    Page<Item> getItems(final User user, final int cursor, final int limit) {
+
+        final Portfolio portfolio = users.get(user);
+        final int count = portfolio == null ? 0 : portfolio.items.size();
+
+        final int start = Math.max(0, Math.min(cursor, count));
+        final int end = (int) Math.min(count, (long) start + limit);
+
+        final List<Item> page = start == end ? new ArrayList<Item>() : new ArrayList<>(portfolio.items.subList(start, end));
+        return new Page<>(page, end, end < count);
+    }
+
+    int itemCount(final User user) {
+
+        final Portfolio portfolio = users.get(user);
+        return portfolio == null ? 0 : portfolio.items.size();
+    }
+
+    List<Item> getWinningItems(final User user) {
+
+        final Portfolio portfolio = users.get(user);
+        return portfolio == null ? new ArrayList<Item>() : new ArrayList<>(portfolio.winning);
+    }
+
+    private ItemState stateOf(final Item item) {
+        ItemState state = items.get(item);
+        if(state == null) {
+            state = new ItemState();
+            items.put(item, state);
+        }
+        return state;
+    }
+
+    private Portfolio portfolioFor(final User user) {
+        Portfolio portfolio = users.get(user);
+        if(portfolio == null) {
+            portfolio = new Portfolio();
+            users.put(user, portfolio);
+        }
+        return portfolio;
+    }
+
+    /**
+     * The items a single user has bid on, in the order first bid on,
+     * and those they are winning.
+     */
+    private static final class Portfolio {
+        private final Set<Item> seen = new HashSet<>();
+        private final List<Item> items = new ArrayList<>();
+        private final Set<Item> winning = new LinkedHashSet<>();
+
+        private void add(final Item item) {
+            if(seen.add(item)) items.add(item);
+        }
+    }
+
+    /**
+     * The bids on a single item as columns indexed by sequence, with
+     * the winning bid kept as it was made. The maximum is the winning
+     * bid's own value unless it came from a proxy bid.
+     */
+    private static final class ItemState {
+        private int[] amounts = new int[8];
+        private User[] users = new User[8];
+        private long[] timestamps = new long[8];
+
+        private Bid winner;
+        private int sequence = -1;
+        private int maximum;
+        private boolean closed;
+
+        // the latest maximum restored ahead of its bid
+        private int earlySequence = -1;
+        private int earlyMaximum;
+
+        private void record(final int sequence, final int amount, final User user, final long timestamp) {
+            if(sequence >= users.length) {
+                final int size = Math.max(sequence + 1, users.length * 2);
+                amounts = Arrays.copyOf(amounts, size);
+                users = Arrays.copyOf(users, size);
+                timestamps = Arrays.copyOf(timestamps, size);
+            }
+            amounts[sequence] = amount;
+            users[sequence] = user;
+            timestamps[sequence] = timestamp;
+        }
+
+        private boolean isRecorded(final int sequence) {
+            return sequence < users.length && users[sequence] != null;
+        }
+
+        private Bid bidAt(final int sequence) {
+            if(sequence == this.sequence) return winner;
+            return new RecordedBid(amounts[sequence], users[sequence], timestamps[sequence]);
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.notify.BidNotifier;
+import com.byhiras.auction.notify.DirectBidNotifier;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The ShardedBidTracker partitions items across a fixed number of
+ * shards by hashing the item. Each shard has a single thread which
+ * is the only writer of its items' state, so bids on the same item
+ * never race with each other and bids on items in different shards
+ * proceed in parallel.
+ *
+ * Bids are handed to a shard through a lock-free queue and the caller
+ * gets back a future of the outcome. Queries go through the same queue
+ * and wait for their answer, so a shard's state never leaves its
+ * thread and is held in plain, unsynchronised structures; the queue is
+ * the only point at which threads meet. The price is that a query
+ * waits behind the bids queued ahead of it.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class ShardedBidTracker implements RecoverableBidTracker, Closeable {
+
+    private final Shard[] shards;
+
+    public ShardedBidTracker() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedBidTracker(final int shardCount) {
+        this(shardCount, new DirectBidNotifier());
+    }
+
+    /**
+     * @param shardCount the number of shards, each with its own thread
+     * @param notifier told about every accepted bid, from the shard's thread
+     */
+    public ShardedBidTracker(final int shardCount, final BidNotifier notifier) {
+        this(shardCount, notifier, ConcurrentBidTracker.DEFAULT_INCREMENT);
+    }
+
+    /**
+     * @param shardCount the number of shards, each with its own thread
+     * @param notifier told about every accepted bid, from the shard's thread
+     * @param increment how far a proxy bidder outbids a rival
+     */
+    public ShardedBidTracker(final int shardCount, final BidNotifier notifier, final int increment) {
+        if(shardCount < 1) throw new RuntimeException("Unable to create a tracker with " + shardCount + " shards.");
+
+        shards = new Shard[shardCount];
+        for(int s = 0; s < shardCount; s++) {
+            shards[s] = new Shard(new ShardState(notifier, increment), "bid-shard-" + s);
+        }
+    }
+
+    @Override
+    public void registerBid(final Bid bid, final Item item) {
+
+        submitBid(bid, item).join();
+    }
+
+    @Override
+    public BidResult placeBid(final Bid bid, final Item item) {
+
+        return submitBid(bid, item).join();
+    }
+
+    /**
+     * Queue a bid on the shard that owns the item.
+     *
+     * @param bid the bid we are registering
+     * @param item the item we are bidding on
+     * @return the outcome of the bid once the shard has placed it
+     */
+    @Override
+    public CompletableFuture<BidResult> submitBid(final Bid bid, final Item item) {
+
+        if(item == null) return CompletableFuture.completedFuture(BidResult.UNKNOWN_ITEM);
+
+        final CompletableFuture<BidResult> result = new CompletableFuture<>();
+        final Shard shard = shardFor(item);
+        shard.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(shard.state.placeBid(bid, item));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }, result);
+        return result;
+    }
+
+    /**
+     * Queue a proxy bid on the shard that owns the item and wait for
+     * it to be resolved.
+     *
+     * @param maximum the most the user will bid
+     * @param item the item we are bidding on
+     * @return the outcome of the bid
+     */
+    @Override
+    public BidResult placeProxyBid(final Bid maximum, final Item item) {
+
+        if(item == null) return BidResult.UNKNOWN_ITEM;
+
+        final CompletableFuture<BidResult> result = new CompletableFuture<>();
+        final Shard shard = shardFor(item);
+        shard.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(shard.state.placeProxyBid(maximum, item));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }, result);
+        return result.join();
+    }
+
+    @Override
+    public List<BidResult> placeBids(final List<Bid> bids, final Item item) {
+
+        return submitBids(bids, item).join();
+    }
+
+    /**
+     * Queue several bids on the shard that owns the item, to be placed
+     * in one step.
+     *
+     * @param bids the bids we are registering, in order
+     * @param item the item we are bidding on
+     * @return the outcome of each bid once the shard has placed them
+     */
+    @Override
+    public CompletableFuture<List<BidResult>> submitBids(final List<Bid> bids, final Item item) {
+
+        if(item == null) return CompletableFuture.completedFuture(new ArrayList<>(Collections.nCopies(bids.size(), BidResult.UNKNOWN_ITEM)));
+
+        final CompletableFuture<List<BidResult>> results = new CompletableFuture<>();
+        final Shard shard = shardFor(item);
+        shard.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    results.complete(shard.state.placeBids(bids, item));
+                } catch (RuntimeException e) {
+                    results.completeExceptionally(e);
+                }
+            }
+        }, results);
+        return results;
+    }
+
+    /**
+     * @param listener told about every accepted bid, from the thread of
+     *                 the shard that accepted it
+     */
+    @Override
+    public void addListener(final BidListener listener) {
+        for(Shard shard : shards) shard.execute(() -> shard.state.addListener(listener));
+    }
+
+    /**
+     * Restore a bid into the shard that owns the item.
+     */
+    @Override
+    public void restoreBid(final Item item, final Bid bid, final int sequence, final long timestamp) {
+        final Shard shard = shardFor(item);
+        shard.execute(() -> shard.state.restoreBid(item, bid, sequence, timestamp));
+    }
+
+    /**
+     * Restore a proxy bidder's maximum into the shard that owns the item.
+     */
+    @Override
+    public void restoreMaximum(final Item item, final int sequence, final int maximum) {
+        final Shard shard = shardFor(item);
+        shard.execute(() -> shard.state.restoreMaximum(item, sequence, maximum));
+    }
+
+    /**
+     * Restore the close of an item into the shard that owns it.
+     */
+    @Override
+    public void restoreClosed(final Item item) {
+        final Shard shard = shardFor(item);
+        shard.execute(() -> shard.state.restoreClosed(item));
+    }
+
+    /**
+     * Export each shard's bids in turn, from the shard's thread, so the
+     * visitor sees each shard as it stood at one moment.
+     */
+    @Override
+    public void exportBids(final BidVisitor visitor) {
+        for(Shard shard : shards) shard.execute(() -> shard.state.exportBids(visitor));
+    }
+
+    /**
+     * Close an item through the shard's queue. Bids queued ahead of the
+     * close are placed first and any after it are rejected.
+     *
+     * @param item the item to close
+     * @return the winning bid or null if there were no bids
+     */
+    @Override
+    public Bid closeBidding(final Item item) {
+
+        final Shard shard = shardFor(item);
+        return shard.call(() -> shard.state.closeBidding(item));
+    }
+
+    @Override
+    public Bid getCurrentWinningBid(final Item item) {
+
+        final Shard shard = shardFor(item);
+        return shard.call(() -> shard.state.getCurrentWinningBid(item));
+    }
+
+    @Override
+    public List<Bid> getAllBids(final Item item) {
+
+        return getTopBids(item, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Bid> getTopBids(final Item item, final int n) {
+
+        final Shard shard = shardFor(item);
+        return shard.call(() -> shard.state.getTopBids(item, n));
+    }
+
+    @Override
+    public Page<Bid> getBids(final Item item, final int cursor, final int limit) {
+
+        final Shard shard = shardFor(item);
+        return shard.call(() -> shard.state.getBids(item, cursor, limit));
+    }
+
+    @Override
+    public Stream<Bid> streamBids(final Item item) {
+
+        return getAllBids(item).stream();
+    }
+
+    /**
+     * Get a page of the items on which a user has bid. The user's items
+     * are read shard by shard, so the cursor counts through the first
+     * shard's items, then the second's and so on.
+     *
+     * @param user
+     * @param cursor 0 for the first page, then the next cursor of the previous page
+     * @param limit the most items to return
+     * @return the page of items
+     */
+    @Override
+    public Page<Item> getItems(final User user, final int cursor, final int limit) {
+
+        final List<Item> items = new ArrayList<>();
+        int skip = Math.max(0, cursor);
+        int position = 0;
+        boolean more = false;
+
+        for(Shard shard : shards) {
+            final int count = shard.call(() -> shard.state.itemCount(user));
+            if(skip >= count) {
+                skip -= count;
+                position += count;
+                continue;
+            }
+            if(items.size() == limit) {
+                more = true;
+                break;
+            }
+            final int from = skip;
+            final int most = limit - items.size();
+            final Page<Item> page = shard.call(() -> shard.state.getItems(user, from, most));
+            items.addAll(page.getItems());
+            position += page.getNextCursor();
+            more = page.hasMore();
+            if(more) {
+                break;
+            }
+            skip = 0;
+        }
+        return new Page<>(items, position, more);
+    }
+
+    /**
+     * Get all the items on which a user has bid, gathered from
+     * every shard.
+     *
+     * @param user
+     * @return a list of items
+     */
+    @Override
+    public List<Item> getAllItems(final User user) {
+
+        final List<Item> items = new LinkedList<>();
+        for(Shard shard : shards) {
+            items.addAll(shard.call(() -> shard.state.getItems(user, 0, Integer.MAX_VALUE)).getItems());
+        }
+        return items;
+    }
+
+    /**
+     * Get the items on which a user currently holds the winning bid,
+     * gathered from every shard.
+     *
+     * @param user
+     * @return a list of items
+     */
+    @Override
+    public List<Item> getWinningItems(final User user) {
+
+        final List<Item> items = new ArrayList<>();
+        for(Shard shard : shards) {
+            items.addAll(shard.call(() -> shard.state.getWinningItems(user)));
+        }
+        return items;
+    }
+
+    /**
+     * @return the number of tasks waiting across all the shards' queues,
+     *         which takes time in proportion to the number waiting
+     */
+    public int depth() {
+        int depth = 0;
+        for(Shard shard : shards) depth += shard.queue.size();
+        return depth;
+    }
+
+    /**
+     * Stop the shards once they have placed the bids already queued.
+     */
+    @Override
+    public void close() {
+        for(Shard shard : shards) shard.stop();
+        for(Shard shard : shards) shard.join();
+    }
+
+    private Shard shardFor(final Item item) {
+        final int h = item.hashCode();
+        return shards[((h ^ (h >>> 16)) & Integer.MAX_VALUE) % shards.length];
+    }
+
+    /**
+     * A single writer thread and the items it owns.
+     */
+    private static final class Shard implements Runnable {
+
+        private final ShardState state;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+
+        private volatile boolean running = true;
+        private volatile boolean sleeping;
+
+        private Shard(final ShardState state, final String name) {
+            this.state = state;
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        /**
+         * @param task places the bids and completes the result
+         * @param result failed instead if the shard has stopped
+         */
+        private void submit(final Runnable task, final CompletableFuture<?> result) {
+            if(!offer(task)) result.completeExceptionally(new RuntimeException("Unable to bid as the tracker has been closed."));
+        }
+
+        /**
+         * @return true iff the task was queued and will be run by the shard
+         */
+        private boolean offer(final Runnable task) {
+            if(!running) return false;
+
+            queue.offer(task);
+
+            if(sleeping) LockSupport.unpark(thread);
+
+            // the shard may have stopped before it could see the task
+            return running || !queue.remove(task);
+        }
+
+        /**
+         * Run a task on the shard's thread and wait for its answer. From
+         * the shard's own thread, for example a listener, it runs at once.
+         * Once the shard has stopped its state no longer changes, so the
+         * task runs on the calling thread.
+         */
+        private <T> T call(final Supplier<T> query) {
+            if(Thread.currentThread() == thread) return query.get();
+
+            final CompletableFuture<T> result = new CompletableFuture<>();
+            final boolean queued = offer(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        result.complete(query.get());
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            });
+            if(!queued) {
+                join();
+                return query.get();
+            }
+
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+
+        private void execute(final Runnable task) {
+            call(() -> {
+                task.run();
+                return null;
+            });
+        }
+
+        @Override
+        public void run() {
+            while(true) {
+                final Runnable task = queue.poll();
+                if(task != null) {
+                    task.run();
+                    continue;
+                }
+                if(!running) {
+                    drain();
+                    return;
+                }
+
+                // the flag is set before the queue is checked so a bid queued
+                // in between is either seen here or unparks the thread
+                sleeping = true;
+                if(queue.isEmpty() && running) LockSupport.park(this);
+                sleeping = false;
+            }
+        }
+
+        private void drain() {
+            Runnable task;
+            while((task = queue.poll()) != null) task.run();
+        }
+
+        private void stop() {
+            running = false;
+            LockSupport.unpark(thread);
+        }
+
+        private void join() {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.byhiras.auction.admission;
+
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AdmissionControl turns bids away before they reach the tracker:
+ * bids from users over their rate limit, bids that cannot beat the
+ * price, and, under overload, bids that would only queue up.
+ *
+ * A bid is first admitted, before its item is looked up. Each user's
+ * rate is a token bucket held as a single long, the time at which the
+ * bucket will next be full, in a fixed table of stripes chosen by the
+ * user's name, so it is updated with one compare-and-set and the
+ * table never grows however many names bots invent. The limit is
+ * therefore per stripe, not per user: users who share a stripe share a
+ * bucket, and a person whose name lands on a bot's stripe is held to
+ * what the bot leaves. Size the stripes well above the number of users
+ * expected to bid at once to make that rare.
+ *
+ * Admitted bids are counted in flight until released. Past the
+ * maximum in flight bids are shed, except that a user whose bucket
+ * was full, who had not bid lately, may use a reserve of a quarter as
+ * many again. So a storm of bots fills the ordinary capacity while
+ * people bidding now and then still get through. A place in flight is
+ * taken before the bucket is charged, so a shed bid costs the user no
+ * token and does not count as bidding lately.
+ *
+ * Then the bid is screened against its item's initial value and a
+ * cached floor under its price. The floors are a direct-mapped table
+ * of items; each is raised from the outcome of the bids released
+ * against it, so even losing bids teach the cache, and a floor only
+ * ever understates the price. A bid is only turned away as not above
+ * the winning bid when the tracker would certainly have done so too.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class AdmissionControl {
+
+    public static final int DEFAULT_STRIPES = 1 << 16;
+    public static final int DEFAULT_FLOORS = 1 << 12;
+
+    private final long interval;
+    private final long tolerance;
+
+    private final int maxInFlight;
+    private final int reserve;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // when each stripe's bucket will next be full, in nanoseconds since origin
+    private final long origin = System.nanoTime();
+    private final AtomicLongArray buckets;
+    private final int bucketMask;
+
+    private final AtomicReferenceArray<Floor> floors;
+    private final int floorMask;
+
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder screened = new LongAdder();
+
+    public AdmissionControl(final RateLimit limit, final int maxInFlight) {
+        this(limit, maxInFlight, DEFAULT_STRIPES, DEFAULT_FLOORS);
+    }
+
+    /**
+     * @param limit how fast each user may bid
+     * @param maxInFlight the most bids in progress before bids are shed
+     * @param stripes the number of rate limit buckets, rounded up to a power of two;
+     *                users beyond this many start to share limits
+     * @param floors the number of cached price floors, rounded up to a power of two
+     */
+    public AdmissionControl(final RateLimit limit, final int maxInFlight, final int stripes, final int floors) {
+        if(maxInFlight < 1)
+            throw new RuntimeException("Unable to admit at most " + maxInFlight + " bids in flight.");
+        if(stripes < 1 || floors < 1)
+            throw new RuntimeException("Unable to admit bids with " + stripes + " stripes and " + floors + " floors.");
+
+        this.interval = limit.intervalNanos();
+        this.tolerance = interval * limit.getBurst();
+
+        this.maxInFlight = maxInFlight;
+        this.reserve = Math.max(1, maxInFlight / 4);
+
+        this.buckets = new AtomicLongArray(powerOfTwo(stripes));
+        this.bucketMask = buckets.length() - 1;
+        this.floors = new AtomicReferenceArray<>(powerOfTwo(floors));
+        this.floorMask = this.floors.length() - 1;
+    }
+
+    /**
+     * Charge the user for a bid and take a place in flight. Unless a
+     * reason is returned the caller must call {@link #release} once
+     * the bid has been placed, whatever happens.
+     *
+     * @param user the user bidding
+     * @return null if the bid is admitted, otherwise RATE_LIMITED or OVERLOADED
+     */
+    public BidResult admit(final User user) {
+        final long now = System.nanoTime() - origin;
+        final int stripe = spread(Objects.hashCode(user.getName())) & bucketMask;
+
+        while(true) {
+            final long full = buckets.get(stripe);
+            final long next = Math.max(full, now) + interval;
+            if(next - now > tolerance) {
+                rateLimited.increment();
+                return BidResult.RATE_LIMITED;
+            }
+
+            // take a place before charging, so shedding leaves the bucket alone
+            final int limit = full <= now ? maxInFlight + reserve : maxInFlight;
+            if(inFlight.incrementAndGet() > limit) {
+                inFlight.decrementAndGet();
+                shed.increment();
+                return BidResult.OVERLOADED;
+            }
+
+            if(buckets.compareAndSet(stripe, full, next)) return null;
+            inFlight.decrementAndGet(); // the bucket moved, look again
+        }
+    }
+
+    /**
+     * @param bid an admitted bid
+     * @param item the item it is for, or null if there is none
+     * @return null if the bid may beat the price, otherwise why it cannot
+     */
+    public BidResult screen(final Bid bid, final Item item) {
+        final BidResult result;
+        if(item == null) {
+            result = BidResult.UNKNOWN_ITEM;
+        } else if(!bid.isAValidBid(item)) {
+            result = BidResult.BELOW_INITIAL;
+        } else {
+            final Floor floor = floors.get(spread(item.hashCode()) & floorMask);
+            if(floor == null || floor.item != item || bid.value() > floor.price) return null;
+            result = BidResult.NOT_ABOVE_WINNING_BID;
+        }
+        screened.increment();
+        return result;
+    }
+
+    /**
+     * Give up an admitted bid's place in flight and learn from its outcome.
+     *
+     * @param bid the admitted bid
+     * @param item the item it was for, or null
+     * @param result how the bid fared as a plain bid, or null if that
+     *               says nothing about the price
+     */
+    public void release(final Bid bid, final Item item, final BidResult result) {
+        inFlight.decrementAndGet();
+
+        if(item == null || result == null) return;
+        if(result == BidResult.ACCEPTED || result == BidResult.NOT_ABOVE_WINNING_BID || result == BidResult.OUTBID_BY_PROXY) {
+            raise(item, bid.value());
+        }
+    }
+
+    private void raise(final Item item, final int price) {
+        final int slot = spread(item.hashCode()) & floorMask;
+
+        Floor current;
+        do {
+            current = floors.get(slot);
+            if(current != null && current.item == item && current.price >= price) return;
+        } while(!floors.compareAndSet(slot, current, new Floor(item, price)));
+    }
+
+    /**
+     * @return the number of admitted bids not yet released
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the number of bids turned away for going over a rate limit
+     */
+    public long rateLimited() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * @return the number of bids shed under overload
+     */
+    public long shed() {
+        return shed.sum();
+    }
+
+    /**
+     * @return the number of admitted bids turned away by the screen
+     */
+    public long screened() {
+        return screened.sum();
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int powerOfTwo(final int n) {
+        return n == 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /**
+     * A price the item's winning bid is known to be at least.
+     */
+    private static final class Floor {
+        private final Item item;
+        private final int price;
+
+        private Floor(final Item item, final int price) {
+            this.item = item;
+            this.price = price;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.byhiras.auction.admission;
+
+import com.byhiras.auction.util.Immutable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How fast a single user may bid: a sustained rate and a burst that
+ * may be spent at once after a quiet spell.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public class RateLimit {
+
+    private final double bidsPerSecond;
+    private final int burst;
+
+    /**
+     * @param bidsPerSecond the sustained rate
+     * @param burst the most bids that may be made at once
+     */
+    public RateLimit(final double bidsPerSecond, final int burst) {
+        if(!(bidsPerSecond > 0))
+            throw new RuntimeException("Unable to limit bids to a rate of " + bidsPerSecond + " per second.");
+        if(burst < 1)
+            throw new RuntimeException("Unable to limit bids to a burst of " + burst);
+
+        this.bidsPerSecond = bidsPerSecond;
+        this.burst = burst;
+    }
+
+    public double getBidsPerSecond() {
+        return bidsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * @return the time one bid takes to earn back, in nanoseconds
+     */
+    long intervalNanos() {
+        return Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / bidsPerSecond));
+    }
+
+    @Override
+    public String toString() {
+        return bidsPerSecond + " per second, burst " + burst;
+    }
+}
@@ -0,0 +1,56 @@
+package com.byhiras.auction.leaderboard;
+
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.util.Immutable;
+
+/**
+ * An item's place on a leaderboard, with the figures it was ranked
+ * on as they stood when the leaderboard was published.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public class ItemStanding {
+
+    private final Item item;
+    private final int bidCount;
+    private final int price;
+    private final double velocity;
+
+    public ItemStanding(final Item item, final int bidCount, final int price, final double velocity) {
+        this.item = item;
+        this.bidCount = bidCount;
+        this.price = price;
+        this.velocity = velocity;
+    }
+
+    public Item getItem() {
+        return item;
+    }
+
+    /**
+     * @return the number of bids accepted on the item
+     */
+    public int getBidCount() {
+        return bidCount;
+    }
+
+    /**
+     * @return the current winning bid on the item
+     */
+    public int getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the recent rate of bidding, in bids per second
+     */
+    public double getVelocity() {
+        return velocity;
+    }
+
+    @Override
+    public String toString() {
+        return item.getName() + " (bids: " + bidCount + ", price: " + price + ", velocity: " + String.format("%.2f", velocity) + "/s)";
+    }
+}
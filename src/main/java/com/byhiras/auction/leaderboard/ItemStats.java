@@ -0,0 +1,63 @@
+package com.byhiras.auction.leaderboard;
+
+import com.byhiras.auction.models.Item;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The running figures for one item.
+ *
+ * The bid count and price are raised by the bidding threads. Both
+ * only ever go up, so each is a compare-and-set to the larger value,
+ * and the same bid reported twice changes nothing. The rest is only
+ * touched by the thread publishing the leaderboards.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class ItemStats {
+
+    final Item item;
+
+    private final AtomicInteger bidCount = new AtomicInteger();
+    private final AtomicInteger price = new AtomicInteger();
+
+    // true while the item waits to be looked at by the publisher
+    final AtomicBoolean queued = new AtomicBoolean();
+
+    // publisher only
+    int countAtLastPublish;
+    double velocity;
+    boolean active;
+
+    ItemStats(final Item item) {
+        this.item = item;
+    }
+
+    /**
+     * @return true iff this raised either figure
+     */
+    boolean record(final int sequence, final int value) {
+        return raise(bidCount, sequence + 1) | raise(price, value);
+    }
+
+    int bidCount() {
+        return bidCount.get();
+    }
+
+    int price() {
+        return price.get();
+    }
+
+    ItemStanding standing() {
+        return new ItemStanding(item, bidCount.get(), price.get(), velocity);
+    }
+
+    private static boolean raise(final AtomicInteger figure, final int value) {
+        int current;
+        while((current = figure.get()) < value) {
+            if(figure.compareAndSet(current, value)) return true;
+        }
+        return false;
+    }
+}
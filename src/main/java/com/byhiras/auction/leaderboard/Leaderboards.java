@@ -0,0 +1,264 @@
+package com.byhiras.auction.leaderboard;
+
+import com.byhiras.auction.BidListener;
+import com.byhiras.auction.BidVisitor;
+import com.byhiras.auction.RecoverableBidTracker;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Leaderboards of the most bid on items, the highest priced items and
+ * the items attracting bids fastest, in place of scanning every item.
+ *
+ * The leaderboards listen to a tracker. On the bidding thread an
+ * accepted bid raises its item's bid count and price with a
+ * compare-and-set each and, unless the item is already queued, queues
+ * it for the publisher; nothing is shared between items and nothing is
+ * locked. A single publisher thread drains the queue, updates the
+ * leaderboards from the queued items only and publishes immutable
+ * copies that are read without locking.
+ *
+ * Velocity is a moving average of the bids per second, halving every
+ * VELOCITY_HALF_LIFE_MILLIS without bids. Unlike the other figures it
+ * falls, so the publisher ranks it afresh each time over the items
+ * that have had bids recently.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class Leaderboards implements BidListener, Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(Leaderboards.class.getName());
+
+    public static final int DEFAULT_SIZE = 10;
+    public static final long DEFAULT_PUBLISH_MILLIS = 1000;
+
+    static final long VELOCITY_HALF_LIFE_MILLIS = 10_000;
+
+    // below this an item is no longer ranked on velocity
+    private static final double IDLE_VELOCITY = 0.01;
+
+    private static final Comparator<ItemStanding> MOST_BIDS =
+            Comparator.comparingInt(ItemStanding::getBidCount).reversed();
+    private static final Comparator<ItemStanding> HIGHEST_PRICE =
+            Comparator.comparingInt(ItemStanding::getPrice).reversed();
+    private static final Comparator<ItemStanding> FASTEST =
+            Comparator.comparingDouble(ItemStanding::getVelocity).reversed();
+
+    private final int size;
+
+    private final ConcurrentMap<Item, ItemStats> stats = new ConcurrentHashMap<>();
+    private final Queue<ItemStats> queued = new ConcurrentLinkedQueue<>();
+
+    // publisher only
+    private final TopK mostBids;
+    private final TopK highestPrice;
+    private final List<ItemStats> active = new ArrayList<>();
+    private long lastPublish = System.nanoTime();
+
+    private volatile Boards boards = new Boards();
+
+    private final ScheduledExecutorService publisher;
+
+    public Leaderboards(final RecoverableBidTracker tracker) {
+        this(tracker, DEFAULT_SIZE, DEFAULT_PUBLISH_MILLIS);
+    }
+
+    /**
+     * Create the leaderboards, starting from the bids the tracker
+     * already holds, and listen to the tracker for new bids.
+     *
+     * @param tracker the tracker whose bids are ranked
+     * @param size how many items each leaderboard holds
+     * @param publishMillis how often the leaderboards are published,
+     *                      or 0 to only publish when asked
+     */
+    public Leaderboards(final RecoverableBidTracker tracker, final int size, final long publishMillis) {
+        if(size < 1) throw new RuntimeException("Unable to create leaderboards of " + size + " items.");
+        if(publishMillis < 0) throw new RuntimeException("Unable to publish leaderboards every " + publishMillis + "ms.");
+
+        this.size = size;
+        this.mostBids = new TopK(size, ItemStats::bidCount, MOST_BIDS);
+        this.highestPrice = new TopK(size, ItemStats::price, HIGHEST_PRICE);
+
+        // listen first so that no bid is missed; a bid seen both ways
+        // is counted once as the figures are raised, not added to
+        tracker.addListener(this);
+        tracker.exportBids(new BidVisitor() {
+            private Item item;
+
+            @Override
+            public void visitItem(final Item item, final int bidCount) {
+                this.item = item;
+            }
+
+            @Override
+            public void visitBid(final int sequence, final int amount, final User user, final long timestamp) {
+                record(item, sequence, amount);
+            }
+        });
+
+        // the bids already held are not recent, so they do not count towards velocity
+        for(ItemStats existing : stats.values()) {
+            existing.countAtLastPublish = existing.bidCount();
+        }
+
+        if(publishMillis == 0) {
+            publisher = null;
+            return;
+        }
+
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "auction-leaderboards");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.scheduleAtFixedRate(() -> {
+            try {
+                publish();
+            } catch(RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Unable to publish the leaderboards", e);
+            }
+        }, publishMillis, publishMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void bidAccepted(final Item item, final Bid bid, final int sequence, final long timestamp) {
+        record(item, sequence, bid.value());
+    }
+
+    private void record(final Item item, final int sequence, final int value) {
+        ItemStats itemStats = stats.get(item);
+        if(itemStats == null) itemStats = stats.computeIfAbsent(item, ItemStats::new);
+
+        if(itemStats.record(sequence, value) && itemStats.queued.compareAndSet(false, true)) queued.add(itemStats);
+    }
+
+    /**
+     * @return the items with the most bids, most first
+     */
+    public List<ItemStanding> getMostBidOn() {
+        return boards.mostBids;
+    }
+
+    /**
+     * @return the items with the highest winning bids, highest first
+     */
+    public List<ItemStanding> getHighestPriced() {
+        return boards.highestPrice;
+    }
+
+    /**
+     * @return the items attracting bids fastest, fastest first
+     */
+    public List<ItemStanding> getFastestRising() {
+        return boards.fastest;
+    }
+
+    /**
+     * Bring the leaderboards up to date with the bids accepted since
+     * they were last published. This is done on the schedule given
+     * when they were created; it is public for callers that publish
+     * on their own schedule.
+     */
+    public synchronized void publish() {
+        final long now = System.nanoTime();
+        final double seconds = Math.max(1e-9, (now - lastPublish) / 1e9);
+        final double decay = Math.pow(0.5, seconds * 1000 / VELOCITY_HALF_LIFE_MILLIS);
+        lastPublish = now;
+
+        ItemStats changed;
+        while((changed = queued.poll()) != null) {
+            // cleared first so a bid from now on queues the item again
+            changed.queued.set(false);
+
+            mostBids.offer(changed);
+            highestPrice.offer(changed);
+
+            if(!changed.active) {
+                changed.active = true;
+                active.add(changed);
+            }
+        }
+
+        final PriorityQueue<ItemStanding> fastest = new PriorityQueue<>(size + 1, FASTEST.reversed());
+        for(Iterator<ItemStats> iterator = active.iterator(); iterator.hasNext(); ) {
+            final ItemStats item = iterator.next();
+
+            final int count = item.bidCount();
+            final double rate = (count - item.countAtLastPublish) / seconds;
+            item.countAtLastPublish = count;
+            item.velocity = item.velocity * decay + rate * (1 - decay);
+
+            if(item.velocity < IDLE_VELOCITY && rate == 0) {
+                item.velocity = 0;
+                item.active = false;
+                iterator.remove();
+                continue;
+            }
+
+            fastest.add(item.standing());
+            if(fastest.size() > size) fastest.poll();
+        }
+
+        final List<ItemStanding> fastestFirst = new ArrayList<>(fastest);
+        fastestFirst.sort(FASTEST);
+
+        boards = new Boards(mostBids.standings(), highestPrice.standings(), Collections.unmodifiableList(fastestFirst));
+    }
+
+    /**
+     * Stop publishing. The leaderboards keep their last contents.
+     */
+    @Override
+    public void close() {
+        if(publisher == null) return;
+
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One published set of leaderboards, so a reader sees all three
+     * as they stood at the same moment.
+     */
+    private static final class Boards {
+
+        final List<ItemStanding> mostBids;
+        final List<ItemStanding> highestPrice;
+        final List<ItemStanding> fastest;
+
+        Boards() {
+            this(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        }
+
+        Boards(final List<ItemStanding> mostBids, final List<ItemStanding> highestPrice, final List<ItemStanding> fastest) {
+            this.mostBids = mostBids;
+            this.highestPrice = highestPrice;
+            this.fastest = fastest;
+        }
+    }
+}
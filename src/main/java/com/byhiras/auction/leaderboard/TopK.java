@@ -0,0 +1,73 @@
+package com.byhiras.auction.leaderboard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * The items with the highest scores, for a score that never goes
+ * down. Because a score only rises, an item can only join the top
+ * when its score changes, so offering the changed items is enough to
+ * keep the top up to date without looking at the others again.
+ *
+ * Only used from the thread publishing the leaderboards.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class TopK {
+
+    private final int size;
+    private final ToIntFunction<ItemStats> score;
+    private final Comparator<ItemStats> lowestFirst;
+    private final Comparator<ItemStanding> highestFirst;
+
+    private final Set<ItemStats> members = new HashSet<>();
+
+    /**
+     * @param size how many items to keep
+     * @param score the score of an item, read as it changes
+     * @param highestFirst the same order over the published standings
+     */
+    TopK(final int size, final ToIntFunction<ItemStats> score, final Comparator<ItemStanding> highestFirst) {
+        this.size = size;
+        this.score = score;
+        this.lowestFirst = Comparator.comparingInt(score);
+        this.highestFirst = highestFirst;
+    }
+
+    /**
+     * @param stats an item whose score has risen
+     */
+    void offer(final ItemStats stats) {
+        if(members.contains(stats)) return;
+
+        if(members.size() < size) {
+            members.add(stats);
+            return;
+        }
+
+        // the top is small, so a scan is cheaper than keeping a heap in order
+        final ItemStats lowest = Collections.min(members, lowestFirst);
+        if(score.applyAsInt(stats) > score.applyAsInt(lowest)) {
+            members.remove(lowest);
+            members.add(stats);
+        }
+    }
+
+    /**
+     * @return the members in order, sorted on a copy of their figures
+     *         since the bidding threads may be changing them
+     */
+    List<ItemStanding> standings() {
+        final List<ItemStanding> standings = new ArrayList<>(members.size());
+        for(ItemStats stats : members) {
+            standings.add(stats.standing());
+        }
+        standings.sort(highestFirst);
+        return Collections.unmodifiableList(standings);
+    }
+}
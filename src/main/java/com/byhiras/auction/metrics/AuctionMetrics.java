@@ -0,0 +1,215 @@
+package com.byhiras.auction.metrics;
+
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.util.ThreadSafe;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * AuctionMetrics gathers the latency of each Operation, the outcome
+ * of every bid and any gauges, such as queue depths, that are
+ * registered with it.
+ *
+ * Latencies go into striped LatencyHistograms and outcomes into
+ * LongAdders, so recording neither allocates nor contends. Gauges are
+ * only read when a snapshot is taken. Snapshots can be taken on
+ * demand, delivered periodically or read through JMX.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class AuctionMetrics implements AuctionMetricsMXBean, Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(AuctionMetrics.class.getName());
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final BidResult[] RESULTS = BidResult.values();
+
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final LongAdder[] results = new LongAdder[RESULTS.length];
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private ObjectName registeredAs;
+
+    public AuctionMetrics() {
+        for(int i = 0; i < latencies.length; i++) latencies[i] = new LatencyHistogram();
+        for(int i = 0; i < results.length; i++) results[i] = new LongAdder();
+    }
+
+    /**
+     * @param operation the operation that was timed
+     * @param nanos how long it took
+     */
+    public void record(final Operation operation, final long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    /**
+     * @param result the outcome of a bid
+     */
+    public void record(final BidResult result) {
+        results[result.ordinal()].increment();
+    }
+
+    /**
+     * Register a value to be read whenever a snapshot is taken. A gauge
+     * with the same name is replaced.
+     *
+     * @param name the name of the gauge, e.g. "pipeline.depth"
+     * @param gauge reads the current value
+     */
+    public void registerGauge(final String name, final LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * @return everything recorded so far
+     */
+    public MetricsSnapshot snapshot() {
+        final Map<Operation, HistogramSnapshot> latencySnapshots = new EnumMap<>(Operation.class);
+        for(Operation operation : OPERATIONS) latencySnapshots.put(operation, latencies[operation.ordinal()].snapshot());
+
+        final Map<BidResult, Long> resultCounts = new EnumMap<>(BidResult.class);
+        for(BidResult result : RESULTS) resultCounts.put(result, results[result.ordinal()].sum());
+
+        return new MetricsSnapshot(System.currentTimeMillis(), latencySnapshots, resultCounts, getGauges());
+    }
+
+    /**
+     * Hand a snapshot to a consumer periodically on a background thread
+     * until the metrics are closed.
+     *
+     * @param period the time between snapshots
+     * @param unit the unit of the period
+     * @param consumer given each snapshot
+     */
+    public synchronized void schedule(final long period, final TimeUnit unit, final Consumer<MetricsSnapshot> consumer) {
+        if(scheduler != null) throw new RuntimeException("Unable to schedule snapshots as they are already scheduled.");
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "auction-metrics");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    consumer.accept(snapshot());
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Unable to deliver a metrics snapshot", e);
+                }
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Publish the metrics through the platform MBean server.
+     *
+     * @param name the object name, e.g. "com.byhiras.auction:type=AuctionMetrics"
+     */
+    public synchronized void registerMBean(final String name) {
+        if(registeredAs != null) throw new RuntimeException("Unable to register the metrics as they are already registered as " + registeredAs);
+
+        try {
+            final ObjectName objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            registeredAs = objectName;
+        } catch (JMException e) {
+            throw new RuntimeException("Unable to register the metrics as " + name, e);
+        }
+    }
+
+    @Override
+    public long getAcceptedBids() {
+        return results[BidResult.ACCEPTED.ordinal()].sum();
+    }
+
+    @Override
+    public long getRejectedBids() {
+        long rejected = 0;
+        for(BidResult result : RESULTS) {
+            if(!result.isAccepted()) rejected += results[result.ordinal()].sum();
+        }
+        return rejected;
+    }
+
+    @Override
+    public Map<String, Long> getBidResults() {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        for(BidResult result : RESULTS) counts.put(result.name(), results[result.ordinal()].sum());
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getLatencies() {
+        final Map<String, Long> values = new LinkedHashMap<>();
+        for(Operation operation : OPERATIONS) {
+            final HistogramSnapshot latency = latencies[operation.ordinal()].snapshot();
+            for(double percentile : PERCENTILES) {
+                values.put(operation.name() + ".p" + format(percentile), latency.valueAt(percentile));
+            }
+            values.put(operation.name() + ".max", latency.getMax());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        final Map<String, Long> values = new LinkedHashMap<>();
+        for(Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) values.put(gauge.getKey(), gauge.getValue().getAsLong());
+        return values;
+    }
+
+    /**
+     * Stop the periodic snapshots and remove the metrics from JMX.
+     */
+    @Override
+    public synchronized void close() {
+        if(scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+
+        if(registeredAs != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredAs);
+            } catch (JMException e) {
+                LOGGER.log(Level.WARNING, "Unable to unregister the metrics from " + registeredAs, e);
+            }
+            registeredAs = null;
+        }
+    }
+
+    private static String format(final double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+}
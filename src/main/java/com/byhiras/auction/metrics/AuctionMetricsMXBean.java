@@ -0,0 +1,20 @@
+package com.byhiras.auction.metrics;
+
+import java.util.Map;
+
+/**
+ * The view of AuctionMetrics published through JMX. Latencies are in
+ * nanoseconds and keyed by operation and percentile, e.g. "BID.p99".
+ */
+public interface AuctionMetricsMXBean {
+
+    long getAcceptedBids();
+
+    long getRejectedBids();
+
+    Map<String, Long> getBidResults();
+
+    Map<String, Long> getLatencies();
+
+    Map<String, Long> getGauges();
+}
@@ -0,0 +1,66 @@
+package com.byhiras.auction.metrics;
+
+import com.byhiras.auction.util.Immutable;
+
+/**
+ * The counts of a LatencyHistogram at one moment.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public class HistogramSnapshot {
+
+    private final long[] buckets;
+    private final long count;
+    private final long sum;
+
+    HistogramSnapshot(final long[] buckets, final long sum) {
+        long count = 0;
+        for(long bucket : buckets) count += bucket;
+
+        this.buckets = buckets;
+        this.count = count;
+        this.sum = sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @return the highest value recorded, to the precision of its bucket
+     */
+    public long getMax() {
+        for(int bucket = buckets.length - 1; bucket >= 0; bucket--) {
+            if(buckets[bucket] != 0) return LatencyHistogram.highestValueIn(bucket);
+        }
+        return 0;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value at or below which that percentage of the
+     *         recorded values fall, to the precision of its bucket
+     */
+    public long valueAt(final double percentile) {
+        if(count == 0) return 0;
+
+        final long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100));
+
+        long seen = 0;
+        for(int bucket = 0; bucket < buckets.length; bucket++) {
+            seen += buckets[bucket];
+            if(seen >= rank) return LatencyHistogram.highestValueIn(bucket);
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " p50=" + valueAt(50) + " p99=" + valueAt(99) + " p99.9=" + valueAt(99.9) + " max=" + getMax();
+    }
+}
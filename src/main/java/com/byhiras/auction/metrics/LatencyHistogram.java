@@ -0,0 +1,89 @@
+package com.byhiras.auction.metrics;
+
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A LatencyHistogram counts durations in log-linear buckets, in the
+ * manner of an HDR histogram. Values below 32 have a bucket each;
+ * above that every power of two is split into 16 buckets, so a value
+ * is known to within about 6% using under a thousand buckets for the
+ * whole range of a long.
+ *
+ * The counts are striped by thread so that threads recording at the
+ * same time rarely write to the same cache line. Recording is two
+ * atomic adds and never allocates; a snapshot sums the stripes.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+
+    static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+    // each stripe holds its buckets then its sum, padded away from the next stripe
+    private static final int PADDING = 8;
+    private static final int STRIPE_LENGTH = BUCKETS + 1 + PADDING;
+
+    private static final int STRIPES = stripes();
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIPE_LENGTH);
+
+    /**
+     * @param value the duration to record, negative durations count as 0
+     */
+    public void record(final long value) {
+        final long clamped = Math.max(0, value);
+        final int stripe = stripe() * STRIPE_LENGTH;
+
+        counts.getAndIncrement(stripe + bucketOf(clamped));
+        counts.getAndAdd(stripe + BUCKETS, clamped);
+    }
+
+    /**
+     * @return the counts recorded so far
+     */
+    public HistogramSnapshot snapshot() {
+        final long[] buckets = new long[BUCKETS];
+        long sum = 0;
+        for(int stripe = 0; stripe < STRIPES; stripe++) {
+            final int start = stripe * STRIPE_LENGTH;
+            for(int bucket = 0; bucket < BUCKETS; bucket++) buckets[bucket] += counts.get(start + bucket);
+            sum += counts.get(start + BUCKETS);
+        }
+        return new HistogramSnapshot(buckets, sum);
+    }
+
+    static int bucketOf(final long value) {
+        if(value < LINEAR_LIMIT) return (int) value;
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * @return the highest value counted in a bucket
+     */
+    static long highestValueIn(final int bucket) {
+        if(bucket < LINEAR_LIMIT) return bucket;
+
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long top = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    private static int stripe() {
+        final long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+    }
+
+    private static int stripes() {
+        final int processors = Math.min(64, Runtime.getRuntime().availableProcessors());
+        return Integer.highestOneBit(Math.max(1, processors * 2 - 1));
+    }
+}
@@ -0,0 +1,136 @@
+package com.byhiras.auction.metrics;
+
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.BidTracker;
+import com.byhiras.auction.Page;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * The MeteredBidTracker wraps another BidTracker, recording how long
+ * each bid takes to place and its outcome. Asynchronous bids are
+ * timed from submission until they complete. Queries are passed
+ * straight through.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class MeteredBidTracker implements BidTracker {
+
+    private final BidTracker tracker;
+    private final AuctionMetrics metrics;
+
+    public MeteredBidTracker(final BidTracker tracker, final AuctionMetrics metrics) {
+        this.tracker = tracker;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void registerBid(final Bid bid, final Item item) {
+
+        placeBid(bid, item);
+    }
+
+    @Override
+    public BidResult placeBid(final Bid bid, final Item item) {
+
+        final long start = System.nanoTime();
+        final BidResult result = tracker.placeBid(bid, item);
+        metrics.record(Operation.PLACE_BID, System.nanoTime() - start);
+        metrics.record(result);
+        return result;
+    }
+
+    @Override
+    public BidResult placeProxyBid(final Bid maximum, final Item item) {
+
+        final long start = System.nanoTime();
+        final BidResult result = tracker.placeProxyBid(maximum, item);
+        metrics.record(Operation.PLACE_BID, System.nanoTime() - start);
+        metrics.record(result);
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<BidResult> submitBid(final Bid bid, final Item item) {
+
+        final long start = System.nanoTime();
+        return tracker.submitBid(bid, item).thenApply(result -> {
+            metrics.record(Operation.PLACE_BID, System.nanoTime() - start);
+            metrics.record(result);
+            return result;
+        });
+    }
+
+    @Override
+    public List<BidResult> placeBids(final List<Bid> bids, final Item item) {
+
+        final long start = System.nanoTime();
+        final List<BidResult> results = tracker.placeBids(bids, item);
+        metrics.record(Operation.PLACE_BIDS, System.nanoTime() - start);
+        for(BidResult result : results) metrics.record(result);
+        return results;
+    }
+
+    @Override
+    public CompletableFuture<List<BidResult>> submitBids(final List<Bid> bids, final Item item) {
+
+        final long start = System.nanoTime();
+        return tracker.submitBids(bids, item).thenApply(results -> {
+            metrics.record(Operation.PLACE_BIDS, System.nanoTime() - start);
+            for(BidResult result : results) metrics.record(result);
+            return results;
+        });
+    }
+
+    @Override
+    public Bid closeBidding(final Item item) {
+        return tracker.closeBidding(item);
+    }
+
+    @Override
+    public Bid getCurrentWinningBid(final Item item) {
+        return tracker.getCurrentWinningBid(item);
+    }
+
+    @Override
+    public List<Bid> getAllBids(final Item item) {
+        return tracker.getAllBids(item);
+    }
+
+    @Override
+    public List<Item> getAllItems(final User user) {
+        return tracker.getAllItems(user);
+    }
+
+    @Override
+    public List<Bid> getTopBids(final Item item, final int n) {
+        return tracker.getTopBids(item, n);
+    }
+
+    @Override
+    public Page<Bid> getBids(final Item item, final int cursor, final int limit) {
+        return tracker.getBids(item, cursor, limit);
+    }
+
+    @Override
+    public Page<Item> getItems(final User user, final int cursor, final int limit) {
+        return tracker.getItems(user, cursor, limit);
+    }
+
+    @Override
+    public Stream<Bid> streamBids(final Item item) {
+        return tracker.streamBids(item);
+    }
+
+    @Override
+    public List<Item> getWinningItems(final User user) {
+        return tracker.getWinningItems(user);
+    }
+}
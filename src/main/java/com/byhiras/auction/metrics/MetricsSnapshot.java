@@ -0,0 +1,65 @@
+package com.byhiras.auction.metrics;
+
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.util.Immutable;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Everything AuctionMetrics had recorded at one moment.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public class MetricsSnapshot {
+
+    private final long timestamp;
+    private final Map<Operation, HistogramSnapshot> latencies;
+    private final Map<BidResult, Long> results;
+    private final Map<String, Long> gauges;
+
+    MetricsSnapshot(final long timestamp,
+                    final Map<Operation, HistogramSnapshot> latencies,
+                    final Map<BidResult, Long> results,
+                    final Map<String, Long> gauges) {
+        this.timestamp = timestamp;
+        this.latencies = Collections.unmodifiableMap(latencies);
+        this.results = Collections.unmodifiableMap(results);
+        this.gauges = Collections.unmodifiableMap(gauges);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public HistogramSnapshot getLatency(final Operation operation) {
+        return latencies.get(operation);
+    }
+
+    public long getCount(final BidResult result) {
+        return results.get(result);
+    }
+
+    /**
+     * @param name the name the gauge was registered with
+     * @return the gauge's value or null if there is no such gauge
+     */
+    public Long getGauge(final String name) {
+        return gauges.get(name);
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for(Map.Entry<Operation, HistogramSnapshot> latency : latencies.entrySet()) {
+            if(latency.getValue().getCount() > 0) builder.append(latency.getKey()).append(' ').append(latency.getValue()).append('\n');
+        }
+        builder.append(results).append('\n').append(gauges);
+        return builder.toString();
+    }
+}
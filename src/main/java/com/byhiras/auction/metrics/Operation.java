@@ -0,0 +1,28 @@
+package com.byhiras.auction.metrics;
+
+/**
+ * The operations whose latency AuctionMetrics records.
+ */
+public enum Operation {
+
+    /**
+     * A bid through the AuctionService, from the item lookup to the
+     * bid being placed or handed to the tracker.
+     */
+    BID,
+
+    /**
+     * Finding an item by name.
+     */
+    FIND,
+
+    /**
+     * A single bid placed on a BidTracker.
+     */
+    PLACE_BID,
+
+    /**
+     * A batch of bids placed on a BidTracker.
+     */
+    PLACE_BIDS
+}
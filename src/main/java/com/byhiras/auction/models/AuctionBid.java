@@ -2,18 +2,15 @@ package com.byhiras.auction.models;
 
 import com.byhiras.auction.util.Immutable;
 
-import java.util.Observable;
-
 /**
  * The Bid class stores information regarding the bid
- * value a user is making on an auction item. It uses an
- * Observer pattern in order to notify the user when
- * a bid has been created.
+ * value a user is making on an auction item. The user is
+ * told when the bid has been executed.
  *
  * @author: Jeremy Davies [jerdavies@gmail.com]
  */
 @Immutable
-public class AuctionBid extends Observable implements Bid {
+public class AuctionBid implements Bid {
 
     private final int bidAmount;
     private final User user;
@@ -26,8 +23,6 @@ public class AuctionBid extends Observable implements Bid {
     public AuctionBid(final int bidAmount, final User user) {
         if(bidAmount < 0) throw new RuntimeException("Unable to create a bid with a negative amount: " +bidAmount);
 
-        addObserver(user); // we want to record a bid on an item with the user
-
         this.user = user;
         this.bidAmount = bidAmount;
     }
@@ -54,13 +49,12 @@ public class AuctionBid extends Observable implements Bid {
     }
 
     /**
-     * Inform the observers when we execute a bid on
+     * Inform the user when we execute a bid on
      * an item.
      */
     @Override
     public void execute(final Item item) {
-        setChanged();
-        notifyObservers(item);
+        user.bidExecuted(this, item);
     }
 
     @Override
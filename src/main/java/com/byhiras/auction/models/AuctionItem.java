@@ -2,7 +2,8 @@ package com.byhiras.auction.models;
 
 /**
  * The AuctionItem holds information on the item being sold such as
- * name, the starting offer price and the reserve price.
+ * name, the starting offer price, the reserve price and when
+ * bidding closes.
  *
  * @author: Jeremy Davies [jerdavies@gmail.com]
  */
@@ -11,11 +12,20 @@ public class AuctionItem implements Item {
     private final String name;
     private final int initial;
     private final int reserve;
+    private final long closingTime;
 
     public AuctionItem(final String name, final int initial, final int reserve) {
+        this(name, initial, reserve, NEVER);
+    }
+
+    /**
+     * @param closingTime when bidding closes, in milliseconds since the epoch
+     */
+    public AuctionItem(final String name, final int initial, final int reserve, final long closingTime) {
         this.name = name;
         this.initial = initial;
         this.reserve = reserve;
+        this.closingTime = closingTime;
     }
 
     @Override
@@ -33,6 +43,11 @@ public class AuctionItem implements Item {
         return reserve;
     }
 
+    @Override
+    public long getClosingTime() {
+        return closingTime;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,12 +1,11 @@
 package com.byhiras.auction.models;
 
 import com.byhiras.auction.util.Immutable;
-import com.sun.istack.internal.logging.Logger;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Observable;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The AuctionUser represents the individual bidding in the
@@ -17,29 +16,58 @@ import java.util.logging.Level;
 @Immutable
 public class AuctionUser implements User {
 
+    private static final Logger LOGGER = Logger.getLogger(AuctionUser.class.getName());
+
+    // unlike SimpleDateFormat this is thread safe so can be shared
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy h:mm:ss:SSS a");
+
     private final String name;
 
     public AuctionUser(String name) {
         this.name = name;
     }
 
+    @Override
+    public String getName() {
+        return name;
+    }
+
     /**
-     * If we receive a notification from the Bid that is has executed
+     * If we receive a notification that a bid has executed
      * then we register the details here. This would then store the information in
      * some form of database (but that's outside the scope here).
      *
-     * @param bid the observable
+     * @param bid the executed bid
      * @param item the item the user is bidding on
      */
     @Override
-    public void update(Observable bid, Object item) {
-        Logger.getLogger(getClass()).log(Level.INFO,
+    public void bidExecuted(Bid bid, Item item) {
+        if(!LOGGER.isLoggable(Level.INFO)) return;
+
+        LOGGER.log(Level.INFO,
                 name +
                 " executed a " +
                  bid +
                 " on " +
                 item +
                 " at " +
-                new SimpleDateFormat("MM/dd/yyyy h:mm:ss:S a").format(new Date()));
+                FORMAT.format(LocalDateTime.now()));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        AuctionUser that = (AuctionUser) o;
+
+        if (name != null ? !name.equals(that.name) : that.name != null) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return name != null ? name.hashCode() : 0;
     }
 }
@@ -2,7 +2,18 @@ package com.byhiras.auction.models;
 
 public interface Item {
 
+    /**
+     * The closing time of an item that never closes.
+     */
+    long NEVER = Long.MAX_VALUE;
+
     String getName();
     int getInitial();
     int getReserve();
+
+    /**
+     * @return when bidding on the item closes, in milliseconds since
+     *         the epoch, or NEVER
+     */
+    long getClosingTime();
 }
@@ -0,0 +1,59 @@
+package com.byhiras.auction.models;
+
+import com.byhiras.auction.util.Immutable;
+
+/**
+ * A RecordedBid is a bid read back from a bid history. It has
+ * already been executed so executing it again does nothing.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public class RecordedBid implements Bid {
+
+    private final int bidAmount;
+    private final User user;
+    private final long timestamp;
+
+    public RecordedBid(final int bidAmount, final User user, final long timestamp) {
+        this.bidAmount = bidAmount;
+        this.user = user;
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public int value() {
+        return bidAmount;
+    }
+
+    @Override
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * @return when the bid was accepted, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public boolean isAValidBid(final Item item) {
+        return bidAmount > item.getInitial();
+    }
+
+    @Override
+    public void execute(final Item item) {
+    }
+
+    @Override
+    public int compareTo(final Bid that) {
+        return that.value() - this.value();
+    }
+
+    @Override
+    public String toString() {
+        return "Bid (" + bidAmount + ")";
+    }
+}
@@ -1,6 +1,19 @@
 package com.byhiras.auction.models;
 
-import java.util.Observer;
+public interface User {
 
-public interface User extends Observer {
+    /**
+     * @return the name that identifies the user
+     */
+    String getName();
+
+    /**
+     * Called once a bid made by this user has been executed on an item.
+     * This may be called from a notification thread rather than the
+     * thread that placed the bid.
+     *
+     * @param bid the executed bid
+     * @param item the item the bid was made on
+     */
+    void bidExecuted(Bid bid, Item item);
 }
@@ -0,0 +1,224 @@
+package com.byhiras.auction.net;
+
+import com.byhiras.auction.BidRequest;
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.Page;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.RecordedBid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A blocking client for the AuctionServer. Each call sends one request
+ * and waits for its response, except bidAll which pipelines its bids.
+ *
+ * A client holds one connection and is not thread safe; give each
+ * thread its own client.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+public class AuctionClient implements Closeable {
+
+    // requests sent by bidAll before reading any responses, kept below
+    // the server's pipeline limit so that neither side waits on the other
+    static final int WINDOW = Connection.MAX_PIPELINE / 2;
+
+    private static final BidResult[] RESULTS = BidResult.values();
+
+    private final SocketChannel channel;
+
+    // out in write mode, in in read mode
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BufferPool.BUFFER_SIZE);
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BufferPool.BUFFER_SIZE);
+    private final byte[] scratch = new byte[Protocol.MAX_NAME];
+
+    // where the request frame being written starts
+    private int frameStart;
+
+    public AuctionClient(final InetSocketAddress address) {
+        try {
+            channel = SocketChannel.open(address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch(IOException e) {
+            throw new RuntimeException("Unable to connect to the auction at " + address, e);
+        }
+        in.flip();
+    }
+
+    public BidResult bid(final String itemName, final String userName, final int value) {
+        putBid(itemName, userName, value);
+        send();
+        return readBid();
+    }
+
+    /**
+     * Send every bid without waiting for the responses in between.
+     *
+     * @return the outcome of each bid, in the order of the requests
+     */
+    public List<BidResult> bidAll(final List<BidRequest> requests) {
+        final List<BidResult> results = new ArrayList<>(requests.size());
+
+        int sent = 0;
+        for(BidRequest request : requests) {
+            if(sent - results.size() == WINDOW) {
+                send();
+                results.add(readBid());
+            }
+            if(out.remaining() < Protocol.LENGTH_BYTES + Protocol.MAX_REQUEST) send();
+
+            putBid(request.getItemName(), request.getBid().getUser().getName(), request.getBid().value());
+            sent++;
+        }
+
+        send();
+        while(results.size() < sent) {
+            results.add(readBid());
+        }
+        return results;
+    }
+
+    /**
+     * @return the item or null if the auction has no such item
+     */
+    public Item find(final String itemName) {
+        start(Protocol.FIND);
+        Protocol.putName(out, itemName);
+        finish();
+        send();
+
+        if(readStatus("find " + itemName) == Protocol.NOT_FOUND) return null;
+
+        return new AuctionItem(itemName, in.getInt(), in.getInt(), in.getLong());
+    }
+
+    /**
+     * @return the winning bid or null if there is none
+     * @throws RuntimeException if the auction has no such item
+     */
+    public Bid getCurrentWinningBid(final String itemName) {
+        start(Protocol.WINNING);
+        Protocol.putName(out, itemName);
+        finish();
+        send();
+
+        if(readStatus("find the winning bid on " + itemName) == Protocol.NOT_FOUND)
+            throw new RuntimeException("Unable to find the winning bid on the unknown item " + itemName);
+
+        return in.get() == 0 ? null : readBidDetails();
+    }
+
+    /**
+     * @param cursor 0 for the first page, then the previous page's next cursor
+     * @param limit the most bids to return, no more than Protocol.MAX_PAGE
+     * @return the bids on the item, oldest first
+     * @throws RuntimeException if the auction has no such item
+     */
+    public Page<Bid> getBids(final String itemName, final int cursor, final int limit) {
+        start(Protocol.HISTORY);
+        Protocol.putName(out, itemName);
+        out.putInt(cursor);
+        out.putInt(limit);
+        finish();
+        send();
+
+        if(readStatus("read the bids on " + itemName) == Protocol.NOT_FOUND)
+            throw new RuntimeException("Unable to read the bids on the unknown item " + itemName);
+
+        final int count = in.getInt();
+        final List<Bid> bids = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            bids.add(readBidDetails());
+        }
+        return new Page<>(bids, in.getInt(), in.get() != 0);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch(IOException e) {
+            throw new RuntimeException("Unable to close the connection to the auction.", e);
+        }
+    }
+
+    private void putBid(final String itemName, final String userName, final int value) {
+        start(Protocol.BID);
+        Protocol.putName(out, itemName);
+        Protocol.putName(out, userName);
+        out.putInt(value);
+        finish();
+    }
+
+    private BidResult readBid() {
+        readStatus("bid");
+        return RESULTS[in.get()];
+    }
+
+    private Bid readBidDetails() {
+        final int value = in.getInt();
+        final String user = Protocol.getName(in, scratch);
+        return new RecordedBid(value, new AuctionUser(user), in.getLong());
+    }
+
+    private void start(final byte operation) {
+        frameStart = out.position();
+        out.putInt(0);
+        out.put(operation);
+    }
+
+    private void finish() {
+        out.putInt(frameStart, out.position() - frameStart - Protocol.LENGTH_BYTES);
+    }
+
+    private void send() {
+        out.flip();
+        try {
+            while(out.hasRemaining()) channel.write(out);
+        } catch(IOException e) {
+            throw new RuntimeException("Unable to send to the auction.", e);
+        } finally {
+            out.clear();
+        }
+    }
+
+    /**
+     * Read a whole response frame into the buffer.
+     *
+     * @return its status, with the buffer positioned at the body
+     * @throws RuntimeException if the server reported an error
+     */
+    private byte readStatus(final String action) {
+        fill(Protocol.LENGTH_BYTES);
+        final int length = in.getInt();
+        fill(length);
+
+        final byte status = in.get();
+        if(status == Protocol.ERROR)
+            throw new RuntimeException("Unable to " + action + ": " + Protocol.getName(in, scratch));
+        return status;
+    }
+
+    private void fill(final int bytes) {
+        try {
+            while(in.remaining() < bytes) {
+                in.compact();
+                final int read = channel.read(in);
+                in.flip();
+                if(read < 0) throw new RuntimeException("Unable to read from the auction as the connection closed.");
+            }
+        } catch(IOException e) {
+            throw new RuntimeException("Unable to read from the auction.", e);
+        }
+    }
+}
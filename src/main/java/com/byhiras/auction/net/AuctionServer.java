@@ -0,0 +1,113 @@
+package com.byhiras.auction.net;
+
+import com.byhiras.auction.AuctionService;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * The AuctionServer puts an AuctionService on the network, speaking
+ * the binary Protocol.
+ *
+ * Connections are shared out between a few event loops, each a single
+ * thread with its own selector, so there is no thread per connection
+ * and tens of thousands of bidders can stay connected. Requests are
+ * decoded straight out of pooled direct buffers that idle connections
+ * do not hold on to. The first loop also accepts new connections.
+ *
+ * Users are known by name; the first bid under a name creates the
+ * user and later bids under that name are made by the same user.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class AuctionServer implements Closeable {
+
+    private final ServerSocketChannel acceptor;
+    private final EventLoop[] loops;
+
+    private final ConcurrentMap<String, User> users = new ConcurrentHashMap<>();
+
+    public AuctionServer(final AuctionService service, final InetSocketAddress address) {
+        this(service, address, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * @param service the service the requests are passed to
+     * @param address where to listen, with port 0 for any free port
+     * @param loopCount how many event loop threads serve the connections
+     */
+    public AuctionServer(final AuctionService service, final InetSocketAddress address, final int loopCount) {
+        if(loopCount < 1) throw new RuntimeException("Unable to serve connections with " + loopCount + " event loops.");
+
+        final Function<String, User> user = name -> users.computeIfAbsent(name, AuctionUser::new);
+
+        try {
+            acceptor = ServerSocketChannel.open();
+            acceptor.bind(address);
+            acceptor.configureBlocking(false);
+
+            loops = new EventLoop[loopCount];
+            for(int i = 0; i < loopCount; i++) {
+                loops[i] = new EventLoop(new RequestHandler(service, user), "auction-server-" + i);
+            }
+            loops[0].accept(acceptor, loops);
+        } catch(IOException e) {
+            throw new RuntimeException("Unable to listen for bidders on " + address, e);
+        }
+
+        for(EventLoop loop : loops) {
+            loop.start();
+        }
+    }
+
+    /**
+     * @return the address the server is listening on
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) acceptor.getLocalAddress();
+        } catch(IOException e) {
+            throw new RuntimeException("Unable to find the address of the server.", e);
+        }
+    }
+
+    /**
+     * @return the number of open client connections
+     */
+    public int connectionCount() {
+        int count = 0;
+        for(EventLoop loop : loops) {
+            count += loop.connectionCount();
+        }
+        return count;
+    }
+
+    /**
+     * Stop accepting connections and close the open ones.
+     */
+    @Override
+    public void close() {
+        try {
+            for(EventLoop loop : loops) {
+                loop.close();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            acceptor.close();
+        } catch(IOException e) {
+            throw new RuntimeException("Unable to stop listening for bidders.", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.byhiras.auction.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Direct buffers lent to connections while they have bytes to read or
+ * write. An idle connection holds no buffers, so tens of thousands of
+ * connections need only as many buffers as are busy at once. Each
+ * event loop has its own pool and it is only used from that loop.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class BufferPool {
+
+    // big enough for the longest response, rounded up to a power of two
+    static final int BUFFER_SIZE = Integer.highestOneBit(Protocol.MAX_RESPONSE - 1) << 1;
+
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+    private final int maxFree;
+
+    BufferPool(final int maxFree) {
+        this.maxFree = maxFree;
+    }
+
+    ByteBuffer acquire() {
+        final ByteBuffer buffer = free.pollFirst();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    void release(final ByteBuffer buffer) {
+        if(free.size() >= maxFree) return;
+
+        buffer.clear();
+        free.addFirst(buffer);
+    }
+}
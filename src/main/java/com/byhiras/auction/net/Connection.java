@@ -0,0 +1,171 @@
+package com.byhiras.auction.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * One client connection, only ever touched by the event loop that
+ * owns it.
+ *
+ * Requests are decoded in place from a pooled direct buffer and their
+ * replies queued in order. Up to MAX_PIPELINE requests may be waiting
+ * for their replies; beyond that the connection stops reading, so a
+ * client that sends faster than it reads is held back by TCP rather
+ * than by memory on the server. The buffers go back to the pool as
+ * soon as they are empty.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class Connection {
+
+    static final int MAX_PIPELINE = 128;
+
+    private final SocketChannel channel;
+    private final EventLoop loop;
+    private SelectionKey key;
+
+    // both in write mode and null while empty
+    private ByteBuffer in;
+    private ByteBuffer out;
+
+    private final ArrayDeque<Reply> replies = new ArrayDeque<>();
+
+    private boolean closed;
+
+    Connection(final SocketChannel channel, final EventLoop loop) {
+        this.channel = channel;
+        this.loop = loop;
+    }
+
+    void register(final SelectionKey key) {
+        this.key = key;
+    }
+
+    void onReadable() {
+        if(closed) return;
+
+        try {
+            if(in == null) in = loop.buffers().acquire();
+            if(channel.read(in) < 0) {
+                close();
+                return;
+            }
+            process();
+        } catch(IOException | RuntimeException e) {
+            close();
+        }
+    }
+
+    /**
+     * Called when the socket can take more bytes or when a bid that
+     * was still being placed has finished.
+     */
+    void onReady() {
+        if(closed) return;
+
+        try {
+            process();
+        } catch(IOException | RuntimeException e) {
+            close();
+        }
+    }
+
+    private void process() throws IOException {
+        while(decode() > 0) {
+            flush();
+        }
+        flush();
+
+        if(in != null && in.position() == 0) {
+            loop.buffers().release(in);
+            in = null;
+        }
+        if(out != null && out.position() == 0) {
+            loop.buffers().release(out);
+            out = null;
+        }
+
+        int interest = 0;
+        if(replies.size() < MAX_PIPELINE) interest |= SelectionKey.OP_READ;
+        if(out != null) interest |= SelectionKey.OP_WRITE;
+        key.interestOps(interest);
+    }
+
+    /**
+     * @return the number of requests decoded
+     */
+    private int decode() {
+        if(in == null) return 0;
+
+        in.flip();
+        int decoded = 0;
+        while(replies.size() < MAX_PIPELINE && in.remaining() >= Protocol.LENGTH_BYTES) {
+            final int start = in.position();
+            final int length = in.getInt(start);
+            if(length < 1 || length > Protocol.MAX_REQUEST)
+                throw new RuntimeException("Unable to read a request of " + length + " bytes.");
+            if(in.remaining() < Protocol.LENGTH_BYTES + length) break;
+
+            final int end = start + Protocol.LENGTH_BYTES + length;
+            final int limit = in.limit();
+            in.position(start + Protocol.LENGTH_BYTES);
+            in.limit(end);
+
+            final Reply reply = loop.handler().handle(in.get(), in);
+
+            in.limit(limit);
+            in.position(end);
+
+            replies.addLast(reply);
+            if(!reply.isDone()) reply.whenDone(() -> loop.ready(this));
+            decoded++;
+        }
+        in.compact();
+        return decoded;
+    }
+
+    /**
+     * Write the replies that are done, in order, until the socket
+     * will take no more.
+     */
+    private void flush() throws IOException {
+        while(true) {
+            while(!replies.isEmpty() && replies.peekFirst().isDone()) {
+                if(out == null) out = loop.buffers().acquire();
+                if(out.remaining() < Protocol.MAX_RESPONSE) break;
+
+                replies.pollFirst().writeTo(out);
+            }
+            if(out == null || out.position() == 0) return;
+
+            out.flip();
+            channel.write(out);
+            final boolean sent = !out.hasRemaining();
+            out.compact();
+
+            if(!sent || replies.isEmpty() || !replies.peekFirst().isDone()) return;
+        }
+    }
+
+    void close() {
+        if(closed) return;
+        closed = true;
+
+        if(key != null) key.cancel();
+        try {
+            channel.close();
+        } catch(IOException e) {
+            // the connection is gone either way
+        }
+
+        if(in != null) loop.buffers().release(in);
+        if(out != null) loop.buffers().release(out);
+        in = out = null;
+        replies.clear();
+
+        loop.closed(this);
+    }
+}
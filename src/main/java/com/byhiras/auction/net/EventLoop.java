@@ -0,0 +1,202 @@
+package com.byhiras.auction.net;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A single thread serving many connections through one selector.
+ *
+ * Other threads never touch a connection. They hand new sockets and
+ * finished bids to the loop through lock-free queues and wake the
+ * selector, at most once until the loop next looks at the queues.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class EventLoop implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(EventLoop.class.getName());
+
+    // idle direct buffers kept by each loop
+    private static final int POOLED_BUFFERS = 256;
+
+    private final Selector selector;
+    private final RequestHandler handler;
+    private final BufferPool buffers = new BufferPool(POOLED_BUFFERS);
+    private final Thread thread;
+
+    private final Queue<SocketChannel> adopted = new ConcurrentLinkedQueue<>();
+    private final Queue<Connection> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean awake = new AtomicBoolean();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    // set on the loop that also accepts connections for the server
+    private ServerSocketChannel acceptor;
+    private EventLoop[] loops;
+    private int nextLoop;
+
+    private volatile boolean running = true;
+
+    EventLoop(final RequestHandler handler, final String name) throws IOException {
+        this.selector = Selector.open();
+        this.handler = handler;
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Accept connections on this loop and share them out between the
+     * loops in turn.
+     */
+    void accept(final ServerSocketChannel acceptor, final EventLoop[] loops) throws ClosedChannelException {
+        this.acceptor = acceptor;
+        this.loops = loops;
+        acceptor.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    RequestHandler handler() {
+        return handler;
+    }
+
+    BufferPool buffers() {
+        return buffers;
+    }
+
+    int connectionCount() {
+        return connections.get();
+    }
+
+    void adopt(final SocketChannel channel) {
+        connections.incrementAndGet();
+        adopted.add(channel);
+        wakeUp();
+    }
+
+    void ready(final Connection connection) {
+        ready.add(connection);
+        wakeUp();
+    }
+
+    void closed(final Connection connection) {
+        connections.decrementAndGet();
+    }
+
+    private void wakeUp() {
+        if(Thread.currentThread() != thread && awake.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while(running) {
+                selector.select();
+                awake.set(false);
+
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while(keys.hasNext()) {
+                    handle(keys.next());
+                    keys.remove();
+                }
+
+                // after the keys, to pick up anything this thread queued for itself
+                registerAdopted();
+
+                Connection connection;
+                while((connection = ready.poll()) != null) {
+                    connection.onReady();
+                }
+            }
+        } catch(IOException | RuntimeException e) {
+            if(running) LOGGER.log(Level.SEVERE, "Unable to keep serving connections.", e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void registerAdopted() {
+        SocketChannel channel;
+        while((channel = adopted.poll()) != null) {
+            final Connection connection = new Connection(channel, this);
+            try {
+                connection.register(channel.register(selector, SelectionKey.OP_READ, connection));
+            } catch(IOException e) {
+                connection.close();
+            }
+        }
+    }
+
+    private void handle(final SelectionKey key) throws IOException {
+        if(!key.isValid()) return;
+
+        if(key.isAcceptable()) {
+            acceptAll();
+            return;
+        }
+
+        final Connection connection = (Connection) key.attachment();
+        if(key.isReadable()) connection.onReadable();
+        if(key.isValid() && key.isWritable()) connection.onReady();
+    }
+
+    private void acceptAll() throws IOException {
+        SocketChannel channel;
+        while((channel = acceptor.accept()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch(IOException e) {
+                channel.close();
+                continue;
+            }
+
+            loops[nextLoop].adopt(channel);
+            nextLoop = (nextLoop + 1) % loops.length;
+        }
+    }
+
+    /**
+     * Stop the loop and wait for its connections to be closed.
+     */
+    void close() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        thread.join();
+    }
+
+    private void shutdown() {
+        for(SelectionKey key : selector.keys()) {
+            if(key.attachment() instanceof Connection) ((Connection) key.attachment()).close();
+        }
+
+        SocketChannel channel;
+        while((channel = adopted.poll()) != null) {
+            try {
+                channel.close();
+            } catch(IOException e) {
+                // closing anyway
+            }
+        }
+
+        try {
+            selector.close();
+        } catch(IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to close the selector.", e);
+        }
+    }
+}
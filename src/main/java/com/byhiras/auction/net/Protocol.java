@@ -0,0 +1,77 @@
+package com.byhiras.auction.net;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary protocol spoken by the AuctionServer and AuctionClient.
+ *
+ * Every message is a frame: a big-endian int holding the length of the
+ * rest of the frame, then a one byte code, then the body. A request's
+ * code is its operation and a response's code is its status. Names
+ * are an unsigned short length followed by that many bytes of UTF-8.
+ *
+ *   BID      item, user, int value          OK byte result
+ *   FIND     item                           OK int initial, int reserve, long closing time
+ *   WINNING  item                           OK byte present [int value, user, long timestamp]
+ *   HISTORY  item, int cursor, int limit    OK int count {int value, user, long timestamp}
+ *                                              int next cursor, byte more
+ *
+ * FIND, WINNING and HISTORY answer NOT_FOUND for an unknown item and
+ * any request may be answered with ERROR and a message. Requests may
+ * be pipelined; the responses on a connection come back in the order
+ * the requests were sent.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class Protocol {
+
+    static final byte BID = 1;
+    static final byte FIND = 2;
+    static final byte WINNING = 3;
+    static final byte HISTORY = 4;
+
+    static final byte OK = 0;
+    static final byte NOT_FOUND = 1;
+    static final byte ERROR = 2;
+
+    static final int LENGTH_BYTES = 4;
+
+    // the longest name, in bytes, and the longest request frame
+    static final int MAX_NAME = 256;
+    static final int MAX_REQUEST = 1 + 2 * (2 + MAX_NAME) + 8;
+
+    // a history page never holds more than this many bids
+    static final int MAX_PAGE = 32;
+
+    // the longest response, a full page of history with long names
+    static final int MAX_RESPONSE = LENGTH_BYTES + 1 + 4 + MAX_PAGE * (4 + 2 + MAX_NAME + 8) + 4 + 1;
+
+    private Protocol() {
+    }
+
+    /**
+     * Write a name, cutting it short at MAX_NAME bytes.
+     */
+    static void putName(final ByteBuffer buffer, final String name) {
+        final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        final int length = Math.min(bytes.length, MAX_NAME);
+        buffer.putShort((short) length);
+        buffer.put(bytes, 0, length);
+    }
+
+    /**
+     * Read a name through a scratch array, so that the only allocation
+     * is the string itself.
+     *
+     * @param scratch at least MAX_NAME bytes
+     */
+    static String getName(final ByteBuffer buffer, final byte[] scratch) {
+        final int length = buffer.getShort() & 0xFFFF;
+        if(length > MAX_NAME || length > buffer.remaining())
+            throw new RuntimeException("Unable to read a name of " + length + " bytes.");
+
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
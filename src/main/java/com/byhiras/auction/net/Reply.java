@@ -0,0 +1,29 @@
+package com.byhiras.auction.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The response to one request, queued on its connection until every
+ * earlier response has been written.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+interface Reply {
+
+    /**
+     * @return true once the response can be written
+     */
+    boolean isDone();
+
+    /**
+     * Run the action once the response can be written, on whichever
+     * thread makes it ready.
+     */
+    void whenDone(Runnable action);
+
+    /**
+     * Write the whole response frame, which is at most
+     * Protocol.MAX_RESPONSE bytes.
+     */
+    void writeTo(ByteBuffer out);
+}
@@ -0,0 +1,185 @@
+package com.byhiras.auction.net;
+
+import com.byhiras.auction.AuctionService;
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.Page;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.RecordedBid;
+import com.byhiras.auction.models.User;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Turns request frames into calls on the AuctionService. Each event
+ * loop has its own handler, so the scratch space for names is never
+ * shared between threads.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class RequestHandler {
+
+    private static final Reply NOT_FOUND = new Ready(Protocol.NOT_FOUND, out -> { });
+
+    private final AuctionService service;
+    private final Function<String, User> users;
+
+    private final byte[] scratch = new byte[Protocol.MAX_NAME];
+
+    RequestHandler(final AuctionService service, final Function<String, User> users) {
+        this.service = service;
+        this.users = users;
+    }
+
+    /**
+     * @param frame positioned after the operation code, limited to the
+     *              end of the frame
+     * @return the response, which for a bid may not be ready yet
+     */
+    Reply handle(final byte operation, final ByteBuffer frame) {
+        try {
+            switch(operation) {
+                case Protocol.BID:     return bid(frame);
+                case Protocol.FIND:    return find(frame);
+                case Protocol.WINNING: return winning(frame);
+                case Protocol.HISTORY: return history(frame);
+                default: return failure("Unable to handle the unknown operation " + operation);
+            }
+        } catch(RuntimeException e) {
+            return failure(e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+    }
+
+    private Reply bid(final ByteBuffer frame) {
+        final String itemName = Protocol.getName(frame, scratch);
+        final User user = users.apply(Protocol.getName(frame, scratch));
+        final int value = frame.getInt();
+
+        return new Pending(service.bidAsync(new AuctionBid(value, user), itemName));
+    }
+
+    private Reply find(final ByteBuffer frame) {
+        final Item item = service.find(Protocol.getName(frame, scratch));
+        if(item == null) return NOT_FOUND;
+
+        return new Ready(Protocol.OK, out -> {
+            out.putInt(item.getInitial());
+            out.putInt(item.getReserve());
+            out.putLong(item.getClosingTime());
+        });
+    }
+
+    private Reply winning(final ByteBuffer frame) {
+        final Item item = service.find(Protocol.getName(frame, scratch));
+        if(item == null) return NOT_FOUND;
+
+        final Bid winner = service.getBidHistory().getCurrentWinningBid(item);
+        return new Ready(Protocol.OK, out -> {
+            out.put((byte) (winner == null ? 0 : 1));
+            if(winner != null) putBid(out, winner);
+        });
+    }
+
+    private Reply history(final ByteBuffer frame) {
+        final Item item = service.find(Protocol.getName(frame, scratch));
+        final int cursor = frame.getInt();
+        final int limit = Math.min(frame.getInt(), Protocol.MAX_PAGE);
+        if(item == null) return NOT_FOUND;
+
+        final Page<Bid> page = service.getBidHistory().getBids(item, cursor, limit);
+        return new Ready(Protocol.OK, out -> {
+            out.putInt(page.getItems().size());
+            for(Bid bid : page.getItems()) {
+                putBid(out, bid);
+            }
+            out.putInt(page.getNextCursor());
+            out.put((byte) (page.hasMore() ? 1 : 0));
+        });
+    }
+
+    private static Reply failure(final String message) {
+        return new Ready(Protocol.ERROR, out -> Protocol.putName(out, message));
+    }
+
+    private static void putBid(final ByteBuffer out, final Bid bid) {
+        out.putInt(bid.value());
+        Protocol.putName(out, bid.getUser().getName());
+        out.putLong(bid instanceof RecordedBid ? ((RecordedBid) bid).getTimestamp() : 0);
+    }
+
+    /**
+     * Write a frame, filling in its length once the body is written.
+     */
+    private static void frame(final ByteBuffer out, final byte status, final Consumer<ByteBuffer> body) {
+        final int start = out.position();
+        out.putInt(0);
+        out.put(status);
+        body.accept(out);
+        out.putInt(start, out.position() - start - Protocol.LENGTH_BYTES);
+    }
+
+    private static final class Ready implements Reply {
+
+        private final byte status;
+        private final Consumer<ByteBuffer> body;
+
+        Ready(final byte status, final Consumer<ByteBuffer> body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+
+        @Override
+        public void whenDone(final Runnable action) {
+            action.run();
+        }
+
+        @Override
+        public void writeTo(final ByteBuffer out) {
+            frame(out, status, body);
+        }
+    }
+
+    /**
+     * A bid that a ShardedBidTracker may still be placing. With the
+     * other trackers the future is already complete.
+     */
+    private static final class Pending implements Reply {
+
+        private final CompletableFuture<BidResult> result;
+
+        Pending(final CompletableFuture<BidResult> result) {
+            this.result = result;
+        }
+
+        @Override
+        public boolean isDone() {
+            return result.isDone();
+        }
+
+        @Override
+        public void whenDone(final Runnable action) {
+            result.whenComplete((outcome, failure) -> action.run());
+        }
+
+        @Override
+        public void writeTo(final ByteBuffer out) {
+            final BidResult outcome;
+            try {
+                outcome = result.join();
+            } catch(RuntimeException e) {
+                failure(e.getMessage() == null ? e.toString() : e.getMessage()).writeTo(out);
+                return;
+            }
+            frame(out, Protocol.OK, body -> body.put((byte) outcome.ordinal()));
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.byhiras.auction.notify;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The BidNotificationPipeline moves the execution of accepted bids off
+ * the bidding thread.
+ *
+ * Each consumer thread owns a bounded multi-producer ring buffer, and
+ * every item is routed to the same consumer, so publishing a bid costs
+ * the bidding thread a single compare-and-set and no allocation. The
+ * consumer drains its buffer in batches and executes each bid, which
+ * informs its user. When a buffer is full the OverflowPolicy decides
+ * whether the bidding thread waits, the notification is dropped, or it
+ * is coalesced with any other overflowing notification for the same
+ * item.
+ *
+ * Notifications for one item are executed one at a time, in the order
+ * they were published. Notifications for different items may run
+ * concurrently on different consumers in any order. Under COALESCE an
+ * overflowing notification is only ever replaced by one for a higher
+ * bid on the same item, and it is discarded rather than executed once
+ * a higher bid on that item has come through the buffer, so no user
+ * hears of a bid after a higher bid on the same item. After the
+ * pipeline is closed the remaining notifications are executed by
+ * whichever threads get to them, in no particular order.
+ *
+ * Each slot of a buffer carries a sequence number which tells
+ * producers and consumers whose turn it is to use the slot, so the
+ * bid and item arrays themselves need no synchronisation.
+ *
+ * A consumer that finds nothing to do spins briefly and then parks
+ * until a producer wakes it, so an idle pipeline uses no CPU. It flags
+ * itself as parked before looking at its buffer one last time, and a
+ * producer looks for the flag after publishing, so one of the two
+ * always sees the other.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class BidNotificationPipeline implements BidNotifier, Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(BidNotificationPipeline.class.getName());
+
+    private static final long IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    // times an idle consumer looks again before parking
+    private static final int IDLE_SPINS = 64;
+
+    private final Ring[] rings; // one per consumer
+
+    private final OverflowPolicy policy;
+
+    private final int batchSize;
+    private final Thread[] consumers;
+
+    // 1 while the consumer with that index is parked, and how many are
+    private final AtomicIntegerArray parked;
+    private final AtomicInteger idle = new AtomicInteger();
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    /**
+     * Create and start a pipeline.
+     *
+     * @param capacity the total size of the ring buffers, shared between
+     *                 the consumers and rounded up to a power of two each
+     * @param consumers the number of consumer threads
+     * @param batchSize the most notifications a consumer takes at a time
+     * @param policy what to do when a ring buffer is full
+     */
+    public BidNotificationPipeline(final int capacity, final int consumers, final int batchSize, final OverflowPolicy policy) {
+        if(capacity < 1 || capacity > 1 << 30)
+            throw new RuntimeException("Unable to create a pipeline with a capacity of " + capacity);
+        if(consumers < 1)
+            throw new RuntimeException("Unable to create a pipeline with " + consumers + " consumers.");
+        if(batchSize < 1)
+            throw new RuntimeException("Unable to create a pipeline with a batch size of " + batchSize);
+        if(policy == null)
+            throw new RuntimeException("Unable to create a pipeline without an overflow policy.");
+
+        final int share = (capacity + consumers - 1) / consumers;
+        int size = 1;
+        while(size < share) size <<= 1;
+
+        this.rings = new Ring[consumers];
+        for(int c = 0; c < consumers; c++) rings[c] = new Ring(size);
+
+        this.policy = policy;
+        this.batchSize = batchSize;
+        this.consumers = new Thread[consumers];
+        this.parked = new AtomicIntegerArray(consumers);
+
+        for(int c = 0; c < consumers; c++) {
+            this.consumers[c] = new Thread(new Consumer(c), "bid-notifier-" + c);
+            this.consumers[c].setDaemon(true);
+            this.consumers[c].start();
+        }
+    }
+
+    /**
+     * Publish an accepted bid for the item's consumer to execute. Once
+     * the pipeline has been closed the bid is executed on the calling
+     * thread.
+     *
+     * @param bid the accepted bid
+     * @param item the item the bid was made on
+     */
+    @Override
+    public void bidAccepted(final Bid bid, final Item item) {
+        if(!running) {
+            bid.execute(item);
+            return;
+        }
+
+        final int consumer = consumerOf(item);
+        final Ring ring = rings[consumer];
+
+        if(!ring.offer(bid, item)) {
+            switch(policy) {
+                case BLOCK:
+                    final long start = System.nanoTime();
+                    try {
+                        while(!ring.offer(bid, item)) {
+                            if(!running) {
+                                bid.execute(item);
+                                return;
+                            }
+                            LockSupport.parkNanos(IDLE_NANOS);
+                        }
+                    } finally {
+                        blockedNanos.addAndGet(System.nanoTime() - start);
+                    }
+                    break;
+                case DROP:
+                    dropped.incrementAndGet();
+                    return;
+                case COALESCE:
+                    coalesce(ring, bid, item);
+                    break;
+            }
+        }
+
+        if(idle.get() > 0) wake(consumer);
+
+        // the pipeline may have closed after the consumers last looked
+        if(!running) drainAll();
+    }
+
+    private int consumerOf(final Item item) {
+        final int hash = item.hashCode();
+        return ((hash ^ (hash >>> 16)) & 0x7fffffff) % rings.length;
+    }
+
+    // keeps whichever of the two bids is higher, as a bid that lost a
+    // race to publish may arrive after a higher one on the same item
+    private void coalesce(final Ring ring, final Bid bid, final Item item) {
+        while(true) {
+            final Bid pending = ring.overflow.putIfAbsent(item, bid);
+            if(pending == null) return;
+
+            if(pending.value() > bid.value()) {
+                coalesced.incrementAndGet();
+                return;
+            }
+            if(ring.overflow.replace(item, pending, bid)) {
+                coalesced.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private void wake(final int consumer) {
+        if(parked.compareAndSet(consumer, 1, 0)) {
+            idle.decrementAndGet();
+            LockSupport.unpark(consumers[consumer]);
+        }
+    }
+
+    private int drainBatch(final Ring ring, final Bid[] batchBids, final Item[] batchItems) {
+        int count = ring.drain(batchBids, batchItems, batchSize);
+        if(ring.overflow.isEmpty()) return count;
+
+        // an overflowing bid is superseded by a higher one through the buffer
+        for(int i = 0; i < count; i++) {
+            final Bid pending = ring.overflow.get(batchItems[i]);
+            if(pending != null && pending.value() <= batchBids[i].value() && ring.overflow.remove(batchItems[i], pending))
+                coalesced.incrementAndGet();
+        }
+
+        // the buffer was empty, so everything published before the
+        // overflowing bids is in this batch or has already run
+        if(count < batchSize) count = drainOverflow(ring, batchBids, batchItems, count);
+        return count;
+    }
+
+    private int drainOverflow(final Ring ring, final Bid[] batchBids, final Item[] batchItems, int count) {
+        final Iterator<Map.Entry<Item, Bid>> entries = ring.overflow.entrySet().iterator();
+        while(count < batchSize && entries.hasNext()) {
+            final Map.Entry<Item, Bid> entry = entries.next();
+            if(ring.overflow.remove(entry.getKey(), entry.getValue())) {
+                batchBids[count] = entry.getValue();
+                batchItems[count] = entry.getKey();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void execute(final Bid[] batchBids, final Item[] batchItems, final int count) {
+        for(int i = 0; i < count; i++) {
+            try {
+                batchBids[i].execute(batchItems[i]);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Unable to notify " + batchBids[i] + " on " + batchItems[i], e);
+            }
+            batchBids[i] = null;
+            batchItems[i] = null;
+        }
+    }
+
+    private void drainAll() {
+        final Bid[] batchBids = new Bid[batchSize];
+        final Item[] batchItems = new Item[batchSize];
+
+        for(Ring ring : rings) {
+            int count;
+            while((count = drainBatch(ring, batchBids, batchItems)) > 0) execute(batchBids, batchItems, count);
+        }
+    }
+
+    /**
+     * @return the number of notifications waiting to be executed
+     */
+    public int depth() {
+        int depth = 0;
+        for(Ring ring : rings) depth += ring.depth();
+        return depth;
+    }
+
+    /**
+     * @return the number of notifications discarded by the DROP policy
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of notifications replaced or superseded under
+     *         the COALESCE policy
+     */
+    public long coalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return the total time bidding threads have waited for room under
+     *         the BLOCK policy, in nanoseconds
+     */
+    public long blockedNanos() {
+        return blockedNanos.get();
+    }
+
+    /**
+     * Stop accepting notifications and wait for the consumers to
+     * execute the ones already published.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for(Thread consumer : consumers) LockSupport.unpark(consumer);
+
+        for(Thread consumer : consumers) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        drainAll();
+    }
+
+    private static final class Ring {
+
+        private final int mask;
+        private final Bid[] bids;
+        private final Item[] items;
+        private final AtomicLongArray sequences;
+
+        private final AtomicLong head = new AtomicLong(); // next slot to consume
+        private final AtomicLong tail = new AtomicLong(); // next slot to publish
+
+        private final ConcurrentMap<Item, Bid> overflow = new ConcurrentHashMap<>();
+
+        private Ring(final int size) {
+            this.mask = size - 1;
+            this.bids = new Bid[size];
+            this.items = new Item[size];
+            this.sequences = new AtomicLongArray(size);
+            for(int i = 0; i < size; i++) sequences.set(i, i);
+        }
+
+        private boolean offer(final Bid bid, final Item item) {
+            while(true) {
+                final long position = tail.get();
+                final int index = (int) position & mask;
+                final long sequence = sequences.get(index);
+
+                if(sequence < position) return false; // full, the consumer has not freed this slot yet
+                if(sequence > position) continue;     // another producer took this slot
+                if(!tail.compareAndSet(position, position + 1)) continue;
+
+                bids[index] = bid;
+                items[index] = item;
+                sequences.set(index, position + 1); // publish to the consumer
+                return true;
+            }
+        }
+
+        // the consumer drains alone until the pipeline closes, when
+        // other threads may join in, so slots are still claimed by CAS
+        private int drain(final Bid[] batchBids, final Item[] batchItems, final int batchSize) {
+            int count = 0;
+            while(count < batchSize) {
+                final long position = head.get();
+                final int index = (int) position & mask;
+                final long sequence = sequences.get(index);
+
+                if(sequence < position + 1) break;         // empty
+                if(sequence > position + 1) continue;      // another thread took this slot
+                if(!head.compareAndSet(position, position + 1)) continue;
+
+                batchBids[count] = bids[index];
+                batchItems[count] = items[index];
+                bids[index] = null;
+                items[index] = null;
+                sequences.set(index, position + mask + 1); // free the slot for the producers
+                count++;
+            }
+            return count;
+        }
+
+        private boolean isEmpty() {
+            final long position = head.get();
+            return sequences.get((int) position & mask) < position + 1 && overflow.isEmpty();
+        }
+
+        private int depth() {
+            return (int) Math.max(0, tail.get() - head.get()) + overflow.size();
+        }
+    }
+
+    private final class Consumer implements Runnable {
+
+        private final int index;
+        private final Bid[] batchBids = new Bid[batchSize];
+        private final Item[] batchItems = new Item[batchSize];
+
+        private Consumer(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            final Ring ring = rings[index];
+            int spins = 0;
+            while(true) {
+                final int count = drainBatch(ring, batchBids, batchItems);
+
+                if(count > 0) {
+                    execute(batchBids, batchItems, count);
+                    spins = 0;
+                } else if(!running) {
+                    return;
+                } else if(spins++ < IDLE_SPINS) {
+                    Thread.yield();
+                } else {
+                    park(ring);
+                    spins = 0;
+                }
+            }
+        }
+
+        private void park(final Ring ring) {
+            parked.set(index, 1);
+            idle.incrementAndGet();
+
+            // a bid published before the flag was seen is caught here
+            if(running && ring.isEmpty()) LockSupport.park(this);
+
+            if(parked.getAndSet(index, 0) == 1) idle.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.byhiras.auction.notify;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+
+/**
+ * A BidNotifier is told by a tracker about every bid it accepts and is
+ * responsible for executing the bid so that its user is informed.
+ */
+public interface BidNotifier {
+
+    void bidAccepted(Bid bid, Item item);
+}
@@ -0,0 +1,19 @@
+package com.byhiras.auction.notify;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.util.ThreadSafe;
+
+/**
+ * Executes each accepted bid straight away on the bidding thread.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class DirectBidNotifier implements BidNotifier {
+
+    @Override
+    public void bidAccepted(final Bid bid, final Item item) {
+        bid.execute(item);
+    }
+}
@@ -0,0 +1,24 @@
+package com.byhiras.auction.notify;
+
+/**
+ * What a BidNotificationPipeline does with an accepted bid when its
+ * ring buffer is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Wait on the bidding thread until there is room.
+     */
+    BLOCK,
+
+    /**
+     * Discard the notification.
+     */
+    DROP,
+
+    /**
+     * Hold the notification aside, keeping only the highest bid per
+     * item, until the consumers catch up.
+     */
+    COALESCE
+}
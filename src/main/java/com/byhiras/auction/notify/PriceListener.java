@@ -0,0 +1,14 @@
+package com.byhiras.auction.notify;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+
+/**
+ * Told when the winning bid on a watched item changes. Updates are
+ * conflated, so a listener only ever sees the latest winning bid and
+ * may not see every bid in between.
+ */
+public interface PriceListener {
+
+    void priceChanged(Item item, Bid winningBid);
+}
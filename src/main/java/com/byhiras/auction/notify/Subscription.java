@@ -0,0 +1,94 @@
+package com.byhiras.auction.notify;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A Subscription is one listener's interest in a set of items, taken
+ * out through a SubscriptionHub.
+ *
+ * Each subscription keeps only the latest winning bid per item that
+ * it has yet to deliver, so however slow its listener the backlog is
+ * never more than one bid per item. Deliveries to a listener are
+ * made one at a time on the hub's executor and never go backwards.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public final class Subscription implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(Subscription.class.getName());
+
+    private final SubscriptionHub hub;
+    private final PriceListener listener;
+    private final Collection<Item> items;
+
+    private final ConcurrentMap<Item, Bid> pending = new ConcurrentHashMap<>();
+    private final Map<Item, Integer> delivered = new ConcurrentHashMap<>();
+
+    // the number of offers since the last drain began; the drain that takes it off zero runs the rest
+    private final AtomicInteger work = new AtomicInteger();
+
+    private volatile boolean cancelled;
+
+    Subscription(final SubscriptionHub hub, final PriceListener listener, final Collection<Item> items) {
+        this.hub = hub;
+        this.listener = listener;
+        this.items = Collections.unmodifiableCollection(items);
+    }
+
+    /**
+     * @return the items watched
+     */
+    public Collection<Item> getItems() {
+        return items;
+    }
+
+    /**
+     * Stop watching the items. An update already being delivered may
+     * still arrive.
+     */
+    @Override
+    public void close() {
+        cancelled = true;
+        hub.unsubscribe(this);
+    }
+
+    void offer(final Item item, final Bid bid) {
+        if(cancelled) return;
+
+        pending.merge(item, bid, SubscriptionHub::higher);
+        if(work.getAndIncrement() == 0) hub.dispatch(this::drain);
+    }
+
+    private void drain() {
+        int claimed = work.get();
+        do {
+            for(Item item : pending.keySet()) {
+                final Bid bid = pending.remove(item);
+                if(bid == null || cancelled) continue;
+
+                final Integer last = delivered.get(item);
+                if(last != null && last >= bid.value()) continue;
+                delivered.put(item, bid.value());
+
+                try {
+                    listener.priceChanged(item, bid);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Unable to deliver the price of " + item.getName(), e);
+                }
+            }
+        } while((claimed = work.addAndGet(-claimed)) != 0);
+    }
+}
@@ -0,0 +1,186 @@
+package com.byhiras.auction.notify;
+
+import com.byhiras.auction.BidListener;
+import com.byhiras.auction.RecoverableBidTracker;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The SubscriptionHub pushes winning bid changes to the listeners
+ * watching each item, in place of polling getCurrentWinningBid.
+ *
+ * The hub listens to a tracker. For an item nobody watches an
+ * accepted bid costs a single map lookup. For a watched item the bid
+ * replaces the item's latest bid and, unless one is already queued, a
+ * fan-out task is handed to the hub's own executor; the bidding
+ * thread never touches the subscribers, however many there are. The
+ * fan-out offers the latest bid to every subscription, each of which
+ * conflates it with anything it has yet to deliver.
+ *
+ * Winning bids only ever rise, so "latest" is simply the highest bid
+ * seen, whatever order the bidding threads report them in.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class SubscriptionHub implements BidListener, Closeable {
+
+    private final RecoverableBidTracker tracker;
+    private final ExecutorService executor;
+
+    private final ConcurrentMap<Item, Topic> topics = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+
+    /**
+     * Create a hub and start listening to a tracker.
+     *
+     * @param tracker the tracker whose winning bids are published
+     * @param threads the number of threads delivering updates
+     */
+    public SubscriptionHub(final RecoverableBidTracker tracker, final int threads) {
+        if(threads < 1) throw new RuntimeException("Unable to create a hub with " + threads + " threads.");
+
+        this.tracker = tracker;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "bid-subscriptions-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        tracker.addListener(this);
+    }
+
+    /**
+     * Watch the winning bids on some items. The current winning bid on
+     * each item that has one is delivered straight away.
+     *
+     * @param listener told about each change
+     * @param items the items to watch
+     * @return the subscription, to be closed when no longer wanted
+     */
+    public Subscription subscribe(final PriceListener listener, final Collection<Item> items) {
+        if(!running) throw new RuntimeException("Unable to subscribe as the hub has been closed.");
+        if(listener == null) throw new RuntimeException("Unable to subscribe without a listener.");
+
+        final Subscription subscription = new Subscription(this, listener, new ArrayList<>(items));
+
+        for(Item item : items) {
+            final Topic topic = topics.compute(item, (key, existing) -> {
+                final Topic added = existing == null ? new Topic(key) : existing;
+                added.subscriptions.add(subscription);
+                return added;
+            });
+
+            final Bid current = higher(topic.latest.get(), tracker.getCurrentWinningBid(item));
+            if(current != null) subscription.offer(item, current);
+        }
+        return subscription;
+    }
+
+    void unsubscribe(final Subscription subscription) {
+        for(Item item : subscription.getItems()) {
+            topics.computeIfPresent(item, (key, topic) -> {
+                topic.subscriptions.remove(subscription);
+                return topic.subscriptions.isEmpty() ? null : topic;
+            });
+        }
+    }
+
+    /**
+     * @param item
+     * @return the number of subscriptions watching the item
+     */
+    public int subscriberCount(final Item item) {
+        final Topic topic = topics.get(item);
+        return topic == null ? 0 : topic.subscriptions.size();
+    }
+
+    @Override
+    public void bidAccepted(final Item item, final Bid bid, final int sequence, final long timestamp) {
+        if(!running) return;
+
+        final Topic topic = topics.get(item);
+        if(topic == null) return;
+
+        Bid latest;
+        do {
+            latest = topic.latest.get();
+            if(latest != null && latest.value() >= bid.value()) break;
+        } while(!topic.latest.compareAndSet(latest, bid));
+
+        if(topic.work.getAndIncrement() == 0) dispatch(topic::fanOut);
+    }
+
+    void dispatch(final Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the hub has been closed, so the update is dropped
+        }
+    }
+
+    /**
+     * Stop delivering updates. Updates already handed to the executor
+     * are delivered first.
+     */
+    @Override
+    public void close() {
+        running = false;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static Bid higher(final Bid a, final Bid b) {
+        if(a == null) return b;
+        if(b == null) return a;
+        return b.value() > a.value() ? b : a;
+    }
+
+    /**
+     * The subscriptions to one item and its latest winning bid.
+     */
+    private static final class Topic {
+        private final Item item;
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Bid> latest = new AtomicReference<>();
+        private final AtomicInteger work = new AtomicInteger();
+
+        private Topic(final Item item) {
+            this.item = item;
+        }
+
+        private void fanOut() {
+            int claimed = work.get();
+            do {
+                final Bid bid = latest.get();
+                for(Subscription subscription : subscriptions) subscription.offer(item, bid);
+            } while((claimed = work.addAndGet(-claimed)) != 0);
+        }
+    }
+}
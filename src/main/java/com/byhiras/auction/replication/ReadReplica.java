@@ -0,0 +1,98 @@
+package com.byhiras.auction.replication;
+
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.BidTracker;
+import com.byhiras.auction.Page;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A read only BidTracker over a follower's replicated bids. It can be
+ * handed to an AuctionService to serve queries; every bid and close
+ * is refused, as those must go to the leader.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class ReadReplica implements BidTracker {
+
+    private final BidTracker tracker;
+    private final ReplicationFollower follower;
+
+    ReadReplica(final BidTracker tracker, final ReplicationFollower follower) {
+        this.tracker = tracker;
+        this.follower = follower;
+    }
+
+    /**
+     * @return how far, in milliseconds, the replica may be behind the leader
+     */
+    public long getStalenessMillis() {
+        return follower.getStalenessMillis();
+    }
+
+    @Override
+    public void registerBid(final Bid bid, final Item item) {
+        placeBid(bid, item);
+    }
+
+    @Override
+    public BidResult placeBid(final Bid bid, final Item item) {
+        throw new RuntimeException("Unable to place " + bid + " on a read replica; bids go to the leader.");
+    }
+
+    @Override
+    public BidResult placeProxyBid(final Bid maximum, final Item item) {
+        throw new RuntimeException("Unable to place " + maximum + " on a read replica; bids go to the leader.");
+    }
+
+    @Override
+    public Bid closeBidding(final Item item) {
+        throw new RuntimeException("Unable to close " + item + " on a read replica; it must be closed on the leader.");
+    }
+
+    @Override
+    public Bid getCurrentWinningBid(final Item item) {
+        return tracker.getCurrentWinningBid(item);
+    }
+
+    @Override
+    public List<Bid> getAllBids(final Item item) {
+        return tracker.getAllBids(item);
+    }
+
+    @Override
+    public List<Item> getAllItems(final User user) {
+        return tracker.getAllItems(user);
+    }
+
+    @Override
+    public List<Bid> getTopBids(final Item item, final int n) {
+        return tracker.getTopBids(item, n);
+    }
+
+    @Override
+    public Page<Bid> getBids(final Item item, final int cursor, final int limit) {
+        return tracker.getBids(item, cursor, limit);
+    }
+
+    @Override
+    public Page<Item> getItems(final User user, final int cursor, final int limit) {
+        return tracker.getItems(user, cursor, limit);
+    }
+
+    @Override
+    public Stream<Bid> streamBids(final Item item) {
+        return tracker.streamBids(item);
+    }
+
+    @Override
+    public List<Item> getWinningItems(final User user) {
+        return tracker.getWinningItems(user);
+    }
+}
@@ -0,0 +1,266 @@
+package com.byhiras.auction.replication;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.RecoverableBidTracker;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.RecordedBid;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.store.IdTable;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The ReplicationFollower keeps a local tracker in step with a
+ * ReplicationLeader, so that reads can be served by as many followers
+ * as they need without touching the leader.
+ *
+ * A single thread reads the leader's records and restores each bid
+ * into the tracker; items the auction does not have yet are added to
+ * it. If the connection is lost the follower keeps serving what it has
+ * and reconnects, catching up from the snapshot the leader sends
+ * first. Restoring a bid the tracker already holds does nothing, so
+ * the overlap does no harm.
+ *
+ * How stale the follower is comes from the leader's heartbeats: having
+ * applied a heartbeat the follower holds every bid the leader logged
+ * before it was sent. Staleness is measured against the leader's
+ * clock, so the hosts' clocks should be kept in step.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class ReplicationFollower implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(ReplicationFollower.class.getName());
+
+    public static final long DEFAULT_RETRY_MILLIS = 100;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private final InetSocketAddress leader;
+    private final Auction auction;
+    private final RecoverableBidTracker tracker;
+    private final long retryMillis;
+
+    private final ReadReplica replica;
+    private final Thread reader;
+
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+
+    // the leader time of the last heartbeat applied, guarded by progress for waiting
+    private final Object progress = new Object();
+    private volatile long appliedThrough = -1;
+
+    private volatile Socket socket;
+    private volatile boolean open = true;
+
+    public ReplicationFollower(final InetSocketAddress leader, final Auction auction, final RecoverableBidTracker tracker) {
+        this(leader, auction, tracker, DEFAULT_RETRY_MILLIS);
+    }
+
+    /**
+     * Start following a leader.
+     *
+     * @param leader where the leader listens for followers
+     * @param auction the catalogue the leader's items are added to
+     * @param tracker the tracker the leader's bids are restored into
+     * @param retryMillis how long to wait before reconnecting
+     */
+    public ReplicationFollower(final InetSocketAddress leader, final Auction auction,
+                               final RecoverableBidTracker tracker, final long retryMillis) {
+        this.leader = leader;
+        this.auction = auction;
+        this.tracker = tracker;
+        this.retryMillis = retryMillis;
+        this.replica = new ReadReplica(tracker, this);
+
+        reader = new Thread(this::follow, "replication-follower-" + leader.getPort());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * @return a read only view of the replicated bids
+     */
+    public ReadReplica getReplica() {
+        return replica;
+    }
+
+    /**
+     * @return how far, in milliseconds, the follower may be behind the
+     *         leader, or Long.MAX_VALUE before the first snapshot has
+     *         been applied
+     */
+    public long getStalenessMillis() {
+        final long through = appliedThrough;
+        return through < 0 ? Long.MAX_VALUE : Math.max(0, System.currentTimeMillis() - through);
+    }
+
+    /**
+     * Wait until the follower holds every bid the leader had accepted
+     * by a given time, for example to read a write just made.
+     *
+     * @param leaderMillis a time on the leader's clock
+     * @param timeoutMillis the longest to wait
+     * @return true iff the follower caught up in time
+     */
+    public boolean awaitCaughtUp(final long leaderMillis, final long timeoutMillis) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (progress) {
+            // a heartbeat only covers what was logged strictly before it
+            while(appliedThrough <= leaderMillis) {
+                final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if(remaining <= 0) return false;
+                progress.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of bid records applied, including any sent
+     *         again after reconnecting
+     */
+    public long applied() {
+        return applied.get();
+    }
+
+    /**
+     * @return the number of times the follower has connected to the leader
+     */
+    public long connections() {
+        return connections.get();
+    }
+
+    private void follow() {
+        while(open) {
+            try (Socket connection = new Socket()) {
+                socket = connection;
+                if(!open) return; // closed before the socket could be seen
+
+                connection.connect(leader, CONNECT_TIMEOUT_MILLIS);
+                connection.setTcpNoDelay(true);
+                connections.incrementAndGet();
+
+                apply(new DataInputStream(new BufferedInputStream(connection.getInputStream(), ReplicationProtocol.BUFFER_SIZE)));
+            } catch (IOException e) {
+                if(open) LOGGER.log(Level.FINE, "Lost the leader at " + leader, e);
+            }
+
+            if(!open) return;
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void apply(final DataInputStream in) throws IOException {
+        // ids are only good for the connection they were defined on
+        final IdTable<Item> items = new IdTable<>();
+        final IdTable<User> users = new IdTable<>();
+
+        while(true) {
+            final byte type = in.readByte();
+            switch(type) {
+                case ReplicationProtocol.ITEM: {
+                    final int id = in.readInt();
+                    final Item item = resolve(in.readUTF(), in.readInt(), in.readInt(), in.readLong());
+                    items.computeIfAbsent(id, ignored -> item);
+                    break;
+                }
+                case ReplicationProtocol.USER: {
+                    final int id = in.readInt();
+                    final User user = new AuctionUser(in.readUTF());
+                    users.computeIfAbsent(id, ignored -> user);
+                    break;
+                }
+                case ReplicationProtocol.BID: {
+                    final Item item = items.get(in.readInt());
+                    final User user = users.get(in.readInt());
+                    final int amount = in.readInt();
+                    final int sequence = in.readInt();
+                    final long timestamp = in.readLong();
+                    if(item == null || user == null)
+                        throw new IOException("The leader sent a bid before defining its item or user.");
+
+                    tracker.restoreBid(item, new RecordedBid(amount, user, timestamp), sequence, timestamp);
+                    applied.incrementAndGet();
+                    break;
+                }
+                case ReplicationProtocol.MAXIMUM: {
+                    final Item item = items.get(in.readInt());
+                    final int sequence = in.readInt();
+                    final int maximum = in.readInt();
+                    if(item == null) throw new IOException("The leader sent a maximum before defining its item.");
+
+                    tracker.restoreMaximum(item, sequence, maximum);
+                    break;
+                }
+                case ReplicationProtocol.CLOSED: {
+                    final Item item = items.get(in.readInt());
+                    if(item == null) throw new IOException("The leader closed an item before defining it.");
+
+                    tracker.restoreClosed(item);
+                    break;
+                }
+                case ReplicationProtocol.HEARTBEAT: {
+                    final long leaderTime = in.readLong();
+                    synchronized (progress) {
+                        appliedThrough = leaderTime;
+                        progress.notifyAll();
+                    }
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown replication record " + type);
+            }
+        }
+    }
+
+    private Item resolve(final String name, final int initial, final int reserve, final long closingTime) {
+        Item item = auction.find(name);
+        if(item == null) {
+            auction.add(new AuctionItem(name, initial, reserve, closingTime));
+            item = auction.find(name);
+        }
+        return item;
+    }
+
+    /**
+     * Stop following. The tracker keeps the bids already applied.
+     */
+    @Override
+    public void close() {
+        open = false;
+
+        final Socket current = socket;
+        try {
+            if(current != null) current.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to disconnect from the leader at " + leader, e);
+        } finally {
+            reader.interrupt();
+        }
+
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.byhiras.auction.replication;
+
+import com.byhiras.auction.BidListener;
+import com.byhiras.auction.BidVisitor;
+import com.byhiras.auction.RecoverableBidTracker;
+import com.byhiras.auction.Registry;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.RecordedBid;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The ReplicationLeader ships a tracker's accepted bids to follower
+ * processes, which apply them to trackers of their own and serve
+ * reads from them.
+ *
+ * Each follower that connects gets a link with its own bounded queue
+ * and sender thread. As a BidListener the leader only adds each
+ * accepted bid to every link's queue on the bidding thread; the
+ * sender writes a snapshot of the tracker and then drains its queue
+ * onto the socket in batches, each followed by a heartbeat. As the
+ * link is queued to before the snapshot is taken and a follower
+ * ignores bids it already holds, nothing falls between the two.
+ *
+ * A follower lists an item among a user's items when it restores the
+ * user's first bid on it, so the snapshot is sent in the order the bids
+ * were accepted rather than item by item. Bids made in the same
+ * millisecond go in the order of their user's own items on the leader,
+ * and each follower lists every user's items as the leader does.
+ *
+ * A follower that falls so far behind that its queue fills is
+ * disconnected rather than slowing the bidding down. It reconnects
+ * and catches up from a fresh snapshot.
+ *
+ * A proxy bidder's maximum is shipped whenever it is above the winning
+ * bid, after the bids in a snapshot, so a follower that takes over
+ * bids on their behalf as the leader would have. The close of an item
+ * is shipped too, so a follower that takes over rejects its bids.
+ *
+ * Items and users are written as ids from the leader's Registry, each
+ * defined once per link.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class ReplicationLeader implements BidListener, Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(ReplicationLeader.class.getName());
+
+    public static final long DEFAULT_HEARTBEAT_MILLIS = 50;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1 << 16;
+
+    private final RecoverableBidTracker tracker;
+    private final long heartbeatMillis;
+    private final int queueCapacity;
+
+    private final Registry registry = new Registry();
+    private final AtomicInteger linkCount = new AtomicInteger();
+
+    private final ServerSocket server;
+    private final Thread acceptor;
+
+    private volatile Link[] links = new Link[0];
+    private volatile boolean open = true;
+
+    public ReplicationLeader(final RecoverableBidTracker tracker, final InetSocketAddress address) {
+        this(tracker, address, DEFAULT_HEARTBEAT_MILLIS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Listen for followers and start logging the tracker's bids.
+     *
+     * @param tracker the tracker whose bids are replicated
+     * @param address where followers connect; port 0 picks a free port
+     * @param heartbeatMillis the longest a link goes without a heartbeat
+     * @param queueCapacity the most bids a follower may fall behind by
+     */
+    public ReplicationLeader(final RecoverableBidTracker tracker, final InetSocketAddress address,
+                             final long heartbeatMillis, final int queueCapacity) {
+        if(heartbeatMillis < 1)
+            throw new RuntimeException("Unable to replicate with a heartbeat of " + heartbeatMillis + "ms");
+        if(queueCapacity < 1)
+            throw new RuntimeException("Unable to replicate with a queue capacity of " + queueCapacity);
+
+        this.tracker = tracker;
+        this.heartbeatMillis = heartbeatMillis;
+        this.queueCapacity = queueCapacity;
+
+        try {
+            this.server = new ServerSocket();
+            server.bind(address);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to listen for followers on " + address, e);
+        }
+
+        tracker.addListener(this);
+
+        acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return where followers connect
+     */
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) server.getLocalSocketAddress();
+    }
+
+    /**
+     * @return the number of followers connected
+     */
+    public int followerCount() {
+        return links.length;
+    }
+
+    @Override
+    public void bidAccepted(final Item item, final Bid bid, final int sequence, final long timestamp) {
+        final Link[] current = links;
+        if(current.length == 0) return;
+
+        final Event event = new Event(item, bid, sequence, timestamp);
+        for(Link link : current) link.offer(event);
+    }
+
+    @Override
+    public void maximumRaised(final Item item, final int sequence, final int maximum) {
+        final Link[] current = links;
+        if(current.length == 0) return;
+
+        final Event event = new Event(ReplicationProtocol.MAXIMUM, item, sequence, maximum);
+        for(Link link : current) link.offer(event);
+    }
+
+    @Override
+    public void biddingClosed(final Item item) {
+        final Link[] current = links;
+        if(current.length == 0) return;
+
+        final Event event = new Event(ReplicationProtocol.CLOSED, item, -1, 0);
+        for(Link link : current) link.offer(event);
+    }
+
+    private void accept() {
+        while(open) {
+            try {
+                final Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+
+                final Link link = new Link(socket);
+                add(link);
+                link.start();
+            } catch (IOException e) {
+                if(open) LOGGER.log(Level.WARNING, "Unable to accept a follower on " + getAddress(), e);
+            }
+        }
+    }
+
+    private synchronized void add(final Link link) {
+        final Link[] added = Arrays.copyOf(links, links.length + 1);
+        added[links.length] = link;
+        links = added;
+    }
+
+    private synchronized void remove(final Link link) {
+        final List<Link> remaining = new ArrayList<>(Arrays.asList(links));
+        remaining.remove(link);
+        links = remaining.toArray(new Link[remaining.size()]);
+    }
+
+    /**
+     * Stop listening and disconnect every follower. The tracker keeps
+     * telling the leader about bids but they go nowhere.
+     */
+    @Override
+    public void close() {
+        open = false;
+
+        try {
+            server.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to stop listening on " + getAddress(), e);
+        }
+
+        try {
+            acceptor.join();
+            for(Link link : links) {
+                link.close();
+                link.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * An accepted bid, a proxy bidder's maximum or the close of an item,
+     * waiting to be sent.
+     */
+    private static final class Event {
+        private final byte type;
+        private final Item item;
+        private final Bid bid; // null unless a bid
+        private final int sequence;
+        private final long timestamp;
+        private final int maximum;
+
+        private Event(final Item item, final Bid bid, final int sequence, final long timestamp) {
+            this.type = ReplicationProtocol.BID;
+            this.item = item;
+            this.bid = bid;
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.maximum = 0;
+        }
+
+        private Event(final byte type, final Item item, final int sequence, final int maximum) {
+            this.type = type;
+            this.item = item;
+            this.bid = null;
+            this.sequence = sequence;
+            this.timestamp = 0;
+            this.maximum = maximum;
+        }
+    }
+
+    /**
+     * The connection to one follower.
+     */
+    private final class Link {
+        private final Socket socket;
+        private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final Thread thread;
+
+        // sender only
+        private final BitSet sentItems = new BitSet();
+        private final BitSet sentUsers = new BitSet();
+        private DataOutputStream out;
+
+        private volatile boolean dropped;
+
+        private Link(final Socket socket) {
+            this.socket = socket;
+            this.thread = new Thread(this::send, "replication-link-" + linkCount.incrementAndGet());
+            thread.setDaemon(true);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        private void offer(final Event event) {
+            if(queue.offer(event) || dropped) return;
+
+            dropped = true;
+            LOGGER.log(Level.WARNING, "Dropping the follower at " + socket.getRemoteSocketAddress()
+                                      + " as it is more than " + queueCapacity + " bids behind.");
+            close();
+        }
+
+        private void send() {
+            try {
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), ReplicationProtocol.BUFFER_SIZE));
+
+                final long snapshotTime = System.currentTimeMillis();
+                snapshot();
+                heartbeat(snapshotTime);
+
+                final List<Event> batch = new ArrayList<>();
+                while(open && !dropped) {
+                    final Event first = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    // everything queued before now is drained below, even after an idle poll
+                    final long now = System.currentTimeMillis();
+
+                    if(first != null) batch.add(first);
+                    queue.drainTo(batch);
+                    for(Event event : batch) write(event);
+                    batch.clear();
+                    heartbeat(now);
+                }
+            } catch (IOException e) {
+                if(open && !dropped) LOGGER.log(Level.INFO, "Lost the follower at " + socket.getRemoteSocketAddress(), e);
+            } catch (InterruptedException e) {
+                // closing
+            } finally {
+                remove(this);
+                close();
+            }
+        }
+
+        private void snapshot() throws IOException {
+            final List<Event> bids = new ArrayList<>();
+            final List<Event> maxima = new ArrayList<>();
+            final List<Event> closed = new ArrayList<>();
+            tracker.exportBids(new BidVisitor() {
+                private Item current;
+                private int count;
+                private int winning;
+
+                @Override
+                public void visitItem(final Item item, final int bidCount) {
+                    current = item;
+                    count = bidCount;
+                }
+
+                @Override
+                public void visitBid(final int sequence, final int amount, final User user, final long timestamp) {
+                    bids.add(new Event(current, new RecordedBid(amount, user, timestamp), sequence, timestamp));
+                    winning = amount;
+                }
+
+                @Override
+                public void visitMaximum(final int maximum) {
+                    if(count > 0 && maximum > winning) maxima.add(new Event(ReplicationProtocol.MAXIMUM, current, count - 1, maximum));
+                }
+
+                @Override
+                public void visitClosed(final boolean isClosed) {
+                    if(isClosed) closed.add(new Event(ReplicationProtocol.CLOSED, current, -1, 0));
+                }
+            });
+
+            final Map<User, Map<Item, Integer>> positions = new HashMap<>();
+            bids.sort(Comparator.<Event>comparingLong(event -> event.timestamp)
+                                .thenComparingInt(event -> position(positions, event.bid.getUser(), event.item)));
+
+            for(Event event : bids) write(event);
+            for(Event event : maxima) write(event);
+            for(Event event : closed) write(event);
+        }
+
+        /**
+         * @return where the item comes in the user's items on the leader
+         */
+        private int position(final Map<User, Map<Item, Integer>> positions, final User user, final Item item) {
+            final Map<Item, Integer> items = positions.computeIfAbsent(user, bidder -> {
+                final Map<Item, Integer> indexed = new HashMap<>();
+                for(Item bidOn : tracker.getAllItems(bidder)) indexed.putIfAbsent(bidOn, indexed.size());
+                return indexed;
+            });
+            return items.getOrDefault(item, Integer.MAX_VALUE);
+        }
+
+        private void write(final Event event) throws IOException {
+            final int itemId = define(event.item);
+            if(event.type == ReplicationProtocol.CLOSED) {
+                out.writeByte(ReplicationProtocol.CLOSED);
+                out.writeInt(itemId);
+                return;
+            }
+            if(event.type == ReplicationProtocol.MAXIMUM) {
+                out.writeByte(ReplicationProtocol.MAXIMUM);
+                out.writeInt(itemId);
+                out.writeInt(event.sequence);
+                out.writeInt(event.maximum);
+                return;
+            }
+
+            final User user = event.bid.getUser();
+            final int userId = registry.register(user);
+            if(!sentUsers.get(userId)) {
+                out.writeByte(ReplicationProtocol.USER);
+                out.writeInt(userId);
+                out.writeUTF(user.getName());
+                sentUsers.set(userId);
+            }
+
+            out.writeByte(ReplicationProtocol.BID);
+            out.writeInt(itemId);
+            out.writeInt(userId);
+            out.writeInt(event.bid.value());
+            out.writeInt(event.sequence);
+            out.writeLong(event.timestamp);
+        }
+
+        /**
+         * @return the item's id, sending its definition first if this link has not had it
+         */
+        private int define(final Item item) throws IOException {
+            final int itemId = registry.register(item);
+            if(!sentItems.get(itemId)) {
+                out.writeByte(ReplicationProtocol.ITEM);
+                out.writeInt(itemId);
+                out.writeUTF(item.getName());
+                out.writeInt(item.getInitial());
+                out.writeInt(item.getReserve());
+                out.writeLong(item.getClosingTime());
+                sentItems.set(itemId);
+            }
+            return itemId;
+        }
+
+        private void heartbeat(final long leaderTime) throws IOException {
+            out.writeByte(ReplicationProtocol.HEARTBEAT);
+            out.writeLong(leaderTime);
+            out.flush();
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Unable to close the link to " + socket.getRemoteSocketAddress(), e);
+            }
+            thread.interrupt();
+        }
+    }
+}
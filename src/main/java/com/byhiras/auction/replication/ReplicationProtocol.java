@@ -0,0 +1,38 @@
+package com.byhiras.auction.replication;
+
+/**
+ * The records a ReplicationLeader streams to its followers.
+ *
+ * Every record is a one byte type followed by its fields, big-endian,
+ * with names as modified UTF-8:
+ *
+ *   ITEM       int id, name, int initial, int reserve, long closing time
+ *   USER       int id, name
+ *   BID        int item id, int user id, int amount, int sequence, long timestamp
+ *   HEARTBEAT  long leader time
+ *   MAXIMUM    int item id, int sequence, int maximum
+ *   CLOSED     int item id
+ *
+ * An item or user is defined once per connection, before the first bid
+ * that refers to it. A connection starts with a snapshot of every bid
+ * the leader holds and carries on with each bid as it is accepted. A
+ * HEARTBEAT follows every batch of bids and is sent on its own when
+ * there are none; once a follower has applied it the follower holds
+ * every bid the leader had logged before that time.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class ReplicationProtocol {
+
+    static final byte ITEM = 1;
+    static final byte USER = 2;
+    static final byte BID = 3;
+    static final byte HEARTBEAT = 4;
+    static final byte MAXIMUM = 5;
+    static final byte CLOSED = 6;
+
+    static final int BUFFER_SIZE = 64 << 10;
+
+    private ReplicationProtocol() {
+    }
+}
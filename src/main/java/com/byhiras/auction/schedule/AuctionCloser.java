@@ -0,0 +1,158 @@
+package com.byhiras.auction.schedule;
+
+import com.byhiras.auction.BidTracker;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The AuctionCloser closes items at their closing times and settles
+ * them against their reserves.
+ *
+ * Items are handed over through a lock-free queue and filed by a
+ * single thread in a hierarchical TimerWheel, so scheduling costs the
+ * caller one enqueue and millions of items can be waiting at once.
+ * Each tick the thread turns the wheel and closes every item that is
+ * due. Closing an item is a single compare-and-set in the tracker,
+ * after which its bids are rejected as CLOSED, so thousands of items
+ * closing together never hold up bidding on the others.
+ *
+ * An item is closed within one tick of its closing time. Items whose
+ * closing time has already passed, for example when an auction is
+ * restored, are closed on the next tick.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class AuctionCloser implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(AuctionCloser.class.getName());
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    private final BidTracker tracker;
+    private final long tickMillis;
+
+    private final Queue<Item> scheduled = new ConcurrentLinkedQueue<>();
+    private final TimerWheel<Item> wheel;
+    private final Thread thread;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile SettlementListener[] listeners = new SettlementListener[0];
+
+    private volatile boolean running = true;
+
+    public AuctionCloser(final BidTracker tracker) {
+        this(tracker, DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * @param tracker the tracker whose items are closed
+     * @param tickMillis how often the wheel turns, which is also how
+     *                   late an item may be closed
+     */
+    public AuctionCloser(final BidTracker tracker, final long tickMillis) {
+        if(tickMillis < 1) throw new RuntimeException("Unable to close auctions with a tick of " + tickMillis + "ms.");
+
+        this.tracker = tracker;
+        this.tickMillis = tickMillis;
+        this.wheel = new TimerWheel<>(System.currentTimeMillis() / tickMillis);
+        this.thread = new Thread(this::closeDueItems, "auction-closer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public synchronized void addListener(final SettlementListener listener) {
+        final SettlementListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+        added[listeners.length] = listener;
+        listeners = added;
+    }
+
+    /**
+     * Close an item at its closing time. Items that never close are
+     * ignored.
+     *
+     * @param item the item to close
+     */
+    public void schedule(final Item item) {
+        if(!running) throw new RuntimeException("Unable to schedule " + item.getName() + " as the closer has been closed.");
+
+        if(item.getClosingTime() == Item.NEVER) return;
+
+        pending.incrementAndGet();
+        scheduled.offer(item);
+    }
+
+    private void closeDueItems() {
+        while(running) {
+            try {
+                turn();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Unable to close the auctions due", e);
+            }
+
+            final long now = System.currentTimeMillis();
+            final long nextTick = (now / tickMillis + 1) * tickMillis;
+            try {
+                TimeUnit.MILLISECONDS.sleep(Math.max(1, nextTick - now));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void turn() {
+        Item item;
+        while((item = scheduled.poll()) != null) {
+            // round up so an item is never closed early
+            final long deadline = (item.getClosingTime() + tickMillis - 1) / tickMillis;
+            if(!wheel.add(item, deadline)) settle(item);
+        }
+
+        wheel.advance(System.currentTimeMillis() / tickMillis, this::settle);
+    }
+
+    private void settle(final Item item) {
+        pending.decrementAndGet();
+
+        final Settlement settlement = new Settlement(item, tracker.closeBidding(item), System.currentTimeMillis());
+
+        for(SettlementListener listener : listeners) {
+            try {
+                listener.settled(settlement);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Unable to tell a listener that " + item.getName() + " settled", e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of items waiting to close
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    /**
+     * Stop closing items. Items still waiting are left open.
+     */
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
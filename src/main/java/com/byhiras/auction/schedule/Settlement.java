@@ -0,0 +1,57 @@
+package com.byhiras.auction.schedule;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.util.Immutable;
+
+/**
+ * The result of closing an item: the bid that won, if any, and
+ * whether it met the reserve.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public class Settlement {
+
+    private final Item item;
+    private final Bid winningBid;
+    private final SettlementOutcome outcome;
+    private final long closedAt;
+
+    public Settlement(final Item item, final Bid winningBid, final long closedAt) {
+        this.item = item;
+        this.winningBid = winningBid;
+        this.closedAt = closedAt;
+
+        if(winningBid == null) outcome = SettlementOutcome.NO_BIDS;
+        else if(winningBid.value() >= item.getReserve()) outcome = SettlementOutcome.SOLD;
+        else outcome = SettlementOutcome.RESERVE_NOT_MET;
+    }
+
+    public Item getItem() {
+        return item;
+    }
+
+    /**
+     * @return the highest bid or null if there were no bids
+     */
+    public Bid getWinningBid() {
+        return winningBid;
+    }
+
+    public SettlementOutcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return when the item was closed, in milliseconds since the epoch
+     */
+    public long getClosedAt() {
+        return closedAt;
+    }
+
+    @Override
+    public String toString() {
+        return item.getName() + " " + outcome + (winningBid == null ? "" : " at " + winningBid.value());
+    }
+}
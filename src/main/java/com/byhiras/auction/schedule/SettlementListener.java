@@ -0,0 +1,11 @@
+package com.byhiras.auction.schedule;
+
+/**
+ * Told about every item the AuctionCloser closes, on the closer's
+ * thread. Listeners should hand any slow work elsewhere so that items
+ * closing at the same time are not held up.
+ */
+public interface SettlementListener {
+
+    void settled(Settlement settlement);
+}
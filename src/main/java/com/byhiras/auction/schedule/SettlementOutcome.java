@@ -0,0 +1,22 @@
+package com.byhiras.auction.schedule;
+
+/**
+ * How an item's auction ended.
+ */
+public enum SettlementOutcome {
+
+    /**
+     * The winning bid met the item's reserve.
+     */
+    SOLD,
+
+    /**
+     * There were bids but the highest was below the item's reserve.
+     */
+    RESERVE_NOT_MET,
+
+    /**
+     * Nobody bid on the item.
+     */
+    NO_BIDS
+}
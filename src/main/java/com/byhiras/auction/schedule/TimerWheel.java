@@ -0,0 +1,121 @@
+package com.byhiras.auction.schedule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel. Time is counted in ticks and each
+ * level is a wheel of 256 buckets, every bucket of a level spanning a
+ * whole turn of the level below. A timer is filed in the lowest level
+ * that can hold its deadline and, as the wheel turns, the timers in a
+ * higher level bucket are moved down a level when the level below
+ * wraps around to it. Adding a timer and firing it are O(1) however
+ * many timers are waiting.
+ *
+ * Not thread safe; the AuctionCloser only touches it from its own
+ * thread.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+final class TimerWheel<T> {
+
+    private static final int BITS = 8;
+    private static final int SIZE = 1 << BITS;
+    private static final int MASK = SIZE - 1;
+    private static final int LEVELS = (Long.SIZE + BITS - 1) / BITS;
+
+    private final List<List<Timer<T>>> buckets = new ArrayList<>(LEVELS * SIZE);
+
+    private long tick;
+    private int size;
+
+    /**
+     * @param tick the tick the wheel starts at
+     */
+    TimerWheel(final long tick) {
+        this.tick = tick;
+        for(int i = 0; i < LEVELS * SIZE; i++) buckets.add(new ArrayList<Timer<T>>(0));
+    }
+
+    /**
+     * @param value what to hand back when the timer fires
+     * @param deadline the tick at which it fires
+     * @return false if the deadline has already been reached, in which
+     *         case the timer was not added
+     */
+    boolean add(final T value, final long deadline) {
+        if(deadline <= tick) return false;
+
+        file(new Timer<>(value, deadline));
+        size++;
+        return true;
+    }
+
+    /**
+     * Turn the wheel up to and including a tick, handing over the value
+     * of every timer whose deadline is passed on the way.
+     *
+     * @param to the tick to turn to
+     * @param expired given each value that fires
+     */
+    void advance(final long to, final Consumer<T> expired) {
+        while(tick < to) {
+            tick++;
+
+            // move timers down from each level whose lower level has just wrapped
+            for(int level = 1; level < LEVELS && (tick & ((1L << (BITS * level)) - 1)) == 0; level++) {
+                final List<Timer<T>> cascading = swap(level, (int) (tick >>> (BITS * level)) & MASK);
+                for(Timer<T> timer : cascading) {
+                    if(timer.deadline <= tick) fire(timer, expired);
+                    else file(timer);
+                }
+            }
+
+            for(Timer<T> timer : swap(0, (int) tick & MASK)) fire(timer, expired);
+        }
+    }
+
+    /**
+     * @return the number of timers waiting
+     */
+    int size() {
+        return size;
+    }
+
+    long tick() {
+        return tick;
+    }
+
+    private void file(final Timer<T> timer) {
+        final long delta = timer.deadline - tick;
+
+        int level = 0;
+        while(level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) level++;
+
+        buckets.get(level * SIZE + ((int) (timer.deadline >>> (BITS * level)) & MASK)).add(timer);
+    }
+
+    private List<Timer<T>> swap(final int level, final int index) {
+        final List<Timer<T>> bucket = buckets.get(level * SIZE + index);
+        if(bucket.isEmpty()) return bucket;
+
+        buckets.set(level * SIZE + index, new ArrayList<Timer<T>>(0));
+        return bucket;
+    }
+
+    private void fire(final Timer<T> timer, final Consumer<T> expired) {
+        size--;
+        expired.accept(timer.value);
+    }
+
+    private static final class Timer<T> {
+        private final T value;
+        private final long deadline;
+
+        private Timer(final T value, final long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.byhiras.auction.search;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.BidListener;
+import com.byhiras.auction.BidVisitor;
+import com.byhiras.auction.CatalogueListener;
+import com.byhiras.auction.Page;
+import com.byhiras.auction.RecoverableBidTracker;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * ItemSearch finds items in an auction by the start of their name or
+ * by the words in it, a page at a time, sorted by name, price or the
+ * number of bids.
+ *
+ * Names are indexed ignoring case in a ConcurrentSkipListMap, so the
+ * items with a given prefix are one contiguous range of it, found in
+ * O(log n) and walked in name order. Each word of a name is an entry
+ * in an inverted index from the word to the items whose names contain
+ * it; a keyword search walks the smallest of its words' entries and
+ * checks the others. Both are kept up to date as a CatalogueListener
+ * of the auction, without locking anything. An item is looked up in
+ * the auction again once indexed, so one removed while it was being
+ * added does not stay behind.
+ *
+ * Each item's price and bid count are raised by compare-and-set as a
+ * BidListener of the tracker, so sorting needs no calls back into the
+ * tracker. A page sorted by price or bid count keeps only the best
+ * cursor + limit matches in a heap while walking the matches, so the
+ * cost is in the number of matches, not the size of the catalogue. As
+ * prices move between pages, a later page may repeat or skip an item.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class ItemSearch implements CatalogueListener, BidListener {
+
+    private static final Pattern WORD_BREAK = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // separates the lower case name from the name in a key, below any character
+    private static final char SEPARATOR = '\u0000';
+
+    private final ConcurrentMap<Item, Entry> entries = new ConcurrentHashMap<>(100, 0.75f);
+    private final ConcurrentSkipListMap<String, Entry> names = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Set<Entry>> words = new ConcurrentHashMap<>(100, 0.75f);
+
+    private final Auction auction;
+
+    /**
+     * Index the auction's items and the tracker's bids, and keep
+     * indexing both as they change.
+     *
+     * @param auction the catalogue searched
+     * @param tracker where the prices and bid counts come from
+     */
+    public ItemSearch(final Auction auction, final RecoverableBidTracker tracker) {
+
+        this.auction = auction;
+
+        // listen first so nothing is missed; indexing twice does no harm
+        auction.addListener(this);
+        for(Item item : auction.getItems()) itemAdded(item);
+
+        tracker.addListener(this);
+        tracker.exportBids(new BidVisitor() {
+            private Item item;
+
+            @Override
+            public void visitItem(final Item item, final int bidCount) {
+                this.item = item;
+            }
+
+            @Override
+            public void visitBid(final int sequence, final int amount, final User user, final long timestamp) {
+                record(item, sequence, amount);
+            }
+        });
+    }
+
+    @Override
+    public void itemAdded(final Item item) {
+        Entry entry = entries.get(item);
+        if(entry == null) entry = entries.computeIfAbsent(item, Entry::new);
+
+        names.put(entry.key, entry);
+        for(String word : words(item.getName())) {
+            Set<Entry> entries = words.get(word);
+            if(entries == null) entries = words.computeIfAbsent(word, ignored -> ConcurrentHashMap.newKeySet());
+            entries.add(entry);
+        }
+
+        // removed while this was indexing it, perhaps already taken out of
+        // entries by that removal, so undo what was indexed here
+        if(auction.find(item.getName()) != item) {
+            entries.remove(item, entry);
+            unindex(entry);
+        }
+    }
+
+    @Override
+    public void itemRemoved(final Item item) {
+        final Entry entry = entries.remove(item);
+        if(entry != null) unindex(entry);
+    }
+
+    private void unindex(final Entry entry) {
+        names.remove(entry.key, entry);
+        for(String word : words(entry.item.getName())) {
+            final Set<Entry> entries = words.get(word);
+            if(entries != null) entries.remove(entry);
+        }
+    }
+
+    /**
+     * @return true iff the entry has not been removed, which a search
+     *         that met it in an index while it was going may not know
+     */
+    private boolean isLive(final Entry entry) {
+        return entries.get(entry.item) == entry;
+    }
+
+    @Override
+    public void bidAccepted(final Item item, final Bid bid, final int sequence, final long timestamp) {
+        record(item, sequence, bid.value());
+    }
+
+    /**
+     * Raise an indexed item's figures; an item that is not indexed, or
+     * no longer is, is not brought back by a bid.
+     */
+    private void record(final Item item, final int sequence, final int value) {
+        final Entry entry = entries.get(item);
+        if(entry != null) entry.record(sequence, value);
+    }
+
+    /**
+     * Find the items whose names start with a prefix, ignoring case.
+     *
+     * @param prefix the start of the name; empty matches every item
+     * @param order how the matches are sorted
+     * @param cursor 0 for the first page, then the next cursor of the previous page
+     * @param limit the most items to return
+     * @return the page of items
+     */
+    public Page<Item> findByPrefix(final String prefix, final SortOrder order, final int cursor, final int limit) {
+        checkPage(cursor, limit);
+
+        final String from = lowerCase(prefix);
+        final ConcurrentNavigableMap<String, Entry> matches = names.subMap(from, true, from + Character.MAX_VALUE, false);
+
+        if(order != SortOrder.NAME) return select(matches.values(), order, cursor, limit);
+
+        // already in name order, so only the page itself is walked
+        final List<Item> page = new ArrayList<>(Math.min(limit, 64));
+        int position = 0;
+        for(Entry entry : matches.values()) {
+            if(!isLive(entry)) continue;
+            if(position++ < cursor) continue;
+            if(page.size() == limit) return new Page<>(page, cursor + page.size(), true);
+            page.add(entry.item);
+        }
+        return new Page<>(page, cursor + page.size(), false);
+    }
+
+    /**
+     * Find the items whose names contain every word of a query,
+     * ignoring case and punctuation.
+     *
+     * @param query the words to look for
+     * @param order how the matches are sorted
+     * @param cursor 0 for the first page, then the next cursor of the previous page
+     * @param limit the most items to return
+     * @return the page of items
+     */
+    public Page<Item> findByKeywords(final String query, final SortOrder order, final int cursor, final int limit) {
+        checkPage(cursor, limit);
+
+        final List<Set<Entry>> postings = new ArrayList<>();
+        for(String word : words(query)) {
+            final Set<Entry> entries = words.get(word);
+            if(entries == null || entries.isEmpty()) return new Page<>(new ArrayList<Item>(), cursor, false);
+            postings.add(entries);
+        }
+        if(postings.isEmpty()) return new Page<>(new ArrayList<Item>(), cursor, false);
+
+        Set<Entry> smallest = postings.get(0);
+        for(Set<Entry> entries : postings) {
+            if(entries.size() < smallest.size()) smallest = entries;
+        }
+
+        final List<Entry> matches = new ArrayList<>();
+        for(Entry entry : smallest) {
+            boolean all = true;
+            for(Set<Entry> entries : postings) {
+                if(entries != smallest && !entries.contains(entry)) {
+                    all = false;
+                    break;
+                }
+            }
+            if(all) matches.add(entry);
+        }
+        return select(matches, order, cursor, limit);
+    }
+
+    /**
+     * Sort the matches and take a page of them, keeping only the best
+     * cursor + limit while walking them. Each figure is read once, when
+     * its item joins the heap, so the heap is never reordered under it.
+     */
+    private Page<Item> select(final Iterable<Entry> matches, final SortOrder order, final int cursor, final int limit) {
+        final Comparator<Hit> best = comparator(order);
+        final int keep = (int) Math.min((long) cursor + limit, Integer.MAX_VALUE);
+
+        // the worst of the kept hits at the head
+        final PriorityQueue<Hit> kept = new PriorityQueue<>(Math.max(1, Math.min(keep, 1024)), best.reversed());
+        int matched = 0;
+        for(Entry entry : matches) {
+            if(!isLive(entry)) continue;
+            matched++;
+            if(keep == 0) continue;
+
+            final int score = order == SortOrder.PRICE ? entry.price() : entry.bidCount();
+            if(kept.size() < keep) {
+                kept.add(new Hit(entry, score));
+            } else if(beats(order, entry, score, kept.peek())) {
+                kept.poll();
+                kept.add(new Hit(entry, score));
+            }
+        }
+
+        final List<Hit> sorted = new ArrayList<>(kept);
+        Collections.sort(sorted, best);
+
+        final List<Item> page = new ArrayList<>(Math.max(0, sorted.size() - cursor));
+        for(int i = cursor; i < sorted.size(); i++) page.add(sorted.get(i).entry.item);
+
+        final int next = cursor + page.size();
+        return new Page<>(page, next, next < matched);
+    }
+
+    /**
+     * The same test as the comparator, without making a Hit first.
+     */
+    private static boolean beats(final SortOrder order, final Entry entry, final int score, final Hit worst) {
+        if(order != SortOrder.NAME && score != worst.score) return score > worst.score;
+        return entry.key.compareTo(worst.entry.key) < 0;
+    }
+
+    private static Comparator<Hit> comparator(final SortOrder order) {
+        final Comparator<Hit> byName = Comparator.comparing(hit -> hit.entry.key);
+        if(order == SortOrder.NAME) return byName;
+        return Comparator.comparingInt((Hit hit) -> hit.score).reversed().thenComparing(byName);
+    }
+
+    private static void checkPage(final int cursor, final int limit) {
+        if(cursor < 0 || limit < 0)
+            throw new RuntimeException("Unable to search from " + cursor + " for " + limit + " items.");
+    }
+
+    private static Set<String> words(final String text) {
+        final Set<String> words = new LinkedHashSet<>();
+        if(text == null) return words;
+
+        for(String word : WORD_BREAK.split(lowerCase(text))) {
+            if(!word.isEmpty()) words.add(word);
+        }
+        return words;
+    }
+
+    private static String lowerCase(final String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * An indexed item with its running figures, which only ever go up.
+     */
+    private static final class Entry {
+        private final Item item;
+        private final String key;
+
+        private final AtomicInteger bidCount = new AtomicInteger();
+        private final AtomicInteger price = new AtomicInteger();
+
+        private Entry(final Item item) {
+            this.item = item;
+            this.key = lowerCase(item.getName()) + SEPARATOR + item.getName();
+        }
+
+        private void record(final int sequence, final int value) {
+            raise(bidCount, sequence + 1);
+            raise(price, value);
+        }
+
+        private int bidCount() {
+            return bidCount.get();
+        }
+
+        private int price() {
+            return price.get();
+        }
+
+        private static void raise(final AtomicInteger figure, final int value) {
+            int current;
+            while((current = figure.get()) < value) {
+                if(figure.compareAndSet(current, value)) return;
+            }
+        }
+    }
+
+    /**
+     * A match with the figure it is sorted by, read once.
+     */
+    private static final class Hit {
+        private final Entry entry;
+        private final int score;
+
+        private Hit(final Entry entry, final int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+}
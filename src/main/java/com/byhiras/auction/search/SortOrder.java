@@ -0,0 +1,24 @@
+package com.byhiras.auction.search;
+
+/**
+ * How search results are ordered. Ties are broken by name.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+public enum SortOrder {
+
+    /**
+     * By name, ignoring case.
+     */
+    NAME,
+
+    /**
+     * Highest current price first; items without bids have a price of 0.
+     */
+    PRICE,
+
+    /**
+     * Most bids first.
+     */
+    BID_COUNT
+}
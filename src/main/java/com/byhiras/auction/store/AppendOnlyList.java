@@ -0,0 +1,79 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free list that can only be appended to, with constant time
+ * access by index. Like the BidHistory it is split into chunks that
+ * double in size, so it never copies what it already holds.
+ *
+ * An index is claimed before its element is stored, so a reader that
+ * asks for an index just claimed by a writer waits for the element.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public final class AppendOnlyList<T> {
+
+    private static final int FIRST_CHUNK_BITS = 2;
+    private static final int MAX_CHUNKS = 32 - FIRST_CHUNK_BITS;
+
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    /**
+     * @param element the element to append, which must not be null
+     * @return the index of the element
+     */
+    public int add(final T element) {
+        if(element == null) throw new RuntimeException("Unable to add a null element.");
+
+        final int index = size.getAndIncrement();
+        final int chunk = chunkIndex(index);
+        chunk(chunk).set(index - chunkStart(chunk), element);
+        return index;
+    }
+
+    /**
+     * @param index an index below {@link #size()}
+     * @return the element at that index
+     */
+    public T get(final int index) {
+        final int chunk = chunkIndex(index);
+        final int offset = index - chunkStart(chunk);
+
+        AtomicReferenceArray<T> elements;
+        while((elements = chunks.get(chunk)) == null) Thread.yield();
+
+        T element;
+        while((element = elements.get(offset)) == null) Thread.yield();
+        return element;
+    }
+
+    /**
+     * @return the number of elements added, or being added
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private AtomicReferenceArray<T> chunk(final int index) {
+        AtomicReferenceArray<T> chunk = chunks.get(index);
+        if(chunk == null) {
+            final AtomicReferenceArray<T> created = new AtomicReferenceArray<>(1 << (index + FIRST_CHUNK_BITS));
+            chunk = chunks.compareAndSet(index, null, created) ? created : chunks.get(index);
+        }
+        return chunk;
+    }
+
+    private static int chunkIndex(final int index) {
+        return 31 - Integer.numberOfLeadingZeros((index >>> FIRST_CHUNK_BITS) + 1);
+    }
+
+    private static int chunkStart(final int chunk) {
+        return ((1 << chunk) - 1) << FIRST_CHUNK_BITS;
+    }
+}
@@ -0,0 +1,237 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.RecordedBid;
+import com.byhiras.auction.util.Immutable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The compacted bid history of an item that has stopped taking bids.
+ *
+ * The bids are packed into a single byte array in the order they were
+ * accepted. Each is three varints: the rise in amount over the bid
+ * before, and the zigzag encoded change in user id and in timestamp.
+ * Amounts only go up and bids close together in time tend to come from
+ * a few users, so most bids take four to six bytes rather than the
+ * objects they were held as while the item was open.
+ *
+ * Every CHECKPOINT bids the offset and absolute values are kept aside,
+ * so a range of bids is decoded from the checkpoint before it rather
+ * than from the start. The highest bid is held as it was made, and
+ * stands in for the last bid decoded; the others come back as
+ * RecordedBids.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public final class BidArchive {
+
+    static final int CHECKPOINT = 64;
+
+    private final byte[] bids;
+    private final int size;
+    private final Bid highest;
+    private final UserIds users;
+
+    private final int[] offsets;
+    private final int[] amounts;
+    private final int[] userIds;
+    private final long[] timestamps;
+
+    private BidArchive(final Builder builder, final Bid highest) {
+        this.bids = Arrays.copyOf(builder.bids, builder.length);
+        this.size = builder.size;
+        this.highest = highest;
+        this.users = builder.users;
+
+        final int checkpoints = (size + CHECKPOINT - 1) / CHECKPOINT;
+        this.offsets = Arrays.copyOf(builder.offsets, checkpoints);
+        this.amounts = Arrays.copyOf(builder.amounts, checkpoints);
+        this.userIds = Arrays.copyOf(builder.userIds, checkpoints);
+        this.timestamps = Arrays.copyOf(builder.timestamps, checkpoints);
+    }
+
+    /**
+     * @return the number of bids
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the highest bid or null if there are none
+     */
+    public Bid highest() {
+        return highest;
+    }
+
+    /**
+     * @return the number of bytes the bids are packed into
+     */
+    public int encodedBytes() {
+        return bids.length;
+    }
+
+    /**
+     * @param n the most bids to return
+     * @return the highest bids, highest first
+     */
+    public List<Bid> top(final int n) {
+        final int count = Math.min(Math.max(n, 0), size);
+        final List<Bid> bids = range(size - count, size);
+
+        // each bid is higher than the one before, so the last are the highest
+        final List<Bid> highestFirst = new ArrayList<>(bids.size());
+        for(int i = bids.size() - 1; i >= 0; i--) highestFirst.add(bids.get(i));
+        return highestFirst;
+    }
+
+    /**
+     * @param from the position of the first bid, in the order they were made
+     * @param to the position after the last bid
+     * @return the bids in that range, oldest first
+     */
+    public List<Bid> range(final int from, final int to) {
+        final int start = Math.max(from, 0);
+        final int end = Math.min(to, size);
+        final List<Bid> range = new ArrayList<>(Math.max(0, end - start));
+        if(start >= end) return range;
+
+        final int checkpoint = start / CHECKPOINT;
+        final Cursor cursor = new Cursor(offsets[checkpoint]);
+        int amount = amounts[checkpoint];
+        int userId = userIds[checkpoint];
+        long timestamp = timestamps[checkpoint];
+
+        // the checkpoint holds its bid's own values, the rest are read as changes
+        cursor.skipBid();
+        for(int position = checkpoint * CHECKPOINT; position < end; position++) {
+            if(position > checkpoint * CHECKPOINT) {
+                amount += (int) cursor.readVarint();
+                userId += (int) zigzag(cursor.readVarint());
+                timestamp += zigzag(cursor.readVarint());
+            }
+            if(position < start) continue;
+
+            range.add(position == size - 1 && highest != null ? highest : new RecordedBid(amount, users.userOf(userId), timestamp));
+        }
+        return range;
+    }
+
+    private static long zigzag(final long encoded) {
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    /**
+     * Reads varints from the packed bids.
+     */
+    private final class Cursor {
+        private int position;
+
+        private Cursor(final int position) {
+            this.position = position;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for(int shift = 0; ; shift += 7) {
+                final byte b = bids[position++];
+                value |= (long) (b & 0x7f) << shift;
+                if(b >= 0) return value;
+            }
+        }
+
+        private void skipBid() {
+            for(int varints = 3; varints > 0; position++) {
+                if(bids[position] >= 0) varints--;
+            }
+        }
+    }
+
+    /**
+     * Packs bids one at a time, in the order they were accepted.
+     */
+    public static final class Builder {
+        private final UserIds users;
+
+        private byte[] bids = new byte[64];
+        private int length;
+        private int size;
+
+        private int[] offsets = new int[1];
+        private int[] amounts = new int[1];
+        private int[] userIds = new int[1];
+        private long[] timestamps = new long[1];
+
+        private int lastAmount;
+        private int lastUserId;
+        private long lastTimestamp;
+
+        /**
+         * @param users gives the ids the users are stored as
+         */
+        public Builder(final UserIds users) {
+            this.users = users;
+        }
+
+        /**
+         * @param amount the value of the bid, higher than the bid before
+         * @param userId the id of the user that made it
+         * @param timestamp when it was accepted
+         * @return this builder
+         */
+        public Builder add(final int amount, final int userId, final long timestamp) {
+            if(size > 0 && amount <= lastAmount)
+                throw new RuntimeException("Unable to archive a bid of " + amount + " after a bid of " + lastAmount);
+
+            if(size % CHECKPOINT == 0) {
+                final int checkpoint = size / CHECKPOINT;
+                if(checkpoint == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, checkpoint * 2);
+                    amounts = Arrays.copyOf(amounts, checkpoint * 2);
+                    userIds = Arrays.copyOf(userIds, checkpoint * 2);
+                    timestamps = Arrays.copyOf(timestamps, checkpoint * 2);
+                }
+                offsets[checkpoint] = length;
+                amounts[checkpoint] = amount;
+                userIds[checkpoint] = userId;
+                timestamps[checkpoint] = timestamp;
+            }
+
+            writeVarint((long) amount - lastAmount);
+            writeVarint(zigzag((long) userId - lastUserId));
+            writeVarint(zigzag(timestamp - lastTimestamp));
+
+            lastAmount = amount;
+            lastUserId = userId;
+            lastTimestamp = timestamp;
+            size++;
+            return this;
+        }
+
+        /**
+         * @param highest the highest bid as it was made, returned in place
+         *                of the last bid added; may be null
+         * @return the archive of the bids added
+         */
+        public BidArchive build(final Bid highest) {
+            return new BidArchive(this, highest);
+        }
+
+        private void writeVarint(long value) {
+            if(length + 10 > bids.length) bids = Arrays.copyOf(bids, bids.length * 2);
+            while((value & ~0x7fL) != 0) {
+                bids[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bids[length++] = (byte) value;
+        }
+
+        private static long zigzag(final long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The BidHistory stores the accepted bids for a single item as
+ * parallel primitive columns (amount, user id and timestamp) rather
+ * than as Bid objects, which costs 16 bytes per bid.
+ *
+ * The columns are split into chunks that double in size, the first
+ * holding 8 bids, so that an item with few bids stays small while a
+ * popular item never has to copy its history to grow.
+ *
+ * Each bid is written to the position given by its sequence number,
+ * which the caller has already claimed atomically, so concurrent
+ * writers never touch the same position. The user column is written
+ * last and acts as the marker that the position is complete.
+ *
+ * Reads never wait. A position may be claimed but not yet recorded,
+ * because its writer is between claiming it and recording it, or
+ * because bids are being restored out of order. So readers first
+ * find how far the recorded positions run, with {@link #recordedDownTo}
+ * or {@link #firstUnrecorded}, and stop there. Reading a position that
+ * is not recorded is an error rather than a wait, so a writer that
+ * fails after claiming a position cannot hang its readers.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public final class BidHistory {
+
+    private static final int FIRST_CHUNK_BITS = 3;
+
+    // enough chunks to hold Integer.MAX_VALUE bids
+    private static final int MAX_CHUNKS = 32 - FIRST_CHUNK_BITS;
+
+    private final AtomicReferenceArray<Chunk> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    /**
+     * Record a bid at the given position.
+     *
+     * @param sequence the position claimed for the bid, starting at 0
+     * @param amount the value of the bid
+     * @param userId the id of the user making the bid
+     * @param timestamp when the bid was accepted
+     */
+    public void record(final int sequence, final int amount, final int userId, final long timestamp) {
+        if(sequence < 0) throw new RuntimeException("Unable to record a bid at the negative position " + sequence);
+
+        final int index = chunkIndex(sequence);
+        final Chunk chunk = chunk(index);
+        final int offset = sequence - chunkStart(index);
+
+        chunk.amounts[offset] = amount;
+        chunk.timestamps[offset] = timestamp;
+        chunk.users.set(offset, userId + 1); // publishes the plain writes above
+    }
+
+    /**
+     * @param sequence a recorded position
+     * @return the value of the bid
+     */
+    public int amountAt(final int sequence) {
+        final int index = chunkIndex(sequence);
+        final int offset = sequence - chunkStart(index);
+        final Chunk chunk = recordedChunk(index, offset, sequence);
+        return chunk.amounts[offset];
+    }
+
+    /**
+     * @param sequence a recorded position
+     * @return the id of the user that made the bid
+     */
+    public int userAt(final int sequence) {
+        final int index = chunkIndex(sequence);
+        final int offset = sequence - chunkStart(index);
+        return recordedChunk(index, offset, sequence).users.get(offset) - 1;
+    }
+
+    /**
+     * @param sequence a recorded position
+     * @return when the bid was accepted
+     */
+    public long timestampAt(final int sequence) {
+        final int index = chunkIndex(sequence);
+        final int offset = sequence - chunkStart(index);
+        final Chunk chunk = recordedChunk(index, offset, sequence);
+        return chunk.timestamps[offset];
+    }
+
+    /**
+     * Walk down from a position to where the recorded positions stop.
+     *
+     * @param top the highest position to look at
+     * @param low the lowest position to look at
+     * @return the lowest position, no lower than low, from which every
+     *         position up to top is recorded; above top if there is none
+     */
+    public int recordedDownTo(final int top, final int low) {
+        int sequence = top;
+        while(sequence >= low && isRecorded(sequence)) sequence--;
+        return Math.max(sequence + 1, low);
+    }
+
+    /**
+     * Walk up from a position to the first one that is not recorded.
+     *
+     * @param start the first position to look at
+     * @param end the position to stop before
+     * @return the first position from start that is not recorded, or
+     *         end if every position before it is
+     */
+    public int firstUnrecorded(final int start, final int end) {
+        int sequence = start;
+        while(sequence < end && isRecorded(sequence)) sequence++;
+        return sequence;
+    }
+
+    /**
+     * @param sequence a position
+     * @return true iff a bid has been recorded at that position
+     */
+    public boolean isRecorded(final int sequence) {
+        final int index = chunkIndex(sequence);
+        final Chunk chunk = chunks.get(index);
+        return chunk != null && chunk.users.get(sequence - chunkStart(index)) != 0;
+    }
+
+    private Chunk chunk(final int index) {
+        Chunk chunk = chunks.get(index);
+        if(chunk == null) {
+            final Chunk created = new Chunk(1 << (index + FIRST_CHUNK_BITS));
+            chunk = chunks.compareAndSet(index, null, created) ? created : chunks.get(index);
+        }
+        return chunk;
+    }
+
+    private Chunk recordedChunk(final int index, final int offset, final int sequence) {
+        final Chunk chunk = chunks.get(index);
+        if(chunk == null || chunk.users.get(offset) == 0) // also orders the reads of the plain columns after the marker
+            throw new RuntimeException("Unable to read the bid at position " + sequence + " as it has not been recorded.");
+        return chunk;
+    }
+
+    static int chunkIndex(final int sequence) {
+        return 31 - Integer.numberOfLeadingZeros((sequence >>> FIRST_CHUNK_BITS) + 1);
+    }
+
+    static int chunkStart(final int index) {
+        return ((1 << index) - 1) << FIRST_CHUNK_BITS;
+    }
+
+    private static final class Chunk {
+        private final int[] amounts;
+        private final long[] timestamps;
+        private final AtomicIntegerArray users; // user id + 1, 0 until the position is recorded
+
+        private Chunk(final int size) {
+            amounts = new int[size];
+            timestamps = new long[size];
+            users = new AtomicIntegerArray(size);
+        }
+    }
+}
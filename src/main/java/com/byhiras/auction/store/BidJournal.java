@@ -0,0 +1,599 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.BidListener;
+import com.byhiras.auction.RecoverableBidTracker;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.RecordedBid;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The BidJournal is a log of accepted bids. As a BidListener it
+ * appends every bid a tracker accepts, and on startup it replays those
+ * bids into a fresh tracker. A bid is logged before its bidder is
+ * notified and before the call that placed it returns, but after the
+ * tracker has made it visible to readers, so a crash in between can
+ * lose a bid that a query has already seen.
+ *
+ * Each bid is a fixed-size 32 byte record (item id, user id, amount,
+ * sequence, timestamp, kind and a checksum) written into a memory-mapped
+ * segment file. A proxy bidder's maximum is a record of its own kind,
+ * holding the maximum as its amount, written whenever it is above the
+ * winning bid, so the replay puts back what the leader would go to. The
+ * close of an item is a third kind, so an item closed before a restart
+ * stays closed. Writers claim their record with a single atomic add
+ * so they never block each other; a full segment is replaced by the
+ * next one. Because a record carries the bid's sequence within its
+ * item, records written out of order by racing threads, or lost in a
+ * crash, do not confuse the replay.
+ *
+ * The names of items and users are written once, the first time they
+ * are seen, to a small dictionary file alongside the segments. An
+ * item's entry also holds its initial and reserve values and, if it
+ * has one, its closing time.
+ *
+ * A journal always starts a new segment when it is opened. The
+ * segments that were already there are read by {@link #replay}. Once a
+ * snapshot holds every bid before some segment, the segments before it
+ * can be deleted with {@link #deleteSegmentsBefore}.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class BidJournal implements BidListener, Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(BidJournal.class.getName());
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    public static final long DEFAULT_GROUP_COMMIT_MILLIS = 5;
+
+    static final int RECORD_SIZE = 32;
+
+    // the kinds of record in a segment; a bid is 0, as in unused space
+    static final int BID_RECORD = 0;
+    static final int MAXIMUM_RECORD = 1;
+    static final int CLOSED_RECORD = 2;
+
+    private static final String DICTIONARY = "names.journal";
+    private static final String SEGMENT_PREFIX = "bids-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final byte ITEM = 1;
+    private static final byte USER = 2;
+    private static final byte TIMED_ITEM = 3;
+
+    private final File directory;
+    private final FsyncPolicy policy;
+    private final int segmentSize;
+
+    private final FileChannel dictionary;
+    private final ConcurrentMap<String, Integer> itemIds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> userIds = new ConcurrentHashMap<>();
+    private final List<ItemEntry> items = new ArrayList<>();
+    private final List<String> users = new ArrayList<>();
+
+    // the segments written before this journal was opened, by number
+    private final TreeMap<Integer, File> existing = new TreeMap<>();
+
+    private volatile Segment current;
+    private volatile Segment previous;
+
+    private final ScheduledExecutorService committer;
+
+    private volatile boolean open = true;
+
+    public BidJournal(final File directory, final FsyncPolicy policy) {
+        this(directory, policy, DEFAULT_GROUP_COMMIT_MILLIS, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open the journal in a directory, creating it if necessary.
+     *
+     * @param directory where the dictionary and segment files live
+     * @param policy when to force writes to disk
+     * @param groupCommitMillis how often to force writes under GROUP_COMMIT
+     * @param segmentSize the size of each segment file in bytes
+     */
+    public BidJournal(final File directory, final FsyncPolicy policy, final long groupCommitMillis, final int segmentSize) {
+        if(policy == null)
+            throw new RuntimeException("Unable to open a journal without an fsync policy.");
+        if(segmentSize < RECORD_SIZE)
+            throw new RuntimeException("Unable to open a journal with a segment size of " + segmentSize);
+        if(!directory.isDirectory() && !directory.mkdirs())
+            throw new RuntimeException("Unable to create the journal directory " + directory);
+
+        this.directory = directory;
+        this.policy = policy;
+        this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+
+        try {
+            this.dictionary = new RandomAccessFile(new File(directory, DICTIONARY), "rw").getChannel();
+            loadDictionary();
+
+            final File[] files = directory.listFiles();
+            if(files != null) {
+                for(File file : files) {
+                    final Integer number = segmentNumber(file.getName());
+                    if(number != null) existing.put(number, file);
+                }
+            }
+
+            this.current = openSegment(existing.isEmpty() ? 0 : existing.lastKey() + 1);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to open the journal in " + directory, e);
+        }
+
+        if(policy == FsyncPolicy.GROUP_COMMIT) {
+            committer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "bid-journal-commit");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            committer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        force();
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.SEVERE, "Unable to commit the journal in " + directory, e);
+                    }
+                }
+            }, groupCommitMillis, groupCommitMillis, TimeUnit.MILLISECONDS);
+        } else {
+            committer = null;
+        }
+    }
+
+    /**
+     * Append an accepted bid. Under PER_BID the record is on disk
+     * before this returns.
+     */
+    @Override
+    public void bidAccepted(final Item item, final Bid bid, final int sequence, final long timestamp) {
+        if(!open) throw new RuntimeException("Unable to journal " + bid + " as the journal is closed.");
+
+        append(BID_RECORD, itemId(item), userId(bid.getUser()), bid.value(), sequence, timestamp);
+    }
+
+    /**
+     * Append a proxy bidder's maximum.
+     */
+    @Override
+    public void maximumRaised(final Item item, final int sequence, final int maximum) {
+        if(!open) throw new RuntimeException("Unable to journal the maximum on " + item + " as the journal is closed.");
+
+        append(MAXIMUM_RECORD, itemId(item), -1, maximum, sequence, 0);
+    }
+
+    /**
+     * Append the close of an item.
+     */
+    @Override
+    public void biddingClosed(final Item item) {
+        if(!open) throw new RuntimeException("Unable to journal the close of " + item + " as the journal is closed.");
+
+        append(CLOSED_RECORD, itemId(item), -1, 0, -1, System.currentTimeMillis());
+    }
+
+    private void append(final int kind, final int itemId, final int userId, final int amount,
+                        final int sequence, final long timestamp) {
+        while(true) {
+            final Segment segment = current;
+            final int offset = segment.reserve();
+            if(offset >= 0) {
+                segment.write(offset, kind, itemId, userId, amount, sequence, timestamp);
+                if(policy == FsyncPolicy.PER_BID) segment.buffer.force();
+                return;
+            }
+            roll(segment);
+        }
+    }
+
+    /**
+     * Rebuild the bids recorded before this journal was opened. Items
+     * missing from the auction are added to it.
+     *
+     * @param auction the catalogue the bids are resolved against
+     * @param tracker the tracker the bids are restored into
+     * @return the number of bids restored
+     */
+    public long replay(final Auction auction, final RecoverableBidTracker tracker) {
+        return replay(auction, tracker, 0, new HashMap<String, User>());
+    }
+
+    /**
+     * Rebuild the bids recorded before this journal was opened, from
+     * the given segment onwards.
+     *
+     * @param auction the catalogue the bids are resolved against
+     * @param tracker the tracker the bids are restored into
+     * @param fromSegment the first segment to replay
+     * @param users the users already restored by name, which is added to
+     * @return the number of bids restored
+     */
+    public long replay(final Auction auction, final RecoverableBidTracker tracker, final int fromSegment,
+                       final Map<String, User> users) {
+        final Item[] resolvedItems;
+        final User[] resolvedUsers;
+
+        synchronized (this) {
+            resolvedItems = new Item[items.size()];
+            for(int id = 0; id < resolvedItems.length; id++) {
+                final ItemEntry entry = items.get(id);
+                Item item = auction.find(entry.name);
+                if(item == null) {
+                    item = new AuctionItem(entry.name, entry.initial, entry.reserve, entry.closingTime);
+                    auction.add(item);
+                }
+                resolvedItems[id] = item;
+            }
+
+            resolvedUsers = new User[this.users.size()];
+            for(int id = 0; id < resolvedUsers.length; id++) {
+                final String name = this.users.get(id);
+                User user = users.get(name);
+                if(user == null) {
+                    user = new AuctionUser(name);
+                    users.put(name, user);
+                }
+                resolvedUsers[id] = user;
+            }
+        }
+
+        final List<File> segments;
+        synchronized (this) {
+            segments = new ArrayList<>(existing.tailMap(fromSegment).values());
+        }
+
+        long restored = 0;
+        for(File file : segments) {
+            try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+                for(int offset = 0; offset + RECORD_SIZE <= buffer.capacity(); offset += RECORD_SIZE) {
+                    final int itemId = buffer.getInt(offset);
+                    final int userId = buffer.getInt(offset + 4);
+                    final int amount = buffer.getInt(offset + 8);
+                    final int sequence = buffer.getInt(offset + 12);
+                    final long timestamp = buffer.getLong(offset + 16);
+                    final int kind = buffer.getInt(offset + 24);
+
+                    // skips both unused space and records torn by a crash
+                    if(buffer.getInt(offset + 28) != checksum(kind, itemId, userId, amount, sequence, timestamp)) continue;
+                    if(itemId < 0 || itemId >= resolvedItems.length) continue;
+
+                    if(kind == MAXIMUM_RECORD) {
+                        tracker.restoreMaximum(resolvedItems[itemId], sequence, amount);
+                        continue;
+                    }
+                    if(kind == CLOSED_RECORD) {
+                        tracker.restoreClosed(resolvedItems[itemId]);
+                        continue;
+                    }
+                    if(kind != BID_RECORD || userId < 0 || userId >= resolvedUsers.length) continue;
+
+                    tracker.restoreBid(resolvedItems[itemId],
+                                       new RecordedBid(amount, resolvedUsers[userId], timestamp),
+                                       sequence,
+                                       timestamp);
+                    restored++;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to replay the journal segment " + file, e);
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * @return the number of the segment currently being written
+     */
+    public int currentSegment() {
+        return current.number;
+    }
+
+    /**
+     * Start writing to a new segment, so that every bid accepted from
+     * now on is in that segment or a later one.
+     *
+     * @return the number of the new segment
+     */
+    public int startNewSegment() {
+        final Segment segment = current;
+        roll(segment);
+        return current.number;
+    }
+
+    /**
+     * Delete the segments before the given one, for example once a
+     * snapshot holds every bid in them. The segments being written are
+     * never deleted.
+     *
+     * @param number the first segment to keep
+     * @return the number of segments deleted
+     */
+    public synchronized int deleteSegmentsBefore(final int number) {
+        final Segment writing = current;
+        final Segment last = previous;
+
+        int deleted = 0;
+        final File[] files = directory.listFiles();
+        if(files == null) return 0;
+
+        for(File file : files) {
+            final Integer segment = segmentNumber(file.getName());
+            if(segment == null || segment >= number) continue;
+            if(segment == writing.number || (last != null && segment == last.number)) continue;
+
+            if(file.delete()) {
+                existing.remove(segment);
+                deleted++;
+            } else {
+                LOGGER.warning("Unable to delete the old journal segment " + file);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Force everything written so far to disk.
+     */
+    public void force() {
+        try {
+            dictionary.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to force the journal dictionary in " + directory, e);
+        }
+
+        final Segment last = previous;
+        if(last != null) last.buffer.force();
+        current.buffer.force();
+    }
+
+    @Override
+    public void close() {
+        if(!open) return;
+        open = false;
+
+        if(committer != null) {
+            committer.shutdown();
+            try {
+                committer.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        force();
+
+        try {
+            dictionary.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to close the journal in " + directory, e);
+        }
+    }
+
+    private synchronized void roll(final Segment full) {
+        if(current != full) return; // another writer got here first
+
+        try {
+            previous = full;
+            current = openSegment(full.number + 1);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create the next journal segment in " + directory, e);
+        }
+    }
+
+    private Segment openSegment(final int number) throws IOException {
+        final File file = new File(directory, String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // the mapping stays valid once the file is closed
+            return new Segment(number, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    private static Integer segmentNumber(final String name) {
+        if(!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) return null;
+        try {
+            return Integer.valueOf(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private int itemId(final Item item) {
+        final Integer id = itemIds.get(item.getName());
+        return id != null ? id : defineItem(item);
+    }
+
+    private int userId(final User user) {
+        final Integer id = userIds.get(user.getName());
+        return id != null ? id : defineUser(user);
+    }
+
+    private synchronized int defineItem(final Item item) {
+        final Integer existingId = itemIds.get(item.getName());
+        if(existingId != null) return existingId;
+
+        final int id = items.size();
+        final ItemEntry entry = new ItemEntry(item.getName(), item.getInitial(), item.getReserve(), item.getClosingTime());
+        writeDefinition(entry.closingTime == Item.NEVER ? ITEM : TIMED_ITEM, id, entry, item.getName());
+        items.add(entry);
+        itemIds.put(item.getName(), id);
+        return id;
+    }
+
+    private synchronized int defineUser(final User user) {
+        final Integer existingId = userIds.get(user.getName());
+        if(existingId != null) return existingId;
+
+        final int id = users.size();
+        writeDefinition(USER, id, null, user.getName());
+        users.add(user.getName());
+        userIds.put(user.getName(), id);
+        return id;
+    }
+
+    private void writeDefinition(final byte type, final int id, final ItemEntry item, final String name) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeInt(id);
+            if(type == ITEM || type == TIMED_ITEM) {
+                out.writeInt(item.initial);
+                out.writeInt(item.reserve);
+            }
+            if(type == TIMED_ITEM) out.writeLong(item.closingTime);
+            out.writeUTF(name);
+            out.flush();
+
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while(buffer.hasRemaining()) dictionary.write(buffer, dictionary.size());
+            if(policy == FsyncPolicy.PER_BID) dictionary.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write " + name + " to the journal dictionary in " + directory, e);
+        }
+    }
+
+    /**
+     * Read the dictionary back, dropping any entry torn by a crash so
+     * that new entries are appended after the last complete one.
+     */
+    private void loadDictionary() throws IOException {
+        long valid = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(new File(directory, DICTIONARY))))) {
+            while(true) {
+                final byte type = in.readByte();
+                final int id = in.readInt();
+                long length = 5;
+
+                if(type == ITEM || type == TIMED_ITEM) {
+                    final int initial = in.readInt();
+                    final int reserve = in.readInt();
+                    final long closingTime = type == TIMED_ITEM ? in.readLong() : Item.NEVER;
+                    final String name = in.readUTF();
+                    if(id != items.size()) break;
+                    items.add(new ItemEntry(name, initial, reserve, closingTime));
+                    itemIds.put(name, id);
+                    length += (type == TIMED_ITEM ? 16 : 8) + utfLength(name);
+                } else if(type == USER) {
+                    final String name = in.readUTF();
+                    if(id != users.size()) break;
+                    users.add(name);
+                    userIds.put(name, id);
+                    length += utfLength(name);
+                } else {
+                    break;
+                }
+                valid += length;
+            }
+        } catch (EOFException e) {
+            // a torn or empty tail
+        }
+
+        dictionary.truncate(valid);
+    }
+
+    private static int utfLength(final String name) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(name);
+        return bytes.size();
+    }
+
+    static int checksum(final int itemId, final int userId, final int amount, final int sequence, final long timestamp) {
+        return checksum(BID_RECORD, itemId, userId, amount, sequence, timestamp);
+    }
+
+    static int checksum(final int kind, final int itemId, final int userId, final int amount, final int sequence,
+                        final long timestamp) {
+        int h = 0x2545F491;
+        h = 31 * h + itemId;
+        h = 31 * h + userId;
+        h = 31 * h + amount;
+        h = 31 * h + sequence;
+        h = 31 * h + (int) (timestamp ^ (timestamp >>> 32));
+        if(kind != BID_RECORD) h = 31 * h + kind; // so bids written before kinds still check
+        return h == 0 ? 1 : h; // zero marks an unused record
+    }
+
+    private static final class ItemEntry {
+        private final String name;
+        private final int initial;
+        private final int reserve;
+        private final long closingTime;
+
+        private ItemEntry(final String name, final int initial, final int reserve, final long closingTime) {
+            this.name = name;
+            this.initial = initial;
+            this.reserve = reserve;
+            this.closingTime = closingTime;
+        }
+    }
+
+    private static final class Segment {
+        private final int number;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger position = new AtomicInteger();
+
+        private Segment(final int number, final MappedByteBuffer buffer) {
+            this.number = number;
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return the offset of the claimed record or -1 if the segment is full
+         */
+        private int reserve() {
+            final int offset = position.getAndAdd(RECORD_SIZE);
+            return offset <= buffer.capacity() - RECORD_SIZE && offset >= 0 ? offset : -1;
+        }
+
+        private void write(final int offset, final int kind, final int itemId, final int userId, final int amount,
+                           final int sequence, final long timestamp) {
+            buffer.putInt(offset, itemId);
+            buffer.putInt(offset + 4, userId);
+            buffer.putInt(offset + 8, amount);
+            buffer.putInt(offset + 12, sequence);
+            buffer.putLong(offset + 16, timestamp);
+            buffer.putInt(offset + 24, kind);
+            buffer.putInt(offset + 28, checksum(kind, itemId, userId, amount, sequence, timestamp));
+        }
+    }
+}
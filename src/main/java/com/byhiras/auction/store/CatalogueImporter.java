@@ -0,0 +1,489 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The CatalogueImporter loads a whole catalogue file into an auction
+ * at once, in parallel.
+ *
+ * The file is split into chunks of about the same size which are
+ * memory-mapped and parsed by fork/join tasks, each into a list of its
+ * own, so the parsing threads share nothing. Only once every chunk has
+ * been parsed are the items published to the auction, again a chunk
+ * per task; the catalogue's map only locks the bin each item lands in,
+ * so the tasks rarely meet. Size the auction for the catalogue first
+ * to spare it from resizing as it fills.
+ *
+ * Records that cannot be read are reported with their offset in the
+ * file and do not stop the rest being imported. Items whose names are
+ * already taken are left out and counted; which of two records with
+ * the same name wins is not defined.
+ *
+ * A CSV catalogue has a line per item, UTF-8 encoded:
+ *
+ *   name,initial,reserve[,closing time]
+ *
+ * A name holding a comma or a quote is quoted, with quotes doubled.
+ * An empty closing time, as after a trailing comma, means never.
+ * Blank lines, lines starting with # and a first line starting with
+ * "name," are skipped. A line may not be longer than MAX_LINE bytes.
+ * A chunk owns the lines that start within it and reads on past its
+ * end to finish the last of them.
+ *
+ * A binary catalogue, as written by {@link #writeBinary}, is a magic
+ * number then a record per item: the name as an int length and UTF-8
+ * bytes, then int initial, int reserve and long closing time, the same
+ * as an item in a snapshot. As records are not all the same size the
+ * chunk boundaries are found by hopping from length to length before
+ * the chunks are parsed.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class CatalogueImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+    public static final int MAX_LINE = 64 << 10;
+
+    static final int MAGIC = 0x43415431;
+
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+    private static final int RECORD_FIXED_BYTES = 4 + 4 + 4 + 8;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public CatalogueImporter() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool where the chunks are parsed and published
+     * @param chunkSize the number of bytes parsed by each task
+     */
+    public CatalogueImporter(final ForkJoinPool pool, final int chunkSize) {
+        if(chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE)
+            throw new RuntimeException("Unable to import in chunks of " + chunkSize + " bytes.");
+
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param file a CSV catalogue
+     * @param auction where the items are added
+     * @return how many items were added and the records that could not be read
+     */
+    public ImportResult importCsv(final File file, final Auction auction) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            final List<Long> starts = new ArrayList<>();
+            for(long start = 0; start < size; start += chunkSize) starts.add(start);
+
+            return load(channel, starts, size, auction, new ArrayList<ImportError>(), this::parseCsv);
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Unable to import the catalogue " + file, e);
+        }
+    }
+
+    /**
+     * @param file a binary catalogue
+     * @param auction where the items are added
+     * @return how many items were added and the records that could not be read
+     */
+    public ImportResult importBinary(final File file, final Auction auction) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final List<ImportError> errors = new ArrayList<>();
+            final long[] end = new long[1];
+            final List<Long> starts = binaryChunks(channel, errors, end);
+
+            return load(channel, starts, end[0], auction, errors, this::parseBinary);
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Unable to import the catalogue " + file, e);
+        }
+    }
+
+    /**
+     * Write items as a binary catalogue.
+     *
+     * @param items the items to write
+     * @param file where to write them
+     */
+    public static void writeBinary(final Collection<? extends Item> items, final File file) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            for(Item item : items) {
+                final byte[] name = item.getName().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(name.length);
+                out.write(name);
+                out.writeInt(item.getInitial());
+                out.writeInt(item.getReserve());
+                out.writeLong(item.getClosingTime());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write the catalogue " + file, e);
+        }
+    }
+
+    private ImportResult load(final FileChannel channel, final List<Long> starts, final long end, final Auction auction,
+                              final List<ImportError> errors, final ChunkParser parser) {
+        final long[] bounds = new long[starts.size() + 1];
+        for(int i = 0; i < starts.size(); i++) bounds[i] = starts.get(i);
+        bounds[starts.size()] = end;
+
+        final List<Chunk> chunks = pool.invoke(new Parse(channel, bounds, 0, starts.size(), parser));
+
+        final List<ImportError> all = new ArrayList<>();
+        int parsed = 0;
+        for(Chunk chunk : chunks) {
+            all.addAll(chunk.errors);
+            parsed += chunk.items.size();
+        }
+        all.addAll(errors);
+
+        final int added = chunks.isEmpty() ? 0 : pool.invoke(new Publish(auction, chunks, 0, chunks.size()));
+        return new ImportResult(added, parsed - added, all);
+    }
+
+    /**
+     * Find where each chunk of a binary catalogue starts, as close to a
+     * multiple of the chunk size as a record allows. A record that runs
+     * past the end of the file ends the catalogue.
+     */
+    private List<Long> binaryChunks(final FileChannel channel, final List<ImportError> errors, final long[] end)
+            throws IOException {
+        final long size = channel.size();
+        final List<Long> starts = new ArrayList<>();
+        if(size < 4 || channel.map(FileChannel.MapMode.READ_ONLY, 0, 4).getInt(0) != MAGIC) {
+            errors.add(new ImportError(0, "not a binary catalogue"));
+            return starts;
+        }
+
+        long position = 4;
+        long nextChunk = position;
+        MappedByteBuffer window = null;
+        long windowStart = 0;
+
+        while(position < size) {
+            if(position + 4 > size) {
+                errors.add(new ImportError(position, "the record is cut short"));
+                break;
+            }
+            if(window == null || position + 4 > windowStart + window.capacity()) {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_CHUNK_SIZE, size - position));
+            }
+
+            final int length = window.getInt((int) (position - windowStart));
+            if(length < 0 || position + RECORD_FIXED_BYTES + length > size) {
+                errors.add(new ImportError(position, "the record is cut short"));
+                break;
+            }
+
+            if(position >= nextChunk) {
+                starts.add(position);
+                nextChunk = position + chunkSize;
+            }
+            position += RECORD_FIXED_BYTES + length;
+        }
+
+        end[0] = position;
+        return starts;
+    }
+
+    private Chunk parseCsv(final FileChannel channel, final long start, final long end) throws IOException {
+        final long from = Math.max(0, start - 1);
+        final long to = Math.min(channel.size(), end + MAX_LINE);
+        final MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        final CsvLine line = new CsvLine(in);
+        final Chunk chunk = new Chunk();
+
+        int position = (int) (start - from);
+        final int limit = (int) (end - from);
+
+        // a line that started in the previous chunk is finished there
+        if(start > 0 && in.get(position - 1) != '\n') {
+            position = indexOf(in, position, in.limit());
+            if(position < 0) return chunk;
+            position++;
+        }
+
+        while(position < limit) {
+            final int newline = indexOf(in, position, in.limit());
+            if(newline < 0 && to < channel.size()) {
+                chunk.errors.add(new ImportError(from + position, "the line is longer than " + MAX_LINE + " bytes"));
+                break;
+            }
+            final int next = newline < 0 ? in.limit() : newline + 1;
+
+            int lineEnd = newline < 0 ? in.limit() : newline;
+            if(lineEnd > position && in.get(lineEnd - 1) == '\r') lineEnd--;
+
+            if(lineEnd > position && in.get(position) != '#' && !(from + position == 0 && line.isHeader(position, lineEnd))) {
+                try {
+                    chunk.items.add(line.parse(position, lineEnd));
+                } catch (RecordException e) {
+                    chunk.errors.add(new ImportError(from + position, e.getMessage()));
+                }
+            }
+            position = next;
+        }
+        return chunk;
+    }
+
+    private Chunk parseBinary(final FileChannel channel, final long start, final long end) throws IOException {
+        final MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        final Chunk chunk = new Chunk();
+
+        byte[] name = new byte[64];
+        while(in.hasRemaining()) {
+            final long offset = start + in.position();
+
+            final int length = in.getInt();
+            if(length > name.length) name = new byte[Math.max(length, name.length * 2)];
+            in.get(name, 0, length);
+            final int initial = in.getInt();
+            final int reserve = in.getInt();
+            final long closingTime = in.getLong();
+
+            if(length == 0) {
+                chunk.errors.add(new ImportError(offset, "the name is empty"));
+            } else if(initial < 0 || reserve < 0) {
+                chunk.errors.add(new ImportError(offset, "the initial value and reserve may not be negative"));
+            } else {
+                chunk.items.add(new AuctionItem(new String(name, 0, length, StandardCharsets.UTF_8), initial, reserve, closingTime));
+            }
+        }
+        return chunk;
+    }
+
+    private static int indexOf(final MappedByteBuffer in, final int from, final int to) {
+        for(int i = from; i < to; i++) {
+            if(in.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    private interface ChunkParser {
+        Chunk parse(FileChannel channel, long start, long end) throws IOException;
+    }
+
+    /**
+     * The items and errors of one chunk, in file order.
+     */
+    private static final class Chunk {
+        private final List<Item> items = new ArrayList<>();
+        private final List<ImportError> errors = new ArrayList<>();
+    }
+
+    /**
+     * Parses chunks [from, to) of the file, splitting until a task has
+     * a single chunk.
+     */
+    private static final class Parse extends RecursiveTask<List<Chunk>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+        private final ChunkParser parser;
+
+        private Parse(final FileChannel channel, final long[] bounds, final int from, final int to, final ChunkParser parser) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.parser = parser;
+        }
+
+        @Override
+        protected List<Chunk> compute() {
+            if(to - from == 0) return new ArrayList<>();
+            if(to - from == 1) {
+                try {
+                    return new ArrayList<>(Arrays.asList(parser.parse(channel, bounds[from], bounds[from + 1])));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            final int middle = (from + to) >>> 1;
+            final Parse left = new Parse(channel, bounds, from, middle, parser);
+            left.fork();
+            final List<Chunk> right = new Parse(channel, bounds, middle, to, parser).compute();
+
+            final List<Chunk> chunks = left.join();
+            chunks.addAll(right);
+            return chunks;
+        }
+    }
+
+    /**
+     * Adds the items of chunks [from, to) to the auction.
+     */
+    private static final class Publish extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final Auction auction;
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+
+        private Publish(final Auction auction, final List<Chunk> chunks, final int from, final int to) {
+            this.auction = auction;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if(to - from == 1) return auction.addAll(chunks.get(from).items);
+
+            final int middle = (from + to) >>> 1;
+            final Publish left = new Publish(auction, chunks, from, middle);
+            left.fork();
+            final int right = new Publish(auction, chunks, middle, to).compute();
+            return left.join() + right;
+        }
+    }
+
+    /**
+     * Parses a line of a CSV catalogue, reusing one buffer for names.
+     */
+    private static final class CsvLine {
+        private final MappedByteBuffer in;
+        private byte[] name = new byte[64];
+        private int nameLength;
+        private int position;
+        private int end;
+
+        private CsvLine(final MappedByteBuffer in) {
+            this.in = in;
+        }
+
+        private boolean isHeader(final int start, final int end) {
+            final byte[] header = "name,".getBytes(StandardCharsets.US_ASCII);
+            if(end - start < header.length) return false;
+            for(int i = 0; i < header.length; i++) {
+                if(Character.toLowerCase((char) in.get(start + i)) != header[i]) return false;
+            }
+            return true;
+        }
+
+        private Item parse(final int start, final int end) throws RecordException {
+            this.position = start;
+            this.end = end;
+
+            readName();
+            if(nameLength == 0) throw new RecordException("the name is empty");
+            final String itemName = new String(name, 0, nameLength, StandardCharsets.UTF_8);
+
+            final int initial = (int) readNumber("initial value", Integer.MAX_VALUE);
+            final int reserve = (int) readNumber("reserve", Integer.MAX_VALUE);
+            final long closingTime = hasField() ? readNumber("closing time", Long.MAX_VALUE) : Item.NEVER;
+            if(position < this.end) throw new RecordException("there are too many fields");
+
+            return new AuctionItem(itemName, initial, reserve, closingTime);
+        }
+
+        /**
+         * Read the name and the comma after it, leaving the position
+         * on the next field.
+         */
+        private void readName() throws RecordException {
+            nameLength = 0;
+            if(position < end && in.get(position) == '"') {
+                position++;
+                while(true) {
+                    if(position >= end) throw new RecordException("the quoted name is not closed");
+                    final byte b = in.get(position++);
+                    if(b == '"') {
+                        if(position < end && in.get(position) == '"') {
+                            position++;
+                        } else {
+                            break;
+                        }
+                    }
+                    append(b);
+                }
+            } else {
+                while(position < end && in.get(position) != ',') append(in.get(position++));
+            }
+
+            if(position >= end || in.get(position) != ',') throw new RecordException("the initial value and reserve are missing");
+            position++;
+        }
+
+        /**
+         * Read a non-negative number and the comma after it, if any,
+         * allowing spaces around it.
+         */
+        private long readNumber(final String field, final long max) throws RecordException {
+            while(position < end && in.get(position) == ' ') position++;
+
+            final int start = position;
+            long value = 0;
+            while(position < end && in.get(position) >= '0' && in.get(position) <= '9') {
+                value = value * 10 + (in.get(position++) - '0');
+                if(value > max) throw new RecordException("the " + field + " is too large");
+            }
+            if(position == start) throw new RecordException("the " + field + " is not a number");
+
+            while(position < end && in.get(position) == ' ') position++;
+            if(position < end) {
+                if(in.get(position) != ',') throw new RecordException("the " + field + " is not a number");
+                position++;
+            }
+            return value;
+        }
+
+        /**
+         * @return true iff anything but spaces is left on the line, so a
+         *         trailing comma leaves an optional field out
+         */
+        private boolean hasField() {
+            while(position < end && in.get(position) == ' ') position++;
+            return position < end;
+        }
+
+        private void append(final byte b) {
+            if(nameLength == name.length) name = Arrays.copyOf(name, name.length * 2);
+            name[nameLength++] = b;
+        }
+    }
+
+    /**
+     * Why a record could not be read. It is caught and reported, never
+     * thrown out of the importer, so it carries no stack trace.
+     */
+    private static final class RecordException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private RecordException(final String message) {
+            super(message, null, false, false);
+        }
+    }
+}
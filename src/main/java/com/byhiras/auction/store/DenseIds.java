@@ -0,0 +1,74 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns each value a dense int id, 0, 1, 2 and so on in the order
+ * they are first seen, so that state about the values can be held in
+ * arrays indexed by id rather than in maps keyed by the values.
+ *
+ * Looking up a known value is lock free. Assigning an id to a value
+ * seen for the first time is done under a lock, which is rare
+ * compared to the number of lookups.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class DenseIds<T> {
+
+    private final ConcurrentMap<T, Integer> ids = new ConcurrentHashMap<>(100, 0.75f);
+
+    private volatile Object[] values = new Object[16];
+
+    /**
+     * @param value the value
+     * @return the id of the value, assigning one if necessary
+     */
+    public int idOf(final T value) {
+        final Integer id = ids.get(value);
+        return id != null ? id : assign(value);
+    }
+
+    /**
+     * @param value the value
+     * @return the id of the value or -1 if it has none
+     */
+    public int find(final T value) {
+        final Integer id = ids.get(value);
+        return id != null ? id : -1;
+    }
+
+    private synchronized int assign(final T value) {
+        final Integer existing = ids.get(value);
+        if(existing != null) return existing;
+
+        final int id = ids.size();
+        Object[] current = values;
+        if(id == current.length) current = Arrays.copyOf(current, id * 2);
+        current[id] = value;
+        values = current;
+
+        ids.put(value, id);
+        return id;
+    }
+
+    /**
+     * @param id an id returned by {@link #idOf(Object)}
+     * @return the value with that id
+     */
+    @SuppressWarnings("unchecked")
+    public T valueOf(final int id) {
+        return (T) values[id];
+    }
+
+    /**
+     * @return the number of ids assigned
+     */
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,24 @@
+package com.byhiras.auction.store;
+
+/**
+ * When a BidJournal forces what it has written to disk.
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Before the bid is acknowledged. Nothing accepted is ever lost.
+     */
+    PER_BID,
+
+    /**
+     * Every few milliseconds from a background thread, so a crash can
+     * lose the bids accepted since the last commit.
+     */
+    GROUP_COMMIT,
+
+    /**
+     * Whenever the operating system chooses. Bids survive the process
+     * dying but not the machine.
+     */
+    NONE
+}
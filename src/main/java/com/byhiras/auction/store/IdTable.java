@@ -0,0 +1,69 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * A lock-free table from dense int ids, such as those assigned by
+ * DenseIds, to values. Like the AppendOnlyList it is split into
+ * chunks that double in size, so a lookup is two array reads and
+ * growing never copies what the table already holds.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public final class IdTable<V> {
+
+    private static final int FIRST_CHUNK_BITS = 4;
+    private static final int MAX_CHUNKS = 32 - FIRST_CHUNK_BITS;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<V>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    /**
+     * @param id a non-negative id
+     * @return the value for the id or null if there is none
+     */
+    public V get(final int id) {
+        final int chunk = chunkIndex(id);
+        final AtomicReferenceArray<V> values = chunks.get(chunk);
+        return values == null ? null : values.get(id - chunkStart(chunk));
+    }
+
+    /**
+     * @param id a non-negative id
+     * @param create makes the value if the id has none; it may be
+     *               called by more than one thread but only one value
+     *               is kept
+     * @return the value for the id
+     */
+    public V computeIfAbsent(final int id, final IntFunction<V> create) {
+        final int chunk = chunkIndex(id);
+        final AtomicReferenceArray<V> values = chunk(chunk);
+        final int offset = id - chunkStart(chunk);
+
+        final V existing = values.get(offset);
+        if(existing != null) return existing;
+
+        final V created = create.apply(id);
+        return values.compareAndSet(offset, null, created) ? created : values.get(offset);
+    }
+
+    private AtomicReferenceArray<V> chunk(final int index) {
+        AtomicReferenceArray<V> chunk = chunks.get(index);
+        if(chunk == null) {
+            final AtomicReferenceArray<V> created = new AtomicReferenceArray<>(1 << (index + FIRST_CHUNK_BITS));
+            chunk = chunks.compareAndSet(index, null, created) ? created : chunks.get(index);
+        }
+        return chunk;
+    }
+
+    private static int chunkIndex(final int id) {
+        return 31 - Integer.numberOfLeadingZeros((id >>> FIRST_CHUNK_BITS) + 1);
+    }
+
+    private static int chunkStart(final int chunk) {
+        return ((1 << chunk) - 1) << FIRST_CHUNK_BITS;
+    }
+}
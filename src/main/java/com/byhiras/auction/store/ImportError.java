@@ -0,0 +1,37 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.util.Immutable;
+
+/**
+ * A record of a catalogue file that could not be imported.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public class ImportError {
+
+    private final long offset;
+    private final String reason;
+
+    /**
+     * @param offset where the record starts in the file, in bytes
+     * @param reason what is wrong with it
+     */
+    public ImportError(final long offset, final String reason) {
+        this.offset = offset;
+        this.reason = reason;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "at byte " + offset + ": " + reason;
+    }
+}
@@ -0,0 +1,44 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.util.Immutable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of importing a catalogue file: how many items were
+ * added, how many were left out as their names were already taken,
+ * and the records that could not be read, in file order.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public class ImportResult {
+
+    private final int added;
+    private final int duplicates;
+    private final List<ImportError> errors;
+
+    public ImportResult(final int added, final int duplicates, final List<ImportError> errors) {
+        this.added = added;
+        this.duplicates = duplicates;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public int getAdded() {
+        return added;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return added + " added, " + duplicates + " duplicates, " + errors.size() + " errors";
+    }
+}
@@ -0,0 +1,63 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.util.Immutable;
+
+import java.io.File;
+
+/**
+ * How much of an item's bid history is kept in memory: the highest
+ * bids and the most recent bids. Anything older goes to a file in the
+ * spill directory and is read back when the whole history is asked
+ * for.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@Immutable
+public class RetentionPolicy {
+
+    /**
+     * Keep every bid in memory.
+     */
+    public static final RetentionPolicy UNBOUNDED = new RetentionPolicy(0, Integer.MAX_VALUE, null);
+
+    private final int topBids;
+    private final int recentBids;
+    private final File spillDirectory;
+
+    /**
+     * @param topBids how many of the highest bids to keep; bids only go
+     *                up, so these are the most recent and the larger of
+     *                the two counts is kept
+     * @param recentBids how many of the most recent bids to keep
+     * @param spillDirectory where older bids are written
+     */
+    public RetentionPolicy(final int topBids, final int recentBids, final File spillDirectory) {
+        if(topBids < 0 || recentBids < 0)
+            throw new RuntimeException("Unable to keep a negative number of bids.");
+        if(spillDirectory == null && recentBids != Integer.MAX_VALUE)
+            throw new RuntimeException("Unable to bound the history without a spill directory.");
+        if(spillDirectory != null && !spillDirectory.isDirectory() && !spillDirectory.mkdirs())
+            throw new RuntimeException("Unable to create the spill directory " + spillDirectory);
+
+        this.topBids = topBids;
+        this.recentBids = recentBids;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public int getTopBids() {
+        return topBids;
+    }
+
+    public int getRecentBids() {
+        return recentBids;
+    }
+
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    @Override
+    public String toString() {
+        return "top " + topBids + ", recent " + recentBids + (spillDirectory == null ? "" : ", spilling to " + spillDirectory);
+    }
+}
@@ -0,0 +1,412 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.BidVisitor;
+import com.byhiras.auction.RecoverableBidTracker;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.RecordedBid;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The SnapshotStore writes the auction catalogue and the state of a
+ * tracker to compact binary files so that a restart only has to
+ * replay the tail of the journal.
+ *
+ * A snapshot is taken while bidding carries on. The journal is first
+ * moved on to a new segment, then every item's history is read up to
+ * its winning bid. A bid accepted after the item was read is in that
+ * segment or a later one, so restoring the snapshot and then
+ * replaying the journal from that segment gives back every bid; a bid
+ * found in both is only restored once. Once a snapshot is written, the
+ * journal segments older than the one the oldest kept snapshot starts
+ * from are deleted.
+ *
+ * The file holds a header, a block per item (name, initial, reserve,
+ * closing time, its bids as amount, user and timestamp, oldest first,
+ * the winning bidder's maximum and whether the item is closed), the
+ * user names and finally the offset of the user names. It is read back
+ * through a single memory mapping, so must be smaller than 2GB. The
+ * winners and each user's items are rebuilt from the histories, a
+ * maximum above the winning bid is put back for its proxy bidder and
+ * a closed item is closed again.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public class SnapshotStore implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotStore.class.getName());
+
+    private static final int MAGIC = 0x42494453; // "BIDS"
+    private static final int VERSION = 4; // version 1 had no closing times, version 2 no maxima, version 3 no closed flag
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    // the number of snapshots kept on disk
+    private static final int RETAINED = 2;
+
+    private final File directory;
+    private final Auction auction;
+    private final RecoverableBidTracker tracker;
+    private final BidJournal journal;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param directory where the snapshot files live
+     * @param auction the catalogue to snapshot
+     * @param tracker the tracker to snapshot
+     * @param journal the journal of the tracker's bids, or null if there is none
+     */
+    public SnapshotStore(final File directory, final Auction auction, final RecoverableBidTracker tracker,
+                         final BidJournal journal) {
+        if(!directory.isDirectory() && !directory.mkdirs())
+            throw new RuntimeException("Unable to create the snapshot directory " + directory);
+
+        this.directory = directory;
+        this.auction = auction;
+        this.tracker = tracker;
+        this.journal = journal;
+    }
+
+    /**
+     * Take a snapshot every period on a background thread.
+     *
+     * @param period the time between snapshots
+     * @param unit the unit of the period
+     */
+    public synchronized void schedule(final long period, final TimeUnit unit) {
+        if(scheduler != null) throw new RuntimeException("Unable to schedule snapshots as they are already scheduled.");
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "bid-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    takeSnapshot();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Unable to take a snapshot in " + directory, e);
+                }
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Take a snapshot now, on the calling thread.
+     *
+     * @return the snapshot file
+     */
+    public synchronized File takeSnapshot() {
+        final TreeMap<Long, File> snapshots = snapshots(directory);
+        final long number = snapshots.isEmpty() ? 0 : snapshots.lastKey() + 1;
+
+        final File file = new File(directory, String.format("%s%020d%s", PREFIX, number, SUFFIX));
+        final File temporary = new File(directory, file.getName() + ".tmp");
+
+        final int journalSegment = journal == null ? 0 : journal.startNewSegment();
+
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(journalSegment);
+
+            final Map<User, Integer> userIds = new IdentityHashMap<>();
+            final List<User> users = new ArrayList<>();
+            final Set<String> written = new HashSet<>();
+
+            tracker.exportBids(new BidVisitor() {
+                @Override
+                public void visitItem(Item item, int bidCount) {
+                    try {
+                        writeItem(out, item, bidCount);
+                        written.add(item.getName());
+                    } catch (IOException e) {
+                        throw new SnapshotFailure(e);
+                    }
+                }
+
+                @Override
+                public void visitBid(int sequence, int amount, User user, long timestamp) {
+                    Integer id = userIds.get(user);
+                    if(id == null) {
+                        id = users.size();
+                        userIds.put(user, id);
+                        users.add(user);
+                    }
+                    try {
+                        out.writeInt(amount);
+                        out.writeInt(id);
+                        out.writeLong(timestamp);
+                    } catch (IOException e) {
+                        throw new SnapshotFailure(e);
+                    }
+                }
+
+                @Override
+                public void visitMaximum(int maximum) {
+                    try {
+                        out.writeInt(maximum);
+                    } catch (IOException e) {
+                        throw new SnapshotFailure(e);
+                    }
+                }
+
+                @Override
+                public void visitClosed(boolean closed) {
+                    try {
+                        out.writeBoolean(closed);
+                    } catch (IOException e) {
+                        throw new SnapshotFailure(e);
+                    }
+                }
+            });
+
+            // the items nobody has bid on yet
+            for(Item item : auction.getItems()) {
+                if(written.contains(item.getName())) continue;
+                writeItem(out, item, 0);
+                out.writeInt(0);
+                out.writeBoolean(false);
+            }
+            out.writeInt(-1); // end of the items
+
+            final int usersOffset = out.size();
+            out.writeInt(users.size());
+            for(User user : users) writeString(out, user.getName());
+
+            out.writeInt(usersOffset);
+        } catch (SnapshotFailure e) {
+            temporary.delete();
+            throw new RuntimeException("Unable to write the snapshot " + file, e.getCause());
+        } catch (IOException e) {
+            temporary.delete();
+            throw new RuntimeException("Unable to write the snapshot " + file, e);
+        }
+
+        try {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to move the snapshot into place as " + file, e);
+        }
+
+        // keep the newest snapshots only
+        snapshots.put(number, file);
+        while(snapshots.size() > RETAINED) {
+            final File oldest = snapshots.remove(snapshots.firstKey());
+            if(!oldest.delete()) LOGGER.warning("Unable to delete the old snapshot " + oldest);
+        }
+
+        // every kept snapshot can still be restored with the journal that follows it
+        if(journal != null) journal.deleteSegmentsBefore(journalSegment(snapshots.firstEntry().getValue()));
+
+        return file;
+    }
+
+    /**
+     * @return the journal segment a snapshot was taken at, from its header
+     */
+    private static int journalSegment(final File snapshot) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(snapshot))) {
+            in.readInt(); // magic
+            in.readInt(); // version
+            in.readLong(); // taken at
+            return in.readInt();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read the journal segment of the snapshot " + snapshot, e);
+        }
+    }
+
+    /**
+     * Restore the latest snapshot in a directory into an empty tracker,
+     * then replay the journal from the segment the snapshot was taken at.
+     * Items missing from the auction are added to it.
+     *
+     * @param directory where the snapshot files live
+     * @param auction the catalogue to restore into
+     * @param tracker the tracker to restore into
+     * @param journal the journal to replay, or null if there is none
+     * @return the number of bids restored
+     */
+    public static long restore(final File directory, final Auction auction, final RecoverableBidTracker tracker,
+                               final BidJournal journal) {
+        final Map<String, User> users = new HashMap<>();
+
+        long restored = 0;
+        int journalSegment = 0;
+
+        final TreeMap<Long, File> snapshots = snapshots(directory);
+        if(!snapshots.isEmpty()) {
+            final File file = snapshots.lastEntry().getValue();
+            try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+                final MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+                final int magic = in.getInt();
+                final int version = in.getInt();
+                if(magic != MAGIC || version < 1 || version > VERSION)
+                    throw new RuntimeException("Unable to restore " + file + " as it is not a snapshot of version " + VERSION + " or earlier.");
+                in.getLong(); // taken at
+                journalSegment = in.getInt();
+                final int itemsOffset = in.position();
+
+                // the users are at the end so are read first
+                in.position(in.getInt(in.capacity() - 4));
+                final User[] snapshotUsers = new User[in.getInt()];
+                for(int id = 0; id < snapshotUsers.length; id++) {
+                    final String name = readString(in);
+                    User user = users.get(name);
+                    if(user == null) {
+                        user = new AuctionUser(name);
+                        users.put(name, user);
+                    }
+                    snapshotUsers[id] = user;
+                }
+
+                in.position(itemsOffset);
+                while(true) {
+                    final int nameLength = in.getInt();
+                    if(nameLength < 0) break;
+
+                    final String name = readString(in, nameLength);
+                    final int initial = in.getInt();
+                    final int reserve = in.getInt();
+                    final long closingTime = version > 1 ? in.getLong() : Item.NEVER;
+                    final int bidCount = in.getInt();
+
+                    Item item = auction.find(name);
+                    if(item == null) {
+                        item = new AuctionItem(name, initial, reserve, closingTime);
+                        auction.add(item);
+                    }
+
+                    int winning = 0;
+                    for(int sequence = 0; sequence < bidCount; sequence++) {
+                        final int amount = in.getInt();
+                        final User user = snapshotUsers[in.getInt()];
+                        final long timestamp = in.getLong();
+                        tracker.restoreBid(item, new RecordedBid(amount, user, timestamp), sequence, timestamp);
+                        winning = amount;
+                    }
+                    restored += bidCount;
+
+                    final int maximum = version > 2 ? in.getInt() : 0;
+                    if(bidCount > 0 && maximum > winning) tracker.restoreMaximum(item, bidCount - 1, maximum);
+
+                    if(version > 3 && in.get() != 0) tracker.restoreClosed(item);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to restore the snapshot " + file, e);
+            }
+        }
+
+        if(journal != null) restored += journal.replay(auction, tracker, journalSegment, users);
+
+        return restored;
+    }
+
+    @Override
+    public synchronized void close() {
+        if(scheduler == null) return;
+
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    private static void writeItem(final DataOutputStream out, final Item item, final int bidCount) throws IOException {
+        writeString(out, item.getName());
+        out.writeInt(item.getInitial());
+        out.writeInt(item.getReserve());
+        out.writeLong(item.getClosingTime());
+        out.writeInt(bidCount);
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final MappedByteBuffer in) {
+        return readString(in, in.getInt());
+    }
+
+    private static String readString(final MappedByteBuffer in, final int length) {
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static TreeMap<Long, File> snapshots(final File directory) {
+        final TreeMap<Long, File> snapshots = new TreeMap<>();
+
+        final File[] files = directory.listFiles();
+        if(files == null) return snapshots;
+
+        for(File file : files) {
+            final String name = file.getName();
+            if(!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) continue;
+            try {
+                snapshots.put(Long.valueOf(name.substring(PREFIX.length(), name.length() - SUFFIX.length())), file);
+            } catch (NumberFormatException e) {
+                // not one of ours
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Carries an IOException out of the BidVisitor.
+     */
+    private static final class SnapshotFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private SnapshotFailure(final IOException cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.RecordedBid;
+import com.byhiras.auction.util.ThreadSafe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The bid history of a single item with a bounded footprint in memory.
+ *
+ * Every bid joins the recent bids. When a bid drops off the end of the
+ * recent bids it is appended to the item's spill file, so the file
+ * always holds the oldest bids in the order they were made and the
+ * recent bids follow on from it. Each record is a fixed 16 bytes
+ * (amount, user id and timestamp) so any position can be read
+ * directly. Each bid is higher than the one before, so the highest
+ * bids are the most recent and need no structure of their own.
+ *
+ * Spilled records are gathered into batches in memory. A full batch
+ * is only written by flush, which holds the history's lock just long
+ * enough to take the batch and never while writing it, so bids keep
+ * being added while the file is written. Until then the batch is read
+ * from memory. However popular the item, memory holds at most the
+ * recent bids and a few batches.
+ *
+ * The file is only opened once something is spilled and is deleted
+ * when the history is closed; it is overflow for memory, not a record
+ * that outlives the process. Bids read back from it are RecordedBids.
+ *
+ * Once the item stops taking bids the history can be archived: every
+ * bid, spilled or not, is packed into a BidArchive, the file is
+ * deleted and the bids in memory are let go. The history then answers
+ * from the archive.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public final class SpillingBidHistory implements Closeable {
+
+    private static final int RECORD_BYTES = 16;
+
+    // records read from the file at a time
+    private static final int READ_RECORDS = 256;
+
+    // records gathered in memory before they are written together
+    static final int BATCH_RECORDS = 64;
+
+    private final RetentionPolicy policy;
+    private final File file;
+    private final UserIds users;
+    private final int window;
+
+    private ArrayDeque<Bid> recent = new ArrayDeque<>();
+    // when each recent bid was accepted, to be written out with it
+    private Timestamps recentTimestamps = new Timestamps();
+    private Bid highest;
+
+    // set once the history is archived, after which nothing else is held
+    private BidArchive archive;
+
+    private FileChannel spill;
+    private int spilled; // records in the file and in the batches
+    private int written; // records in the file
+
+    // full batches waiting to be written, oldest first, and the one filling
+    private final ArrayDeque<ByteBuffer> sealed = new ArrayDeque<>();
+    private ByteBuffer batch;
+    private volatile boolean unflushed;
+
+    // held while writing, and taken before the history's own lock
+    private final Object writeLock = new Object();
+
+    /**
+     * @param policy how many bids to keep in memory
+     * @param file where older bids are written, unused if nothing spills
+     * @param users gives the users ids that can be written to the file
+     */
+    public SpillingBidHistory(final RetentionPolicy policy, final File file, final UserIds users) {
+        this.policy = policy;
+        this.file = file;
+        this.users = users;
+        this.window = Math.max(policy.getTopBids(), policy.getRecentBids());
+    }
+
+    /**
+     * Add a bid if it is higher than every bid so far.
+     *
+     * @param bid the bid
+     * @return true iff the bid was added
+     */
+    public synchronized boolean addIfHighest(final Bid bid) {
+        if(archive != null || (highest != null && highest.value() >= bid.value())) return false;
+
+        add(bid, System.currentTimeMillis());
+        return true;
+    }
+
+    private void add(final Bid bid, final long timestamp) {
+        highest = bid;
+
+        recent.addLast(bid);
+        recentTimestamps.addLast(timestamp);
+        if(recent.size() > window) spill(recent.pollFirst(), recentTimestamps.pollFirst());
+    }
+
+    /**
+     * @return the highest bid or null if there are none
+     */
+    public synchronized Bid highest() {
+        return highest;
+    }
+
+    /**
+     * @return the number of bids, in memory or spilled
+     */
+    public synchronized int size() {
+        if(archive != null) return archive.size();
+        return spilled + recent.size();
+    }
+
+    /**
+     * @return the number of bids spilled, written to the file or not
+     */
+    public synchronized int spilled() {
+        return spilled;
+    }
+
+    /**
+     * @param n the most bids to return
+     * @return the highest bids, highest first, read from memory when
+     *         the recent bids are enough
+     */
+    public synchronized List<Bid> top(final int n) {
+        if(archive != null) return archive.top(n);
+
+        final int count = Math.min(Math.max(n, 0), size());
+        final List<Bid> bids = new ArrayList<>(count);
+
+        // each bid is higher than the one before, so the last are the highest
+        if(count <= recent.size()) {
+            final Iterator<Bid> newest = recent.descendingIterator();
+            while(bids.size() < count) bids.add(newest.next());
+            return bids;
+        }
+
+        final List<Bid> oldestFirst = range(size() - count, size());
+        for(int i = oldestFirst.size() - 1; i >= 0; i--) bids.add(oldestFirst.get(i));
+        return bids;
+    }
+
+    /**
+     * @param from the position of the first bid, in the order they were made
+     * @param to the position after the last bid
+     * @return the bids in that range, oldest first
+     */
+    public synchronized List<Bid> range(final int from, final int to) {
+        if(archive != null) return archive.range(from, to);
+
+        final int end = Math.min(to, size());
+        final List<Bid> bids = new ArrayList<>(Math.max(0, end - from));
+
+        if(from < spilled) readSpilled(from, Math.min(end, spilled), bids);
+
+        int position = spilled;
+        for(Bid bid : recent) {
+            if(position >= end) break;
+            if(position >= from) bids.add(bid);
+            position++;
+        }
+        return bids;
+    }
+
+    private void spill(final Bid bid, final long timestamp) {
+        if(batch == null) batch = ByteBuffer.allocate(BATCH_RECORDS * RECORD_BYTES);
+
+        batch.putInt(bid.value());
+        batch.putInt(users.idOf(bid.getUser()));
+        batch.putLong(timestamp);
+        spilled++;
+
+        if(!batch.hasRemaining()) {
+            batch.flip();
+            sealed.addLast(batch);
+            batch = null;
+            unflushed = true;
+        }
+    }
+
+    /**
+     * Write any full batches of spilled bids to the file. The file is
+     * written without holding the history's lock, so call this after
+     * adding a bid rather than while holding that lock.
+     */
+    public void flush() {
+        if(!unflushed) return;
+
+        synchronized(writeLock) {
+            while(true) {
+                final ByteBuffer next;
+                final FileChannel channel;
+                final long position;
+                synchronized(this) {
+                    next = sealed.peekFirst();
+                    if(next == null) {
+                        unflushed = false;
+                        return;
+                    }
+                    channel = open();
+                    position = (long) written * RECORD_BYTES;
+                }
+
+                final ByteBuffer records = next.duplicate();
+                try {
+                    while(records.hasRemaining()) channel.write(records, position + records.position());
+                } catch(IOException e) {
+                    throw new RuntimeException("Unable to spill bids to " + file, e);
+                }
+
+                synchronized(this) {
+                    sealed.pollFirst();
+                    written += next.remaining() / RECORD_BYTES;
+                }
+            }
+        }
+    }
+
+    private FileChannel open() {
+        try {
+            if(spill == null) spill = new RandomAccessFile(file, "rw").getChannel();
+            return spill;
+        } catch(IOException e) {
+            throw new RuntimeException("Unable to open the spill file " + file, e);
+        }
+    }
+
+    private void readSpilled(final int from, final int to, final List<Bid> bids) {
+        if(from < written) readFile(from, Math.min(to, written), bids);
+
+        // the rest are in the batches not yet written, in order
+        int position = written;
+        for(ByteBuffer records : sealed) {
+            position = readBatch(records, position, from, to, bids);
+        }
+        if(batch != null) {
+            final ByteBuffer filled = batch.duplicate();
+            filled.flip();
+            readBatch(filled, position, from, to, bids);
+        }
+    }
+
+    private int readBatch(final ByteBuffer records, int position, final int from, final int to, final List<Bid> bids) {
+        final int count = records.remaining() / RECORD_BYTES;
+        for(int i = 0; i < count && position < to; i++, position++) {
+            if(position < from) continue;
+
+            final int offset = records.position() + i * RECORD_BYTES;
+            bids.add(new RecordedBid(records.getInt(offset), users.userOf(records.getInt(offset + 4)), records.getLong(offset + 8)));
+        }
+        return position;
+    }
+
+    private void readFile(final int from, final int to, final List<Bid> bids) {
+        final ByteBuffer buffer = ByteBuffer.allocate(READ_RECORDS * RECORD_BYTES);
+        try {
+            for(int start = from; start < to; start += READ_RECORDS) {
+                final int count = Math.min(READ_RECORDS, to - start);
+                buffer.clear().limit(count * RECORD_BYTES);
+                while(buffer.hasRemaining()) {
+                    if(spill.read(buffer, (long) start * RECORD_BYTES + buffer.position()) < 0)
+                        throw new IOException("the file ends early");
+                }
+                buffer.flip();
+
+                for(int i = 0; i < count; i++) {
+                    final int amount = buffer.getInt();
+                    final int user = buffer.getInt();
+                    bids.add(new RecordedBid(amount, users.userOf(user), buffer.getLong()));
+                }
+            }
+        } catch(IOException e) {
+            throw new RuntimeException("Unable to read spilled bids from " + file, e);
+        }
+    }
+
+    /**
+     * Pack every bid into an archive and let go of everything else,
+     * including the spill file and any batches not yet written. No bid
+     * is added after this.
+     *
+     * @return the archive
+     */
+    public BidArchive archive() {
+        synchronized(writeLock) {
+            synchronized(this) {
+                if(archive != null) return archive;
+
+                final BidArchive.Builder builder = new BidArchive.Builder(users);
+                for(Bid bid : range(0, spilled)) {
+                    builder.add(bid.value(), users.idOf(bid.getUser()), ((RecordedBid) bid).getTimestamp());
+                }
+                int index = 0;
+                for(Bid bid : recent) {
+                    builder.add(bid.value(), users.idOf(bid.getUser()), recentTimestamps.get(index++));
+                }
+
+                archive = builder.build(highest);
+                close();
+                recent = null;
+                recentTimestamps = null;
+                spilled = 0;
+                return archive;
+            }
+        }
+    }
+
+    /**
+     * Close and delete the spill file, and drop any batches not yet
+     * written.
+     */
+    @Override
+    public void close() {
+        synchronized(writeLock) {
+            synchronized(this) {
+                sealed.clear();
+                batch = null;
+                unflushed = false;
+                written = 0;
+                if(spill == null) return;
+
+                try {
+                    spill.close();
+                } catch(IOException e) {
+                    throw new RuntimeException("Unable to close the spill file " + file, e);
+                } finally {
+                    spill = null;
+                    if(!file.delete()) file.deleteOnExit();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the bids kept in memory as objects; for testing
+     */
+    synchronized int retained() {
+        return archive != null ? 0 : recent.size();
+    }
+
+    /**
+     * @return the batches of spilled bids waiting to be written; for testing
+     */
+    synchronized int unwritten() {
+        return sealed.size();
+    }
+
+    /**
+     * A queue of timestamps in a ring of primitives, so keeping one per
+     * recent bid does not box it.
+     */
+    private static final class Timestamps {
+        private long[] values = new long[8];
+        private int head;
+        private int size;
+
+        private void addLast(final long timestamp) {
+            if(size == values.length) {
+                final long[] grown = new long[values.length * 2];
+                for(int i = 0; i < size; i++) grown[i] = get(i);
+                values = grown;
+                head = 0;
+            }
+            values[(head + size++) % values.length] = timestamp;
+        }
+
+        private long pollFirst() {
+            final long timestamp = values[head];
+            head = (head + 1) % values.length;
+            size--;
+            return timestamp;
+        }
+
+        private long get(final int index) {
+            return values[(head + index) % values.length];
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.util.ThreadSafe;
+
+/**
+ * Assigns each user a dense int id so that a bid history can store
+ * the user as a primitive.
+ *
+ * @author: Jeremy Davies [jerdavies@gmail.com]
+ */
+@ThreadSafe
+public final class UserIds extends DenseIds<User> {
+
+    /**
+     * @param id an id returned by {@link #idOf(Object)}
+     * @return the user with that id
+     */
+    public User userOf(final int id) {
+        return valueOf(id);
+    }
+}
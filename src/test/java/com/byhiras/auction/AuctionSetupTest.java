@@ -12,12 +12,9 @@
  import org.mockito.Spy;
  import org.mockito.runners.MockitoJUnitRunner;
 
- import java.util.Observable;
-
  import static org.hamcrest.MatcherAssert.assertThat;
  import static org.hamcrest.core.IsEqual.equalTo;
  import static org.mockito.Matchers.any;
- import static org.mockito.Matchers.anyObject;
  import static org.mockito.Mockito.*;
 
  @RunWith(MockitoJUnitRunner.class)
@@ -95,7 +92,7 @@ public class AuctionSetupTest {
         Bid bid = spy(new AuctionBid(100, user));
         bid.execute(item);
 
-        verify(user, times(1)).update(any(Observable.class),anyObject());
+        verify(user, times(1)).bidExecuted(any(Bid.class), any(Item.class));
 
     }
 
@@ -106,7 +103,7 @@ public class AuctionSetupTest {
          spy(new AuctionBid(100, user)).execute(item);
          spy(new AuctionBid(100, user)).execute(item);
 
-         verify(user, times(3)).update(any(Observable.class),anyObject());
+         verify(user, times(3)).bidExecuted(any(Bid.class), any(Item.class));
 
      }
 
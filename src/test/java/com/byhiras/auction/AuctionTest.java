@@ -6,9 +6,15 @@ import com.byhiras.auction.models.Bid;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
 
 public class AuctionTest {
 
@@ -76,6 +82,116 @@ public class AuctionTest {
         assertThat(item.getReserve(), equalTo(200));
     }
 
+    @Test
+    public void testAddingAnItemWithAnExistingNameKeepsTheOriginalItem() {
+
+        assertThat(auction.add(new AuctionItem("Item 1", 1, 2)), is(false));
+        assertThat(auctionService.find("Item 1").getInitial(), equalTo(100));
+    }
+
+    @Test
+    public void testRemovedItemCanNoLongerBeFound() {
+
+        assertThat(auction.remove("Item 2"), is(ITEM2));
+        assertThat(auctionService.find("Item 2"), is(nullValue()));
+        assertThat(auction.remove("Item 2"), is(nullValue()));
+    }
+
+    @Test
+    public void testFindIgnoringCaseUsesTheSecondaryIndex() {
+
+        Auction caseInsensitive = new Auction(true);
+        caseInsensitive.add(ITEM1);
+
+        assertThat(caseInsensitive.find("item 1"), is(nullValue()));
+        assertThat(caseInsensitive.findIgnoreCase("ITEM 1"), is(ITEM1));
+
+        caseInsensitive.remove("Item 1");
+        assertThat(caseInsensitive.findIgnoreCase("item 1"), is(nullValue()));
+    }
+
+    @Test
+    public void testRemovingOneCaseVariantLeavesTheOthersFindable() {
+
+        Auction caseInsensitive = new Auction(true);
+        Item lower = new AuctionItem("foo", 10, 20);
+        Item upper = new AuctionItem("FOO", 10, 20);
+        Item mixed = new AuctionItem("Foo", 10, 20);
+        caseInsensitive.add(mixed);
+        caseInsensitive.add(upper);
+        caseInsensitive.add(lower);
+
+        assertThat(caseInsensitive.findIgnoreCase("fOO"), is(mixed));
+
+        caseInsensitive.remove("Foo");
+        assertThat(caseInsensitive.findIgnoreCase("foo"), is(upper));
+
+        caseInsensitive.remove("foo");
+        assertThat(caseInsensitive.findIgnoreCase("foo"), is(upper));
+
+        caseInsensitive.remove("FOO");
+        assertThat(caseInsensitive.findIgnoreCase("foo"), is(nullValue()));
+    }
+
+    @Test
+    public void testConcurrentAddsAndRemovesLeaveTheIndexMatchingTheCatalogue() throws Exception {
+
+        final Auction caseInsensitive = new Auction(true);
+        final String[] names = {"Bar", "BAR", "bar"};
+
+        final Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < 20000; i++) {
+                    final String name = names[(i + offset) % names.length];
+                    if((i + offset) % 2 == 0) {
+                        caseInsensitive.add(new AuctionItem(name, 10, 20));
+                    } else {
+                        caseInsensitive.remove(name);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) thread.join();
+
+        final Item found = caseInsensitive.findIgnoreCase("bar");
+        if(found == null) {
+            for(String name : names) assertThat(caseInsensitive.find(name), is(nullValue()));
+        } else {
+            assertThat(caseInsensitive.find(found.getName()), is(found));
+        }
+        for(String name : names) caseInsensitive.remove(name);
+        assertThat(caseInsensitive.findIgnoreCase("bar"), is(nullValue()));
+    }
+
+    @Test
+    public void testBatchOfBidsIsGroupedByItemAndGivesAResultPerBid() {
+
+        List<BidResult> results = auctionService.bidAll(Arrays.asList(
+                new BidRequest(new AuctionBid(101, user), ITEM1.getName()),
+                new BidRequest(new AuctionBid(60, user), ITEM2.getName()),
+                new BidRequest(new AuctionBid(101, user), ITEM1.getName()),
+                new BidRequest(new AuctionBid(90, user), ITEM1.getName()),
+                new BidRequest(new AuctionBid(150, user), ITEM1.getName()),
+                new BidRequest(new AuctionBid(40, user), ITEM2.getName()),
+                new BidRequest(new AuctionBid(500, user), "No Such Item")));
+
+        assertThat(results, equalTo(Arrays.asList(
+                BidResult.ACCEPTED,
+                BidResult.ACCEPTED,
+                BidResult.NOT_ABOVE_WINNING_BID,
+                BidResult.BELOW_INITIAL,
+                BidResult.ACCEPTED,
+                BidResult.BELOW_INITIAL,
+                BidResult.UNKNOWN_ITEM)));
+
+        assertThat(auctionService.getBidHistory().getCurrentWinningBid(ITEM1).value(), is(150));
+        assertThat(auctionService.getBidHistory().getAllBids(ITEM1).size(), is(2));
+        assertThat(auctionService.getBidHistory().getCurrentWinningBid(ITEM2).value(), is(60));
+    }
+
     @Test
     public void testBiddingOnAnItemWithAValueLowerThanTheInitialItemValueFailsToRegisterABid() {
 
@@ -138,7 +254,8 @@ public class AuctionTest {
         auctionService.bid(bid2, ITEM1.getName());
         auctionService.bid(bid3, ITEM1.getName());
 
-        assertThat(auctionService.getBidHistory().getAllItems(user).size(), is(3));
+        // each item is only listed once however many times it was bid on
+        assertThat(auctionService.getBidHistory().getAllItems(user).size(), is(1));
     }
 
     @Test
@@ -176,9 +293,70 @@ public class AuctionTest {
 
         assertThat(auctionService.getBidHistory().getCurrentWinningBid(ITEM1), is(bid4));
 
-        // there should only be three valid bids
+        // there should only be three valid bids, highest first
         assertThat(auctionService.getBidHistory().getAllBids(ITEM1).size(), is(3));
+        assertThat(auctionService.getBidHistory().getAllBids(ITEM1).get(0), is(bid4));
+        assertThat(auctionService.getBidHistory().getAllBids(ITEM1).get(2), is(bid1));
+    }
+
+    @Test
+    public void testUsersWithTheSameNameShareOneHistory() {
+
+        Bid bid1 = new AuctionBid(101, new AuctionUser("User 1"));
+        Bid bid2 = new AuctionBid(51, new AuctionUser("User 1"));
+
+        auctionService.bid(bid1, ITEM1.getName());
+        auctionService.bid(bid2, ITEM2.getName());
+        auctionService.bid(new AuctionBid(102, user), ITEM1.getName());
+
+        assertThat(auctionService.getBidHistory().getAllItems(user), is(Arrays.asList(ITEM1, ITEM2)));
+        assertThat(auctionService.getBidHistory().getAllItems(new AuctionUser("User 2")).isEmpty(), is(true));
+        assertThat(auctionService.getBidHistory().getCurrentWinningBid(new AuctionItem("Item 6", 1, 2)), is(nullValue()));
     }
 
+    @Test
+    public void testProxyBidsResolveUnderTheItemLockOfTheDefaultTracker() {
+
+        User rival = new AuctionUser("User 2");
 
+        assertThat(auctionService.proxyBid(new AuctionBid(300, user), ITEM1.getName()), is(BidResult.ACCEPTED));
+        assertThat(bidHistory.getCurrentWinningBid(ITEM1).value(), is(200));
+
+        assertThat(auctionService.proxyBid(new AuctionBid(250, rival), ITEM1.getName()), is(BidResult.OUTBID_BY_PROXY));
+        assertThat(bidHistory.getCurrentWinningBid(ITEM1).value(), is(251));
+        assertThat(bidHistory.getCurrentWinningBid(ITEM1).getUser(), is(user));
+
+        assertThat(bidHistory.placeBid(new AuctionBid(300, rival), ITEM1), is(BidResult.OUTBID_BY_PROXY));
+        assertThat(bidHistory.getCurrentWinningBid(ITEM1).value(), is(300));
+        assertThat(bidHistory.getAllItems(rival).isEmpty(), is(true));
+
+        // raising the leader's own maximum records nothing
+        assertThat(auctionService.proxyBid(new AuctionBid(400, user), ITEM1.getName()), is(BidResult.ACCEPTED));
+        assertThat(bidHistory.getAllBids(ITEM1).size(), is(3));
+
+        assertThat(bidHistory.placeBid(new AuctionBid(401, rival), ITEM1), is(BidResult.ACCEPTED));
+        assertThat(bidHistory.getCurrentWinningBid(ITEM1).getUser(), is(rival));
+
+        // a maximum below the reserve bids one increment above the initial value
+        assertThat(auctionService.proxyBid(new AuctionBid(70, user), ITEM2.getName()), is(BidResult.ACCEPTED));
+        assertThat(bidHistory.getCurrentWinningBid(ITEM2).value(), is(51));
+
+        bidHistory.closeBidding(ITEM2);
+        assertThat(auctionService.proxyBid(new AuctionBid(90, rival), ITEM2.getName()), is(BidResult.CLOSED));
+    }
+
+    @Test
+    public void testEachItemIsListedOnceInTheOrderFirstBidOn() {
+
+        List<Item> items = new ArrayList<>();
+        for(int i = 0; i < 100; i++) items.add(new AuctionItem("Lot " + i, 10, 20));
+
+        for(int round = 1; round <= 2; round++) {
+            for(int i = items.size() - 1; i >= 0; i--) bidHistory.registerBid(new AuctionBid(10 + round, user), items.get(i));
+        }
+
+        List<Item> expected = new ArrayList<>(items);
+        Collections.reverse(expected);
+        assertThat(bidHistory.getAllItems(user), is(expected));
+    }
 }
@@ -0,0 +1,367 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import com.byhiras.auction.notify.DirectBidNotifier;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class ConcurrentBidTrackerTest {
+
+    private final BidTracker bidTracker = new ConcurrentBidTracker();
+
+    private final Item item = new AuctionItem("Item 1", 100, 200);
+
+    private final User user = new User() {
+        @Override
+        public String getName() {
+            return "User 1";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+        }
+    };
+
+    private final User rival = new User() {
+        @Override
+        public String getName() {
+            return "User 2";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+        }
+    };
+
+    @Test
+    public void testNoBidsGivesNoWinningBidAndAnEmptyHistory() {
+
+        assertThat(bidTracker.getCurrentWinningBid(item), is(nullValue()));
+        assertThat(bidTracker.getAllBids(item).isEmpty(), is(true));
+        assertThat(bidTracker.getAllItems(user).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testOnlyIncreasingBidsAreAcceptedAndHistoryIsHighestFirst() {
+
+        Bid bid1 = new AuctionBid(101, user);
+        Bid bid2 = new AuctionBid(150, user);
+        Bid bid3 = new AuctionBid(150, user);
+        Bid bid4 = new AuctionBid(50, user);
+
+        bidTracker.registerBid(bid1, item);
+        bidTracker.registerBid(bid2, item);
+        bidTracker.registerBid(bid3, item);
+        bidTracker.registerBid(bid4, item);
+
+        List<Bid> bids = bidTracker.getAllBids(item);
+
+        assertThat(bidTracker.getCurrentWinningBid(item), is(bid2));
+        assertThat(bids.size(), is(2));
+        assertThat(bids.get(0), is(bid2));
+        assertThat(bids.get(1).value(), is(101));
+        assertThat(bids.get(1).getUser(), is(user));
+        assertThat(bidTracker.getAllItems(user).size(), is(1));
+    }
+
+    @Test
+    public void testBatchOfBidsIsPlacedAsIfOneAfterAnother() {
+
+        bidTracker.registerBid(new AuctionBid(110, user), item);
+
+        List<BidResult> results = bidTracker.placeBids(Arrays.<Bid>asList(
+                new AuctionBid(105, user),
+                new AuctionBid(120, user),
+                new AuctionBid(50, user),
+                new AuctionBid(120, user),
+                new AuctionBid(130, user)), item);
+
+        assertThat(results, is(Arrays.asList(
+                BidResult.NOT_ABOVE_WINNING_BID,
+                BidResult.ACCEPTED,
+                BidResult.BELOW_INITIAL,
+                BidResult.NOT_ABOVE_WINNING_BID,
+                BidResult.ACCEPTED)));
+
+        List<Bid> bids = bidTracker.getAllBids(item);
+
+        assertThat(bids.size(), is(3));
+        assertThat(bids.get(0).value(), is(130));
+        assertThat(bids.get(1).value(), is(120));
+        assertThat(bids.get(2).value(), is(110));
+    }
+
+    @Test
+    public void testConcurrentBiddersOnOneItemLeaveTheHighestBidWinningAndAnOrderedHistory() throws Exception {
+
+        final int threads = 8;
+        final int bidsPerThread = 10000;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for(int t = 0; t < threads; t++) {
+            final int offset = t;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for(int i = 0; i < bidsPerThread; i++) {
+                        bidTracker.registerBid(new AuctionBid(101 + i * threads + offset, user), item);
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES), is(true));
+
+        List<Bid> bids = bidTracker.getAllBids(item);
+
+        assertThat(bidTracker.getCurrentWinningBid(item).value(), is(100 + threads * bidsPerThread));
+        assertThat(bids.get(0), is(bidTracker.getCurrentWinningBid(item)));
+        for(int i = 1; i < bids.size(); i++) {
+            assertThat(bids.get(i - 1).value() > bids.get(i).value(), is(true));
+        }
+        assertThat(bidTracker.getAllItems(user).size(), is(1));
+    }
+
+    @Test
+    public void testTopBidsArePagedBidsInReverse() {
+
+        for(int i = 1; i <= 10; i++) bidTracker.registerBid(new AuctionBid(100 + i, user), item);
+
+        List<Bid> top = bidTracker.getTopBids(item, 3);
+
+        assertThat(top.size(), is(3));
+        assertThat(top.get(0), is(bidTracker.getCurrentWinningBid(item)));
+        assertThat(top.get(2).value(), is(108));
+        assertThat(bidTracker.getTopBids(item, 20).size(), is(10));
+
+        Page<Bid> first = bidTracker.getBids(item, 0, 4);
+        Page<Bid> last = bidTracker.getBids(item, 8, 4);
+
+        assertThat(first.getItems().get(0).value(), is(101));
+        assertThat(first.getNextCursor(), is(4));
+        assertThat(first.hasMore(), is(true));
+        assertThat(last.getItems().size(), is(2));
+        assertThat(last.getItems().get(1), is(bidTracker.getCurrentWinningBid(item)));
+        assertThat(last.hasMore(), is(false));
+    }
+
+    @Test
+    public void testStreamOfBidsIsHighestFirstAndSplits() {
+
+        for(int i = 1; i <= 1000; i++) bidTracker.registerBid(new AuctionBid(100 + i, user), item);
+
+        List<Integer> values = bidTracker.streamBids(item).parallel().map(Bid::value).collect(Collectors.toList());
+
+        assertThat(values.size(), is(1000));
+        for(int i = 0; i < values.size(); i++) assertThat(values.get(i), is(1100 - i));
+        assertThat(bidTracker.streamBids(new AuctionItem("Item 2", 100, 200)).count(), is(0L));
+    }
+
+    @Test
+    public void testItemsForAUserArePagedInTheOrderBidOn() {
+
+        for(int i = 0; i < 5; i++) bidTracker.registerBid(new AuctionBid(101, user), new AuctionItem("Item " + i, 100, 200));
+
+        Page<Item> first = bidTracker.getItems(user, 0, 3);
+        Page<Item> second = bidTracker.getItems(user, first.getNextCursor(), 3);
+
+        assertThat(first.getItems().get(0).getName(), is("Item 0"));
+        assertThat(first.hasMore(), is(true));
+        assertThat(second.getItems().size(), is(2));
+        assertThat(second.getItems().get(1).getName(), is("Item 4"));
+        assertThat(second.hasMore(), is(false));
+    }
+
+    @Test
+    public void testOutbidUserNoLongerHasTheItemAmongstTheirWinningItems() {
+
+        Item other = new AuctionItem("Item 2", 100, 200);
+
+        bidTracker.registerBid(new AuctionBid(101, user), item);
+        bidTracker.registerBid(new AuctionBid(101, user), other);
+        bidTracker.registerBid(new AuctionBid(150, rival), item);
+
+        assertThat(bidTracker.getWinningItems(user), is(Arrays.asList(other)));
+        assertThat(bidTracker.getWinningItems(rival), is(Arrays.asList(item)));
+        assertThat(bidTracker.getAllItems(user).size(), is(2));
+
+        bidTracker.placeBids(Arrays.<Bid>asList(new AuctionBid(160, rival), new AuctionBid(170, user)), item);
+
+        assertThat(bidTracker.getWinningItems(user).size(), is(2));
+        assertThat(bidTracker.getWinningItems(rival).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testConcurrentRivalsLeaveOnlyTheWinnerWinning() throws Exception {
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for(final User bidder : Arrays.asList(user, rival)) {
+            final int offset = bidder == user ? 0 : 1;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for(int i = 0; i < 10000; i++) {
+                        bidTracker.registerBid(new AuctionBid(101 + i * 2 + offset, bidder), item);
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES), is(true));
+
+        User winner = bidTracker.getCurrentWinningBid(item).getUser();
+        User loser = winner == user ? rival : user;
+
+        assertThat(bidTracker.getWinningItems(winner), is(Arrays.asList(item)));
+        assertThat(bidTracker.getWinningItems(loser).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testClosedItemRejectsBidsAndKeepsItsWinner() {
+
+        Bid winning = new AuctionBid(150, user);
+        bidTracker.registerBid(winning, item);
+
+        assertThat(bidTracker.closeBidding(item), is(winning));
+        assertThat(bidTracker.closeBidding(item), is(winning));
+        assertThat(bidTracker.placeBid(new AuctionBid(300, rival), item), is(BidResult.CLOSED));
+        assertThat(bidTracker.placeBids(Arrays.<Bid>asList(new AuctionBid(400, rival)), item),
+                   is(Arrays.asList(BidResult.CLOSED)));
+
+        assertThat(bidTracker.getCurrentWinningBid(item), is(winning));
+        assertThat(bidTracker.getAllBids(item).size(), is(1));
+        assertThat(bidTracker.getWinningItems(user), is(Arrays.asList(item)));
+
+        Item unbid = new AuctionItem("Item 2", 100, 200);
+        assertThat(bidTracker.closeBidding(unbid), is(nullValue()));
+        assertThat(bidTracker.placeBid(new AuctionBid(300, rival), unbid), is(BidResult.CLOSED));
+        assertThat(bidTracker.getAllBids(unbid).isEmpty(), is(true));
+        assertThat(bidTracker.streamBids(unbid).count(), is(0L));
+    }
+
+    @Test
+    public void testProxyBiddersResolveToOneIncrementAboveTheSecondHighestMaximum() {
+
+        BidTracker proxyTracker = new ConcurrentBidTracker(new DirectBidNotifier(), 5);
+        Item item = new AuctionItem("Item 2", 100, 100); // no reserve to bid up to
+
+        assertThat(proxyTracker.placeProxyBid(new AuctionBid(300, user), item), is(BidResult.ACCEPTED));
+        assertThat(proxyTracker.getCurrentWinningBid(item).value(), is(105));
+
+        // the rival is outbid straight away, in a single recorded bid
+        assertThat(proxyTracker.placeProxyBid(new AuctionBid(200, rival), item), is(BidResult.OUTBID_BY_PROXY));
+        assertThat(proxyTracker.getCurrentWinningBid(item).value(), is(205));
+        assertThat(proxyTracker.getCurrentWinningBid(item).getUser(), is(user));
+
+        assertThat(proxyTracker.placeBid(new AuctionBid(298, rival), item), is(BidResult.OUTBID_BY_PROXY));
+        assertThat(proxyTracker.getCurrentWinningBid(item).value(), is(300));
+        assertThat(proxyTracker.getAllBids(item).size(), is(3));
+
+        // raising the leader's own maximum records nothing
+        assertThat(proxyTracker.placeProxyBid(new AuctionBid(500, user), item), is(BidResult.ACCEPTED));
+        assertThat(proxyTracker.getAllBids(item).size(), is(3));
+
+        assertThat(proxyTracker.placeProxyBid(new AuctionBid(700, rival), item), is(BidResult.ACCEPTED));
+        assertThat(proxyTracker.getCurrentWinningBid(item).value(), is(505));
+        assertThat(proxyTracker.getCurrentWinningBid(item).getUser(), is(rival));
+        assertThat(proxyTracker.getWinningItems(user).isEmpty(), is(true));
+
+        assertThat(proxyTracker.placeBid(new AuctionBid(800, user), item), is(BidResult.ACCEPTED));
+        assertThat(proxyTracker.getCurrentWinningBid(item).value(), is(800));
+        assertThat(proxyTracker.getAllBids(item).size(), is(5));
+    }
+
+    @Test
+    public void testATiedMaximumLeavesTheEarlierProxyBidderWinning() {
+
+        BidTracker proxyTracker = new ConcurrentBidTracker(new DirectBidNotifier(), 5);
+
+        proxyTracker.placeProxyBid(new AuctionBid(300, user), item);
+
+        assertThat(proxyTracker.placeProxyBid(new AuctionBid(300, rival), item), is(BidResult.OUTBID_BY_PROXY));
+        assertThat(proxyTracker.getCurrentWinningBid(item).value(), is(300));
+        assertThat(proxyTracker.getCurrentWinningBid(item).getUser(), is(user));
+        assertThat(proxyTracker.placeProxyBid(new AuctionBid(300, rival), item), is(BidResult.NOT_ABOVE_WINNING_BID));
+    }
+
+    @Test
+    public void testARestoredMaximumAppliesOnlyToItsOwnWinningBidInAnyOrder() {
+
+        final ConcurrentBidTracker restored = new ConcurrentBidTracker();
+
+        // the maximum arrives before its bid, and one for an outbid bid after both
+        restored.restoreMaximum(item, 1, 400);
+        restored.restoreBid(item, new AuctionBid(101, rival), 0, 1L);
+        restored.restoreBid(item, new AuctionBid(150, user), 1, 2L);
+        restored.restoreMaximum(item, 0, 900);
+
+        assertThat(restored.placeBid(new AuctionBid(300, rival), item), is(BidResult.OUTBID_BY_PROXY));
+        assertThat(restored.getCurrentWinningBid(item).value(), is(301));
+        assertThat(restored.placeBid(new AuctionBid(401, rival), item), is(BidResult.ACCEPTED));
+    }
+
+    @Test
+    public void testReadsStopAtABidRestoredOutOfOrderInsteadOfWaiting() {
+
+        final ConcurrentBidTracker restored = new ConcurrentBidTracker();
+        restored.restoreBid(item, new AuctionBid(101, rival), 0, 1L);
+        restored.restoreBid(item, new AuctionBid(150, user), 2, 3L); // position 1 has yet to arrive
+
+        assertThat(restored.getCurrentWinningBid(item).value(), is(150));
+        assertThat(restored.getAllBids(item).size(), is(1));
+        assertThat(restored.streamBids(item).count(), is(1L));
+        assertThat(restored.getBids(item, 0, 10).getItems().size(), is(1));
+        assertThat(restored.getBids(item, 0, 10).getNextCursor(), is(1));
+        assertThat(restored.getBids(item, 0, 10).hasMore(), is(true));
+
+        final int[] exported = new int[1];
+        restored.exportBids(new BidVisitor() {
+            @Override
+            public void visitItem(Item visited, int bidCount) {
+                exported[0] = bidCount;
+            }
+
+            @Override
+            public void visitBid(int sequence, int amount, User bidder, long timestamp) {
+            }
+        });
+        assertThat(exported[0], is(1));
+
+        restored.restoreBid(item, new AuctionBid(120, rival), 1, 2L);
+        assertThat(restored.getAllBids(item).size(), is(3));
+        assertThat(restored.getBids(item, 1, 10).getItems().size(), is(2));
+    }
+}
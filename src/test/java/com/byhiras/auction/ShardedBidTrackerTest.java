@@ -0,0 +1,143 @@
+package com.byhiras.auction;
+
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ShardedBidTrackerTest {
+
+    private final ShardedBidTracker bidTracker = new ShardedBidTracker(4);
+
+    private final Auction auction = new Auction();
+    private final AuctionService auctionService = new AuctionService(auction, bidTracker);
+
+    private final User user = new User() {
+        @Override
+        public String getName() {
+            return "User 1";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+        }
+    };
+
+    @After
+    public void after() {
+        bidTracker.close();
+    }
+
+    @Test
+    public void testEachBidCompletesWithItsOutcome() {
+
+        auction.add(new AuctionItem("Item 1", 100, 200));
+
+        assertThat(auctionService.bidAsync(new AuctionBid(101, user), "Item 1").join(), is(BidResult.ACCEPTED));
+        assertThat(auctionService.bidAsync(new AuctionBid(101, user), "Item 1").join(), is(BidResult.NOT_ABOVE_WINNING_BID));
+        assertThat(auctionService.bidAsync(new AuctionBid(100, user), "Item 1").join(), is(BidResult.BELOW_INITIAL));
+        assertThat(auctionService.bidAsync(new AuctionBid(500, user), "Item 2").join(), is(BidResult.UNKNOWN_ITEM));
+    }
+
+    @Test
+    public void testBidsAcrossManyItemsLeaveTheHighestBidWinningEachItem() {
+
+        final int items = 50;
+        final int bidsPerItem = 200;
+
+        for(int i = 0; i < items; i++) auction.add(new AuctionItem("Item " + i, 100, 200));
+
+        List<CompletableFuture<BidResult>> results = new ArrayList<>();
+        for(int b = 1; b <= bidsPerItem; b++) {
+            for(int i = 0; i < items; i++) {
+                results.add(auctionService.bidAsync(new AuctionBid(100 + b, user), "Item " + i));
+            }
+        }
+
+        for(CompletableFuture<BidResult> result : results) {
+            assertThat(result.join(), is(BidResult.ACCEPTED));
+        }
+
+        for(int i = 0; i < items; i++) {
+            Item item = auction.find("Item " + i);
+            assertThat(bidTracker.getCurrentWinningBid(item).value(), is(100 + bidsPerItem));
+            assertThat(bidTracker.getAllBids(item).size(), is(bidsPerItem));
+        }
+        assertThat(bidTracker.getAllItems(user).size(), is(items));
+    }
+
+    @Test
+    public void testProxyBidsAndClosingFollowTheSameRulesAsTheConcurrentTracker() {
+
+        final Item item = new AuctionItem("Item 1", 100, 200);
+        final User rival = new AuctionUser("User 2");
+
+        final List<Integer> seenFromListener = new ArrayList<>();
+        bidTracker.addListener((accepted, bid, sequence, timestamp) ->
+                seenFromListener.add(bidTracker.getCurrentWinningBid(accepted).value()));
+
+        assertThat(bidTracker.placeProxyBid(new AuctionBid(150, user), item), is(BidResult.ACCEPTED));
+        assertThat(bidTracker.getCurrentWinningBid(item).value(), is(101));
+        assertThat(bidTracker.placeBid(new AuctionBid(120, rival), item), is(BidResult.OUTBID_BY_PROXY));
+        assertThat(bidTracker.getCurrentWinningBid(item).value(), is(121));
+        assertThat(bidTracker.placeBid(new AuctionBid(160, rival), item), is(BidResult.ACCEPTED));
+
+        assertThat(bidTracker.getWinningItems(rival).size(), is(1));
+        assertThat(bidTracker.getWinningItems(user).isEmpty(), is(true));
+        assertThat(bidTracker.getTopBids(item, 2).get(1).value(), is(121));
+        assertThat(seenFromListener, is(Arrays.asList(101, 121, 160)));
+
+        assertThat(bidTracker.closeBidding(item).value(), is(160));
+        assertThat(bidTracker.placeBid(new AuctionBid(170, user), item), is(BidResult.CLOSED));
+
+        final ConcurrentBidTracker copy = new ConcurrentBidTracker();
+        bidTracker.exportBids(new BidVisitor() {
+            private Item visited;
+
+            @Override
+            public void visitItem(final Item item, final int bidCount) {
+                visited = item;
+            }
+
+            @Override
+            public void visitBid(final int sequence, final int amount, final User user, final long timestamp) {
+                copy.restoreBid(visited, new AuctionBid(amount, user), sequence, timestamp);
+            }
+        });
+        assertThat(copy.getAllBids(item).size(), is(3));
+        assertThat(copy.getCurrentWinningBid(item).getUser(), is(rival));
+    }
+
+    @Test
+    public void testPagingThroughAUsersItemsVisitsEveryShardOnce() {
+
+        final int items = 23;
+        for(int i = 0; i < items; i++) bidTracker.placeBid(new AuctionBid(101, user), new AuctionItem("Item " + i, 100, 200));
+
+        Set<Item> seen = new HashSet<>();
+        Page<Item> page = bidTracker.getItems(user, 0, 5);
+        seen.addAll(page.getItems());
+        while(page.hasMore()) {
+            page = bidTracker.getItems(user, page.getNextCursor(), 5);
+            assertThat(page.getItems().isEmpty(), is(false));
+            seen.addAll(page.getItems());
+        }
+
+        assertThat(seen.size(), is(items));
+        assertThat(page.getNextCursor(), is(items));
+    }
+}
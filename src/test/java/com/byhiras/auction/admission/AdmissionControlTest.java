@@ -0,0 +1,138 @@
+package com.byhiras.auction.admission;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.AuctionService;
+import com.byhiras.auction.BidRequest;
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.metrics.AuctionMetrics;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class AdmissionControlTest {
+
+    private final User user1 = new AuctionUser("User 1");
+    private final User user2 = new AuctionUser("User 2");
+    private final User user3 = new AuctionUser("User 3");
+
+    @Test
+    public void testUsersOverTheirRateAreLimitedIndependently() {
+
+        final AdmissionControl admission = new AdmissionControl(new RateLimit(0.001, 3), 100);
+
+        for(int i = 0; i < 3; i++) {
+            assertThat(admission.admit(user1), is(nullValue()));
+            admission.release(new AuctionBid(101, user1), null, null);
+        }
+        assertThat(admission.admit(user1), is(BidResult.RATE_LIMITED));
+        assertThat(admission.admit(user2), is(nullValue()));
+
+        assertThat(admission.rateLimited(), is(1L));
+        assertThat(admission.inFlight(), is(1));
+    }
+
+    @Test
+    public void testOverloadShedsBusyUsersBeforeQuietOnes() {
+
+        final AdmissionControl admission = new AdmissionControl(new RateLimit(1000, 1000), 4);
+
+        for(int i = 0; i < 4; i++) assertThat(admission.admit(user1), is(nullValue()));
+        assertThat(admission.admit(user1), is(BidResult.OVERLOADED));
+
+        // a quiet user may use the reserve, which is a quarter of the maximum
+        assertThat(admission.admit(user2), is(nullValue()));
+        assertThat(admission.admit(user3), is(BidResult.OVERLOADED));
+
+        for(int i = 0; i < 5; i++) admission.release(new AuctionBid(101, user1), null, null);
+        assertThat(admission.inFlight(), is(0));
+        assertThat(admission.shed(), is(2L));
+        assertThat(admission.admit(user1), is(nullValue()));
+    }
+
+    @Test
+    public void testAShedBidCostsTheUserNothing() {
+
+        final AdmissionControl admission = new AdmissionControl(new RateLimit(0.001, 1), 1);
+
+        assertThat(admission.admit(user1), is(nullValue()));
+        assertThat(admission.admit(user2), is(nullValue()));
+        assertThat(admission.admit(user3), is(BidResult.OVERLOADED));
+
+        admission.release(new AuctionBid(101, user1), null, null);
+        admission.release(new AuctionBid(101, user2), null, null);
+
+        // user 3 still has their one token and still counts as quiet
+        assertThat(admission.admit(user3), is(nullValue()));
+        assertThat(admission.rateLimited(), is(0L));
+    }
+
+    @Test
+    public void testBidsThatCannotBeatTheCachedPriceNeverReachTheTracker() {
+
+        final Auction auction = new Auction();
+        final Item item = new AuctionItem("Item 1", 100, 200);
+        auction.add(item);
+
+        final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        final AuctionMetrics metrics = new AuctionMetrics();
+        final AdmissionControl admission = new AdmissionControl(new RateLimit(1000, 1000), 100);
+        final AuctionService service = new AuctionService(auction, tracker, metrics, admission);
+
+        assertThat(service.bidAsync(new AuctionBid(150, user1), "Item 1").join(), is(BidResult.ACCEPTED));
+        assertThat(service.bidAsync(new AuctionBid(140, user2), "Item 1").join(), is(BidResult.NOT_ABOVE_WINNING_BID));
+        assertThat(service.bidAsync(new AuctionBid(150, user2), "Item 1").join(), is(BidResult.NOT_ABOVE_WINNING_BID));
+        assertThat(service.bidAsync(new AuctionBid(90, user2), "Item 1").join(), is(BidResult.BELOW_INITIAL));
+        assertThat(service.bidAsync(new AuctionBid(150, user2), "Item 9").join(), is(BidResult.UNKNOWN_ITEM));
+        assertThat(admission.screened(), is(4L));
+
+        service.bid(new AuctionBid(160, user2), "Item 1");
+        assertThat(service.proxyBid(new AuctionBid(155, user3), "Item 1"), is(BidResult.NOT_ABOVE_WINNING_BID));
+        assertThat(tracker.getCurrentWinningBid(item).value(), is(160));
+        assertThat(tracker.getAllBids(item).size(), is(2));
+
+        assertThat(admission.inFlight(), is(0));
+        assertThat(metrics.snapshot().getCount(BidResult.NOT_ABOVE_WINNING_BID), is(3L));
+    }
+
+    @Test
+    public void testEveryBidInABatchIsAdmittedScreenedAndReleased() {
+
+        final Auction auction = new Auction();
+        final Item item = new AuctionItem("Item 1", 100, 200);
+        auction.add(item);
+
+        final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        final AdmissionControl admission = new AdmissionControl(new RateLimit(0.001, 2), 100);
+        final AuctionService service = new AuctionService(auction, tracker, null, admission);
+
+        final List<BidResult> results = service.bidAll(Arrays.asList(
+                new BidRequest(new AuctionBid(150, user1), "Item 1"),
+                new BidRequest(new AuctionBid(160, user1), "Item 1"),
+                new BidRequest(new AuctionBid(170, user1), "Item 1"),
+                new BidRequest(new AuctionBid(120, user2), "Item 1"),
+                new BidRequest(new AuctionBid(60, user2), "Item 9")));
+
+        assertThat(results, is(Arrays.asList(BidResult.ACCEPTED, BidResult.ACCEPTED, BidResult.RATE_LIMITED,
+                                              BidResult.NOT_ABOVE_WINNING_BID, BidResult.UNKNOWN_ITEM)));
+        assertThat(admission.rateLimited(), is(1L));
+        assertThat(admission.inFlight(), is(0));
+
+        // the floor was raised from the batch, so this never reaches the tracker
+        assertThat(service.bidAll(Arrays.asList(new BidRequest(new AuctionBid(155, user3), "Item 1"))),
+                   is(Arrays.asList(BidResult.NOT_ABOVE_WINNING_BID)));
+        assertThat(admission.screened(), is(1L));
+        assertThat(tracker.getAllBids(item).size(), is(2));
+        assertThat(admission.inFlight(), is(0));
+    }
+}
@@ -0,0 +1,144 @@
+package com.byhiras.auction.leaderboard;
+
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class LeaderboardsTest {
+
+    private final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+
+    private final Item item1 = new AuctionItem("Item 1", 100, 200);
+    private final Item item2 = new AuctionItem("Item 2", 100, 200);
+    private final Item item3 = new AuctionItem("Item 3", 100, 200);
+
+    private final User user = new User() {
+        @Override
+        public String getName() {
+            return "User 1";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+        }
+    };
+
+    @Test
+    public void testItemsAreRankedByBidCountAndPrice() {
+
+        final Leaderboards leaderboards = new Leaderboards(tracker, 2, 0);
+
+        bid(item1, 101, 102, 103);
+        bid(item2, 500);
+        bid(item3, 110, 120);
+
+        assertThat(leaderboards.getMostBidOn().isEmpty(), is(true));
+
+        leaderboards.publish();
+
+        assertThat(items(leaderboards.getMostBidOn()), is(names(item1, item3)));
+        assertThat(leaderboards.getMostBidOn().get(0).getBidCount(), is(3));
+        assertThat(items(leaderboards.getHighestPriced()), is(names(item2, item3)));
+        assertThat(leaderboards.getHighestPriced().get(0).getPrice(), is(500));
+
+        // item 2 overtakes on both
+        bid(item2, 600, 700, 800);
+        leaderboards.publish();
+
+        assertThat(items(leaderboards.getMostBidOn()), is(names(item2, item1)));
+        assertThat(items(leaderboards.getHighestPriced()), is(names(item2, item3)));
+        assertThat(leaderboards.getHighestPriced().get(0).getPrice(), is(800));
+    }
+
+    @Test
+    public void testBidsAlreadyHeldAreRanked() {
+
+        bid(item1, 101);
+        bid(item2, 101, 102);
+
+        final Leaderboards leaderboards = new Leaderboards(tracker, 3, 0);
+        leaderboards.publish();
+
+        assertThat(items(leaderboards.getMostBidOn()), is(names(item2, item1)));
+        assertThat(leaderboards.getFastestRising().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testItemsAreRankedByRecentVelocity() {
+
+        final Leaderboards leaderboards = new Leaderboards(tracker, 3, 0);
+
+        bid(item1, 101, 102, 103, 104, 105, 106, 107, 108);
+        bid(item2, 101);
+        leaderboards.publish();
+
+        assertThat(items(leaderboards.getFastestRising()), is(names(item1, item2)));
+
+        bid(item2, 102, 103, 104, 105, 106, 107, 108, 109, 110, 111, 112, 113, 114, 115, 116, 117, 118, 119, 120);
+        leaderboards.publish();
+
+        assertThat(items(leaderboards.getFastestRising()), is(names(item2, item1)));
+        assertThat(leaderboards.getFastestRising().get(0).getVelocity() > 0, is(true));
+    }
+
+    @Test
+    public void testConcurrentBidsAreAllCounted() throws Exception {
+
+        final Leaderboards leaderboards = new Leaderboards(tracker, 3, 1);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        final List<Future<?>> bidders = new ArrayList<>();
+        for(int b = 0; b < 8; b++) {
+            final int bidder = b;
+            bidders.add(executor.submit(() -> {
+                for(int i = 1; i <= 1000; i++) {
+                    tracker.placeBid(new AuctionBid(100 + i * 8 + bidder, user), i % 2 == 0 ? item1 : item2);
+                }
+            }));
+        }
+        for(Future<?> bidder : bidders) bidder.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        leaderboards.close();
+        leaderboards.publish();
+
+        final List<ItemStanding> mostBidOn = leaderboards.getMostBidOn();
+        assertThat(mostBidOn.size(), is(2));
+        for(ItemStanding standing : mostBidOn) {
+            assertThat(standing.getBidCount(), is(tracker.getAllBids(standing.getItem()).size()));
+            assertThat(standing.getPrice(), is(tracker.getCurrentWinningBid(standing.getItem()).value()));
+        }
+    }
+
+    private void bid(final Item item, final int... values) {
+        for(int value : values) {
+            tracker.placeBid(new AuctionBid(value, user), item);
+        }
+    }
+
+    private static List<String> items(final List<ItemStanding> standings) {
+        final List<String> names = new ArrayList<>();
+        for(ItemStanding standing : standings) names.add(standing.getItem().getName());
+        return names;
+    }
+
+    private static List<String> names(final Item... items) {
+        final List<String> names = new ArrayList<>();
+        for(Item item : items) names.add(item.getName());
+        return names;
+    }
+}
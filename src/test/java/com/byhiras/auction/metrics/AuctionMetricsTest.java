@@ -0,0 +1,101 @@
+package com.byhiras.auction.metrics;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.AuctionService;
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+
+public class AuctionMetricsTest {
+
+    private final AuctionMetrics metrics = new AuctionMetrics();
+
+    private final Auction auction = new Auction();
+    private final AuctionService auctionService =
+            new AuctionService(auction, new MeteredBidTracker(new ConcurrentBidTracker(), metrics), metrics);
+
+    private final User user = new User() {
+        @Override
+        public String getName() {
+            return "User 1";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+        }
+    };
+
+    @After
+    public void after() {
+        metrics.close();
+    }
+
+    @Test
+    public void testBidsAreTimedAndCountedByOutcome() {
+
+        auction.add(new AuctionItem("Item 1", 100, 200));
+
+        auctionService.bid(new AuctionBid(101, user), "Item 1");
+        auctionService.bid(new AuctionBid(101, user), "Item 1");
+        auctionService.bid(new AuctionBid(50, user), "Item 1");
+        auctionService.bid(new AuctionBid(150, user), "Item 2");
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+
+        assertThat(snapshot.getCount(BidResult.ACCEPTED), is(1L));
+        assertThat(snapshot.getCount(BidResult.NOT_ABOVE_WINNING_BID), is(1L));
+        assertThat(snapshot.getCount(BidResult.BELOW_INITIAL), is(1L));
+        assertThat(snapshot.getCount(BidResult.UNKNOWN_ITEM), is(1L));
+        assertThat(snapshot.getLatency(Operation.BID).getCount(), is(4L));
+        assertThat(snapshot.getLatency(Operation.FIND).getCount(), is(4L));
+        assertThat(snapshot.getLatency(Operation.PLACE_BID).getCount(), is(4L));
+        assertThat(metrics.getRejectedBids(), is(3L));
+    }
+
+    @Test
+    public void testMetricsAreReadableThroughJmx() throws Exception {
+
+        metrics.registerGauge("queue.depth", () -> 7);
+        metrics.record(BidResult.ACCEPTED);
+        metrics.record(Operation.PLACE_BID, 1000);
+        metrics.registerMBean("com.byhiras.auction:type=AuctionMetrics,name=test");
+
+        ObjectName name = new ObjectName("com.byhiras.auction:type=AuctionMetrics,name=test");
+
+        assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "AcceptedBids"), is((Object) 1L));
+        assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Gauges"), is(notNullValue()));
+        assertThat(metrics.getLatencies().get("PLACE_BID.p99.9"), is(1023L));
+
+        metrics.close();
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name), is(false));
+    }
+
+    @Test
+    public void testSnapshotsAreDeliveredPeriodically() throws Exception {
+
+        final BlockingQueue<MetricsSnapshot> delivered = new ArrayBlockingQueue<>(100);
+        metrics.registerGauge("queue.depth", () -> 7);
+        metrics.schedule(10, TimeUnit.MILLISECONDS, delivered::offer);
+
+        MetricsSnapshot snapshot = delivered.poll(10, TimeUnit.SECONDS);
+
+        assertThat(snapshot, is(notNullValue()));
+        assertThat(snapshot.getGauge("queue.depth"), is(7L));
+    }
+}
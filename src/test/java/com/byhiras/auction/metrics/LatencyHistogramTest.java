@@ -0,0 +1,39 @@
+package com.byhiras.auction.metrics;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEveryValueFallsInABucketWithinSixPercentOfIt() {
+
+        for(long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long highest = LatencyHistogram.highestValueIn(bucket);
+
+            assertThat(highest >= value, is(true));
+            assertThat(highest - value <= value / 16, is(true));
+            assertThat(bucket < LatencyHistogram.BUCKETS, is(true));
+        }
+        assertThat(LatencyHistogram.highestValueIn(LatencyHistogram.BUCKETS - 1), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentilesOfAUniformSpread() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int value = 1; value <= 10000; value++) histogram.record(value);
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.getCount(), is(10000L));
+        assertThat(snapshot.getMean(), is(5000.5));
+        assertThat(Math.abs(snapshot.valueAt(50) - 5000) <= 5000 / 16, is(true));
+        assertThat(Math.abs(snapshot.valueAt(99) - 9900) <= 9900 / 16, is(true));
+        assertThat(snapshot.getMax() >= 10000, is(true));
+        assertThat(new LatencyHistogram().snapshot().valueAt(99), is(0L));
+    }
+}
@@ -0,0 +1,144 @@
+package com.byhiras.auction.net;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.AuctionService;
+import com.byhiras.auction.BidRequest;
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.BidTracker;
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.Page;
+import com.byhiras.auction.ShardedBidTracker;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class AuctionServerTest {
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @After
+    public void after() throws Exception {
+        for(AutoCloseable resource : resources) resource.close();
+    }
+
+    @Test
+    public void testBidFindWinningBidAndHistoryOverLoopback() {
+
+        final AuctionClient client = connect(start(new ConcurrentBidTracker(), 1));
+
+        assertThat(client.bid("Item 1", "User 1", 150), is(BidResult.ACCEPTED));
+        assertThat(client.bid("Item 1", "User 2", 150), is(BidResult.NOT_ABOVE_WINNING_BID));
+        assertThat(client.bid("Item 1", "User 2", 160), is(BidResult.ACCEPTED));
+        assertThat(client.bid("Item 9", "User 2", 160), is(BidResult.UNKNOWN_ITEM));
+
+        final Item item = client.find("Item 1");
+        assertThat(item.getInitial(), is(100));
+        assertThat(item.getReserve(), is(200));
+        assertThat(item.getClosingTime(), is(123456789L));
+        assertThat(client.find("Item 9"), is(nullValue()));
+
+        final Bid winner = client.getCurrentWinningBid("Item 1");
+        assertThat(winner.value(), is(160));
+        assertThat(winner.getUser().getName(), is("User 2"));
+        assertThat(client.getCurrentWinningBid("Item 2"), is(nullValue()));
+
+        final Page<Bid> first = client.getBids("Item 1", 0, 1);
+        assertThat(first.getItems().size(), is(1));
+        assertThat(first.getItems().get(0).value(), is(150));
+        assertThat(first.hasMore(), is(true));
+
+        final Page<Bid> second = client.getBids("Item 1", first.getNextCursor(), 10);
+        assertThat(second.getItems().size(), is(1));
+        assertThat(second.getItems().get(0).value(), is(160));
+        assertThat(second.hasMore(), is(false));
+    }
+
+    @Test
+    public void testPipelinedBidsAreAnsweredInOrder() {
+
+        for(AuctionServer server : new AuctionServer[] {start(new ConcurrentBidTracker(), 1), start(new ShardedBidTracker(2), 2)}) {
+            final AuctionClient client = connect(server);
+
+            final List<BidRequest> requests = new ArrayList<>();
+            for(int i = 0; i < 1000; i++) {
+                // every other bid is too low to be accepted
+                final int value = i % 2 == 0 ? 200 + i : 100;
+                requests.add(new BidRequest(new AuctionBid(value, new AuctionUser("User " + i)), "Item " + (1 + i % 2)));
+            }
+
+            final List<BidResult> results = client.bidAll(requests);
+
+            assertThat(results.size(), is(1000));
+            for(int i = 0; i < 1000; i++) {
+                assertThat(results.get(i), is(i % 2 == 0 ? BidResult.ACCEPTED : BidResult.BELOW_INITIAL));
+            }
+            assertThat(client.getCurrentWinningBid("Item 1").value(), is(1198));
+        }
+    }
+
+    @Test
+    public void testManyConnectionsShareTheEventLoops() throws Exception {
+
+        final AuctionServer server = start(new ConcurrentBidTracker(), 2);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        final List<Future<?>> bidders = new ArrayList<>();
+        for(int b = 0; b < 8; b++) {
+            final int bidder = b;
+            bidders.add(executor.submit(() -> {
+                try(AuctionClient client = new AuctionClient(server.getAddress())) {
+                    for(int i = 1; i <= 250; i++) {
+                        client.bid("Item 1", "User " + bidder, 100 + i * 8 + bidder);
+                    }
+                }
+            }));
+        }
+        for(Future<?> bidder : bidders) bidder.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        final AuctionClient client = connect(server);
+        assertThat(client.getCurrentWinningBid("Item 1").value(), is(100 + 250 * 8 + 7));
+
+        // the bidders' connections close in the background
+        final long deadline = System.currentTimeMillis() + 5000;
+        while(server.connectionCount() > 1 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertThat(server.connectionCount(), is(1));
+    }
+
+    private AuctionServer start(final BidTracker tracker, final int loops) {
+        final Auction auction = new Auction();
+        auction.add(new AuctionItem("Item 1", 100, 200, 123456789L));
+        auction.add(new AuctionItem("Item 2", 100, 200));
+        resources.add(() -> {
+            if(tracker instanceof AutoCloseable) ((AutoCloseable) tracker).close();
+        });
+
+        final AuctionServer server = new AuctionServer(
+                new AuctionService(auction, tracker), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), loops);
+        resources.add(0, server);
+        return server;
+    }
+
+    private AuctionClient connect(final AuctionServer server) {
+        final AuctionClient client = new AuctionClient(server.getAddress());
+        resources.add(0, client);
+        return client;
+    }
+}
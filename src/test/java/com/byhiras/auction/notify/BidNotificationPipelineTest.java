@@ -0,0 +1,208 @@
+package com.byhiras.auction.notify;
+
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+
+public class BidNotificationPipelineTest {
+
+    private final Item item1 = new AuctionItem("Item 1", 100, 200);
+    private final Item item2 = new AuctionItem("Item 2", 100, 200);
+
+    private final List<Bid> executed = new CopyOnWriteArrayList<>();
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final CountDownLatch releaseAgain = new CountDownLatch(1);
+    private final CountDownLatch blockedAgain = new CountDownLatch(1);
+    private final Map<Item, List<Integer>> executedOn = new ConcurrentHashMap<>();
+
+    private final User user = new User() {
+        @Override
+        public String getName() {
+            return "User 1";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+            executed.add(bid);
+            threads.add(Thread.currentThread());
+        }
+    };
+
+    // holds up the consumer on its first notification until released
+    private final User slowUser = new User() {
+        @Override
+        public String getName() {
+            return "Slow User";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executed.add(bid);
+        }
+    };
+
+    // holds up the consumer a second time
+    private final User slowerUser = new User() {
+        @Override
+        public String getName() {
+            return "Slower User";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+            blockedAgain.countDown();
+            try {
+                releaseAgain.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executed.add(bid);
+        }
+    };
+
+    // records the order of the bids executed on each item
+    private final User recordingUser = new User() {
+        @Override
+        public String getName() {
+            return "Recording User";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+            executedOn.computeIfAbsent(item, i -> new ArrayList<>()).add(bid.value());
+        }
+    };
+
+    @Test
+    public void testEveryBidIsExecutedOffTheBiddingThreadWhenBlocking() {
+
+        BidNotificationPipeline pipeline = new BidNotificationPipeline(8, 2, 4, OverflowPolicy.BLOCK);
+
+        for(int i = 0; i < 1000; i++) {
+            pipeline.bidAccepted(new AuctionBid(101 + i, user), item1);
+        }
+        pipeline.close();
+
+        assertThat(executed.size(), is(1000));
+        for(Thread thread : threads) {
+            assertThat(thread, is(not(Thread.currentThread())));
+        }
+    }
+
+    @Test
+    public void testBidsAreDroppedWhenTheBufferIsFull() throws Exception {
+
+        BidNotificationPipeline pipeline = new BidNotificationPipeline(4, 1, 1, OverflowPolicy.DROP);
+
+        pipeline.bidAccepted(new AuctionBid(101, slowUser), item1);
+        assertThat(blocked.await(10, TimeUnit.SECONDS), is(true));
+
+        for(int i = 0; i < 10; i++) {
+            pipeline.bidAccepted(new AuctionBid(102 + i, user), item1);
+        }
+
+        assertThat(pipeline.dropped(), is(6L));
+
+        release.countDown();
+        pipeline.close();
+
+        assertThat(executed.size(), is(5));
+    }
+
+    @Test
+    public void testOverflowingBidsAreCoalescedToTheLatestPerItem() throws Exception {
+
+        BidNotificationPipeline pipeline = new BidNotificationPipeline(2, 1, 1, OverflowPolicy.COALESCE);
+
+        pipeline.bidAccepted(new AuctionBid(101, slowUser), item1);
+        assertThat(blocked.await(10, TimeUnit.SECONDS), is(true));
+
+        pipeline.bidAccepted(new AuctionBid(102, user), item1);
+        pipeline.bidAccepted(new AuctionBid(103, user), item1);
+        pipeline.bidAccepted(new AuctionBid(104, user), item1);
+        pipeline.bidAccepted(new AuctionBid(105, user), item1);
+        pipeline.bidAccepted(new AuctionBid(106, user), item2);
+
+        assertThat(pipeline.coalesced(), is(1L));
+        assertThat(pipeline.depth(), is(4));
+
+        release.countDown();
+        pipeline.close();
+
+        assertThat(executed.size(), is(5));
+        assertThat(executed.get(executed.size() - 1).value() >= 105, is(true));
+    }
+
+    @Test
+    public void testAnOverflowingBidIsDiscardedOnceAHigherBidOnTheItemHasRun() throws Exception {
+
+        BidNotificationPipeline pipeline = new BidNotificationPipeline(2, 1, 2, OverflowPolicy.COALESCE);
+
+        pipeline.bidAccepted(new AuctionBid(101, slowUser), item1);
+        assertThat(blocked.await(10, TimeUnit.SECONDS), is(true));
+
+        pipeline.bidAccepted(new AuctionBid(102, slowerUser), item1);
+        pipeline.bidAccepted(new AuctionBid(103, user), item1);
+        pipeline.bidAccepted(new AuctionBid(104, user), item1); // overflows
+
+        release.countDown();
+        assertThat(blockedAgain.await(10, TimeUnit.SECONDS), is(true));
+
+        pipeline.bidAccepted(new AuctionBid(105, user), item1); // through the buffer, ahead of 104
+
+        releaseAgain.countDown();
+        pipeline.close();
+
+        assertThat(executed.size(), is(4));
+        assertThat(executed.get(2).value(), is(103));
+        assertThat(executed.get(3).value(), is(105));
+        assertThat(pipeline.coalesced(), is(1L));
+    }
+
+    @Test
+    public void testEachItemsBidsAreExecutedInOrderAcrossConsumers() {
+
+        BidNotificationPipeline pipeline = new BidNotificationPipeline(16, 4, 4, OverflowPolicy.BLOCK);
+
+        List<Item> items = new ArrayList<>();
+        for(int i = 0; i < 8; i++) items.add(new AuctionItem("Item " + i, 100, 200));
+
+        for(int i = 0; i < 1000; i++) {
+            pipeline.bidAccepted(new AuctionBid(101 + i, recordingUser), items.get(i % items.size()));
+        }
+        pipeline.close();
+
+        int total = 0;
+        for(Item item : items) {
+            List<Integer> values = executedOn.get(item);
+            for(int i = 1; i < values.size(); i++) {
+                assertThat(values.get(i) > values.get(i - 1), is(true));
+            }
+            total += values.size();
+        }
+        assertThat(total, is(1000));
+    }
+}
@@ -0,0 +1,124 @@
+package com.byhiras.auction.notify;
+
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class SubscriptionHubTest {
+
+    private final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+    private final SubscriptionHub hub = new SubscriptionHub(tracker, 2);
+
+    private final Item item1 = new AuctionItem("Item 1", 100, 200);
+    private final Item item2 = new AuctionItem("Item 2", 100, 200);
+
+    private final User user = new User() {
+        @Override
+        public String getName() {
+            return "User 1";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+        }
+    };
+
+    @After
+    public void after() {
+        hub.close();
+    }
+
+    @Test
+    public void testWatchersAreToldTheCurrentPriceAndEachChangeOfTheirItemsOnly() throws Exception {
+
+        tracker.placeBid(new AuctionBid(110, user), item1);
+
+        final List<Integer> prices = new CopyOnWriteArrayList<>();
+        final CountDownLatch updates = new CountDownLatch(2);
+        hub.subscribe((item, bid) -> {
+            prices.add(bid.value());
+            updates.countDown();
+        }, Collections.singletonList(item1));
+
+        tracker.placeBid(new AuctionBid(500, user), item2);
+        while(prices.isEmpty()) Thread.yield();
+        tracker.placeBid(new AuctionBid(120, user), item1);
+
+        assertThat(updates.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(prices, is(Arrays.asList(110, 120)));
+    }
+
+    @Test
+    public void testASlowWatcherOnlySeesTheLatestPrice() throws Exception {
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> prices = new CopyOnWriteArrayList<>();
+
+        hub.subscribe((item, bid) -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            prices.add(bid.value());
+        }, Collections.singletonList(item1));
+
+        tracker.placeBid(new AuctionBid(101, user), item1);
+        assertThat(blocked.await(10, TimeUnit.SECONDS), is(true));
+
+        for(int i = 2; i <= 10000; i++) tracker.placeBid(new AuctionBid(100 + i, user), item1);
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while(!prices.contains(10100) && System.currentTimeMillis() < deadline) Thread.sleep(1);
+
+        assertThat(prices.get(prices.size() - 1), is(10100));
+        assertThat(prices.size() <= 3, is(true));
+    }
+
+    @Test
+    public void testThousandsOfWatchersOnAnItemAllReachTheLatestPrice() throws Exception {
+
+        final int watchers = 5000;
+        final CountDownLatch caughtUp = new CountDownLatch(watchers);
+
+        for(int w = 0; w < watchers; w++) {
+            hub.subscribe((item, bid) -> {
+                if(bid.value() == 200) caughtUp.countDown();
+            }, Collections.singletonList(item1));
+        }
+
+        for(int i = 101; i <= 200; i++) tracker.placeBid(new AuctionBid(i, user), item1);
+
+        assertThat(caughtUp.await(30, TimeUnit.SECONDS), is(true));
+        assertThat(hub.subscriberCount(item1), is(watchers));
+    }
+
+    @Test
+    public void testClosedSubscriptionStopsWatching() {
+
+        Subscription subscription = hub.subscribe((item, bid) -> { }, Arrays.asList(item1, item2));
+
+        assertThat(hub.subscriberCount(item2), is(1));
+        subscription.close();
+        assertThat(hub.subscriberCount(item1), is(0));
+        assertThat(hub.subscriberCount(item2), is(0));
+    }
+}
@@ -0,0 +1,203 @@
+package com.byhiras.auction.replication;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class ReplicationTest {
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    private final Item item1 = new AuctionItem("Item 1", 100, 200);
+    private final Item item2 = new AuctionItem("Item 2", 50, 75, 1234567890L);
+    private final User user1 = new AuctionUser("User 1");
+    private final User user2 = new AuctionUser("User 2");
+
+    @After
+    public void after() throws Exception {
+        for(AutoCloseable resource : resources) resource.close();
+    }
+
+    @Test
+    public void testFollowersCatchUpFromASnapshotAndServeReads() throws Exception {
+
+        final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        tracker.placeBid(new AuctionBid(150, user1), item1);
+        tracker.placeBid(new AuctionBid(160, user2), item1);
+
+        final ReplicationLeader leader = leader(tracker, loopback(0));
+        final Auction auction1 = new Auction();
+        final Auction auction2 = new Auction();
+        final ReplicationFollower follower1 = follower(leader.getAddress(), auction1);
+        final ReplicationFollower follower2 = follower(leader.getAddress(), auction2);
+
+        for(int i = 1; i <= 100; i++) {
+            assertThat(tracker.placeBid(new AuctionBid(160 + i, i % 2 == 0 ? user2 : user1), item1), is(BidResult.ACCEPTED));
+        }
+        tracker.placeBid(new AuctionBid(60, user1), item2);
+        final long placed = System.currentTimeMillis();
+
+        for(ReplicationFollower follower : new ReplicationFollower[] {follower1, follower2}) {
+            assertThat(follower.awaitCaughtUp(placed, 10000), is(true));
+
+            final ReadReplica replica = follower.getReplica();
+            assertThat(replica.getCurrentWinningBid(item1).value(), is(260));
+            assertThat(replica.getCurrentWinningBid(item1).getUser(), is(user2));
+            assertThat(replica.getAllBids(item1).size(), is(102));
+            assertThat(replica.getAllBids(item1).get(101).value(), is(150));
+            assertThat(replica.getAllItems(user1), is(tracker.getAllItems(user1)));
+            assertThat(replica.getWinningItems(user1), is(tracker.getWinningItems(user1)));
+            assertThat(replica.getStalenessMillis() < 10000, is(true));
+        }
+        assertThat(leader.followerCount(), is(2));
+
+        assertThat(auction1.find("Item 2").getInitial(), is(50));
+        assertThat(auction2.find("Item 2").getClosingTime(), is(1234567890L));
+
+        try {
+            follower1.getReplica().placeBid(new AuctionBid(300, user1), item1);
+            throw new AssertionError("a replica accepted a bid");
+        } catch (RuntimeException e) {
+            assertThat(tracker.getCurrentWinningBid(item1).value(), is(260));
+        }
+    }
+
+    @Test
+    public void testASnapshotKeepsEachUsersItemsInTheLeadersOrder() throws Exception {
+
+        final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        for(int i = 20; i > 0; i--) {
+            final Item item = new AuctionItem("Item " + (100 + i), 100, 200);
+            tracker.placeBid(new AuctionBid(150, i % 2 == 0 ? user1 : user2), item);
+            tracker.placeBid(new AuctionBid(160, i % 3 == 0 ? user1 : user2), item);
+        }
+
+        final ReplicationLeader leader = leader(tracker, loopback(0));
+        final ReplicationFollower follower = follower(leader.getAddress(), new Auction());
+        assertThat(follower.awaitCaughtUp(System.currentTimeMillis(), 10000), is(true));
+
+        final ReadReplica replica = follower.getReplica();
+        for(User user : new User[] {user1, user2}) {
+            assertThat(replica.getAllItems(user), is(tracker.getAllItems(user)));
+            assertThat(replica.getWinningItems(user), is(tracker.getWinningItems(user)));
+        }
+    }
+
+    @Test
+    public void testABidJustAfterAnIdleHeartbeatIsReadBackOnceCaughtUp() throws Exception {
+
+        final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        final ReplicationLeader leader = leader(tracker, loopback(0));
+        final ReplicationFollower follower = follower(leader.getAddress(), new Auction());
+        final ReadReplica replica = follower.getReplica();
+        assertThat(follower.awaitCaughtUp(System.currentTimeMillis(), 10000), is(true));
+
+        for(int i = 1; i <= 50; i++) {
+            // let the link go idle, so the bid lands around a heartbeat
+            Thread.sleep(1 + i % 12);
+            tracker.placeBid(new AuctionBid(150 + i, user1), item1);
+            final long placed = System.currentTimeMillis();
+
+            assertThat(follower.awaitCaughtUp(placed, 10000), is(true));
+            assertThat(replica.getCurrentWinningBid(item1).value(), is(150 + i));
+        }
+    }
+
+    @Test
+    public void testAFollowerClosesWhatTheLeaderClosed() throws Exception {
+
+        final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        tracker.placeBid(new AuctionBid(150, user1), item1);
+        tracker.closeBidding(item1);
+
+        final ReplicationLeader leader = leader(tracker, loopback(0));
+        final ConcurrentBidTracker followed = new ConcurrentBidTracker();
+        final ReplicationFollower follower = new ReplicationFollower(leader.getAddress(), new Auction(), followed, 20);
+        resources.add(0, follower);
+        assertThat(follower.awaitCaughtUp(System.currentTimeMillis(), 10000), is(true));
+
+        tracker.placeBid(new AuctionBid(60, user2), item2);
+        tracker.closeBidding(item2);
+        assertThat(follower.awaitCaughtUp(System.currentTimeMillis(), 10000), is(true));
+
+        assertThat(followed.placeBid(new AuctionBid(160, user2), item1), is(BidResult.CLOSED));
+        assertThat(followed.placeBid(new AuctionBid(70, user1), item2), is(BidResult.CLOSED));
+        assertThat(followed.getCurrentWinningBid(item2).value(), is(60));
+    }
+
+    @Test
+    public void testAFollowerReportsStalenessAndResyncsWithARestartedLeader() throws Exception {
+
+        final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        final ReplicationLeader first = new ReplicationLeader(tracker, loopback(0), 10, 1024);
+        final InetSocketAddress address = first.getAddress();
+
+        final ReplicationFollower follower = follower(address, new Auction());
+        final ReadReplica replica = follower.getReplica();
+
+        tracker.placeBid(new AuctionBid(150, user1), item1);
+        assertThat(follower.awaitCaughtUp(System.currentTimeMillis(), 10000), is(true));
+        assertThat(replica.getCurrentWinningBid(item1).value(), is(150));
+
+        // idle, the heartbeats keep the follower fresh
+        Thread.sleep(100);
+        assertThat(replica.getStalenessMillis() < 100, is(true));
+
+        // while the leader is down the follower keeps serving and falls behind
+        first.close();
+        Thread.sleep(100);
+        assertThat(replica.getStalenessMillis() >= 100, is(true));
+        assertThat(replica.getCurrentWinningBid(item1).value(), is(150));
+        assertThat(replica.getCurrentWinningBid(item2), is(nullValue()));
+
+        tracker.placeBid(new AuctionBid(170, user2), item1);
+        tracker.placeBid(new AuctionBid(60, user2), item2);
+
+        leader(tracker, address);
+        assertThat(follower.awaitCaughtUp(System.currentTimeMillis(), 10000), is(true));
+
+        assertThat(follower.connections(), is(2L));
+        assertThat(values(replica.getAllBids(item1)), is(values(tracker.getAllBids(item1))));
+        assertThat(replica.getCurrentWinningBid(item2).value(), is(60));
+        assertThat(replica.getAllItems(user2).size(), is(2));
+    }
+
+    private ReplicationLeader leader(final ConcurrentBidTracker tracker, final InetSocketAddress address) {
+        final ReplicationLeader leader = new ReplicationLeader(tracker, address, 10, 1024);
+        resources.add(leader);
+        return leader;
+    }
+
+    private ReplicationFollower follower(final InetSocketAddress leader, final Auction auction) {
+        final ReplicationFollower follower = new ReplicationFollower(leader, auction, new ConcurrentBidTracker(), 20);
+        resources.add(0, follower);
+        return follower;
+    }
+
+    private static InetSocketAddress loopback(final int port) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+
+    private static List<Integer> values(final List<Bid> bids) {
+        final List<Integer> values = new ArrayList<>();
+        for(Bid bid : bids) values.add(bid.value());
+        return values;
+    }
+}
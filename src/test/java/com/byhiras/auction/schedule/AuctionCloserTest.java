@@ -0,0 +1,143 @@
+package com.byhiras.auction.schedule;
+
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class AuctionCloserTest {
+
+    private final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+    private final AuctionCloser closer = new AuctionCloser(tracker, 5);
+
+    private final User user = new User() {
+        @Override
+        public String getName() {
+            return "User 1";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+        }
+    };
+
+    @After
+    public void after() {
+        closer.close();
+    }
+
+    @Test
+    public void testItemsCloseAtTheirClosingTimesAndSettleAgainstTheirReserves() throws Exception {
+
+        final long closing = System.currentTimeMillis() + 100;
+        final Item sold = new AuctionItem("Item 1", 100, 200, closing);
+        final Item unsold = new AuctionItem("Item 2", 100, 200, closing);
+        final Item unbid = new AuctionItem("Item 3", 100, 200, closing);
+        final Item open = new AuctionItem("Item 4", 100, 200);
+
+        final Map<Item, Settlement> settlements = new ConcurrentHashMap<>();
+        final CountDownLatch settled = new CountDownLatch(3);
+        closer.addListener(settlement -> {
+            settlements.put(settlement.getItem(), settlement);
+            settled.countDown();
+        });
+
+        for(Item item : new Item[] {sold, unsold, unbid, open}) closer.schedule(item);
+
+        tracker.placeBid(new AuctionBid(250, user), sold);
+        tracker.placeBid(new AuctionBid(150, user), unsold);
+
+        assertThat(settled.await(10, TimeUnit.SECONDS), is(true));
+
+        assertThat(settlements.get(sold).getOutcome(), is(SettlementOutcome.SOLD));
+        assertThat(settlements.get(sold).getWinningBid().value(), is(250));
+        assertThat(settlements.get(sold).getClosedAt() >= closing, is(true));
+        assertThat(settlements.get(unsold).getOutcome(), is(SettlementOutcome.RESERVE_NOT_MET));
+        assertThat(settlements.get(unbid).getOutcome(), is(SettlementOutcome.NO_BIDS));
+
+        assertThat(tracker.placeBid(new AuctionBid(300, user), sold), is(BidResult.CLOSED));
+        assertThat(tracker.placeBid(new AuctionBid(300, user), unbid), is(BidResult.CLOSED));
+        assertThat(tracker.placeBid(new AuctionBid(300, user), open), is(BidResult.ACCEPTED));
+        assertThat(tracker.getCurrentWinningBid(sold).value(), is(250));
+        assertThat(closer.pending(), is(0));
+    }
+
+    @Test
+    public void testAProxyBidderWhoseMaximumMeetsTheReserveIsSettledAsSold() throws Exception {
+
+        final long closing = System.currentTimeMillis() + 100;
+        final Item met = new AuctionItem("Item 1", 100, 200, closing);
+        final Item raised = new AuctionItem("Item 2", 100, 200, closing);
+        final Item answered = new AuctionItem("Item 3", 100, 200, closing);
+        final Item below = new AuctionItem("Item 4", 100, 200, closing);
+
+        final Map<Item, Settlement> settlements = new ConcurrentHashMap<>();
+        final CountDownLatch settled = new CountDownLatch(4);
+        closer.addListener(settlement -> {
+            settlements.put(settlement.getItem(), settlement);
+            settled.countDown();
+        });
+
+        for(Item item : new Item[] {met, raised, answered, below}) closer.schedule(item);
+
+        final User rival = new AuctionUser("User 2");
+
+        assertThat(tracker.placeProxyBid(new AuctionBid(500, user), met), is(BidResult.ACCEPTED));
+        assertThat(tracker.getCurrentWinningBid(met).value(), is(200));
+
+        // raising a maximum past the reserve raises the bid to it
+        tracker.placeProxyBid(new AuctionBid(150, user), raised);
+        assertThat(tracker.getCurrentWinningBid(raised).value(), is(101));
+        assertThat(tracker.placeProxyBid(new AuctionBid(250, user), raised), is(BidResult.ACCEPTED));
+        assertThat(tracker.getCurrentWinningBid(raised).value(), is(200));
+
+        // the proxy answers a rival below the reserve at the reserve
+        tracker.placeBid(new AuctionBid(120, rival), answered);
+        assertThat(tracker.placeProxyBid(new AuctionBid(300, user), answered), is(BidResult.ACCEPTED));
+        assertThat(tracker.getCurrentWinningBid(answered).value(), is(200));
+        assertThat(tracker.placeBid(new AuctionBid(210, rival), answered), is(BidResult.OUTBID_BY_PROXY));
+        assertThat(tracker.getCurrentWinningBid(answered).value(), is(211));
+
+        // a maximum below the reserve is never revealed
+        tracker.placeProxyBid(new AuctionBid(180, user), below);
+        assertThat(tracker.getCurrentWinningBid(below).value(), is(101));
+
+        assertThat(settled.await(10, TimeUnit.SECONDS), is(true));
+
+        assertThat(settlements.get(met).getOutcome(), is(SettlementOutcome.SOLD));
+        assertThat(settlements.get(met).getWinningBid().value(), is(200));
+        assertThat(settlements.get(raised).getOutcome(), is(SettlementOutcome.SOLD));
+        assertThat(settlements.get(answered).getOutcome(), is(SettlementOutcome.SOLD));
+        assertThat(settlements.get(answered).getWinningBid().getUser(), is(user));
+        assertThat(settlements.get(below).getOutcome(), is(SettlementOutcome.RESERVE_NOT_MET));
+    }
+
+    @Test
+    public void testThousandsOfItemsClosingTogetherAreAllSettled() throws Exception {
+
+        final int items = 20000;
+        final long closing = System.currentTimeMillis() + 50;
+
+        final CountDownLatch settled = new CountDownLatch(items);
+        closer.addListener(settlement -> settled.countDown());
+
+        for(int i = 0; i < items; i++) closer.schedule(new AuctionItem("Item " + i, 100, 200, closing + i % 100));
+
+        assertThat(settled.await(30, TimeUnit.SECONDS), is(true));
+        assertThat(closer.pending(), is(0));
+    }
+}
@@ -0,0 +1,59 @@
+package com.byhiras.auction.schedule;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class TimerWheelTest {
+
+    @Test
+    public void testTimersFireOnTheirDeadlineTickAcrossLevels() {
+
+        final long start = 1000003;
+        final TimerWheel<Long> wheel = new TimerWheel<>(start);
+
+        final Random random = new Random(42);
+        int added = 0;
+        for(int i = 0; i < 5000; i++) {
+            // spread the deadlines over the first three levels
+            final long deadline = start + 1 + (long) (random.nextDouble() * random.nextDouble() * (1 << 20));
+            assertThat(wheel.add(deadline, deadline), is(true));
+            added++;
+        }
+        assertThat(wheel.add(start, start), is(false));
+
+        final List<Long> fired = new ArrayList<>();
+        for(long tick = start + 1; tick <= start + (1 << 20) + 1; tick++) {
+            final long now = tick;
+            wheel.advance(tick, deadline -> {
+                assertThat(deadline, is(now));
+                fired.add(deadline);
+            });
+        }
+
+        assertThat(fired.size(), is(added));
+        assertThat(wheel.size(), is(0));
+    }
+
+    @Test
+    public void testAdvancingManyTicksAtOnceFiresEverythingDue() {
+
+        final TimerWheel<String> wheel = new TimerWheel<>(0);
+        wheel.add("soon", 3);
+        wheel.add("later", 70000);
+        wheel.add("much later", 1L << 40);
+
+        final List<String> fired = new ArrayList<>();
+        wheel.advance(100000, fired::add);
+
+        assertThat(fired.size(), is(2));
+        assertThat(fired.get(0), is("soon"));
+        assertThat(fired.get(1), is("later"));
+        assertThat(wheel.size(), is(1));
+    }
+}
@@ -0,0 +1,136 @@
+package com.byhiras.auction.search;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.Page;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ItemSearchTest {
+
+    private final Auction auction = new Auction();
+    private final ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+    private final User user = new AuctionUser("User 1");
+
+    private final Item redBike = new AuctionItem("Red Bike", 100, 200);
+    private final Item redCar = new AuctionItem("red car", 100, 200);
+    private final Item blueBike = new AuctionItem("Blue Bike", 100, 200);
+    private final Item redBarn = new AuctionItem("Red Barn", 100, 200);
+
+    @Before
+    public void before() {
+        for(Item item : new Item[] {redBike, redCar, blueBike, redBarn}) auction.add(item);
+    }
+
+    @Test
+    public void testPrefixSearchIgnoresCaseAndPagesInNameOrder() {
+
+        final ItemSearch search = new ItemSearch(auction, tracker);
+
+        final Page<Item> first = search.findByPrefix("RED", SortOrder.NAME, 0, 2);
+        assertThat(first.getItems(), is(Arrays.asList(redBarn, redBike)));
+        assertThat(first.hasMore(), is(true));
+
+        final Page<Item> second = search.findByPrefix("RED", SortOrder.NAME, first.getNextCursor(), 2);
+        assertThat(second.getItems(), is(Arrays.asList(redCar)));
+        assertThat(second.hasMore(), is(false));
+
+        assertThat(search.findByPrefix("red b", SortOrder.NAME, 0, 10).getItems(), is(Arrays.asList(redBarn, redBike)));
+        assertThat(search.findByPrefix("", SortOrder.NAME, 0, 10).getItems().size(), is(4));
+        assertThat(search.findByPrefix("green", SortOrder.NAME, 0, 10).getItems().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testKeywordSearchSortsByPriceAndBidCount() {
+
+        tracker.placeBid(new AuctionBid(150, user), blueBike);
+        final ItemSearch search = new ItemSearch(auction, tracker);
+
+        tracker.placeBid(new AuctionBid(120, user), redBike);
+        tracker.placeBid(new AuctionBid(130, user), redBike);
+        tracker.placeBid(new AuctionBid(140, user), redBike);
+
+        assertThat(search.findByKeywords("bike", SortOrder.PRICE, 0, 10).getItems(), is(Arrays.asList(blueBike, redBike)));
+        assertThat(search.findByKeywords("bike", SortOrder.BID_COUNT, 0, 10).getItems(), is(Arrays.asList(redBike, blueBike)));
+        assertThat(search.findByKeywords("Red, bike!", SortOrder.PRICE, 0, 10).getItems(), is(Arrays.asList(redBike)));
+        assertThat(search.findByKeywords("red", SortOrder.PRICE, 0, 10).getItems(), is(Arrays.asList(redBike, redBarn, redCar)));
+
+        final Page<Item> page = search.findByPrefix("red", SortOrder.PRICE, 1, 1);
+        assertThat(page.getItems(), is(Arrays.asList(redBarn)));
+        assertThat(page.getNextCursor(), is(2));
+        assertThat(page.hasMore(), is(true));
+
+        assertThat(search.findByKeywords("red boat", SortOrder.PRICE, 0, 10).getItems().isEmpty(), is(true));
+        assertThat(search.findByKeywords("  ", SortOrder.PRICE, 0, 10).getItems().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testTheIndexFollowsItemsAddedAndRemoved() {
+
+        final ItemSearch search = new ItemSearch(auction, tracker);
+
+        final Item redBoat = new AuctionItem("Red Boat", 100, 200);
+        auction.add(redBoat);
+        auction.remove("Red Bike");
+
+        assertThat(names(search.findByKeywords("red", SortOrder.NAME, 0, 10)), is(Arrays.asList("Red Barn", "Red Boat", "red car")));
+        assertThat(names(search.findByKeywords("bike", SortOrder.NAME, 0, 10)), is(Arrays.asList("Blue Bike")));
+        assertThat(names(search.findByPrefix("red b", SortOrder.NAME, 0, 10)), is(Arrays.asList("Red Barn", "Red Boat")));
+    }
+
+    @Test
+    public void testARemovedItemIsNotIndexedAgainByALateAddOrABid() {
+
+        final ItemSearch search = new ItemSearch(auction, tracker);
+        auction.remove("Red Bike");
+
+        // as if the add had been told after the remove
+        search.itemAdded(redBike);
+        tracker.placeBid(new AuctionBid(150, user), redBike);
+
+        assertThat(names(search.findByPrefix("red", SortOrder.PRICE, 0, 10)), is(Arrays.asList("Red Barn", "red car")));
+        assertThat(names(search.findByKeywords("bike", SortOrder.NAME, 0, 10)), is(Arrays.asList("Blue Bike")));
+    }
+
+    @Test
+    public void testAnItemRemovedWhileBeingIndexedCannotBeFound() {
+
+        final AtomicBoolean armed = new AtomicBoolean();
+        final Item redBoat = new AuctionItem("Red Boat", 100, 200) {
+            @Override
+            public String getName() {
+                // removed part way through being indexed
+                if(armed.getAndSet(false)) auction.remove(super.getName());
+                return super.getName();
+            }
+        };
+        auction.add(redBoat);
+        final ItemSearch search = new ItemSearch(auction, tracker);
+
+        armed.set(true);
+        search.itemAdded(redBoat);
+
+        assertThat(auction.find("Red Boat") == null, is(true));
+        assertThat(names(search.findByKeywords("boat", SortOrder.NAME, 0, 10)).isEmpty(), is(true));
+        assertThat(names(search.findByPrefix("red", SortOrder.PRICE, 0, 10)), is(Arrays.asList("Red Barn", "Red Bike", "red car")));
+    }
+
+    private static List<String> names(final Page<Item> page) {
+        final List<String> names = new ArrayList<>();
+        for(Item item : page.getItems()) names.add(item.getName());
+        return names;
+    }
+}
@@ -0,0 +1,53 @@
+package com.byhiras.auction.store;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class AppendOnlyListTest {
+
+    @Test
+    public void testElementsAreReadBackByIndexAcrossChunks() {
+
+        AppendOnlyList<Integer> list = new AppendOnlyList<>();
+
+        for(int i = 0; i < 1000; i++) assertThat(list.add(i), is(i));
+
+        assertThat(list.size(), is(1000));
+        for(int i = 0; i < 1000; i++) assertThat(list.get(i), is(i));
+    }
+
+    @Test
+    public void testConcurrentAppendsAreAllKept() throws Exception {
+
+        final int threads = 8;
+        final int perThread = 10000;
+        final AppendOnlyList<Integer> list = new AppendOnlyList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for(int t = 0; t < threads; t++) {
+            final int offset = t * perThread;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i = 0; i < perThread; i++) list.add(offset + i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES), is(true));
+
+        Set<Integer> seen = new HashSet<>();
+        for(int i = 0; i < list.size(); i++) seen.add(list.get(i));
+
+        assertThat(list.size(), is(threads * perThread));
+        assertThat(seen.size(), is(threads * perThread));
+    }
+}
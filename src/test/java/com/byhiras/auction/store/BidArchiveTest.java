@@ -0,0 +1,97 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.BidTrackerImpl;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.RecordedBid;
+import com.byhiras.auction.models.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class BidArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final User user1 = new AuctionUser("User 1");
+    private final User user2 = new AuctionUser("User 2");
+    private final User user3 = new AuctionUser("User 3");
+
+    @Test
+    public void testRangesAcrossCheckpointsDecodeEveryBid() {
+
+        final UserIds users = new UserIds();
+        final User[] bidders = {user1, user2, user3};
+        for(User user : bidders) users.idOf(user);
+
+        final int count = 5 * BidArchive.CHECKPOINT + 7;
+        final BidArchive.Builder builder = new BidArchive.Builder(users);
+        for(int i = 0; i < count; i++) {
+            // amounts jump by more over time and the clock sometimes steps back
+            builder.add(100 + i * i, (i * 7) % 3, 1500000000000L + i * 1000L - (i % 5 == 0 ? 3000 : 0));
+        }
+        final AuctionBid winning = new AuctionBid(100 + (count - 1) * (count - 1), user3);
+        final BidArchive archive = builder.build(winning);
+
+        assertThat(archive.size(), is(count));
+        assertThat(archive.highest(), is((Bid) winning));
+        assertThat(archive.encodedBytes() < count * 16, is(true));
+
+        final List<Bid> all = archive.range(0, count);
+        for(int i = 0; i < count - 1; i++) {
+            final RecordedBid bid = (RecordedBid) all.get(i);
+            assertThat(bid.value(), is(100 + i * i));
+            assertThat(bid.getUser(), is(bidders[(i * 7) % 3]));
+            assertThat(bid.getTimestamp(), is(1500000000000L + i * 1000L - (i % 5 == 0 ? 3000 : 0)));
+        }
+        assertThat(all.get(count - 1), is((Bid) winning));
+
+        final List<Bid> middle = archive.range(BidArchive.CHECKPOINT - 2, 2 * BidArchive.CHECKPOINT + 3);
+        assertThat(middle.size(), is(BidArchive.CHECKPOINT + 5));
+        assertThat(middle.get(0).value(), is(all.get(BidArchive.CHECKPOINT - 2).value()));
+        assertThat(middle.get(middle.size() - 1).value(), is(all.get(2 * BidArchive.CHECKPOINT + 2).value()));
+
+        final List<Bid> top = archive.top(3);
+        assertThat(top.get(0), is((Bid) winning));
+        assertThat(top.get(2).value(), is(all.get(count - 3).value()));
+        assertThat(archive.range(count, count + 10).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testClosingBiddingArchivesTheHistoryAndDeletesTheSpillFile() {
+
+        final BidTrackerImpl tracker = new BidTrackerImpl(new RetentionPolicy(2, 2, folder.getRoot()));
+        final Item item = new AuctionItem("Item 1", 100, 200);
+
+        for(int i = 1; i <= 200; i++) {
+            tracker.placeBid(new AuctionBid(100 + i, i % 2 == 0 ? user1 : user2), item);
+        }
+        final Bid winning = tracker.getCurrentWinningBid(item);
+        final File spilled = folder.getRoot().listFiles()[0]; // the tracker's own directory
+        assertThat(spilled.list().length, is(1));
+
+        assertThat(tracker.closeBidding(item), is(winning));
+        assertThat(spilled.list().length, is(0));
+        assertThat(tracker.placeBid(new AuctionBid(1000, user1), item), is(BidResult.CLOSED));
+
+        assertThat(tracker.getCurrentWinningBid(item), is(winning));
+        final List<Bid> all = tracker.getAllBids(item);
+        assertThat(all.size(), is(200));
+        assertThat(all.get(0), is(winning));
+        assertThat(all.get(199).value(), is(101));
+        assertThat(all.get(199).getUser(), is(user2));
+        assertThat(tracker.getBids(item, 100, 3).getItems().get(0).value(), is(201));
+        assertThat(tracker.getAllItems(user1).size(), is(1));
+    }
+}
@@ -0,0 +1,97 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class BidHistoryTest {
+
+    @Test
+    public void testChunksDoubleInSizeWithoutGapsOrOverlaps() {
+
+        int expectedStart = 0;
+        for(int index = 0; index < 20; index++) {
+            assertThat(BidHistory.chunkStart(index), is(expectedStart));
+            assertThat(BidHistory.chunkIndex(expectedStart), is(index));
+            assertThat(BidHistory.chunkIndex(expectedStart + (8 << index) - 1), is(index));
+            expectedStart += 8 << index;
+        }
+    }
+
+    @Test
+    public void testRecordedColumnsAreReadBackAcrossChunks() {
+
+        BidHistory history = new BidHistory();
+
+        for(int sequence = 0; sequence < 1000; sequence++) {
+            history.record(sequence, 100 + sequence, sequence % 7, 1000L * sequence);
+        }
+
+        for(int sequence = 0; sequence < 1000; sequence++) {
+            assertThat(history.amountAt(sequence), is(100 + sequence));
+            assertThat(history.userAt(sequence), is(sequence % 7));
+            assertThat(history.timestampAt(sequence), is(1000L * sequence));
+        }
+    }
+
+    @Test
+    public void testReadersFindTheGapsInsteadOfWaitingForThem() {
+
+        BidHistory history = new BidHistory();
+        for(int sequence = 0; sequence < 20; sequence++) {
+            if(sequence != 5 && sequence != 12) history.record(sequence, 100 + sequence, 1, sequence);
+        }
+
+        assertThat(history.firstUnrecorded(0, 20), is(5));
+        assertThat(history.firstUnrecorded(6, 20), is(12));
+        assertThat(history.firstUnrecorded(13, 20), is(20));
+        assertThat(history.recordedDownTo(19, 0), is(13));
+        assertThat(history.recordedDownTo(19, 15), is(15));
+        assertThat(history.recordedDownTo(12, 0), is(13));
+        assertThat(history.recordedDownTo(-1, 0), is(0));
+
+        try {
+            history.amountAt(12);
+            throw new AssertionError("a position never recorded was read");
+        } catch (RuntimeException e) {
+            assertThat(history.isRecorded(12), is(false));
+        }
+        try {
+            history.userAt(5000);
+            throw new AssertionError("a position in a chunk never created was read");
+        } catch (RuntimeException e) {
+            assertThat(history.isRecorded(5000), is(false));
+        }
+    }
+
+    @Test
+    public void testTheSameUserAlwaysGetsTheSameId() {
+
+        UserIds userIds = new UserIds();
+        User[] users = new User[100];
+
+        for(int i = 0; i < users.length; i++) {
+            final String name = "User " + i;
+            users[i] = new User() {
+                @Override
+                public String getName() {
+                    return name;
+                }
+
+                @Override
+                public void bidExecuted(Bid bid, Item item) {
+                }
+            };
+            assertThat(userIds.idOf(users[i]), is(i));
+        }
+
+        for(int i = 0; i < users.length; i++) {
+            assertThat(userIds.idOf(users[i]), is(i));
+            assertThat(userIds.userOf(i), is(users[i]));
+        }
+    }
+}
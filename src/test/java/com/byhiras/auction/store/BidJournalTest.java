@@ -0,0 +1,113 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class BidJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final User user = new User() {
+        @Override
+        public String getName() {
+            return "User 1";
+        }
+
+        @Override
+        public void bidExecuted(Bid bid, Item item) {
+        }
+    };
+
+    @Test
+    public void testAcceptedBidsAreReplayedIntoAFreshTrackerAndAuction() throws Exception {
+
+        File directory = folder.newFolder();
+
+        Item item1 = new AuctionItem("Item 1", 100, 200);
+        Item item2 = new AuctionItem("Item 2", 50, 75, 1234567890L);
+
+        // small segments so that the journal rolls over several times
+        BidJournal journal = new BidJournal(directory, FsyncPolicy.PER_BID, 0, 4 * BidJournal.RECORD_SIZE);
+        ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        tracker.addListener(journal);
+
+        for(int i = 1; i <= 10; i++) {
+            tracker.registerBid(new AuctionBid(100 + i, user), item1);
+            tracker.registerBid(new AuctionBid(50 + i * 2, user), item2);
+        }
+        tracker.registerBid(new AuctionBid(90, user), item1); // rejected so not journalled
+        journal.close();
+
+        Auction auction = new Auction();
+        BidJournal reopened = new BidJournal(directory, FsyncPolicy.NONE);
+        ConcurrentBidTracker restored = new ConcurrentBidTracker();
+
+        assertThat(reopened.replay(auction, restored), is(20L));
+        reopened.close();
+
+        Item found = auction.find("Item 1");
+        assertThat(found.getInitial(), is(100));
+        assertThat(found.getReserve(), is(200));
+
+        List<Bid> bids = restored.getAllBids(found);
+        assertThat(bids.size(), is(10));
+        assertThat(bids.get(0).value(), is(110));
+        assertThat(bids.get(9).value(), is(101));
+        assertThat(bids.get(0).getUser().getName(), is("User 1"));
+
+        assertThat(restored.getCurrentWinningBid(auction.find("Item 2")).value(), is(70));
+        assertThat(auction.find("Item 2").getClosingTime(), is(1234567890L));
+        assertThat(found.getClosingTime(), is(Item.NEVER));
+        assertThat(restored.getWinningItems(bids.get(0).getUser()).size(), is(2));
+        assertThat(restored.getAllItems(bids.get(0).getUser()).size(), is(2));
+    }
+
+    @Test
+    public void testReplayedJournalKeepsAppendingToANewSegment() throws Exception {
+
+        File directory = folder.newFolder();
+        Item item = new AuctionItem("Item 1", 100, 200);
+
+        BidJournal journal = new BidJournal(directory, FsyncPolicy.GROUP_COMMIT, 1, BidJournal.DEFAULT_SEGMENT_SIZE);
+        ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        tracker.addListener(journal);
+        tracker.registerBid(new AuctionBid(101, user), item);
+        journal.close();
+
+        Auction auction = new Auction();
+        BidJournal second = new BidJournal(directory, FsyncPolicy.NONE);
+        ConcurrentBidTracker secondTracker = new ConcurrentBidTracker();
+        second.replay(auction, secondTracker);
+        secondTracker.addListener(second);
+        secondTracker.registerBid(new AuctionBid(102, user), auction.find("Item 1"));
+        second.close();
+
+        assertThat(second.currentSegment(), is(journal.currentSegment() + 1));
+
+        ConcurrentBidTracker thirdTracker = new ConcurrentBidTracker();
+        BidJournal third = new BidJournal(directory, FsyncPolicy.NONE);
+        assertThat(third.replay(new Auction(), thirdTracker), is(2L));
+        third.close();
+    }
+
+    @Test
+    public void testUnusedRecordsNeverPassTheChecksum() {
+
+        assertThat(BidJournal.checksum(0, 0, 0, 0, 0) != 0, is(true));
+    }
+}
@@ -0,0 +1,110 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.Item;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class CatalogueImporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCsvImportReportsBadRecordsAndDuplicates() throws Exception {
+
+        final File file = write("name,initial,reserve,closing time\n"
+                                + "Item 1,100,200\n"
+                                + "\"Item, \"\"2\"\"\",50,75,1234567890\r\n"
+                                + "\n"
+                                + "# not an item\n"
+                                + "Item 3, 10 ,15\n"
+                                + "Item 4,ten,15\n"
+                                + "Item 1,1,1\n"
+                                + "\"Item 5,1,2\n"
+                                + "Item 7,1,2, \n"
+                                + "Item 6,1,2,3,4");
+
+        final Auction auction = new Auction();
+        final ImportResult result = new CatalogueImporter().importCsv(file, auction);
+
+        assertThat(result.getAdded(), is(4));
+        assertThat(result.getDuplicates(), is(1));
+        assertThat(result.getErrors().size(), is(3));
+        assertThat(result.getErrors().get(0).getReason(), is("the initial value is not a number"));
+        assertThat(result.getErrors().get(0).getOffset(), is(111L));
+        assertThat(result.getErrors().get(1).getReason(), is("the quoted name is not closed"));
+        assertThat(result.getErrors().get(2).getReason(), is("there are too many fields"));
+
+        assertThat(auction.find("Item 1").getInitial(), is(100));
+        assertThat(auction.find("Item, \"2\"").getClosingTime(), is(1234567890L));
+        assertThat(auction.find("Item 3").getReserve(), is(15));
+        assertThat(auction.find("Item 7").getClosingTime(), is(Item.NEVER));
+    }
+
+    @Test
+    public void testLinesAcrossChunkBoundariesAreReadOnce() throws Exception {
+
+        final StringBuilder csv = new StringBuilder();
+        for(int i = 0; i < 500; i++) csv.append("Item ").append(i).append(',').append(i).append(',').append(i * 2).append('\n');
+        final File file = write(csv.toString());
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for(int chunkSize : new int[] {1, 7, 64, 1 << 20}) {
+                final Auction auction = new Auction();
+                final ImportResult result = new CatalogueImporter(pool, chunkSize).importCsv(file, auction);
+
+                assertThat(result.getAdded(), is(500));
+                assertThat(result.getDuplicates(), is(0));
+                assertThat(result.getErrors().isEmpty(), is(true));
+                assertThat(auction.find("Item 499").getReserve(), is(998));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBinaryRoundTripStopsAtACutShortRecord() throws Exception {
+
+        final List<Item> items = new ArrayList<>();
+        for(int i = 0; i < 1000; i++) items.add(new AuctionItem("Item " + i, i, i + 1, 1000L + i));
+        final File file = folder.newFile();
+        CatalogueImporter.writeBinary(items, file);
+
+        final Auction auction = new Auction(false, items.size());
+        final ImportResult result = new CatalogueImporter(ForkJoinPool.commonPool(), 100).importBinary(file, auction);
+        assertThat(result.getAdded(), is(1000));
+        assertThat(result.getErrors().isEmpty(), is(true));
+        assertThat(auction.find("Item 999").getClosingTime(), is(1999L));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        final Auction cut = new Auction();
+        final ImportResult partial = new CatalogueImporter().importBinary(file, cut);
+        assertThat(partial.getAdded(), is(999));
+        assertThat(partial.getErrors().size(), is(1));
+        assertThat(partial.getErrors().get(0).getReason(), is("the record is cut short"));
+    }
+
+    private File write(final String content) throws Exception {
+        final File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,230 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.Auction;
+import com.byhiras.auction.BidResult;
+import com.byhiras.auction.ConcurrentBidTracker;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class SnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final User user1 = new AuctionUser("User 1");
+    private final User user2 = new AuctionUser("User 2");
+
+    @Test
+    public void testSnapshotPlusJournalTailRestoresEveryBidOnce() throws Exception {
+
+        File snapshotDirectory = folder.newFolder();
+        File journalDirectory = folder.newFolder();
+
+        Auction auction = new Auction();
+        Item item1 = new AuctionItem("Item 1", 100, 200, 1234567890L);
+        Item item2 = new AuctionItem("Item 2", 50, 75);
+        Item item3 = new AuctionItem("Item 3", 10, 15);
+        auction.add(item1);
+        auction.add(item2);
+        auction.add(item3);
+
+        BidJournal journal = new BidJournal(journalDirectory, FsyncPolicy.NONE);
+        ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        tracker.addListener(journal);
+
+        tracker.registerBid(new AuctionBid(101, user1), item1);
+        tracker.registerBid(new AuctionBid(102, user2), item1);
+        tracker.registerBid(new AuctionBid(60, user1), item2);
+
+        SnapshotStore snapshots = new SnapshotStore(snapshotDirectory, auction, tracker, journal);
+        snapshots.takeSnapshot();
+
+        // the tail, only in the journal
+        tracker.registerBid(new AuctionBid(103, user1), item1);
+        tracker.registerBid(new AuctionBid(11, user2), item3);
+
+        snapshots.close();
+        journal.close();
+
+        Auction restoredAuction = new Auction();
+        ConcurrentBidTracker restored = new ConcurrentBidTracker();
+        BidJournal reopened = new BidJournal(journalDirectory, FsyncPolicy.NONE);
+
+        assertThat(SnapshotStore.restore(snapshotDirectory, restoredAuction, restored, reopened), is(5L));
+        reopened.close();
+
+        assertThat(restoredAuction.size(), is(3));
+        assertThat(restoredAuction.find("Item 1").getClosingTime(), is(1234567890L));
+
+        List<Bid> bids = restored.getAllBids(restoredAuction.find("Item 1"));
+        assertThat(bids.size(), is(3));
+        assertThat(bids.get(0).value(), is(103));
+        assertThat(bids.get(1).getUser().getName(), is("User 2"));
+
+        assertThat(restored.getCurrentWinningBid(restoredAuction.find("Item 3")).value(), is(11));
+
+        User restoredUser1 = bids.get(0).getUser();
+        assertThat(restored.getAllItems(restoredUser1).size(), is(2));
+    }
+
+    @Test
+    public void testProxyMaximaSurviveARestart() throws Exception {
+
+        File snapshotDirectory = folder.newFolder();
+        File journalDirectory = folder.newFolder();
+
+        Auction auction = new Auction();
+        Item item1 = new AuctionItem("Item 1", 100, 200);
+        Item item2 = new AuctionItem("Item 2", 50, 75);
+        auction.add(item1);
+        auction.add(item2);
+
+        BidJournal journal = new BidJournal(journalDirectory, FsyncPolicy.NONE);
+        ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        tracker.addListener(journal);
+
+        tracker.placeProxyBid(new AuctionBid(500, user1), item1);
+
+        SnapshotStore snapshots = new SnapshotStore(snapshotDirectory, auction, tracker, journal);
+        snapshots.takeSnapshot();
+
+        // only in the journal: a raise in place and a new proxy bid
+        assertThat(tracker.placeProxyBid(new AuctionBid(700, user1), item1), is(BidResult.ACCEPTED));
+        tracker.placeProxyBid(new AuctionBid(90, user2), item2);
+
+        snapshots.close();
+        journal.close();
+
+        Auction restoredAuction = new Auction();
+        ConcurrentBidTracker restored = new ConcurrentBidTracker();
+        BidJournal reopened = new BidJournal(journalDirectory, FsyncPolicy.NONE);
+        SnapshotStore.restore(snapshotDirectory, restoredAuction, restored, reopened);
+        reopened.close();
+
+        Item restored1 = restoredAuction.find("Item 1");
+        assertThat(restored.placeBid(new AuctionBid(600, new AuctionUser("User 2")), restored1), is(BidResult.OUTBID_BY_PROXY));
+        assertThat(restored.getCurrentWinningBid(restored1).value(), is(601));
+        assertThat(restored.getCurrentWinningBid(restored1).getUser().getName(), is("User 1"));
+        assertThat(restored.placeBid(new AuctionBid(700, new AuctionUser("User 2")), restored1), is(BidResult.OUTBID_BY_PROXY));
+
+        Item restored2 = restoredAuction.find("Item 2");
+        assertThat(restored.placeBid(new AuctionBid(80, new AuctionUser("User 1")), restored2), is(BidResult.OUTBID_BY_PROXY));
+        assertThat(restored.getCurrentWinningBid(restored2).value(), is(81));
+    }
+
+    @Test
+    public void testClosedItemsStayClosedAfterARestart() throws Exception {
+
+        File snapshotDirectory = folder.newFolder();
+        File journalDirectory = folder.newFolder();
+
+        Auction auction = new Auction();
+        Item item1 = new AuctionItem("Item 1", 100, 200);
+        Item item2 = new AuctionItem("Item 2", 50, 75);
+        Item item3 = new AuctionItem("Item 3", 10, 15);
+        Item item4 = new AuctionItem("Item 4", 10, 15);
+        auction.add(item1);
+        auction.add(item2);
+        auction.add(item3);
+        auction.add(item4);
+
+        BidJournal journal = new BidJournal(journalDirectory, FsyncPolicy.NONE);
+        ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        tracker.addListener(journal);
+
+        tracker.registerBid(new AuctionBid(101, user1), item1);
+        tracker.closeBidding(item1);
+        tracker.closeBidding(item2);
+        tracker.registerBid(new AuctionBid(11, user1), item3);
+
+        SnapshotStore snapshots = new SnapshotStore(snapshotDirectory, auction, tracker, journal);
+        snapshots.takeSnapshot();
+
+        // only in the journal
+        tracker.closeBidding(item3);
+
+        snapshots.close();
+        journal.close();
+
+        Auction restoredAuction = new Auction();
+        ConcurrentBidTracker restored = new ConcurrentBidTracker();
+        BidJournal reopened = new BidJournal(journalDirectory, FsyncPolicy.NONE);
+        SnapshotStore.restore(snapshotDirectory, restoredAuction, restored, reopened);
+        reopened.close();
+
+        assertThat(restored.placeBid(new AuctionBid(150, user2), restoredAuction.find("Item 1")), is(BidResult.CLOSED));
+        assertThat(restored.placeBid(new AuctionBid(60, user2), restoredAuction.find("Item 2")), is(BidResult.CLOSED));
+        assertThat(restored.placeBid(new AuctionBid(20, user2), restoredAuction.find("Item 3")), is(BidResult.CLOSED));
+        assertThat(restored.placeBid(new AuctionBid(20, user2), restoredAuction.find("Item 4")), is(BidResult.ACCEPTED));
+        assertThat(restored.closeBidding(restoredAuction.find("Item 1")).value(), is(101));
+    }
+
+    @Test
+    public void testJournalSegmentsOlderThanEveryKeptSnapshotAreDeleted() throws Exception {
+
+        File snapshotDirectory = folder.newFolder();
+        File journalDirectory = folder.newFolder();
+
+        Auction auction = new Auction();
+        Item item = new AuctionItem("Item 1", 100, 200);
+        auction.add(item);
+
+        BidJournal journal = new BidJournal(journalDirectory, FsyncPolicy.NONE, 5, 1024);
+        ConcurrentBidTracker tracker = new ConcurrentBidTracker();
+        tracker.addListener(journal);
+        SnapshotStore snapshots = new SnapshotStore(snapshotDirectory, auction, tracker, journal);
+
+        for(int round = 0; round < 4; round++) {
+            tracker.registerBid(new AuctionBid(101 + round, user1), item);
+            snapshots.takeSnapshot();
+        }
+        tracker.registerBid(new AuctionBid(200, user2), item);
+
+        // the two kept snapshots start at segments 3 and 4
+        assertThat(journalDirectory.list((dir, name) -> name.startsWith("bids-")).length, is(2));
+
+        snapshots.close();
+        journal.close();
+
+        ConcurrentBidTracker restored = new ConcurrentBidTracker();
+        BidJournal reopened = new BidJournal(journalDirectory, FsyncPolicy.NONE, 5, 1024);
+        SnapshotStore.restore(snapshotDirectory, new Auction(), restored, reopened);
+        reopened.close();
+
+        assertThat(restored.getAllBids(item).size(), is(5));
+        assertThat(restored.getCurrentWinningBid(item).value(), is(200));
+    }
+
+    @Test
+    public void testOnlyTheNewestSnapshotsAreKept() throws Exception {
+
+        File directory = folder.newFolder();
+        Auction auction = new Auction();
+        auction.add(new AuctionItem("Item 1", 100, 200));
+
+        SnapshotStore snapshots = new SnapshotStore(directory, auction, new ConcurrentBidTracker(), null);
+        snapshots.takeSnapshot();
+        snapshots.takeSnapshot();
+        File latest = snapshots.takeSnapshot();
+
+        assertThat(directory.listFiles().length, is(2));
+        assertThat(latest.exists(), is(true));
+
+        Auction restoredAuction = new Auction();
+        assertThat(SnapshotStore.restore(directory, restoredAuction, new ConcurrentBidTracker(), null), is(0L));
+        assertThat(restoredAuction.find("Item 1").getReserve(), is(200));
+    }
+}
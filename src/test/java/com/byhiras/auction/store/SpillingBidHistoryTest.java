@@ -0,0 +1,154 @@
+package com.byhiras.auction.store;
+
+import com.byhiras.auction.BidTrackerImpl;
+import com.byhiras.auction.Page;
+import com.byhiras.auction.models.AuctionBid;
+import com.byhiras.auction.models.AuctionItem;
+import com.byhiras.auction.models.AuctionUser;
+import com.byhiras.auction.models.Bid;
+import com.byhiras.auction.models.Item;
+import com.byhiras.auction.models.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class SpillingBidHistoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final User user1 = new AuctionUser("User 1");
+    private final User user2 = new AuctionUser("User 2");
+
+    @Test
+    public void testOlderBidsAreSpilledAndReadBack() throws Exception {
+
+        final File file = new File(folder.getRoot(), "item.bids");
+        final SpillingBidHistory history = new SpillingBidHistory(new RetentionPolicy(2, 3, folder.getRoot()), file, new UserIds());
+
+        for(int i = 1; i <= 10; i++) {
+            assertThat(history.addIfHighest(new AuctionBid(100 + i, i % 2 == 0 ? user2 : user1)), is(true));
+        }
+        assertThat(history.addIfHighest(new AuctionBid(110, user1)), is(false));
+
+        assertThat(history.size(), is(10));
+        assertThat(history.spilled(), is(7));
+        assertThat(history.retained(), is(3));
+        assertThat(file.exists(), is(false)); // less than a batch, still in memory
+        assertThat(history.highest().value(), is(110));
+
+        final List<Bid> all = history.range(0, 10);
+        for(int i = 0; i < 10; i++) {
+            assertThat(all.get(i).value(), is(101 + i));
+            assertThat(all.get(i).getUser(), is(i % 2 == 0 ? user1 : user2));
+        }
+
+        assertThat(values(history.range(5, 8)), is(values(all.subList(5, 8))));
+        assertThat(values(history.top(2)), is(list(110, 109)));
+        assertThat(values(history.top(4)), is(list(110, 109, 108, 107)));
+
+        history.close();
+        assertThat(file.exists(), is(false));
+    }
+
+    @Test
+    public void testFullBatchesAreWrittenOnFlush() throws Exception {
+
+        final File file = new File(folder.getRoot(), "item.bids");
+        final SpillingBidHistory history = new SpillingBidHistory(new RetentionPolicy(0, 1, folder.getRoot()), file, new UserIds());
+
+        final int count = 2 * SpillingBidHistory.BATCH_RECORDS + 11;
+        for(int i = 1; i <= count; i++) {
+            history.addIfHighest(new AuctionBid(100 + i, i % 2 == 0 ? user2 : user1));
+        }
+
+        assertThat(history.spilled(), is(count - 1));
+        assertThat(history.unwritten(), is(2));
+        assertThat(file.exists(), is(false));
+        assertThat(history.range(0, count).size(), is(count));
+
+        history.flush();
+        assertThat(history.unwritten(), is(0));
+        assertThat(file.length(), is(2L * SpillingBidHistory.BATCH_RECORDS * 16));
+
+        final List<Bid> all = history.range(0, count);
+        for(int i = 0; i < count; i++) {
+            assertThat(all.get(i).value(), is(101 + i));
+            assertThat(all.get(i).getUser(), is(i % 2 == 0 ? user1 : user2));
+        }
+        assertThat(values(history.top(3)), is(list(100 + count, 99 + count, 98 + count)));
+        assertThat(values(history.range(count - 12, count - 9)), is(list(89 + count, 90 + count, 91 + count)));
+
+        history.close();
+        assertThat(file.exists(), is(false));
+    }
+
+    @Test
+    public void testTheTrackerKeepsTheWholeHistoryWhileBoundingMemory() {
+
+        final BidTrackerImpl tracker = new BidTrackerImpl(new RetentionPolicy(5, 5, folder.getRoot()));
+        final Item item = new AuctionItem("Item 1", 100, 200);
+
+        for(int i = 1; i <= 1000; i++) {
+            tracker.registerBid(new AuctionBid(100 + i, user1), item);
+        }
+
+        assertThat(tracker.getCurrentWinningBid(item).value(), is(1100));
+        assertThat(values(tracker.getTopBids(item, 3)), is(list(1100, 1099, 1098)));
+
+        final List<Bid> all = tracker.getAllBids(item);
+        assertThat(all.size(), is(1000));
+        assertThat(all.get(999).value(), is(101));
+
+        final Page<Bid> page = tracker.getBids(item, 10, 5);
+        assertThat(values(page.getItems()), is(list(111, 112, 113, 114, 115)));
+        assertThat(page.getNextCursor(), is(15));
+        assertThat(page.hasMore(), is(true));
+
+        assertThat(folder.getRoot().listFiles().length, is(1));
+        tracker.close();
+        assertThat(folder.getRoot().listFiles().length, is(0));
+    }
+
+    @Test
+    public void testTrackersSharingASpillDirectoryKeepTheirOwnFiles() {
+
+        final RetentionPolicy policy = new RetentionPolicy(2, 2, folder.getRoot());
+        final BidTrackerImpl tracker1 = new BidTrackerImpl(policy);
+        final BidTrackerImpl tracker2 = new BidTrackerImpl(policy);
+        final Item item = new AuctionItem("Item 1", 100, 200);
+
+        for(int i = 1; i <= 100; i++) {
+            tracker1.registerBid(new AuctionBid(100 + i, user1), item);
+            tracker2.registerBid(new AuctionBid(1000 + i, user1), item);
+        }
+
+        assertThat(tracker1.getAllBids(item).get(99).value(), is(101));
+        assertThat(tracker2.getAllBids(item).get(99).value(), is(1001));
+        assertThat(folder.getRoot().listFiles().length, is(2));
+
+        tracker1.close();
+        assertThat(tracker2.getAllBids(item).size(), is(100));
+        tracker2.close();
+        assertThat(folder.getRoot().listFiles().length, is(0));
+    }
+
+    private static List<Integer> values(final List<Bid> bids) {
+        final List<Integer> values = new ArrayList<>();
+        for(Bid bid : bids) values.add(bid.value());
+        return values;
+    }
+
+    private static List<Integer> list(final Integer... values) {
+        final List<Integer> list = new ArrayList<>();
+        for(Integer value : values) list.add(value);
+        return list;
+    }
+}